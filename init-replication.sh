@@ -0,0 +1,4 @@
+#!/bin/sh
+# Lets the optional read replica (docker compose --profile replica) stream WAL from this instance.
+# Runs only when the data volume is initialized.
+echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"
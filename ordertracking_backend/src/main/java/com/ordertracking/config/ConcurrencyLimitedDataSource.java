@@ -0,0 +1,100 @@
+package com.ordertracking.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounds the number of threads holding a JDBC connection at once. With virtual threads there is
+ * no worker pool limiting concurrency any more, so thousands of requests can queue up on the
+ * connection pool; here they park on a fair semaphore instead, in arrival order, and give up
+ * after the pool's connection timeout just like a pool checkout would.
+ */
+public class ConcurrencyLimitedDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final long acquireTimeoutMillis;
+
+    public ConcurrencyLimitedDataSource(DataSource target, int maxConcurrency, long acquireTimeoutMillis) {
+        super(target);
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.maxConcurrency = maxConcurrency;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("No database permit available after "
+                        + acquireTimeoutMillis + " ms (" + maxConcurrency + " concurrent connections allowed, "
+                        + permits.getQueueLength() + " waiting)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database permit", e);
+        }
+    }
+
+    private Connection releasingOnClose(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                        try {
+                            connection.close();
+                        } finally {
+                            permits.release();
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int getWaitingThreads() {
+        return permits.getQueueLength();
+    }
+}
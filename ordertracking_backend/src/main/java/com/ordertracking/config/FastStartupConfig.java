@@ -0,0 +1,46 @@
+package com.ordertracking.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.annotation.Annotation;
+import java.util.List;
+
+/**
+ * Extras for {@code spring.main.lazy-initialization=true} (the {@code faststart} profile).
+ *
+ * <p>A lazy bean is only created when something asks for it, and Spring only discovers the
+ * listener, schedule and startup methods of beans it has created. Beans declaring any of those
+ * are therefore kept eager, so the Kafka listeners, scheduled flushes and startup restores run as
+ * before; controllers and everything only they use are created on their first request.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.main.lazy-initialization", havingValue = "true")
+public class FastStartupConfig {
+
+    private static final List<Class<? extends Annotation>> EAGER_ANNOTATIONS =
+            List.of(KafkaListener.class, Scheduled.class, EventListener.class, PostConstruct.class);
+
+    @Bean
+    public static LazyInitializationExcludeFilter activeBeansExcludeFilter() {
+        return (beanName, beanDefinition, beanType) -> beanType != null && hasEagerMethod(beanType);
+    }
+
+    static boolean hasEagerMethod(Class<?> beanType) {
+        if (AnnotatedElementUtils.hasAnnotation(beanType, KafkaListener.class)) {
+            return true;
+        }
+        ReflectionUtils.MethodFilter eager = method -> EAGER_ANNOTATIONS.stream()
+                .anyMatch(annotation -> AnnotatedElementUtils.hasAnnotation(method, annotation));
+        return !MethodIntrospector.selectMethods(beanType, eager).isEmpty();
+    }
+}
@@ -0,0 +1,103 @@
+package com.ordertracking.config;
+
+import com.ordertracking.service.KafkaConsumerService;
+import com.ordertracking.service.ZoneRouting;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.health.ConditionalOnEnabledHealthIndicator;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Health contributor {@code kafkaAssignment}: DOWN until every consumer of the order listener has
+ * joined the consumer group, i.e. completed its first rebalance, so an instance only reports ready
+ * once it takes part in consuming. Once UP it stays UP: later rebalances briefly revoke all
+ * partitions of every member, and an instance that got no partitions (more consumers than
+ * partitions) is still a working standby. Part of the readiness group; disable with
+ * {@code management.health.kafka-assignment.enabled=false}.
+ */
+@Component
+@ConditionalOnEnabledHealthIndicator("kafka-assignment")
+public class KafkaAssignmentHealthIndicator extends AbstractHealthIndicator {
+
+    static final String REBALANCE_METRIC = "rebalance-total";
+    static final String COORDINATOR_GROUP = "consumer-coordinator-metrics";
+
+    private final KafkaListenerEndpointRegistry registry;
+    private final KafkaConsumerService kafkaConsumerService;
+    private final ZoneRouting zoneRouting;
+    private final String groupId;
+    private volatile boolean joined;
+
+    public KafkaAssignmentHealthIndicator(KafkaListenerEndpointRegistry registry,
+                                          KafkaConsumerService kafkaConsumerService,
+                                          ZoneRouting zoneRouting,
+                                          @Value("${spring.kafka.consumer.group-id}") String groupId) {
+        super("Kafka partition assignment check failed");
+        this.registry = registry;
+        this.kafkaConsumerService = kafkaConsumerService;
+        this.zoneRouting = zoneRouting;
+        this.groupId = groupId;
+    }
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        if (!joined) {
+            joined = orderListenerJoined();
+        }
+        Set<String> partitions = kafkaConsumerService.getAssignedPartitions();
+        (joined ? builder.up() : builder.down())
+                .withDetail("topics", zoneRouting.getConsumedTopics())
+                .withDetail("assignedPartitions", partitions);
+    }
+
+    /**
+     * @return whether the order listener's consumers have all completed a rebalance, whatever
+     * they were assigned in it
+     */
+    private boolean orderListenerJoined() {
+        int consumers = 0;
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            if (!isOrderListener(container)) {
+                continue;
+            }
+            for (Map<MetricName, ? extends Metric> clientMetrics : container.metrics().values()) {
+                if (rebalances(clientMetrics) < 1) {
+                    return false;
+                }
+                consumers++;
+            }
+        }
+        return consumers > 0;
+    }
+
+    private boolean isOrderListener(MessageListenerContainer container) {
+        String[] topics = container.getContainerProperties().getTopics();
+        if (!groupId.equals(container.getGroupId()) || topics == null) {
+            return false;
+        }
+        for (String topic : topics) {
+            if (zoneRouting.isOrderTopic(topic)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double rebalances(Map<MetricName, ? extends Metric> clientMetrics) {
+        for (Map.Entry<MetricName, ? extends Metric> metric : clientMetrics.entrySet()) {
+            if (REBALANCE_METRIC.equals(metric.getKey().name()) && COORDINATOR_GROUP.equals(metric.getKey().group())
+                    && metric.getValue().metricValue() instanceof Number value) {
+                return value.doubleValue();
+            }
+        }
+        return 0;
+    }
+}
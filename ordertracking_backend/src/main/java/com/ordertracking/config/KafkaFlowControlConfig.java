@@ -0,0 +1,20 @@
+package com.ordertracking.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ContainerCustomizer;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+
+@Configuration
+public class KafkaFlowControlConfig {
+
+    /**
+     * Lets ConsumerFlowControl stop a listener container after the current record instead of after
+     * the whole poll; the rest of the poll is kept and processed once the container resumes.
+     * Applied by Spring Boot to every container of the default factory, retry topics included.
+     */
+    @Bean
+    public ContainerCustomizer<Object, Object, ConcurrentMessageListenerContainer<Object, Object>> pauseImmediateCustomizer() {
+        return container -> container.getContainerProperties().setPauseImmediate(true);
+    }
+}
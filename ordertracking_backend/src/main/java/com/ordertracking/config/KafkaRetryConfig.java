@@ -0,0 +1,38 @@
+package com.ordertracking.config;
+
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+public class KafkaRetryConfig {
+
+    /**
+     * Publishes to the order retry topics and the dead-letter topic, and replays dead letters.
+     * Records that could not be deserialized keep their original bytes, everything else is JSON.
+     * Declared as {@link KafkaOperations} so the auto-configured KafkaTemplate is still created.
+     */
+    @Bean
+    public KafkaOperations<String, Object> retryTopicKafkaTemplate(KafkaProperties kafkaProperties) {
+        Map<Class<?>, Serializer<?>> serializers = new LinkedHashMap<>();
+        serializers.put(byte[].class, new ByteArraySerializer());
+        serializers.put(Object.class, new JsonSerializer<>());
+
+        DefaultKafkaProducerFactory<String, Object> producerFactory = new DefaultKafkaProducerFactory<>(
+                kafkaProperties.buildProducerProperties(null),
+                new StringSerializer(),
+                new DelegatingByTypeSerializer(serializers, true));
+        return new KafkaTemplate<>(producerFactory);
+    }
+}
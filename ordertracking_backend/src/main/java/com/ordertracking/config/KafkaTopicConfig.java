@@ -0,0 +1,44 @@
+package com.ordertracking.config;
+
+import com.ordertracking.service.ZoneRouting;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
+
+@Configuration
+public class KafkaTopicConfig {
+
+    /**
+     * Provisions the order topic instead of relying on broker auto-creation (one partition).
+     * Events are keyed by orderId, so each order stays on one partition and keeps its ordering
+     * while different orders are consumed in parallel. Existing topics are grown, never shrunk.
+     */
+    @Bean
+    public NewTopic orderUpdatesTopic(@Value("${order.kafka.topic.order-updates}") String name,
+                                      @Value("${order.kafka.topic.partitions:6}") int partitions,
+                                      @Value("${order.kafka.topic.replicas:1}") int replicas) {
+        return TopicBuilder.name(name)
+                .partitions(partitions)
+                .replicas(replicas)
+                .build();
+    }
+
+    /**
+     * One topic per dedicated zone, sized on its own so a hot zone can get more partitions (and
+     * with them more consumer threads) than the shared topic.
+     */
+    @Bean
+    public KafkaAdmin.NewTopics zoneTopics(ZoneRouting zoneRouting,
+                                           @Value("${order.zones.partitions:${order.kafka.topic.partitions:6}}") int partitions,
+                                           @Value("${order.kafka.topic.replicas:1}") int replicas) {
+        return new KafkaAdmin.NewTopics(zoneRouting.getDedicatedZones().stream()
+                .map(zone -> TopicBuilder.name(zoneRouting.topicFor(zone))
+                        .partitions(partitions)
+                        .replicas(replicas)
+                        .build())
+                .toArray(NewTopic[]::new));
+    }
+}
@@ -0,0 +1,86 @@
+package com.ordertracking.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Read replica that hands out primary connections while it is too far behind.
+ *
+ * The lag is measured periodically by {@link #checkLag()} rather than per connection, so a read
+ * costs no extra round trip. Until the first successful check, and whenever the replica cannot
+ * be reached or the lag query returns no lag (NULL, e.g. a replica that lost its primary), reads
+ * go to the primary.
+ */
+public class LagAwareReplicaDataSource extends DelegatingDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(LagAwareReplicaDataSource.class);
+
+    private final DataSource primary;
+    private final String lagQuery;
+    private final double maxLagSeconds;
+
+    // Negative while unknown (not checked yet, replica unreachable or not replicating)
+    private volatile double lagSeconds = -1;
+    private volatile boolean usable;
+
+    public LagAwareReplicaDataSource(DataSource replica, DataSource primary, String lagQuery, Duration maxLag) {
+        super(replica);
+        this.primary = primary;
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return usable ? super.getConnection() : primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return usable ? super.getConnection(username, password) : primary.getConnection(username, password);
+    }
+
+    /**
+     * Measures the replica's replay lag and decides whether reads may use it.
+     */
+    public void checkLag() {
+        double measured;
+        try (Connection connection = super.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(lagQuery)) {
+            double lag = result.next() ? result.getDouble(1) : -1;
+            measured = result.wasNull() ? -1 : lag;
+        } catch (SQLException | RuntimeException e) {
+            log.debug("Replica lag check failed: {}", e.getMessage());
+            measured = -1;
+        }
+
+        boolean nowUsable = measured >= 0 && measured <= maxLagSeconds;
+        if (nowUsable != usable) {
+            if (nowUsable) {
+                log.info("Read replica caught up (lag {} s), routing read-only transactions to it", measured);
+            } else {
+                log.warn("Read replica {} (limit {} s), routing read-only transactions to the primary",
+                        measured < 0 ? "unreachable or not replicating" : "lagging " + measured + " s", maxLagSeconds);
+            }
+        }
+        lagSeconds = measured;
+        usable = nowUsable;
+    }
+
+    public double getLagSeconds() {
+        return lagSeconds;
+    }
+
+    public boolean isUsable() {
+        return usable;
+    }
+}
@@ -0,0 +1,111 @@
+package com.ordertracking.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Splits JDBC traffic between the primary ({@code spring.datasource.*}) and a read replica
+ * ({@code order.datasource.replica.*}), each with its own Hikari pool.
+ *
+ * <p>The application DataSource is a {@link LazyConnectionDataSourceProxy}: it only fetches a
+ * physical connection on the first statement, by which time the transaction manager has marked
+ * it read-only or not. Read-only transactions ({@code @Transactional(readOnly = true)}, used by
+ * the metrics and history reads) get a replica connection, everything else, including the
+ * consumer's inserts, the primary. Reads fall back to the primary while the replica lags more
+ * than {@code order.datasource.replica.max-lag-seconds}, is not streaming from the primary or
+ * cannot be reached.
+ */
+@Configuration
+@ConditionalOnProperty(name = "order.datasource.replica.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    // Lag is zero while every received WAL record is replayed, even if the primary has been idle.
+    // A replica that is not streaming from the primary has replayed all it received too, yet falls
+    // further behind every second, so it reports no lag at all (NULL) and is not used.
+    private static final String POSTGRES_LAG_QUERY = "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 "
+            + "WHEN NOT EXISTS (SELECT 1 FROM pg_stat_wal_receiver WHERE status = 'streaming') THEN NULL "
+            + "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END";
+
+    private final ObjectProvider<LagAwareReplicaDataSource> lagAwareReplicaProvider;
+
+    public ReadReplicaConfig(ObjectProvider<LagAwareReplicaDataSource> lagAwareReplicaProvider) {
+        this.lagAwareReplicaProvider = lagAwareReplicaProvider;
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("order.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties primaryProperties,
+                                              @Value("${order.datasource.replica.url}") String url,
+                                              @Value("${order.datasource.replica.username:}") String username,
+                                              @Value("${order.datasource.replica.password:}") String password) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setJdbcUrl(url);
+        dataSource.setDriverClassName(primaryProperties.determineDriverClassName());
+        // The replica is normally a physical copy, so the primary's credentials apply unless overridden
+        dataSource.setUsername(username.isEmpty() ? primaryProperties.determineUsername() : username);
+        dataSource.setPassword(password.isEmpty() ? primaryProperties.determinePassword() : password);
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public LagAwareReplicaDataSource lagAwareReplica(@Qualifier("replicaDataSource") DataSource replica,
+                                                     @Qualifier("primaryDataSource") DataSource primary,
+                                                     @Value("${order.datasource.replica.lag-query:}") String lagQuery,
+                                                     @Value("${order.datasource.replica.max-lag-seconds:5}") long maxLagSeconds) {
+        return new LagAwareReplicaDataSource(replica, primary,
+                lagQuery.isEmpty() ? POSTGRES_LAG_QUERY : lagQuery, Duration.ofSeconds(maxLagSeconds));
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 LagAwareReplicaDataSource lagAwareReplica) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+        dataSource.setReadOnlyDataSource(lagAwareReplica);
+        return dataSource;
+    }
+
+    @Scheduled(fixedDelayString = "${order.datasource.replica.lag-check-interval-ms:1000}")
+    public void checkReplicaLag() {
+        lagAwareReplicaProvider.getObject().checkLag();
+    }
+
+    @Bean
+    public MeterBinder replicaMetrics(LagAwareReplicaDataSource lagAwareReplica) {
+        return registry -> {
+            Gauge.builder("order.db.replica.lag", lagAwareReplica, LagAwareReplicaDataSource::getLagSeconds)
+                    .description("Replay lag of the read replica in seconds, -1 if unknown")
+                    .baseUnit("seconds")
+                    .register(registry);
+            Gauge.builder("order.db.replica.usable", lagAwareReplica, replica -> replica.isUsable() ? 1 : 0)
+                    .description("1 while read-only transactions are routed to the replica")
+                    .register(registry);
+        };
+    }
+}
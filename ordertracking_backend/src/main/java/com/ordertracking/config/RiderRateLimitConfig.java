@@ -0,0 +1,80 @@
+package com.ordertracking.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ordertracking.service.RiderRateLimiter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.cors.CorsUtils;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies {@link RiderRateLimiter} to the rider order endpoints. The check runs as a handler
+ * interceptor, after the path is matched but before the request body is read or converted, so a
+ * rider over its quota costs one bucket update and a short 429 with {@code Retry-After} instead of
+ * a DTO, a duplicate check and a Kafka send. Location pings are not limited.
+ */
+@Configuration
+@ConditionalOnProperty(name = "rider.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class RiderRateLimitConfig implements WebMvcConfigurer {
+
+    private final RiderRateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+
+    public RiderRateLimitConfig(RiderRateLimiter rateLimiter, ObjectMapper objectMapper) {
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RateLimitInterceptor()).addPathPatterns("/api/rider/*/orders/**");
+    }
+
+    private class RateLimitInterceptor implements HandlerInterceptor {
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+                throws IOException {
+            if (CorsUtils.isPreFlightRequest(request)) {
+                return true;
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, String> pathVariables =
+                    (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+            String riderId = pathVariables != null ? pathVariables.get("riderId") : null;
+            if (riderId == null) {
+                return true;
+            }
+            long waitNanos = rateLimiter.tryAcquire(riderId);
+            if (waitNanos == 0) {
+                return true;
+            }
+
+            long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+            Map<String, Object> errorResponse = new LinkedHashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Too many requests for rider " + riderId + ", retry in " + retryAfterSeconds + " s");
+            errorResponse.put("retryAfterSeconds", retryAfterSeconds);
+            errorResponse.put("timestamp", LocalDateTime.now());
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), errorResponse);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.ordertracking.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Extras for {@code spring.threads.virtual.enabled=true} (the {@code virtual} profile).
+ *
+ * <p>Spring Boot itself moves Tomcat request handling, the Kafka listener containers, the
+ * {@code @Scheduled} tasks and the application task executor onto virtual threads. What it does
+ * not do is replace the limit the 200 Tomcat workers used to put on JDBC work, so the DataSource
+ * is wrapped in a {@link ConcurrencyLimitedDataSource} sized to the connection pool (each pool,
+ * when reads go to a replica).
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    @Bean
+    public static BeanPostProcessor dataSourceConcurrencyLimiter(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // Wrappers (the limiter itself, the read/write split) delegate to pools limited on their own
+                if (!(bean instanceof DataSource dataSource) || bean instanceof DelegatingDataSource) {
+                    return bean;
+                }
+                if (!Threading.VIRTUAL.isActive(environment)) {
+                    log.warn("spring.threads.virtual.enabled is set but Java {} has no virtual threads; "
+                            + "running on platform threads", Runtime.version().feature());
+                    return bean;
+                }
+
+                // Hikari reports -1 until the pool starts when maximum-pool-size is left at its default
+                int poolSize = bean instanceof HikariDataSource hikari && hikari.getMaximumPoolSize() > 0
+                        ? hikari.getMaximumPoolSize() : DEFAULT_POOL_SIZE;
+                long timeoutMillis = bean instanceof HikariDataSource hikari ? hikari.getConnectionTimeout() : 30000;
+                int configured = environment.getProperty("order.datasource.max-concurrency", Integer.class, 0);
+                int maxConcurrency = configured > 0 ? configured : poolSize;
+
+                log.info("Virtual threads enabled; JDBC concurrency limited to {} for DataSource '{}'",
+                        maxConcurrency, beanName);
+                return new ConcurrencyLimitedDataSource(dataSource, maxConcurrency, timeoutMillis);
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder dataSourcePermitMetrics(Map<String, DataSource> dataSources) {
+        return registry -> dataSources.forEach((name, dataSource) -> {
+            if (dataSource instanceof ConcurrencyLimitedDataSource limited) {
+                Gauge.builder("order.db.permits.available", limited, ConcurrencyLimitedDataSource::getAvailablePermits)
+                        .description("JDBC permits not currently in use")
+                        .tag("datasource", name)
+                        .register(registry);
+                Gauge.builder("order.db.permits.waiting", limited, ConcurrencyLimitedDataSource::getWaitingThreads)
+                        .description("Threads waiting for a JDBC permit")
+                        .tag("datasource", name)
+                        .register(registry);
+            }
+        });
+    }
+}
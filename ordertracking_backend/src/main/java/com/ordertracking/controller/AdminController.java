@@ -0,0 +1,121 @@
+package com.ordertracking.controller;
+
+import com.ordertracking.service.BulkImportService;
+import com.ordertracking.service.DeadLetterService;
+import com.ordertracking.service.EventArchiveService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    private static final Logger log = LoggerFactory.getLogger(AdminController.class);
+    private static final int MAX_LIMIT = 10000;
+
+    private final DeadLetterService deadLetterService;
+    private final EventArchiveService eventArchive;
+    private final BulkImportService bulkImportService;
+
+    public AdminController(DeadLetterService deadLetterService, EventArchiveService eventArchive,
+                           BulkImportService bulkImportService) {
+        this.deadLetterService = deadLetterService;
+        this.eventArchive = eventArchive;
+        this.bulkImportService = bulkImportService;
+    }
+
+    /**
+     * Dead-lettered order events that have not been replayed yet
+     */
+    @GetMapping("/dlt")
+    public ResponseEntity<List<Map<String, Object>>> getDeadLetters(
+            @RequestParam(required = false, defaultValue = "50") int limit) {
+        return ResponseEntity.ok(deadLetterService.inspect(Math.max(1, Math.min(limit, MAX_LIMIT))));
+    }
+
+    /**
+     * Sends pending dead letters back into the main pipeline
+     */
+    @PostMapping("/dlt/replay")
+    public ResponseEntity<Map<String, Object>> replayDeadLetters(
+            @RequestParam(required = false, defaultValue = "1000") int limit) {
+        try {
+            return ResponseEntity.ok(deadLetterService.replay(Math.max(1, Math.min(limit, MAX_LIMIT))));
+        } catch (Exception e) {
+            log.error("Dead letter replay failed: {}", e.getMessage());
+
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Failed to replay dead letters");
+            errorResponse.put("error", e.getMessage());
+            errorResponse.put("timestamp", LocalDateTime.now());
+
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
+    /**
+     * Exports a closed day to the event archive now, optionally pruning it from order_events
+     */
+    @PostMapping("/archive")
+    public ResponseEntity<Map<String, Object>> archiveDay(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false, defaultValue = "false") boolean prune) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("timestamp", LocalDateTime.now());
+
+        if (!date.isBefore(LocalDate.now())) {
+            errorResponse.put("message", "Only closed days before today can be archived");
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+        try {
+            return ResponseEntity.ok(eventArchive.archiveDay(date, prune));
+        } catch (Exception e) {
+            log.error("Archiving {} failed: {}", date, e.getMessage());
+            errorResponse.put("message", "Failed to archive order events of " + date);
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
+    /**
+     * Streams a CSV or NDJSON request body of historical order events into order_events, then
+     * rebuilds the daily summaries of the imported dates
+     */
+    @PostMapping("/import")
+    public ResponseEntity<Map<String, Object>> importEvents(
+            @RequestParam(required = false, defaultValue = "csv") String format,
+            @RequestParam(required = false, defaultValue = "true") boolean dedup,
+            InputStream body) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("timestamp", LocalDateTime.now());
+
+        try {
+            return ResponseEntity.ok(bulkImportService.importEvents(body, format, dedup));
+        } catch (IllegalArgumentException e) {
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        } catch (IllegalStateException e) {
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+        } catch (Exception e) {
+            log.error("Bulk import failed: {}", e.getMessage());
+            errorResponse.put("message", "Failed to import order events");
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.ordertracking.controller;
+
+import com.ordertracking.service.EventArchiveService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only queries over archived days; they never touch the primary database.
+ */
+@RestController
+@RequestMapping("/archive")
+public class ArchiveController {
+
+    private static final int MAX_LIMIT = 100000;
+
+    private final EventArchiveService eventArchive;
+
+    public ArchiveController(EventArchiveService eventArchive) {
+        this.eventArchive = eventArchive;
+    }
+
+    @GetMapping("/days")
+    public ResponseEntity<List<Map<String, Object>>> getArchivedDays() {
+        return ResponseEntity.ok(eventArchive.listDays());
+    }
+
+    /**
+     * Archived events with a timestamp in [from, to)
+     */
+    @GetMapping("/events")
+    public ResponseEntity<Map<String, Object>> getEvents(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String riderId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false, defaultValue = "1000") int limit) {
+
+        if (!from.isBefore(to)) {
+            return badRequest("from must be before to");
+        }
+        return ResponseEntity.ok(eventArchive.findEvents(from, to,
+                riderId, status != null ? status.toUpperCase() : null, Math.max(1, Math.min(limit, MAX_LIMIT))));
+    }
+
+    /**
+     * Per-rider deliveries and average delivery time over archived days [from, to]
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<Map<String, Object>> getSummary(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String riderId) {
+
+        if (from.isAfter(to)) {
+            return badRequest("from must not be after to");
+        }
+        return ResponseEntity.ok(eventArchive.summarize(from, to, riderId));
+    }
+
+    private static ResponseEntity<Map<String, Object>> badRequest(String message) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("message", message);
+        errorResponse.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.badRequest().body(errorResponse);
+    }
+}
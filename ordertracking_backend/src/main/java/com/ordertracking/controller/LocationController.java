@@ -0,0 +1,167 @@
+package com.ordertracking.controller;
+
+import com.ordertracking.service.LocationChunk;
+import com.ordertracking.service.LocationHistoryStore;
+import com.ordertracking.service.RiderLocationIndex.Bounds;
+import com.ordertracking.service.RiderLocationIndex.Neighbor;
+import com.ordertracking.service.RiderLocationIndex.Position;
+import com.ordertracking.service.RiderLocationService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/locations")
+public class LocationController {
+
+    private static final int MAX_NEAREST = 100;
+    private static final int MAX_WITHIN = 10000;
+    private static final int MAX_HISTORY_POINTS = 100000;
+
+    private final RiderLocationService locationService;
+    private final LocationHistoryStore historyStore;
+
+    public LocationController(RiderLocationService locationService, LocationHistoryStore historyStore) {
+        this.locationService = locationService;
+        this.historyStore = historyStore;
+    }
+
+    /**
+     * The n riders closest to a point, closest first, e.g. to dispatch an order; by default only
+     * riders that reported themselves available
+     */
+    @GetMapping("/nearest")
+    public ResponseEntity<Map<String, Object>> getNearest(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam(required = false, defaultValue = "5") int n,
+            @RequestParam(required = false, defaultValue = "true") boolean available) {
+
+        if (!isValid(lat, lon)) {
+            return badRequest("lat must be between -90 and 90, lon between -180 and 180");
+        }
+
+        List<Map<String, Object>> riders = locationService.nearest(lat, lon, Math.max(1, Math.min(n, MAX_NEAREST)), available)
+                .stream()
+                .map(LocationController::describe)
+                .toList();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("lat", lat);
+        response.put("lon", lon);
+        response.put("count", riders.size());
+        response.put("riders", riders);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Riders inside a bounding box, e.g. for a map view's initial load
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getWithin(
+            @RequestParam double minLat,
+            @RequestParam double minLon,
+            @RequestParam double maxLat,
+            @RequestParam double maxLon,
+            @RequestParam(required = false, defaultValue = "false") boolean available,
+            @RequestParam(required = false, defaultValue = "1000") int limit) {
+
+        Bounds bounds = toBounds(minLat, minLon, maxLat, maxLon);
+        if (bounds == null) {
+            return badRequest("Expected minLat <= maxLat and minLon <= maxLon within -90..90 and -180..180");
+        }
+
+        List<Position> riders = locationService.within(bounds, available, Math.max(1, Math.min(limit, MAX_WITHIN)));
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("bounds", bounds);
+        response.put("count", riders.size());
+        response.put("riders", riders);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * A rider's pings with a timestamp in [from, to], thinned to at most maxPoints for map playback
+     */
+    @GetMapping("/history/{riderId}")
+    public ResponseEntity<Map<String, Object>> getHistory(
+            @PathVariable String riderId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false, defaultValue = "2000") int maxPoints) {
+
+        if (from.isAfter(to)) {
+            return badRequest("from must not be after to");
+        }
+
+        List<LocationChunk.Point> points = historyStore.findPoints(riderId, toMillis(from), toMillis(to),
+                Math.max(2, Math.min(maxPoints, MAX_HISTORY_POINTS)));
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("riderId", riderId);
+        response.put("from", from);
+        response.put("to", to);
+        response.put("count", points.size());
+        response.put("points", points);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * The route an order's rider took between PICKED_UP and DELIVERED (or now, while in transit)
+     */
+    @GetMapping("/route/{orderId}")
+    public ResponseEntity<Map<String, Object>> getRoute(
+            @PathVariable String orderId,
+            @RequestParam(required = false, defaultValue = "500") int maxPoints) {
+
+        return historyStore.findRoute(orderId, Math.max(2, Math.min(maxPoints, MAX_HISTORY_POINTS)))
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * @return the bounds, or null when they are out of range or inverted
+     */
+    static Bounds toBounds(double minLat, double minLon, double maxLat, double maxLon) {
+        if (!isValid(minLat, minLon) || !isValid(maxLat, maxLon) || minLat > maxLat || minLon > maxLon) {
+            return null;
+        }
+        return new Bounds(minLat, minLon, maxLat, maxLon);
+    }
+
+    private static boolean isValid(double lat, double lon) {
+        return lat >= -90 && lat <= 90 && lon >= -180 && lon <= 180;
+    }
+
+    private static long toMillis(LocalDateTime timestamp) {
+        return timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static Map<String, Object> describe(Neighbor neighbor) {
+        Position position = neighbor.position();
+        Map<String, Object> rider = new LinkedHashMap<>();
+        rider.put("riderId", position.riderId());
+        rider.put("latitude", position.latitude());
+        rider.put("longitude", position.longitude());
+        rider.put("available", position.available());
+        rider.put("updatedAt", position.updatedAt());
+        rider.put("distanceKm", Math.round(neighbor.distanceKm() * 1000) / 1000.0);
+        return rider;
+    }
+
+    private static ResponseEntity<Map<String, Object>> badRequest(String message) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("message", message);
+        errorResponse.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.badRequest().body(errorResponse);
+    }
+}
@@ -1,7 +1,12 @@
 package com.ordertracking.controller;
 
 import com.ordertracking.model.OrderDailySummary;
-import com.ordertracking.repository.OrderDailySummaryRepository;
+import com.ordertracking.service.AggregationService;
+import com.ordertracking.service.DelayMonitor;
+import com.ordertracking.service.HourlyDemandAggregator;
+import com.ordertracking.service.OrderStateStore;
+import com.ordertracking.service.RiderLeaderboard;
+import com.ordertracking.service.ZoneRouting;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -9,32 +14,141 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/metrics")
 public class MetricsController {
 
     private static final Logger log = LoggerFactory.getLogger(MetricsController.class);
-    private final OrderDailySummaryRepository dailySummaryRepository;
+    private static final int MAX_LEADERBOARD_SIZE = 1000;
+    private static final int MAX_AT_RISK_ORDERS = 1000;
 
-    public MetricsController(OrderDailySummaryRepository dailySummaryRepository) {
-        this.dailySummaryRepository = dailySummaryRepository;
+    private final AggregationService aggregationService;
+    private final OrderStateStore stateStore;
+    private final DelayMonitor delayMonitor;
+    private final HourlyDemandAggregator hourlyDemand;
+
+    public MetricsController(AggregationService aggregationService,
+                             OrderStateStore stateStore,
+                             DelayMonitor delayMonitor,
+                             HourlyDemandAggregator hourlyDemand) {
+        this.aggregationService = aggregationService;
+        this.stateStore = stateStore;
+        this.delayMonitor = delayMonitor;
+        this.hourlyDemand = hourlyDemand;
     }
 
     @GetMapping("/daily-summary")
     public ResponseEntity<List<OrderDailySummary>> getDailySummary(
             @RequestParam(required = false)
-            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) String zone) {
 
         if (date == null) {
             date = LocalDate.now();
         }
 
         log.info("Fetching daily summary for date: {}", date);
-        List<OrderDailySummary> summaries = dailySummaryRepository.findBySummaryDate(date);
+        List<OrderDailySummary> summaries = aggregationService.getDailySummaries(date,
+                zone != null ? ZoneRouting.normalize(zone) : null);
         log.info("Found {} summaries for date: {}", summaries.size(), date);
         
         return ResponseEntity.ok(summaries);
     }
-}
\ No newline at end of file
+
+    /**
+     * Deliveries, delays and delivery time percentiles of one day (default: today) per zone and
+     * merged across zones
+     */
+    @GetMapping("/zones")
+    public ResponseEntity<Map<String, Object>> getZoneMetrics(
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+
+        return ResponseEntity.ok(aggregationService.getZoneMetrics(date != null ? date : LocalDate.now()));
+    }
+
+    /**
+     * Pickups, deliveries and average delivery time per hour of one day (default: today), from the
+     * incrementally maintained hourly aggregate
+     */
+    @GetMapping("/hourly")
+    public ResponseEntity<Map<String, Object>> getHourlyDemand(
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+
+        return ResponseEntity.ok(hourlyDemand.getHourly(date != null ? date : LocalDate.now()));
+    }
+
+    /**
+     * p50/p90/p99 delivery times per rider and for the fleet, or one zone's riders, over [from, to]
+     * (default: today)
+     */
+    @GetMapping("/delivery-percentiles")
+    public ResponseEntity<Map<String, Object>> getDeliveryPercentiles(
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String riderId,
+            @RequestParam(required = false) String zone) {
+
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end;
+        if (start.isAfter(end)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(aggregationService.getDeliveryPercentiles(start, end, riderId,
+                zone != null ? ZoneRouting.normalize(zone) : null));
+    }
+
+    /**
+     * Today's top k riders by deliveries, fastest average delivery or fewest delays, served from the
+     * continuously maintained in-memory ranking
+     */
+    @GetMapping("/leaderboard")
+    public ResponseEntity<Map<String, Object>> getLeaderboard(
+            @RequestParam(required = false, defaultValue = "deliveries") String by,
+            @RequestParam(required = false, defaultValue = "10") int k) {
+
+        RiderLeaderboard.Ranking ranking = RiderLeaderboard.Ranking.fromKey(by);
+        if (ranking == null) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Unknown ranking '" + by + "', expected one of "
+                    + Arrays.stream(RiderLeaderboard.Ranking.values()).map(RiderLeaderboard.Ranking::getKey).toList());
+            errorResponse.put("timestamp", LocalDateTime.now());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+
+        int size = Math.max(1, Math.min(k, MAX_LEADERBOARD_SIZE));
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("date", LocalDate.now());
+        response.put("by", ranking.getKey());
+        response.put("k", size);
+        response.put("riders", stateStore.leaderboard(ranking, size));
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * In-transit orders past their delivery deadline, longest in transit first; the same orders
+     * were announced by DELAY_ALERT frames when their deadline passed
+     */
+    @GetMapping("/at-risk")
+    public ResponseEntity<Map<String, Object>> getAtRiskOrders(
+            @RequestParam(required = false, defaultValue = "100") int limit) {
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("thresholdMinutes", delayMonitor.getThresholdMinutes());
+        response.put("count", delayMonitor.getAtRiskCount());
+        response.put("orders", delayMonitor.getAtRisk(Math.max(1, Math.min(limit, MAX_AT_RISK_ORDERS))));
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,8 +1,12 @@
 package com.ordertracking.controller;
 
+import com.ordertracking.dto.LocationPingDTO;
 import com.ordertracking.dto.OrderEventDTO;
 import com.ordertracking.dto.RiderEventDTO;
+import com.ordertracking.service.HotPathLog;
 import com.ordertracking.service.OrderService;
+import com.ordertracking.service.RiderLocationService;
+import com.ordertracking.service.ZoneRouting;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,9 +25,13 @@ public class RiderController {
     private static final Logger log = LoggerFactory.getLogger(RiderController.class);
     
     private final OrderService orderService;
+    private final RiderLocationService locationService;
+    private final HotPathLog hotPathLog;
 
-    public RiderController(OrderService orderService) {
+    public RiderController(OrderService orderService, RiderLocationService locationService, HotPathLog hotPathLog) {
         this.orderService = orderService;
+        this.locationService = locationService;
+        this.hotPathLog = hotPathLog;
     }
 
     /**
@@ -34,8 +42,10 @@ public class RiderController {
             @PathVariable String riderId,
             @Valid @RequestBody RiderEventDTO riderEventDTO) {
         
-        log.info("Rider {} updating order {} to status {}", 
-                riderId, riderEventDTO.getOrderId(), riderEventDTO.getStatus());
+        if (hotPathLog.shouldLog(HotPathLog.Stage.REQUEST)) {
+            log.info("Rider update riderId={} orderId={} status={}",
+                    riderId, riderEventDTO.getOrderId(), riderEventDTO.getStatus());
+        }
 
         try {
             // Convert RiderEventDTO to OrderEventDTO
@@ -45,6 +55,7 @@ public class RiderController {
                     riderEventDTO.getStatus(),
                     riderEventDTO.getEventTimestamp()
             );
+            orderEventDTO.setZone(riderEventDTO.getZone());
 
             // Submit the event
             orderService.simulateOrderEvent(orderEventDTO);
@@ -84,9 +95,12 @@ public class RiderController {
     public ResponseEntity<Map<String, Object>> quickStatusUpdate(
             @PathVariable String riderId,
             @PathVariable String orderId,
-            @PathVariable String status) {
+            @PathVariable String status,
+            @RequestParam(required = false) String zone) {
         
-        log.info("Quick status update: Rider {} updating order {} to {}", riderId, orderId, status);
+        if (hotPathLog.shouldLog(HotPathLog.Stage.REQUEST)) {
+            log.info("Rider quick update riderId={} orderId={} status={}", riderId, orderId, status);
+        }
 
         // Validate status
         if (!isValidRiderStatus(status)) {
@@ -97,9 +111,18 @@ public class RiderController {
             
             return ResponseEntity.badRequest().body(errorResponse);
         }
+        if (zone != null && !zone.matches(ZoneRouting.ZONE_PATTERN)) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Invalid zone. Expected 1-30 letters, digits or dashes");
+            errorResponse.put("timestamp", LocalDateTime.now());
+
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
 
         try {
             OrderEventDTO orderEventDTO = new OrderEventDTO(orderId, riderId, status);
+            orderEventDTO.setZone(zone);
             orderService.simulateOrderEvent(orderEventDTO);
 
             Map<String, Object> response = new HashMap<>();
@@ -125,6 +148,25 @@ public class RiderController {
         }
     }
 
+    /**
+     * Location ping, sent by the rider app every few seconds. Updates the in-memory position used
+     * by dispatch queries and map views and is buffered for the location history, so it is not
+     * logged per request.
+     */
+    @PostMapping("/{riderId}/location")
+    public ResponseEntity<Map<String, Object>> updateLocation(
+            @PathVariable String riderId,
+            @Valid @RequestBody LocationPingDTO ping) {
+
+        locationService.recordPing(riderId, ping.getLatitude(), ping.getLongitude(), ping.getAvailable());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("riderId", riderId);
+        response.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.ok(response);
+    }
+
     private boolean isValidRiderStatus(String status) {
         return status != null && (
                 "PICKED_UP".equals(status) ||
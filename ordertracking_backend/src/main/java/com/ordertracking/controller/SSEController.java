@@ -1,10 +1,15 @@
 package com.ordertracking.controller;
 
+import com.ordertracking.service.RiderLocationIndex.Bounds;
+import com.ordertracking.service.RiderLocationService;
 import com.ordertracking.service.SSEService;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
@@ -12,13 +17,39 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 public class SSEController {
 
     private final SSEService sseService;
+    private final RiderLocationService locationService;
 
-    public SSEController(SSEService sseService) {
+    public SSEController(SSEService sseService, RiderLocationService locationService) {
         this.sseService = sseService;
+        this.locationService = locationService;
     }
 
+    /**
+     * @param coalesceMs optional window in milliseconds; when set, updates are batched per order
+     *                   and delivered as ORDER_UPDATES frames holding the latest state of each order
+     */
     @GetMapping(value = "/order-updates", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter streamOrderUpdates() {
-        return sseService.createEmitter();
+    public SseEmitter streamOrderUpdates(@RequestParam(required = false, defaultValue = "0") long coalesceMs) {
+        return sseService.createEmitter(coalesceMs);
     }
-}
\ No newline at end of file
+
+    /**
+     * Rider positions for a map view, limited to a bounding box when all four bounds are given
+     */
+    @GetMapping(value = "/rider-locations", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamRiderLocations(@RequestParam(required = false) Double minLat,
+                                           @RequestParam(required = false) Double minLon,
+                                           @RequestParam(required = false) Double maxLat,
+                                           @RequestParam(required = false) Double maxLon) {
+        Bounds bounds = Bounds.WORLD;
+        if (minLat != null || minLon != null || maxLat != null || maxLon != null) {
+            bounds = minLat != null && minLon != null && maxLat != null && maxLon != null
+                    ? LocationController.toBounds(minLat, minLon, maxLat, maxLon) : null;
+            if (bounds == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Expected all of minLat, minLon, maxLat, maxLon, with min <= max");
+            }
+        }
+        return locationService.subscribe(bounds);
+    }
+}
@@ -0,0 +1,65 @@
+package com.ordertracking.dto;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+
+public class LocationPingDTO {
+
+    @NotNull(message = "Latitude is required")
+    @DecimalMin(value = "-90.0", message = "Latitude must be between -90 and 90")
+    @DecimalMax(value = "90.0", message = "Latitude must be between -90 and 90")
+    private Double latitude;
+
+    @NotNull(message = "Longitude is required")
+    @DecimalMin(value = "-180.0", message = "Longitude must be between -180 and 180")
+    @DecimalMax(value = "180.0", message = "Longitude must be between -180 and 180")
+    private Double longitude;
+
+    // Whether the rider can take another order; null keeps the last reported value
+    private Boolean available;
+
+    // Constructors
+    public LocationPingDTO() {
+    }
+
+    public LocationPingDTO(Double latitude, Double longitude, Boolean available) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.available = available;
+    }
+
+    // Getters and Setters
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public Boolean getAvailable() {
+        return available;
+    }
+
+    public void setAvailable(Boolean available) {
+        this.available = available;
+    }
+
+    @Override
+    public String toString() {
+        return "LocationPingDTO{" +
+                "latitude=" + latitude +
+                ", longitude=" + longitude +
+                ", available=" + available +
+                '}';
+    }
+}
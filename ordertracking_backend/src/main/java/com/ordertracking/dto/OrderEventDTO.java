@@ -7,6 +7,8 @@ public class OrderEventDTO {
     private String orderId;
     private String riderId;
     private String status;
+    // Null in events published before zones existed, which belong to the default zone
+    private String zone;
 
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private LocalDateTime eventTimestamp;
@@ -52,6 +54,14 @@ public class OrderEventDTO {
         this.status = status;
     }
 
+    public String getZone() {
+        return zone;
+    }
+
+    public void setZone(String zone) {
+        this.zone = zone;
+    }
+
     public LocalDateTime getEventTimestamp() {
         return eventTimestamp;
     }
@@ -66,6 +76,7 @@ public class OrderEventDTO {
                 "orderId='" + orderId + '\'' +
                 ", riderId='" + riderId + '\'' +
                 ", status='" + status + '\'' +
+                ", zone='" + zone + '\'' +
                 ", eventTimestamp=" + eventTimestamp +
                 '}';
     }
@@ -17,6 +17,10 @@ public class RiderEventDTO {
     private String status;
     
     private String notes;
+
+    // Delivery zone of the rider, e.g. a city; events without one belong to the default zone
+    @Pattern(regexp = "[A-Za-z0-9-]{1,30}", message = "Zone must be 1-30 letters, digits or dashes")
+    private String zone;
     
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private LocalDateTime eventTimestamp;
@@ -62,6 +66,14 @@ public class RiderEventDTO {
         this.notes = notes;
     }
 
+    public String getZone() {
+        return zone;
+    }
+
+    public void setZone(String zone) {
+        this.zone = zone;
+    }
+
     public LocalDateTime getEventTimestamp() {
         return eventTimestamp;
     }
@@ -76,6 +88,7 @@ public class RiderEventDTO {
                 "orderId='" + orderId + '\'' +
                 ", status='" + status + '\'' +
                 ", notes='" + notes + '\'' +
+                ", zone='" + zone + '\'' +
                 ", eventTimestamp=" + eventTimestamp +
                 '}';
     }
@@ -18,6 +18,9 @@ public class SSEEventDTO {
 
     private String message;
 
+    // Position in the live update stream, see OrderStateStore
+    private Long sequence;
+
     // Constructors
     public SSEEventDTO() {
         this.serverTimestamp = LocalDateTime.now();
@@ -86,6 +89,14 @@ public class SSEEventDTO {
         this.message = message;
     }
 
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+
     private String generateMessage() {
         if (orderId == null || riderId == null || status == null) {
             return "System notification";
@@ -1,11 +1,13 @@
 package com.ordertracking.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import java.time.LocalDate;
 
 @Entity
 @Table(name = "order_daily_summary", 
-       uniqueConstraints = @UniqueConstraint(columnNames = {"rider_id", "summary_date"}))
+       uniqueConstraints = @UniqueConstraint(name = "uk_order_daily_summary_rider_date_zone",
+                                             columnNames = {"rider_id", "summary_date", "zone"}))
 public class OrderDailySummary {
 
     @Id
@@ -27,6 +29,15 @@ public class OrderDailySummary {
     @Column(name = "delayed_orders", nullable = false)
     private Integer delayedOrders = 0;
 
+    // Zone the summary covers: only the orders the rider delivered in it that day count
+    @Column(name = "zone", nullable = false, length = 30, columnDefinition = "varchar(30) default 'default'")
+    private String zone = "default";
+
+    // Serialized DeliveryTimeSketch of pickup-to-delivery seconds; null for summaries built before it existed
+    @JsonIgnore
+    @Column(name = "delivery_time_sketch", length = 16384)
+    private byte[] deliveryTimeSketch;
+
     // Constructors
     public OrderDailySummary() {
         // Default constructor for JPA
@@ -66,6 +77,14 @@ public class OrderDailySummary {
         this.summaryDate = summaryDate;
     }
 
+    public String getZone() {
+        return zone;
+    }
+
+    public void setZone(String zone) {
+        this.zone = zone;
+    }
+
     public Integer getDeliveredOrders() {
         return deliveredOrders;
     }
@@ -90,6 +109,14 @@ public class OrderDailySummary {
         this.delayedOrders = delayedOrders != null ? delayedOrders : 0;
     }
 
+    public byte[] getDeliveryTimeSketch() {
+        return deliveryTimeSketch;
+    }
+
+    public void setDeliveryTimeSketch(byte[] deliveryTimeSketch) {
+        this.deliveryTimeSketch = deliveryTimeSketch;
+    }
+
     @Override
     public String toString() {
         return "OrderDailySummary{" +
@@ -99,6 +126,7 @@ public class OrderDailySummary {
                 ", deliveredOrders=" + deliveredOrders +
                 ", avgDeliveryTimeMinutes=" + avgDeliveryTimeMinutes +
                 ", delayedOrders=" + delayedOrders +
+                ", zone='" + zone + '\'' +
                 '}';
     }
 }
\ No newline at end of file
@@ -23,6 +23,10 @@ public class OrderEvent {
     @Column(name = "event_timestamp", nullable = false)
     private LocalDateTime eventTimestamp;
 
+    // Rows from before zones existed get the default zone when the column is added
+    @Column(name = "zone", nullable = false, length = 30, columnDefinition = "varchar(30) default 'default'")
+    private String zone = "default";
+
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
 
@@ -77,6 +81,14 @@ public class OrderEvent {
         this.status = status;
     }
 
+    public String getZone() {
+        return zone;
+    }
+
+    public void setZone(String zone) {
+        this.zone = zone;
+    }
+
     public LocalDateTime getEventTimestamp() {
         return eventTimestamp;
     }
@@ -100,6 +112,7 @@ public class OrderEvent {
                 ", orderId='" + orderId + '\'' +
                 ", riderId='" + riderId + '\'' +
                 ", status='" + status + '\'' +
+                ", zone='" + zone + '\'' +
                 ", eventTimestamp=" + eventTimestamp +
                 ", createdAt=" + createdAt +
                 '}';
@@ -0,0 +1,99 @@
+package com.ordertracking.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Fleet-wide order volume of one hour of one day. Pickups and deliveries count in the hour they
+ * happened; delivery seconds sum the pickup-to-delivery times of the timed deliveries, those whose
+ * pickup was known when the delivery was counted.
+ */
+@Entity
+@Table(name = "order_hourly_stats",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"stats_date", "hour_of_day"}))
+public class OrderHourlyStats {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "stats_date", nullable = false)
+    private LocalDate statsDate;
+
+    @Column(name = "hour_of_day", nullable = false)
+    private Integer hourOfDay;
+
+    @Column(name = "pickups", nullable = false)
+    private Long pickups = 0L;
+
+    @Column(name = "deliveries", nullable = false)
+    private Long deliveries = 0L;
+
+    @Column(name = "delivery_seconds", nullable = false)
+    private Long deliverySeconds = 0L;
+
+    @Column(name = "timed_deliveries", nullable = false)
+    private Long timedDeliveries = 0L;
+
+    // Constructors
+    public OrderHourlyStats() {
+        // Default constructor for JPA
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LocalDate getStatsDate() {
+        return statsDate;
+    }
+
+    public void setStatsDate(LocalDate statsDate) {
+        this.statsDate = statsDate;
+    }
+
+    public Integer getHourOfDay() {
+        return hourOfDay;
+    }
+
+    public void setHourOfDay(Integer hourOfDay) {
+        this.hourOfDay = hourOfDay;
+    }
+
+    public Long getPickups() {
+        return pickups;
+    }
+
+    public void setPickups(Long pickups) {
+        this.pickups = pickups;
+    }
+
+    public Long getDeliveries() {
+        return deliveries;
+    }
+
+    public void setDeliveries(Long deliveries) {
+        this.deliveries = deliveries;
+    }
+
+    public Long getDeliverySeconds() {
+        return deliverySeconds;
+    }
+
+    public void setDeliverySeconds(Long deliverySeconds) {
+        this.deliverySeconds = deliverySeconds;
+    }
+
+    public Long getTimedDeliveries() {
+        return timedDeliveries;
+    }
+
+    public void setTimedDeliveries(Long timedDeliveries) {
+        this.timedDeliveries = timedDeliveries;
+    }
+}
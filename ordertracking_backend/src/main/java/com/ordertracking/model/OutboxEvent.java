@@ -0,0 +1,133 @@
+package com.ordertracking.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A rider event waiting to be published to Kafka by the outbox relay. Rows are appended in
+ * arrival order and deleted once the broker has acknowledged them.
+ */
+@Entity
+@Table(name = "order_outbox",
+       indexes = @Index(name = "idx_order_outbox_order_id", columnList = "order_id, id"))
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false, length = 50)
+    private String orderId;
+
+    @Column(name = "rider_id", nullable = false, length = 50)
+    private String riderId;
+
+    @Column(name = "status", nullable = false, length = 30)
+    private String status;
+
+    @Column(name = "event_timestamp", nullable = false)
+    private LocalDateTime eventTimestamp;
+
+    // Rows from before zones existed get the default zone when the column is added
+    @Column(name = "zone", nullable = false, length = 30, columnDefinition = "varchar(30) default 'default'")
+    private String zone = "default";
+
+    // Topic of the zone the order was picked up in; null on rows from before it was recorded
+    @Column(name = "topic", length = 255)
+    private String topic;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    // Constructors
+    public OutboxEvent() {
+        // Default constructor for JPA
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public OutboxEvent(String orderId, String riderId, String status, LocalDateTime eventTimestamp) {
+        this.orderId = orderId;
+        this.riderId = riderId;
+        this.status = status;
+        this.eventTimestamp = eventTimestamp != null ? eventTimestamp : LocalDateTime.now();
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public String getRiderId() {
+        return riderId;
+    }
+
+    public void setRiderId(String riderId) {
+        this.riderId = riderId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getZone() {
+        return zone;
+    }
+
+    public void setZone(String zone) {
+        this.zone = zone;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+
+    public LocalDateTime getEventTimestamp() {
+        return eventTimestamp;
+    }
+
+    public void setEventTimestamp(LocalDateTime eventTimestamp) {
+        this.eventTimestamp = eventTimestamp;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxEvent{" +
+                "id=" + id +
+                ", orderId='" + orderId + '\'' +
+                ", riderId='" + riderId + '\'' +
+                ", status='" + status + '\'' +
+                ", zone='" + zone + '\'' +
+                ", topic='" + topic + '\'' +
+                ", eventTimestamp=" + eventTimestamp +
+                '}';
+    }
+}
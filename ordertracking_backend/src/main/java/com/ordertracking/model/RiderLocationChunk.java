@@ -0,0 +1,87 @@
+package com.ordertracking.model;
+
+import jakarta.persistence.*;
+
+/**
+ * A run of one rider's location pings within one time bucket, encoded by
+ * {@link com.ordertracking.service.LocationChunk}. Times are epoch milliseconds. Written in
+ * batches with JDBC; the entity only declares the table.
+ */
+@Entity
+@Table(name = "rider_location_chunks",
+       indexes = @Index(name = "idx_rider_location_chunks_rider_time", columnList = "rider_id, first_ms"))
+public class RiderLocationChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "rider_id", nullable = false, length = 50)
+    private String riderId;
+
+    @Column(name = "first_ms", nullable = false)
+    private Long firstMillis;
+
+    @Column(name = "last_ms", nullable = false)
+    private Long lastMillis;
+
+    @Column(name = "point_count", nullable = false)
+    private Integer pointCount;
+
+    @Column(name = "points", nullable = false, length = 65535)
+    private byte[] points;
+
+    // Constructors
+    public RiderLocationChunk() {
+        // Default constructor for JPA
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getRiderId() {
+        return riderId;
+    }
+
+    public void setRiderId(String riderId) {
+        this.riderId = riderId;
+    }
+
+    public Long getFirstMillis() {
+        return firstMillis;
+    }
+
+    public void setFirstMillis(Long firstMillis) {
+        this.firstMillis = firstMillis;
+    }
+
+    public Long getLastMillis() {
+        return lastMillis;
+    }
+
+    public void setLastMillis(Long lastMillis) {
+        this.lastMillis = lastMillis;
+    }
+
+    public Integer getPointCount() {
+        return pointCount;
+    }
+
+    public void setPointCount(Integer pointCount) {
+        this.pointCount = pointCount;
+    }
+
+    public byte[] getPoints() {
+        return points;
+    }
+
+    public void setPoints(byte[] points) {
+        this.points = points;
+    }
+}
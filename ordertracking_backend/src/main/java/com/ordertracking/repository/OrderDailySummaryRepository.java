@@ -13,12 +13,22 @@ import java.util.Optional;
 @Repository
 public interface OrderDailySummaryRepository extends JpaRepository<OrderDailySummary, Long> {
 
-    Optional<OrderDailySummary> findByRiderIdAndSummaryDate(String riderId, LocalDate summaryDate);
+    Optional<OrderDailySummary> findByRiderIdAndSummaryDateAndZone(String riderId, LocalDate summaryDate, String zone);
+
+    List<OrderDailySummary> findByRiderIdAndSummaryDate(String riderId, LocalDate summaryDate);
 
     List<OrderDailySummary> findByRiderId(String riderId);
 
     List<OrderDailySummary> findBySummaryDate(LocalDate summaryDate);
 
+    List<OrderDailySummary> findBySummaryDateAndZone(LocalDate summaryDate, String zone);
+
+    List<OrderDailySummary> findBySummaryDateBetween(LocalDate from, LocalDate to);
+
+    List<OrderDailySummary> findBySummaryDateBetweenAndZone(LocalDate from, LocalDate to, String zone);
+
+    List<OrderDailySummary> findByRiderIdAndSummaryDateBetween(String riderId, LocalDate from, LocalDate to);
+
     @Query("SELECT ods FROM OrderDailySummary ods WHERE ods.summaryDate = CURRENT_DATE")
     List<OrderDailySummary> findTodaySummaries();
 
@@ -2,12 +2,14 @@ package com.ordertracking.repository;
 
 import com.ordertracking.model.OrderEvent;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,9 +34,41 @@ public interface OrderEventRepository extends JpaRepository<OrderEvent, Long> {
     @Query("SELECT oe FROM OrderEvent oe WHERE CAST(oe.eventTimestamp AS date) = :date")
     List<OrderEvent> findByDate(@Param("date") LocalDate date);
 
+    @Query("SELECT oe FROM OrderEvent oe WHERE CAST(oe.eventTimestamp AS date) = :date AND oe.zone = :zone")
+    List<OrderEvent> findByDateAndZone(@Param("date") LocalDate date, @Param("zone") String zone);
+
     @Query(value = "SELECT * FROM order_events oe WHERE oe.order_id = :orderId AND oe.status = :status ORDER BY oe.event_timestamp DESC LIMIT 1", nativeQuery = true)
     Optional<OrderEvent> findLatestStatus(@Param("orderId") String orderId, @Param("status") String status);
 
+    Optional<OrderEvent> findFirstByOrderIdAndStatusAndEventTimestamp(String orderId, String status,
+                                                                      LocalDateTime eventTimestamp);
+
+    List<OrderEvent> findByOrderIdInAndStatusAndEventTimestampBetween(Collection<String> orderIds, String status,
+                                                                      LocalDateTime from, LocalDateTime to);
+
+    List<OrderEvent> findByEventTimestampGreaterThanEqualAndEventTimestampLessThan(LocalDateTime from, LocalDateTime to);
+
+    long countByEventTimestampGreaterThanEqualAndEventTimestampLessThan(LocalDateTime from, LocalDateTime to);
+
+    @Query("SELECT MIN(oe.eventTimestamp) FROM OrderEvent oe")
+    LocalDateTime findEarliestEventTimestamp();
+
+    @Query("SELECT MAX(oe.id) FROM OrderEvent oe")
+    Long findMaxId();
+
+    /**
+     * Days before {@code before} that received rows after {@code afterId}, i.e. late arrivals.
+     */
+    @Query("SELECT DISTINCT CAST(oe.eventTimestamp AS LocalDate) FROM OrderEvent oe WHERE oe.id > :afterId AND oe.eventTimestamp < :before")
+    List<LocalDate> findDaysWithEventsAfter(@Param("afterId") long afterId, @Param("before") LocalDateTime before);
+
+    /**
+     * Prunes archived events; rows inserted after the export (id above maxId) are kept.
+     */
+    @Modifying
+    @Query("DELETE FROM OrderEvent oe WHERE oe.eventTimestamp >= :from AND oe.eventTimestamp < :to AND oe.id <= :maxId")
+    int deleteArchived(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to, @Param("maxId") long maxId);
+
     @Query("SELECT DISTINCT oe.orderId FROM OrderEvent oe WHERE CAST(oe.eventTimestamp AS date) = :date")
     List<String> findDistinctOrderIdsByDate(@Param("date") LocalDate date);
 }
\ No newline at end of file
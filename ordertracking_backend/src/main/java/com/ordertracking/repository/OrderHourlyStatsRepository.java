@@ -0,0 +1,14 @@
+package com.ordertracking.repository;
+
+import com.ordertracking.model.OrderHourlyStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface OrderHourlyStatsRepository extends JpaRepository<OrderHourlyStats, Long> {
+
+    List<OrderHourlyStats> findByStatsDate(LocalDate statsDate);
+}
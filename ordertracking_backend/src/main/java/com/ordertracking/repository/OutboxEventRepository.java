@@ -0,0 +1,32 @@
+package com.ordertracking.repository;
+
+import com.ordertracking.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Oldest pending rows, locked for the calling transaction. Rows locked by another relay
+     * instance are skipped instead of waited for. Only the oldest row of each order is eligible:
+     * a later row waits until the one before it is deleted, so an order's events are never
+     * published past an earlier one that failed or is still being relayed by another instance.
+     */
+    @Query(value = "SELECT * FROM order_outbox o WHERE NOT EXISTS "
+            + "(SELECT 1 FROM order_outbox earlier WHERE earlier.order_id = o.order_id AND earlier.id < o.id) "
+            + "ORDER BY o.id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxEvent> lockNextBatch(@Param("limit") int limit);
+
+    boolean existsByOrderId(String orderId);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent oe WHERE oe.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
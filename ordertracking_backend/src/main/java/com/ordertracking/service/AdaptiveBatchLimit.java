@@ -0,0 +1,86 @@
+package com.ordertracking.service;
+
+/**
+ * How many records a listener thread may write between two polls, adapted to the database write
+ * latency like a TCP congestion window: every {@link #adjust} halves the limit while the smoothed
+ * latency is over target and grows it by a twentieth of the maximum while the latency is below
+ * half the target. Adjustments without writes since the previous one keep the limit, since there
+ * is nothing new to learn from.
+ */
+public class AdaptiveBatchLimit {
+
+    // Weight of the newest sample in the exponentially weighted moving average
+    private static final double SMOOTHING = 0.2;
+
+    private final int minBatch;
+    private final int maxBatch;
+    private final int step;
+    private final double targetMillis;
+
+    private volatile int batchSize;
+    private double latencyMillis = -1;
+    private long samplesSinceAdjust;
+
+    public AdaptiveBatchLimit(int minBatch, int maxBatch, double targetMillis) {
+        this.minBatch = Math.max(1, Math.min(minBatch, maxBatch));
+        this.maxBatch = Math.max(this.minBatch, maxBatch);
+        this.step = Math.max(1, this.maxBatch / 20);
+        this.targetMillis = targetMillis;
+        this.batchSize = this.maxBatch;
+    }
+
+    public synchronized void recordWrite(long nanos) {
+        double millis = nanos / 1_000_000.0;
+        latencyMillis = latencyMillis < 0 ? millis : latencyMillis + SMOOTHING * (millis - latencyMillis);
+        samplesSinceAdjust++;
+    }
+
+    /**
+     * @return the new limit
+     */
+    public synchronized int adjust() {
+        if (samplesSinceAdjust == 0) {
+            return batchSize;
+        }
+        samplesSinceAdjust = 0;
+        if (latencyMillis > targetMillis) {
+            batchSize = Math.max(minBatch, batchSize / 2);
+        } else if (latencyMillis < targetMillis / 2) {
+            batchSize = Math.min(maxBatch, batchSize + step);
+        }
+        return batchSize;
+    }
+
+    /**
+     * @return true while the smoothed write latency is over target
+     */
+    public synchronized boolean isOverloaded() {
+        return latencyMillis > targetMillis;
+    }
+
+    /**
+     * @return how far the smoothed write latency is over target, as a fraction of the target
+     *         between 0 (at or under target) and 1 (twice the target or more)
+     */
+    public synchronized double overload() {
+        return Math.max(0, Math.min(1, latencyMillis / targetMillis - 1));
+    }
+
+    /**
+     * @return true when the limit is below the maximum, i.e. below what a single poll returns
+     */
+    public boolean isLimiting() {
+        return batchSize < maxBatch;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @return the smoothed write latency, 0 before the first write
+     */
+    public synchronized double getLatencyMillis() {
+        return Math.max(0, latencyMillis);
+    }
+}
@@ -6,78 +6,254 @@ import com.ordertracking.repository.OrderDailySummaryRepository;
 import com.ordertracking.repository.OrderEventRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class AggregationService {
 
     private static final Logger log = LoggerFactory.getLogger(AggregationService.class);
+    private static final int PICKUP_LOOKUP_BATCH = 1000;
 
     private final OrderEventRepository orderEventRepository;
     private final OrderDailySummaryRepository dailySummaryRepository;
+    private final PipelineMetrics pipelineMetrics;
+    private final OrderStateStore stateStore;
+    private final TransactionTemplate transactionTemplate;
+    private final long delayThresholdMinutes;
+    // How far before midnight a delivery's pickup is looked up
+    private final Duration pickupLookback;
+
+    // Outstanding refresh requests per date and zone; non-zero while a refresh for that key is
+    // running. Entries are kept (one small counter per key) so two threads never see different counters.
+    private final ConcurrentHashMap<RefreshKey, AtomicInteger> refreshRequests = new ConcurrentHashMap<>();
 
     public AggregationService(OrderEventRepository orderEventRepository,
-                              OrderDailySummaryRepository dailySummaryRepository) {
+                              OrderDailySummaryRepository dailySummaryRepository,
+                              PipelineMetrics pipelineMetrics,
+                              OrderStateStore stateStore,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${aggregation.delay-threshold-minutes:30}") long delayThresholdMinutes,
+                              @Value("${aggregation.pickup-lookback-hours:24}") long pickupLookbackHours) {
         this.orderEventRepository = orderEventRepository;
         this.dailySummaryRepository = dailySummaryRepository;
+        this.pipelineMetrics = pipelineMetrics;
+        this.stateStore = stateStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.delayThresholdMinutes = delayThresholdMinutes;
+        this.pickupLookback = Duration.ofHours(pickupLookbackHours);
     }
 
     @Scheduled(cron = "0 0 23 * * *") // Daily at 23:00
-    @Transactional
     public void generateDailySummary() {
         LocalDate yesterday = LocalDate.now().minusDays(1);
-        generateDailySummaryForDate(yesterday);
+        refreshDailySummary(yesterday);
+    }
+
+    /**
+     * Recomputes the summary for a date, safe to call from many consumer threads at once.
+     * Only one thread computes a given date at a time; requests that arrive while it runs are
+     * folded into one more pass by that same thread, so every request is followed by a
+     * recomputation that sees its event without piling up redundant full-day scans.
+     */
+    public void refreshDailySummary(LocalDate date) {
+        refresh(new RefreshKey(date, null));
+    }
+
+    /**
+     * Recomputes the summaries of {@code zone} on a date, coalesced like
+     * {@link #refreshDailySummary(LocalDate)} but per zone, so a surging zone's refreshes neither
+     * wait for nor rescan the other zones.
+     */
+    public void refreshDailySummary(LocalDate date, String zone) {
+        refresh(new RefreshKey(date, ZoneRouting.normalize(zone)));
+    }
+
+    private void refresh(RefreshKey key) {
+        AtomicInteger pending = refreshRequests.computeIfAbsent(key, k -> new AtomicInteger());
+        if (pending.getAndIncrement() != 0) {
+            return;
+        }
+
+        int missed = 1;
+        RuntimeException failure = null;
+        do {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (key.zone() == null) {
+                        generateDailySummaryForDate(key.date());
+                    } else {
+                        generateDailySummaryForZone(key.date(), key.zone());
+                    }
+                });
+            } catch (RuntimeException e) {
+                // Requests that came in during the failed pass still get a pass of their own
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+            // Only the requests this pass covered; later ones keep the key busy for another pass
+            missed = pending.addAndGet(-missed);
+        } while (missed != 0);
+        if (failure != null) {
+            throw failure;
+        }
     }
 
     public void generateDailySummaryForDate(LocalDate date) {
-        log.info("Generating daily summary for date: {}", date);
+        long start = System.nanoTime();
 
         try {
             // Get all events for the date
             List<OrderEvent> events = orderEventRepository.findByDate(date);
-            log.info("Found {} events for date: {}", events.size(), date);
+            log.debug("Summarizing date={} events={}", date, events.size());
 
             if (events.isEmpty()) {
-                log.info("No events found for date: {}, creating empty summaries", date);
+                log.debug("No events for date={}, creating empty summaries", date);
                 createEmptySummariesIfNotExist(date);
                 return;
             }
+            Map<String, List<OrderEvent>> eventsByZone = groupByZone(events);
+            for (Map.Entry<String, List<OrderEvent>> zone : eventsByZone.entrySet()) {
+                addMissingPickups(date, zone.getValue());
+                summarizeRiders(date, zone.getKey(), zone.getValue());
+            }
 
-            // Group by rider
-            Map<String, List<OrderEvent>> eventsByRider = new HashMap<>();
-            for (OrderEvent event : events) {
-                eventsByRider.computeIfAbsent(event.getRiderId(), k -> new ArrayList<>()).add(event);
+            log.debug("Summarized date={} zones={}", date, eventsByZone.size());
+
+        } catch (Exception e) {
+            log.error("Error generating daily summary for date {}: {}", date, e.getMessage(), e);
+            throw new RuntimeException("Failed to generate daily summary for date: " + date, e);
+        } finally {
+            pipelineMetrics.recordAggregation(start);
+        }
+    }
+
+    /**
+     * Recomputes the summaries of {@code zone} on a date from that zone's events only: one per
+     * rider who worked in it, counting the orders they delivered there. A rider who also worked
+     * in other zones has a summary per zone, which this leaves alone.
+     */
+    public void generateDailySummaryForZone(LocalDate date, String zone) {
+        long start = System.nanoTime();
+
+        try {
+            List<OrderEvent> events = new ArrayList<>(orderEventRepository.findByDateAndZone(date, zone));
+            if (events.isEmpty()) {
+                log.debug("No events for date={} zone={}", date, zone);
+                return;
             }
+            log.debug("Summarizing date={} zone={} events={}", date, zone, events.size());
+
+            addMissingPickups(date, events);
+            summarizeRiders(date, zone, events);
+        } catch (Exception e) {
+            log.error("Error generating daily summary for zone {} on {}: {}", zone, date, e.getMessage(), e);
+            throw new RuntimeException("Failed to generate daily summary for zone " + zone + " on " + date, e);
+        } finally {
+            pipelineMetrics.recordAggregation(start);
+        }
+    }
+
+    private void summarizeRiders(LocalDate date, String zone, List<OrderEvent> events) {
+        // Group by rider
+        Map<String, List<OrderEvent>> eventsByRider = new HashMap<>();
+        for (OrderEvent event : events) {
+            eventsByRider.computeIfAbsent(event.getRiderId(), k -> new ArrayList<>()).add(event);
+        }
+
+        log.debug("Summarizing date={} zone={} riders={}", date, zone, eventsByRider.size());
 
-            log.info("Processing events for {} riders", eventsByRider.size());
+        // Generate summary for each rider
+        for (Map.Entry<String, List<OrderEvent>> entry : eventsByRider.entrySet()) {
+            String riderId = entry.getKey();
+            List<OrderEvent> riderEvents = entry.getValue();
 
-            // Generate summary for each rider
-            for (Map.Entry<String, List<OrderEvent>> entry : eventsByRider.entrySet()) {
-                String riderId = entry.getKey();
-                List<OrderEvent> riderEvents = entry.getValue();
+            log.debug("Processing {} events for rider: {}", riderEvents.size(), riderId);
 
-                log.debug("Processing {} events for rider: {}", riderEvents.size(), riderId);
+            OrderDailySummary summary = calculateRealisticRiderSummary(riderId, date, zone, riderEvents);
+
+            // Use saveOrUpdate method to handle duplicates
+            saveOrUpdateSummary(summary);
+        }
+    }
 
-                OrderDailySummary summary = calculateRealisticRiderSummary(riderId, date, riderEvents);
+    /**
+     * Recomputes a single rider's summaries for one date, one per zone they worked in, from that
+     * rider's events only. Used for cells touched by late events, where a whole-day scan would
+     * mostly redo unchanged riders.
+     */
+    public void recomputeSummaryCell(String riderId, LocalDate date) {
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<OrderEvent> events = orderEventRepository.findByRiderAndDate(riderId, date);
+                if (events.isEmpty()) {
+                    log.debug("No events for rider {} on {}, summary cell left as is", riderId, date);
+                    return;
+                }
+                for (Map.Entry<String, List<OrderEvent>> zone : groupByZone(events).entrySet()) {
+                    addMissingPickups(date, zone.getValue());
+                    saveOrUpdateSummary(calculateRealisticRiderSummary(riderId, date, zone.getKey(), zone.getValue()));
+                }
+            });
+        } finally {
+            pipelineMetrics.recordSummaryCellRecompute(start);
+        }
+    }
 
-                // Use saveOrUpdate method to handle duplicates
-                saveOrUpdateSummary(summary);
+    /**
+     * A delivery counts on the day and in the zone it was delivered. When its pickup happened
+     * before midnight or in another zone it is not among the events summarized, so the pickups of
+     * such orders are fetched from the lookback window up to the end of the day.
+     */
+    void addMissingPickups(LocalDate date, List<OrderEvent> events) {
+        Set<String> delivered = new HashSet<>();
+        Set<String> pickedUp = new HashSet<>();
+        for (OrderEvent event : events) {
+            if ("DELIVERED".equals(event.getStatus())) {
+                delivered.add(event.getOrderId());
+            } else if ("PICKED_UP".equals(event.getStatus())) {
+                pickedUp.add(event.getOrderId());
             }
+        }
+        delivered.removeAll(pickedUp);
+        if (delivered.isEmpty()) {
+            return;
+        }
 
-            log.info("Daily summary generation completed successfully for date: {}", date);
+        LocalDateTime dayStart = date.atStartOfDay();
+        List<String> orderIds = new ArrayList<>(delivered);
+        // Keeps the IN list well below the bind parameter limit
+        for (int from = 0; from < orderIds.size(); from += PICKUP_LOOKUP_BATCH) {
+            List<String> batch = orderIds.subList(from, Math.min(from + PICKUP_LOOKUP_BATCH, orderIds.size()));
+            events.addAll(orderEventRepository.findByOrderIdInAndStatusAndEventTimestampBetween(
+                    batch, "PICKED_UP", dayStart.minus(pickupLookback), dayStart.plusDays(1)));
+        }
+    }
 
-        } catch (Exception e) {
-            log.error("Error generating daily summary for date {}: {}", date, e.getMessage(), e);
-            throw new RuntimeException("Failed to generate daily summary for date: " + date, e);
+    private static Map<String, List<OrderEvent>> groupByZone(List<OrderEvent> events) {
+        Map<String, List<OrderEvent>> eventsByZone = new HashMap<>();
+        for (OrderEvent event : events) {
+            eventsByZone.computeIfAbsent(ZoneRouting.normalize(event.getZone()), k -> new ArrayList<>()).add(event);
         }
+        return eventsByZone;
     }
 
     private void createEmptySummaries(LocalDate date) {
@@ -122,13 +298,13 @@ public class AggregationService {
 
         for (String riderId : existingRiders) {
             // Only create if doesn't exist
-            Optional<OrderDailySummary> existing = dailySummaryRepository.findByRiderIdAndSummaryDate(riderId, date);
+            List<OrderDailySummary> existing = dailySummaryRepository.findByRiderIdAndSummaryDate(riderId, date);
             if (existing.isEmpty()) {
                 OrderDailySummary summary = new OrderDailySummary(
                         riderId, date, 0, null, 0
                 );
                 dailySummaryRepository.save(summary);
-                log.info("Created empty summary for rider {}: {}", riderId, summary);
+                log.debug("Created empty summary riderId={} date={}", riderId, date);
             } else {
                 log.debug("Summary already exists for rider {} on date {}", riderId, date);
             }
@@ -140,8 +316,8 @@ public class AggregationService {
         try {
             // Try to find existing summary
             Optional<OrderDailySummary> existingSummary = 
-                    dailySummaryRepository.findByRiderIdAndSummaryDate(
-                            summary.getRiderId(), summary.getSummaryDate());
+                    dailySummaryRepository.findByRiderIdAndSummaryDateAndZone(
+                            summary.getRiderId(), summary.getSummaryDate(), summary.getZone());
 
             if (existingSummary.isPresent()) {
                 // Update existing
@@ -149,12 +325,15 @@ public class AggregationService {
                 existing.setDeliveredOrders(summary.getDeliveredOrders());
                 existing.setAvgDeliveryTimeMinutes(summary.getAvgDeliveryTimeMinutes());
                 existing.setDelayedOrders(summary.getDelayedOrders());
+                existing.setDeliveryTimeSketch(summary.getDeliveryTimeSketch());
                 dailySummaryRepository.save(existing);
-                log.info("Updated existing summary for rider {}: {}", summary.getRiderId(), existing);
+                updateStoreAfterCommit(existing);
+                logSaved("Updated", existing);
             } else {
                 // Create new
                 dailySummaryRepository.save(summary);
-                log.info("Created new summary for rider {}: {}", summary.getRiderId(), summary);
+                updateStoreAfterCommit(summary);
+                logSaved("Created", summary);
             }
         } catch (Exception e) {
             log.error("Error saving/updating summary for rider {} on date {}: {}", 
@@ -162,15 +341,17 @@ public class AggregationService {
             // If there's a constraint violation, try to update existing record
             try {
                 Optional<OrderDailySummary> existingSummary = 
-                        dailySummaryRepository.findByRiderIdAndSummaryDate(
-                                summary.getRiderId(), summary.getSummaryDate());
+                        dailySummaryRepository.findByRiderIdAndSummaryDateAndZone(
+                                summary.getRiderId(), summary.getSummaryDate(), summary.getZone());
                 if (existingSummary.isPresent()) {
                     OrderDailySummary existing = existingSummary.get();
                     existing.setDeliveredOrders(summary.getDeliveredOrders());
                     existing.setAvgDeliveryTimeMinutes(summary.getAvgDeliveryTimeMinutes());
                     existing.setDelayedOrders(summary.getDelayedOrders());
-                    dailySummaryRepository.save(existing);
-                    log.info("Recovered by updating existing summary for rider {}: {}", summary.getRiderId(), existing);
+                    existing.setDeliveryTimeSketch(summary.getDeliveryTimeSketch());
+                        dailySummaryRepository.save(existing);
+                    updateStoreAfterCommit(existing);
+                    logSaved("Recovered by updating", existing);
                 }
             } catch (Exception retryException) {
                 log.error("Failed to recover from constraint violation: {}", retryException.getMessage());
@@ -179,7 +360,33 @@ public class AggregationService {
         }
     }
 
-    private OrderDailySummary calculateRealisticRiderSummary(String riderId, LocalDate date, List<OrderEvent> events) {
+    /**
+     * Hands the summary to the live state once its transaction has committed, so dashboards and
+     * the leaderboard never show a summary that is rolled back afterwards.
+     */
+    private void updateStoreAfterCommit(OrderDailySummary summary) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            stateStore.updateSummary(summary);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                stateStore.updateSummary(summary);
+            }
+        });
+    }
+
+    private static void logSaved(String action, OrderDailySummary summary) {
+        if (log.isDebugEnabled()) {
+            log.debug("{} summary riderId={} date={} zone={} delivered={} delayed={} avgMinutes={}", action,
+                    summary.getRiderId(), summary.getSummaryDate(), summary.getZone(), summary.getDeliveredOrders(),
+                    summary.getDelayedOrders(), summary.getAvgDeliveryTimeMinutes());
+        }
+    }
+
+    private OrderDailySummary calculateRealisticRiderSummary(String riderId, LocalDate date, String zone,
+                                                             List<OrderEvent> events) {
         // Group events by order
         Map<String, List<OrderEvent>> eventsByOrder = new HashMap<>();
         for (OrderEvent event : events) {
@@ -189,6 +396,7 @@ public class AggregationService {
         int deliveredOrders = 0;
         int delayedOrders = 0;
         List<Long> deliveryTimes = new ArrayList<>();
+        DeliveryTimeSketch sketch = new DeliveryTimeSketch();
 
         for (Map.Entry<String, List<OrderEvent>> entry : eventsByOrder.entrySet()) {
             String orderId = entry.getKey();
@@ -214,17 +422,21 @@ public class AggregationService {
                 deliveredOrders++;
 
                 // Calculate delivery time - ensure positive duration
-                long minutes = Duration.between(
+                Duration deliveryTime = Duration.between(
                         pickupEvent.getEventTimestamp(),
                         deliveredEvent.getEventTimestamp()
-                ).toMinutes();
+                );
+                long minutes = deliveryTime.toMinutes();
+                if (deliveryTime.getSeconds() > 0) {
+                    sketch.record(deliveryTime.getSeconds());
+                }
 
                 // Only add positive delivery times (ignore negative or zero times)
                 if (minutes > 0) {
                     deliveryTimes.add(minutes);
 
-                    // Check if delayed (more than 30 minutes is considered delayed)
-                    if (minutes > 30) {
+                    // Check if delayed (aggregation.delay-threshold-minutes, 30 by default)
+                    if (minutes > delayThresholdMinutes) {
                         delayedOrders++;
                         log.debug("Order {} delayed: {} minutes", orderId, minutes);
                     }
@@ -245,9 +457,141 @@ public class AggregationService {
             avgDeliveryTime = (int) (totalMinutes / deliveryTimes.size());
         }
 
-        return new OrderDailySummary(riderId, date, deliveredOrders, avgDeliveryTime, delayedOrders);
+        OrderDailySummary summary = new OrderDailySummary(riderId, date, deliveredOrders, avgDeliveryTime, delayedOrders);
+        summary.setDeliveryTimeSketch(sketch.toBytes());
+        summary.setZone(zone);
+        return summary;
+    }
+
+    /**
+     * Delivery time percentiles over a date range, per rider and for the whole fleet, computed by
+     * merging the stored per rider, day and zone sketches. Summaries without a sketch are skipped.
+     * With a zone, only the deliveries made in that zone count.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getDeliveryPercentiles(LocalDate from, LocalDate to, String riderId, String zone) {
+        List<OrderDailySummary> summaries = riderId != null
+                ? dailySummaryRepository.findByRiderIdAndSummaryDateBetween(riderId, from, to)
+                : zone != null
+                ? dailySummaryRepository.findBySummaryDateBetweenAndZone(from, to, zone)
+                : dailySummaryRepository.findBySummaryDateBetween(from, to);
+        if (riderId != null && zone != null) {
+            summaries = summaries.stream().filter(summary -> zone.equals(summary.getZone())).toList();
+        }
+
+        DeliveryTimeSketch fleet = new DeliveryTimeSketch();
+        Map<String, DeliveryTimeSketch> byRider = new TreeMap<>();
+        for (OrderDailySummary summary : summaries) {
+            if (summary.getDeliveryTimeSketch() == null) {
+                continue;
+            }
+            DeliveryTimeSketch sketch = DeliveryTimeSketch.fromBytes(summary.getDeliveryTimeSketch());
+            byRider.computeIfAbsent(summary.getRiderId(), id -> new DeliveryTimeSketch()).merge(sketch);
+            fleet.merge(sketch);
+        }
+
+        List<Map<String, Object>> riders = new ArrayList<>();
+        byRider.forEach((id, sketch) -> {
+            Map<String, Object> rider = percentiles(sketch);
+            rider.put("riderId", id);
+            riders.add(rider);
+        });
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("from", from);
+        result.put("to", to);
+        result.put("zone", zone);
+        result.put("delayThresholdMinutes", delayThresholdMinutes);
+        result.put("fleet", percentiles(fleet));
+        result.put("riders", riders);
+        return result;
+    }
+
+    private record RefreshKey(LocalDate date, String zone) {
+    }
+
+    /**
+     * Summed summaries of one zone; sketches merge, so the all-zone percentiles are exact too.
+     * A rider who worked in several zones counts once.
+     */
+    private static final class ZoneTotals {
+        private final Set<String> riders = new HashSet<>();
+        private int deliveries;
+        private int delays;
+        private final DeliveryTimeSketch sketch = new DeliveryTimeSketch();
+
+        void add(OrderDailySummary summary) {
+            riders.add(summary.getRiderId());
+            deliveries += summary.getDeliveredOrders();
+            delays += summary.getDelayedOrders();
+            if (summary.getDeliveryTimeSketch() != null) {
+                sketch.merge(DeliveryTimeSketch.fromBytes(summary.getDeliveryTimeSketch()));
+            }
+        }
+
+        Map<String, Object> toMap() {
+            double successRate = deliveries > 0 ? ((deliveries - delays) * 100.0) / deliveries : 100.0;
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("riderCount", riders.size());
+            metrics.put("totalDeliveries", deliveries);
+            metrics.put("totalDelays", delays);
+            metrics.put("successRate", Math.round(successRate * 100.0) / 100.0);
+            metrics.put("deliveryTimes", percentiles(sketch));
+            return metrics;
+        }
+    }
+
+    private static Map<String, Object> percentiles(DeliveryTimeSketch sketch) {
+        Map<String, Object> percentiles = new LinkedHashMap<>();
+        percentiles.put("deliveries", sketch.getCount());
+        percentiles.put("p50Minutes", toMinutes(sketch.valueAtQuantile(0.50)));
+        percentiles.put("p90Minutes", toMinutes(sketch.valueAtQuantile(0.90)));
+        percentiles.put("p99Minutes", toMinutes(sketch.valueAtQuantile(0.99)));
+        return percentiles;
+    }
+
+    private static double toMinutes(long seconds) {
+        return Math.round(seconds / 6.0) / 10.0;
+    }
+
+    /**
+     * Stored summaries of one day; read-only, so it is served by the read replica when one is configured.
+     */
+    @Transactional(readOnly = true)
+    public List<OrderDailySummary> getDailySummaries(LocalDate date, String zone) {
+        return zone != null
+                ? dailySummaryRepository.findBySummaryDateAndZone(date, zone)
+                : dailySummaryRepository.findBySummaryDate(date);
+    }
+
+    /**
+     * One day's deliveries, delays and delivery time percentiles per zone, and the same merged
+     * across all zones for cross-zone dashboards.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getZoneMetrics(LocalDate date) {
+        Map<String, ZoneTotals> zones = new TreeMap<>();
+        ZoneTotals all = new ZoneTotals();
+        for (OrderDailySummary summary : dailySummaryRepository.findBySummaryDate(date)) {
+            zones.computeIfAbsent(summary.getZone(), z -> new ZoneTotals()).add(summary);
+            all.add(summary);
+        }
+
+        List<Map<String, Object>> perZone = new ArrayList<>();
+        zones.forEach((zone, totals) -> {
+            Map<String, Object> metrics = totals.toMap();
+            metrics.put("zone", zone);
+            perZone.add(metrics);
+        });
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("date", date);
+        result.put("all", all.toMap());
+        result.put("zones", perZone);
+        return result;
     }
 
+    @Transactional(readOnly = true)
     public Map<String, Object> getDashboardMetrics() {
         Map<String, Object> metrics = new HashMap<>();
         LocalDate today = LocalDate.now();
@@ -269,7 +613,7 @@ public class AggregationService {
         metrics.put("totalDeliveries", totalDeliveries);
         metrics.put("totalDelays", totalDelays);
         metrics.put("successRate", Math.round(successRate * 100.0) / 100.0);
-        metrics.put("riderCount", todaySummaries.size());
+        metrics.put("riderCount", todaySummaries.stream().map(OrderDailySummary::getRiderId).distinct().count());
 
         return metrics;
     }
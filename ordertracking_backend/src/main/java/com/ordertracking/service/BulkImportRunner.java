@@ -0,0 +1,78 @@
+package com.ordertracking.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Command-line bulk import: with {@code --import.file=<path>} the application imports the file
+ * once it has started and then exits, with status 1 if the import failed. Files ending in .gz
+ * are decompressed on the fly; the format defaults to the file extension.
+ */
+@Component
+@ConditionalOnProperty(name = "import.file")
+public class BulkImportRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkImportRunner.class);
+
+    private final BulkImportService bulkImportService;
+    private final ConfigurableApplicationContext context;
+    private final Path file;
+    private final String format;
+    private final boolean dedup;
+    private final boolean exit;
+
+    public BulkImportRunner(BulkImportService bulkImportService,
+                            ConfigurableApplicationContext context,
+                            @Value("${import.file}") String file,
+                            @Value("${import.format:}") String format,
+                            @Value("${import.dedup:true}") boolean dedup,
+                            @Value("${import.exit:true}") boolean exit) {
+        this.bulkImportService = bulkImportService;
+        this.context = context;
+        this.file = Paths.get(file);
+        this.format = format;
+        this.dedup = dedup;
+        this.exit = exit;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        String name = file.getFileName().toString();
+        boolean gzipped = name.endsWith(".gz");
+        if (gzipped) {
+            name = name.substring(0, name.length() - ".gz".length());
+        }
+        String fileFormat = !format.isEmpty() ? format : name.substring(name.lastIndexOf('.') + 1);
+
+        int exitCode = 0;
+        try (InputStream in = gzipped
+                ? new GZIPInputStream(Files.newInputStream(file), 1 << 16)
+                : Files.newInputStream(file)) {
+            log.info("Importing order events from {} ({}, dedup {})", file, fileFormat, dedup);
+            Map<String, Object> report = bulkImportService.importEvents(in, fileFormat, dedup);
+            log.info("Import of {} finished: {}", file, report);
+        } catch (Exception e) {
+            log.error("Import of {} failed: {}", file, e.getMessage(), e);
+            exitCode = 1;
+        }
+
+        if (exit) {
+            int code = exitCode;
+            System.exit(SpringApplication.exit(context, () -> code));
+        }
+    }
+}
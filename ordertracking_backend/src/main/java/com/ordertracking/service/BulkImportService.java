@@ -0,0 +1,337 @@
+package com.ordertracking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Loads historical order events into order_events in bulk, bypassing JPA.
+ *
+ * On PostgreSQL the rows are streamed through one COPY in a single transaction, so a failed
+ * import leaves nothing behind. With deduplication they are copied into a temporary staging table
+ * first and moved over with one INSERT ... SELECT that drops rows whose (order_id, status,
+ * event_timestamp) already exists in the table or earlier in the file; order events carry no id
+ * of their own, and that triple is what identifies one status change of an order. Other
+ * databases get JDBC batch inserts, deduplicated one batch at a time. Afterwards the daily
+ * summaries and hourly demand of every affected date are rebuilt. Imported events do not go
+ * through Kafka and never reach the live state or SSE clients.
+ */
+@Service
+public class BulkImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkImportService.class);
+    private static final DateTimeFormatter COPY_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+    private static final String COLUMNS = "order_id, rider_id, status, event_timestamp, created_at";
+    private static final String STAGING_TABLE = "order_events_import";
+    private static final String INSERT_STAGED = "INSERT INTO order_events (" + COLUMNS + ") "
+            + "SELECT DISTINCT ON (order_id, status, event_timestamp) " + COLUMNS + " FROM " + STAGING_TABLE + " s "
+            + "WHERE NOT EXISTS (SELECT 1 FROM order_events e WHERE e.order_id = s.order_id "
+            + "AND e.status = s.status AND e.event_timestamp = s.event_timestamp)";
+    private static final String SELECT_STORED_KEYS = "SELECT order_id, status, event_timestamp FROM order_events "
+            + "WHERE event_timestamp BETWEEN ? AND ?";
+    private static final String INSERT = "INSERT INTO order_events (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?)";
+
+    private record EventKey(String orderId, String status, LocalDateTime eventTimestamp) {
+    }
+
+    private final DataSource dataSource;
+    private final AggregationService aggregationService;
+    private final EventArchiveService eventArchive;
+    private final HourlyDemandAggregator hourlyDemand;
+    private final ObjectMapper objectMapper;
+    private final int copyBufferBytes;
+    private final int batchSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public BulkImportService(DataSource dataSource,
+                             AggregationService aggregationService,
+                             EventArchiveService eventArchive,
+                             HourlyDemandAggregator hourlyDemand,
+                             ObjectMapper objectMapper,
+                             @Value("${import.copy-buffer-bytes:1048576}") int copyBufferBytes,
+                             @Value("${import.batch-size:1000}") int batchSize) {
+        this.dataSource = dataSource;
+        this.aggregationService = aggregationService;
+        this.eventArchive = eventArchive;
+        this.hourlyDemand = hourlyDemand;
+        this.objectMapper = objectMapper;
+        this.copyBufferBytes = Math.max(4096, copyBufferBytes);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Imports every valid row of {@code in}; invalid rows are skipped and reported.
+     *
+     * @param format csv or ndjson
+     * @param dedup  skip events already in order_events or repeated in the input
+     * @throws IllegalArgumentException for an unknown format or a CSV file without the required columns
+     * @throws IllegalStateException    while another import is running
+     */
+    public Map<String, Object> importEvents(InputStream in, String format, boolean dedup) throws IOException, SQLException {
+        EventImportReader.Format parsedFormat = EventImportReader.Format.parse(format);
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Another import is already running");
+        }
+        try {
+            long start = System.nanoTime();
+            Set<LocalDate> affectedDates = new HashSet<>();
+            long imported;
+            long rowsRead;
+            boolean copy;
+            Map<String, Object> report = new LinkedHashMap<>();
+
+            try (EventImportReader reader = new EventImportReader(in, parsedFormat, objectMapper);
+                 Connection connection = dataSource.getConnection()) {
+                copy = connection.isWrapperFor(PGConnection.class);
+                boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                try {
+                    imported = copy
+                            ? copy(connection, reader, dedup, affectedDates)
+                            : insertBatches(connection, reader, dedup, affectedDates);
+                    connection.commit();
+                } catch (IOException | SQLException | RuntimeException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(autoCommit);
+                }
+
+                rowsRead = reader.getRowsRead();
+                long valid = rowsRead - reader.getRejected();
+                report.put("format", parsedFormat.name().toLowerCase(Locale.ROOT));
+                report.put("method", copy ? "copy" : "batch-insert");
+                report.put("dedup", dedup);
+                report.put("rowsRead", rowsRead);
+                report.put("imported", imported);
+                report.put("rejected", reader.getRejected());
+                report.put("duplicatesSkipped", valid - imported);
+                report.put("errors", reader.getErrors());
+            }
+            long importNanos = System.nanoTime() - start;
+
+            rebuildSummaries(imported > 0 ? affectedDates : Set.of(), report);
+
+            long importMillis = importNanos / 1_000_000;
+            report.put("importMs", importMillis);
+            report.put("rowsPerSecond", importNanos > 0 ? (long) (rowsRead * 1e9 / importNanos) : 0);
+            report.put("totalMs", (System.nanoTime() - start) / 1_000_000);
+            log.info("Imported {} of {} order events ({} rejected, {} duplicates) by {} in {} ms",
+                    imported, rowsRead, report.get("rejected"), report.get("duplicatesSkipped"),
+                    report.get("method"), importMillis);
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private long copy(Connection connection, EventImportReader reader, boolean dedup, Set<LocalDate> affectedDates)
+            throws IOException, SQLException {
+        if (dedup) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TEMP TABLE " + STAGING_TABLE + " (order_id varchar(50), rider_id varchar(50), "
+                        + "status varchar(30), event_timestamp timestamp(6), created_at timestamp(6)) ON COMMIT DROP");
+            }
+        }
+
+        String createdAt = COPY_TIMESTAMP.format(LocalDateTime.now());
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn("COPY " + (dedup ? STAGING_TABLE : "order_events") + " (" + COLUMNS + ") FROM STDIN");
+        long copied;
+        try {
+            StringBuilder buffer = new StringBuilder(copyBufferBytes + 256);
+            EventImportReader.Row row;
+            while ((row = reader.next()) != null) {
+                appendCopyText(buffer, row.orderId()).append('\t');
+                appendCopyText(buffer, row.riderId()).append('\t');
+                buffer.append(row.status()).append('\t');
+                COPY_TIMESTAMP.formatTo(row.eventTimestamp(), buffer);
+                buffer.append('\t').append(createdAt).append('\n');
+                addAffectedDates(affectedDates, row);
+                if (buffer.length() >= copyBufferBytes) {
+                    writeToCopy(copyIn, buffer);
+                }
+            }
+            writeToCopy(copyIn, buffer);
+            copied = copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+        if (!dedup) {
+            return copied;
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            // Temporary tables are never auto-analyzed; without statistics the anti-join plan is a guess
+            statement.execute("ANALYZE " + STAGING_TABLE);
+            return statement.executeUpdate(INSERT_STAGED);
+        }
+    }
+
+    private long insertBatches(Connection connection, EventImportReader reader, boolean dedup,
+                               Set<LocalDate> affectedDates) throws IOException, SQLException {
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        List<EventImportReader.Row> batch = new ArrayList<>(batchSize);
+        long inserted = 0;
+        try (PreparedStatement statement = connection.prepareStatement(INSERT)) {
+            EventImportReader.Row row;
+            while ((row = reader.next()) != null) {
+                batch.add(row);
+                addAffectedDates(affectedDates, row);
+                if (batch.size() == batchSize) {
+                    inserted += insertBatch(connection, statement, batch, dedup, createdAt);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                inserted += insertBatch(connection, statement, batch, dedup, createdAt);
+            }
+        }
+        return inserted;
+    }
+
+    private long insertBatch(Connection connection, PreparedStatement statement, List<EventImportReader.Row> batch,
+                             boolean dedup, Timestamp createdAt) throws SQLException {
+        Collection<EventImportReader.Row> rows = dedup ? withoutStored(connection, batch) : batch;
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        for (EventImportReader.Row row : rows) {
+            statement.setString(1, row.orderId());
+            statement.setString(2, row.riderId());
+            statement.setString(3, row.status());
+            statement.setTimestamp(4, Timestamp.valueOf(row.eventTimestamp()));
+            statement.setTimestamp(5, createdAt);
+            statement.addBatch();
+        }
+        return sum(statement.executeBatch());
+    }
+
+    /**
+     * Drops the rows of a batch that repeat an earlier row or are already stored, with one lookup
+     * over the batch's time range; earlier batches of the same import are visible to it as they
+     * share the transaction.
+     */
+    private static Collection<EventImportReader.Row> withoutStored(Connection connection,
+                                                                  List<EventImportReader.Row> batch) throws SQLException {
+        Map<EventKey, EventImportReader.Row> unique = new LinkedHashMap<>();
+        LocalDateTime from = LocalDateTime.MAX;
+        LocalDateTime to = LocalDateTime.MIN;
+        for (EventImportReader.Row row : batch) {
+            unique.putIfAbsent(new EventKey(row.orderId(), row.status(), row.eventTimestamp()), row);
+            from = row.eventTimestamp().isBefore(from) ? row.eventTimestamp() : from;
+            to = row.eventTimestamp().isAfter(to) ? row.eventTimestamp() : to;
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_STORED_KEYS)) {
+            statement.setTimestamp(1, Timestamp.valueOf(from));
+            statement.setTimestamp(2, Timestamp.valueOf(to));
+            try (ResultSet stored = statement.executeQuery()) {
+                while (stored.next() && !unique.isEmpty()) {
+                    unique.remove(new EventKey(stored.getString(1), stored.getString(2),
+                            stored.getTimestamp(3).toLocalDateTime()));
+                }
+            }
+        }
+        return unique.values();
+    }
+
+    /**
+     * Rebuilds the daily summaries and hourly demand of the imported dates. Days already pruned to the archive are left
+     * alone: their imported rows are merged into the archive file by the next archive run.
+     */
+    private void rebuildSummaries(Set<LocalDate> affectedDates, Map<String, Object> report) {
+        LocalDate today = LocalDate.now();
+        List<LocalDate> rebuilt = new ArrayList<>();
+        List<LocalDate> pruned = new ArrayList<>();
+        long start = System.nanoTime();
+        for (LocalDate date : affectedDates.stream().sorted().toList()) {
+            if (date.isAfter(today)) {
+                continue;
+            }
+            if (eventArchive.isPruned(date)) {
+                pruned.add(date);
+                continue;
+            }
+            aggregationService.refreshDailySummary(date);
+            hourlyDemand.rebuildDay(date);
+            rebuilt.add(date);
+        }
+        if (!rebuilt.isEmpty()) {
+            log.info("Rebuilt summaries of {} imported dates ({} .. {}) in {} ms", rebuilt.size(),
+                    rebuilt.get(0), rebuilt.get(rebuilt.size() - 1), (System.nanoTime() - start) / 1_000_000);
+        }
+        report.put("summaryDatesRebuilt", rebuilt);
+        report.put("prunedDatesSkipped", pruned);
+    }
+
+    private static void addAffectedDates(Set<LocalDate> affectedDates, EventImportReader.Row row) {
+        LocalDate date = row.eventTimestamp().toLocalDate();
+        affectedDates.add(date);
+        if ("PICKED_UP".equals(row.status())) {
+            // A pickup also counts towards the next day's summary if the order is delivered after midnight
+            affectedDates.add(date.plusDays(1));
+        }
+    }
+
+    private static void writeToCopy(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        if (buffer.length() > 0) {
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            buffer.setLength(0);
+        }
+    }
+
+    // COPY text format: backslash, tab and line breaks must be escaped
+    private static StringBuilder appendCopyText(StringBuilder buffer, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> buffer.append("\\\\");
+                case '\t' -> buffer.append("\\t");
+                case '\n' -> buffer.append("\\n");
+                case '\r' -> buffer.append("\\r");
+                default -> buffer.append(c);
+            }
+        }
+        return buffer;
+    }
+
+    private static long sum(int[] updateCounts) {
+        long sum = 0;
+        for (int count : updateCounts) {
+            // Statement.SUCCESS_NO_INFO: the row went in, the driver just did not say
+            sum += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+        }
+        return sum;
+    }
+}
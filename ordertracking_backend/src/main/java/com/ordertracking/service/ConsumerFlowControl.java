@@ -0,0 +1,234 @@
+package com.ordertracking.service;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.listener.RecordInterceptor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Flow control for the order topic listeners, so a slow database or slow SSE clients make the
+ * consumers go slower instead of overrunning max.poll.interval.ms and rebalancing over and over.
+ *
+ * <p>Runs as the record interceptor of the listener containers, which pause immediately (see
+ * KafkaFlowControlConfig). Between two polls a persisting listener thread writes at most
+ * {@link AdaptiveBatchLimit} records and works at most {@code order.kafka.flow.max-batch-ms}; then
+ * it pauses its own container. The container stops after the current record, keeps the rest of
+ * the poll in memory and keeps polling its paused partitions, so it stays in the group. The
+ * control loop resumes it on the next tick or, while writes are over the latency target, after a
+ * cooldown of up to as long as the batch took. Threads feeding SSE clients also pause once the
+ * SSE queue passes the high watermark and resume when it drained below the low one.
+ */
+@Service
+public class ConsumerFlowControl implements RecordInterceptor<Object, Object> {
+
+    private static final Logger log = LoggerFactory.getLogger(ConsumerFlowControl.class);
+
+    private final KafkaListenerEndpointRegistry registry;
+    private final SSEService sseService;
+    private final PipelineMetrics pipelineMetrics;
+    private final AdaptiveBatchLimit batchLimit;
+    private final boolean enabled;
+    private final ZoneRouting zoneRouting;
+    private final String persistenceGroup;
+    private final boolean localFanout;
+    private final long maxBatchNanos;
+    private final long maxPauseMillis;
+    private final int sseHighWatermark;
+    private final int sseLowWatermark;
+
+    private final ThreadLocal<Cycle> cycles = ThreadLocal.withInitial(Cycle::new);
+    // Containers paused by flow control, until they are resumed by the control loop
+    private final Map<MessageListenerContainer, Pause> paused = new ConcurrentHashMap<>();
+    private volatile boolean sseOverloaded;
+
+    public ConsumerFlowControl(KafkaListenerEndpointRegistry registry,
+                               SSEService sseService,
+                               PipelineMetrics pipelineMetrics,
+                               @Value("${order.kafka.flow.enabled:true}") boolean enabled,
+                               @Value("${order.kafka.flow.db-latency-target-ms:50}") double dbLatencyTargetMillis,
+                               @Value("${order.kafka.flow.min-batch:10}") int minBatch,
+                               @Value("${spring.kafka.consumer.max-poll-records:500}") int maxPollRecords,
+                               @Value("${order.kafka.flow.max-batch-ms:10000}") long maxBatchMillis,
+                               @Value("${order.kafka.flow.max-pause-ms:5000}") long maxPauseMillis,
+                               @Value("${order.kafka.flow.sse-high-watermark:10000}") int sseHighWatermark,
+                               @Value("${order.kafka.flow.sse-low-watermark:5000}") int sseLowWatermark,
+                               ZoneRouting zoneRouting,
+                               @Value("${spring.kafka.consumer.group-id}") String persistenceGroup,
+                               @Value("${sse.fanout.mode:local}") String fanoutMode) {
+        this.registry = registry;
+        this.sseService = sseService;
+        this.pipelineMetrics = pipelineMetrics;
+        this.batchLimit = new AdaptiveBatchLimit(minBatch, maxPollRecords, dbLatencyTargetMillis);
+        this.enabled = enabled;
+        this.zoneRouting = zoneRouting;
+        this.persistenceGroup = persistenceGroup;
+        this.localFanout = !"broadcast".equalsIgnoreCase(fanoutMode);
+        this.maxBatchNanos = maxBatchMillis * 1_000_000;
+        this.maxPauseMillis = maxPauseMillis;
+        this.sseHighWatermark = sseHighWatermark;
+        this.sseLowWatermark = Math.min(sseLowWatermark, sseHighWatermark);
+
+        pipelineMetrics.gauge("order.kafka.flow.batch-size", "Records a listener thread may write between polls",
+                batchLimit::getBatchSize);
+        pipelineMetrics.gauge("order.kafka.flow.db-latency-ms", "Smoothed order_events insert latency",
+                batchLimit::getLatencyMillis);
+        pipelineMetrics.gauge("order.kafka.flow.paused-containers", "Listener containers paused by flow control",
+                paused::size);
+    }
+
+    /**
+     * Called by the consumer with the duration of every order_events insert.
+     */
+    public void recordDbWrite(long nanos) {
+        batchLimit.recordWrite(nanos);
+    }
+
+    /**
+     * Called on the listener thread before every poll: a new batch starts.
+     */
+    @Override
+    public void setupThreadState(Consumer<?, ?> consumer) {
+        cycles.get().records = 0;
+    }
+
+    @Override
+    public ConsumerRecord<Object, Object> intercept(ConsumerRecord<Object, Object> record, Consumer<Object, Object> consumer) {
+        if (enabled && zoneRouting.isOrderTopic(record.topic())) {
+            Cycle cycle = cycles.get();
+            if (cycle.records == 0) {
+                cycle.startNanos = System.nanoTime();
+            }
+        }
+        return record;
+    }
+
+    @Override
+    public void afterRecord(ConsumerRecord<Object, Object> record, Consumer<Object, Object> consumer) {
+        if (!enabled || !zoneRouting.isOrderTopic(record.topic())) {
+            return;
+        }
+        Cycle cycle = cycles.get();
+        cycle.records++;
+        if (cycle.container == null && !bind(cycle, record, consumer)) {
+            return;
+        }
+
+        String reason = pauseReason(cycle);
+        if (reason != null) {
+            pause(cycle, reason);
+        }
+    }
+
+    private String pauseReason(Cycle cycle) {
+        if (cycle.feedsSse && (sseOverloaded || sseService.getQueueDepth() >= sseHighWatermark)) {
+            sseOverloaded = true;
+            return "sse";
+        }
+        boolean overtime = System.nanoTime() - cycle.startNanos >= maxBatchNanos;
+        if (!cycle.persisting) {
+            return overtime ? "batch" : null;
+        }
+        // At the maximum the poll itself is the batch, so there is no reason to cut it
+        boolean batchFull = batchLimit.isLimiting() && cycle.records >= batchLimit.getBatchSize();
+        if (!overtime && !batchFull) {
+            return null;
+        }
+        return batchLimit.isOverloaded() ? "db" : "batch";
+    }
+
+    private void pause(Cycle cycle, String reason) {
+        long elapsedMillis = (System.nanoTime() - cycle.startNanos) / 1_000_000;
+        // While writes are slow, idle for part of the batch's time, growing with the overload up to
+        // as long as the batch took (half the write rate) at twice the latency target
+        long cooldown = "db".equals(reason)
+                ? Math.min(maxPauseMillis, Math.round(elapsedMillis * batchLimit.overload())) : 0;
+
+        // Pause before registering, so the control loop never resumes a container not yet paused
+        cycle.container.pause();
+        paused.put(cycle.container, new Pause(System.currentTimeMillis() + cooldown, cycle.feedsSse));
+        pipelineMetrics.consumerPaused(reason);
+        log.debug("Paused {} after {} records in {} ms ({}), cooldown {} ms", cycle.container.getListenerId(),
+                cycle.records, elapsedMillis, reason, cooldown);
+    }
+
+    /**
+     * Adapts the batch limit, tracks the SSE watermarks and resumes paused containers that are due.
+     */
+    @Scheduled(fixedDelayString = "${order.kafka.flow.check-interval-ms:100}")
+    public void control() {
+        if (!enabled) {
+            return;
+        }
+        batchLimit.adjust();
+        int depth = sseService.getQueueDepth();
+        if (depth >= sseHighWatermark) {
+            sseOverloaded = true;
+        } else if (depth <= sseLowWatermark) {
+            sseOverloaded = false;
+        }
+
+        long now = System.currentTimeMillis();
+        paused.forEach((container, pause) -> {
+            if (now >= pause.resumeAt() && !(pause.feedsSse() && sseOverloaded) && paused.remove(container, pause)) {
+                container.resume();
+            }
+        });
+    }
+
+    /**
+     * Finds the container of the calling listener thread: the one of the consumer's group that owns
+     * the record's partition. A thread belongs to the same container for its whole life.
+     */
+    private boolean bind(Cycle cycle, ConsumerRecord<?, ?> record, Consumer<?, ?> consumer) {
+        String groupId = consumer.groupMetadata().groupId();
+        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+        for (MessageListenerContainer parent : registry.getListenerContainers()) {
+            for (MessageListenerContainer container : children(parent)) {
+                Collection<TopicPartition> assigned = container.getAssignedPartitions();
+                if (groupId.equals(container.getGroupId()) && assigned != null && assigned.contains(partition)) {
+                    cycle.container = container;
+                    cycle.persisting = persistenceGroup.equals(groupId);
+                    // SSE is fed by the persistence group locally, by the broadcast group otherwise
+                    cycle.feedsSse = cycle.persisting == localFanout;
+                    return true;
+                }
+            }
+        }
+        log.debug("No listener container found for {} in group {}", partition, groupId);
+        return false;
+    }
+
+    private static Collection<? extends MessageListenerContainer> children(MessageListenerContainer parent) {
+        if (parent instanceof ConcurrentMessageListenerContainer<?, ?> concurrent) {
+            return concurrent.getContainers();
+        }
+        return List.of(parent);
+    }
+
+    private record Pause(long resumeAt, boolean feedsSse) {
+    }
+
+    /**
+     * The batch a listener thread is working on since its last poll.
+     */
+    private static final class Cycle {
+        private MessageListenerContainer container;
+        private boolean persisting;
+        private boolean feedsSse;
+        private int records;
+        private long startNanos;
+    }
+}
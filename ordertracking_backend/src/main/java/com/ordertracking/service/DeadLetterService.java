@@ -0,0 +1,199 @@
+package com.ordertracking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and replays the order dead-letter topics, one per order topic (shared and per zone). A
+ * dedicated consumer group remembers how far they have been replayed: inspecting shows what is
+ * still pending without moving that position, replaying republishes the records to the order
+ * topic they failed on and then commits past them.
+ */
+@Service
+public class DeadLetterService {
+
+    private static final Logger log = LoggerFactory.getLogger(DeadLetterService.class);
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+    private static final String DLT_SUFFIX = "-dlt";
+    // Marks replayed records, whose row may already have been inserted by the attempt that failed
+    static final String REPLAYED_HEADER = "order-dlt-replayed";
+
+    private final KafkaProperties kafkaProperties;
+    private final KafkaOperations<String, Object> retryTemplate;
+    private final ObjectMapper objectMapper;
+    private final List<String> deadLetterTopics = new ArrayList<>();
+    private final String replayGroup;
+
+    public DeadLetterService(KafkaProperties kafkaProperties,
+                             @Qualifier("retryTopicKafkaTemplate") KafkaOperations<String, Object> retryTemplate,
+                             ObjectMapper objectMapper,
+                             ZoneRouting zoneRouting,
+                             @Value("${order.kafka.dlt.replay-group:order-dlt-replay}") String replayGroup) {
+        this.kafkaProperties = kafkaProperties;
+        this.retryTemplate = retryTemplate;
+        this.objectMapper = objectMapper;
+        for (String topic : zoneRouting.getOrderTopics()) {
+            deadLetterTopics.add(topic + DLT_SUFFIX);
+        }
+        this.replayGroup = replayGroup;
+    }
+
+    /**
+     * Dead letters not replayed yet, oldest first per topic partition.
+     */
+    public List<Map<String, Object>> inspect(int limit) {
+        List<Map<String, Object>> letters = new ArrayList<>();
+        try (KafkaConsumer<String, byte[]> consumer = createConsumer()) {
+            for (ConsumerRecord<String, byte[]> record : readPending(consumer, limit)) {
+                letters.add(describe(record));
+            }
+        }
+        return letters;
+    }
+
+    /**
+     * Sends up to {@code limit} pending dead letters back to their order topic with their original
+     * key and headers, minus the retry and DLT bookkeeping, so they get a fresh set of attempts.
+     * They are marked with {@value #REPLAYED_HEADER}, so the consumer does not insert them twice.
+     * Only one replay runs at a time per instance.
+     */
+    public synchronized Map<String, Object> replay(int limit) throws Exception {
+        int replayed = 0;
+        Set<String> targets = new TreeSet<>();
+        try (KafkaConsumer<String, byte[]> consumer = createConsumer()) {
+            List<ConsumerRecord<String, byte[]>> pending = readPending(consumer, limit);
+            List<CompletableFuture<SendResult<String, Object>>> sends = new ArrayList<>(pending.size());
+            Map<TopicPartition, OffsetAndMetadata> replayedUpTo = new HashMap<>();
+
+            for (ConsumerRecord<String, byte[]> record : pending) {
+                RecordHeaders headers = new RecordHeaders();
+                for (Header header : record.headers()) {
+                    // Drops the exception, original-record and attempt headers added on the way here
+                    if (!header.key().startsWith("kafka_") && !header.key().startsWith("retry_topic-")
+                            && !REPLAYED_HEADER.equals(header.key())) {
+                        headers.add(header);
+                    }
+                }
+                headers.add(REPLAYED_HEADER, "true".getBytes(StandardCharsets.UTF_8));
+                String target = record.topic().substring(0, record.topic().length() - DLT_SUFFIX.length());
+                targets.add(target);
+                sends.add(retryTemplate.send(new ProducerRecord<>(target, null, record.key(),
+                        record.value(), headers)));
+                replayedUpTo.put(new TopicPartition(record.topic(), record.partition()),
+                        new OffsetAndMetadata(record.offset() + 1));
+            }
+
+            for (CompletableFuture<SendResult<String, Object>> send : sends) {
+                send.get(30, TimeUnit.SECONDS);
+                replayed++;
+            }
+            if (!replayedUpTo.isEmpty()) {
+                consumer.commitSync(replayedUpTo);
+            }
+        }
+        log.info("Replayed {} dead-lettered order events to {}", replayed, targets);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("replayed", replayed);
+        result.put("topics", targets);
+        return result;
+    }
+
+    private KafkaConsumer<String, byte[]> createConsumer() {
+        Map<String, Object> properties = kafkaProperties.buildConsumerProperties(null);
+        properties.put(ConsumerConfig.GROUP_ID_CONFIG, replayGroup);
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        return new KafkaConsumer<>(properties, new StringDeserializer(), new ByteArrayDeserializer());
+    }
+
+    private List<ConsumerRecord<String, byte[]>> readPending(KafkaConsumer<String, byte[]> consumer, int limit) {
+        List<PartitionInfo> partitions = new ArrayList<>();
+        for (String topic : deadLetterTopics) {
+            // Null or empty until the topic's first dead letter created it
+            List<PartitionInfo> topicPartitions = consumer.partitionsFor(topic);
+            if (topicPartitions != null) {
+                partitions.addAll(topicPartitions);
+            }
+        }
+        List<ConsumerRecord<String, byte[]>> records = new ArrayList<>();
+        if (partitions.isEmpty()) {
+            return records;
+        }
+        // Assigned rather than subscribed: no rebalance, positions start at the group's commits
+        consumer.assign(partitions.stream()
+                .map(partition -> new TopicPartition(partition.topic(), partition.partition()))
+                .toList());
+
+        while (records.size() < limit) {
+            int before = records.size();
+            for (ConsumerRecord<String, byte[]> record : consumer.poll(POLL_TIMEOUT)) {
+                if (records.size() == limit) {
+                    break;
+                }
+                records.add(record);
+            }
+            if (records.size() == before) {
+                break;
+            }
+        }
+        return records;
+    }
+
+    private Map<String, Object> describe(ConsumerRecord<String, byte[]> record) {
+        Map<String, Object> letter = new LinkedHashMap<>();
+        letter.put("topic", record.topic());
+        letter.put("partition", record.partition());
+        letter.put("offset", record.offset());
+        letter.put("key", record.key());
+        letter.put("timestamp", Instant.ofEpochMilli(record.timestamp()));
+        letter.put("originalTopic", headerValue(record, KafkaHeaders.ORIGINAL_TOPIC));
+        letter.put("exception", headerValue(record, KafkaHeaders.EXCEPTION_FQCN));
+        letter.put("message", headerValue(record, KafkaHeaders.EXCEPTION_MESSAGE));
+        if (record.value() != null) {
+            try {
+                letter.put("value", objectMapper.readTree(record.value()));
+            } catch (Exception e) {
+                letter.put("value", new String(record.value(), StandardCharsets.UTF_8));
+            }
+        }
+        return letter;
+    }
+
+    private static String headerValue(ConsumerRecord<?, ?> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+}
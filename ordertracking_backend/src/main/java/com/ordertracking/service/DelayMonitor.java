@@ -0,0 +1,229 @@
+package com.ordertracking.service;
+
+import com.ordertracking.dto.SSEEventDTO;
+import com.ordertracking.model.OrderEvent;
+import com.ordertracking.repository.OrderEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Flags orders as delayed while they are still in transit, instead of after DELIVERED arrives.
+ *
+ * A PICKED_UP event arms a deadline of pickup time plus the delay threshold in a
+ * {@link HashedTimingWheel}, and DELIVERED cancels it, both O(1) and without touching the
+ * database. When a deadline passes, the order is marked at risk and a DELAY_ALERT frame goes to
+ * every SSE client. At-risk orders that never report DELIVERED are forgotten after the retention.
+ * Only live pickups are armed: a pickup older than the allowed lateness is a replay or an offline
+ * sync whose delivery may already be known, and is left to the summaries. After a restart the
+ * orders still in transit in the restored state are armed again by {@link #rearm}.
+ */
+@Service
+public class DelayMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(DelayMonitor.class);
+    private static final int REARM_BATCH = 1000;
+
+    public record TrackedOrder(String orderId, String riderId, LocalDateTime pickedUpAt, LocalDateTime deadline,
+                               LocalDateTime alertedAt) {
+    }
+
+    private final SSEService sseService;
+    private final OrderEventRepository orderEventRepository;
+    private final PipelineMetrics pipelineMetrics;
+    private final boolean enabled;
+    private final Duration threshold;
+    private final Duration liveWindow;
+    private final Duration atRiskRetention;
+    private final HashedTimingWheel<String> wheel;
+
+    // Orders with a pending deadline or eviction in the wheel, by order id
+    private final Map<String, TrackedOrder> tracked = new ConcurrentHashMap<>();
+    private final Map<String, TrackedOrder> atRisk = new ConcurrentHashMap<>();
+
+    public DelayMonitor(SSEService sseService,
+                        OrderEventRepository orderEventRepository,
+                        PipelineMetrics pipelineMetrics,
+                        @Value("${delay-alerts.enabled:true}") boolean enabled,
+                        @Value("${aggregation.delay-threshold-minutes:30}") long thresholdMinutes,
+                        @Value("${aggregation.late-events.allowed-lateness-minutes:10}") long allowedLatenessMinutes,
+                        @Value("${delay-alerts.at-risk-retention-hours:24}") long atRiskRetentionHours,
+                        @Value("${delay-alerts.tick-ms:1000}") long tickMillis,
+                        @Value("${delay-alerts.wheel-slots:4096}") int wheelSlots) {
+        this.sseService = sseService;
+        this.orderEventRepository = orderEventRepository;
+        this.pipelineMetrics = pipelineMetrics;
+        this.enabled = enabled;
+        this.threshold = Duration.ofMinutes(thresholdMinutes);
+        this.liveWindow = Duration.ofMinutes(allowedLatenessMinutes);
+        this.atRiskRetention = Duration.ofHours(atRiskRetentionHours);
+        this.wheel = new HashedTimingWheel<>(tickMillis, wheelSlots, System.currentTimeMillis());
+
+        pipelineMetrics.gauge("order.delay.tracked", "In-transit orders with an armed delivery deadline",
+                () -> tracked.size() - atRisk.size());
+        pipelineMetrics.gauge("order.delay.at-risk", "In-transit orders past their delivery deadline", atRisk::size);
+    }
+
+    /**
+     * Called for every consumed event, after it is applied to the live state.
+     */
+    public void onEvent(String orderId, String riderId, String status, LocalDateTime eventTimestamp) {
+        if (!enabled) {
+            return;
+        }
+        if ("PICKED_UP".equals(status)) {
+            if (!eventTimestamp.isBefore(LocalDateTime.now().minus(liveWindow))) {
+                arm(orderId, riderId, eventTimestamp);
+            }
+        } else if ("DELIVERED".equals(status)) {
+            TrackedOrder order = tracked.remove(orderId);
+            if (order != null) {
+                wheel.cancel(orderId);
+                if (atRisk.remove(orderId) != null) {
+                    log.info("At-risk order {} of rider {} delivered after {} minutes", orderId, riderId,
+                            Duration.between(order.pickedUpAt(), eventTimestamp).toMinutes());
+                }
+            }
+        }
+    }
+
+    /**
+     * Arms the deadlines of orders a restored or rebuilt live state still has in transit; the
+     * wheel itself is not part of a state snapshot. Their pickup times are read from order_events,
+     * one query per batch of orders. A deadline that passed while the node was down expires on the
+     * next tick; pickups older than the at-risk retention are skipped.
+     *
+     * @return the number of orders armed
+     */
+    public int rearm(Collection<SSEEventDTO> inTransit) {
+        if (!enabled || inTransit.isEmpty()) {
+            return 0;
+        }
+        Map<String, String> riders = new HashMap<>();
+        inTransit.forEach(order -> riders.put(order.getOrderId(), order.getRiderId()));
+        List<String> orderIds = new ArrayList<>(riders.keySet());
+        LocalDateTime now = LocalDateTime.now();
+        int armed = 0;
+        try {
+            for (int from = 0; from < orderIds.size(); from += REARM_BATCH) {
+                List<String> batch = orderIds.subList(from, Math.min(orderIds.size(), from + REARM_BATCH));
+                Map<String, LocalDateTime> pickups = new HashMap<>();
+                for (OrderEvent pickup : orderEventRepository.findByOrderIdInAndStatusAndEventTimestampBetween(
+                        batch, "PICKED_UP", now.minus(atRiskRetention), now.plusDays(1))) {
+                    pickups.merge(pickup.getOrderId(), pickup.getEventTimestamp(),
+                            (a, b) -> a.isAfter(b) ? a : b);
+                }
+                for (Map.Entry<String, LocalDateTime> pickup : pickups.entrySet()) {
+                    if (arm(pickup.getKey(), riders.get(pickup.getKey()), pickup.getValue())) {
+                        armed++;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not re-arm delivery deadlines of {} in-transit orders: {}", orderIds.size(), e.getMessage());
+        }
+        log.info("Re-armed delivery deadlines of {} of {} in-transit orders", armed, orderIds.size());
+        return armed;
+    }
+
+    @Scheduled(fixedDelayString = "${delay-alerts.tick-ms:1000}")
+    public void tick() {
+        if (enabled) {
+            wheel.advance(System.currentTimeMillis(), this::expire);
+        }
+    }
+
+    /**
+     * @return at-risk orders, longest in transit first
+     */
+    public List<Map<String, Object>> getAtRisk(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        return atRisk.values().stream()
+                .sorted(Comparator.comparing(TrackedOrder::pickedUpAt).thenComparing(TrackedOrder::orderId))
+                .limit(limit)
+                .map(order -> describe(order, now))
+                .toList();
+    }
+
+    public int getAtRiskCount() {
+        return atRisk.size();
+    }
+
+    public long getThresholdMinutes() {
+        return threshold.toMinutes();
+    }
+
+    private void expire(String orderId) {
+        TrackedOrder order = tracked.get(orderId);
+        if (order == null) {
+            // Delivered while the deadline was being expired
+            return;
+        }
+        if (order.alertedAt() != null) {
+            // Retention of an order that never reported DELIVERED is over
+            tracked.remove(orderId, order);
+            atRisk.remove(orderId, order);
+            return;
+        }
+
+        TrackedOrder alerted = new TrackedOrder(order.orderId(), order.riderId(), order.pickedUpAt(),
+                order.deadline(), LocalDateTime.now());
+        if (!tracked.replace(orderId, order, alerted)) {
+            return;
+        }
+        atRisk.put(orderId, alerted);
+        wheel.arm(orderId, toMillis(order.pickedUpAt().plus(atRiskRetention)));
+        // DELIVERED may have removed the order between the replace and the arm
+        if (!tracked.containsKey(orderId)) {
+            wheel.cancel(orderId);
+            atRisk.remove(orderId, alerted);
+            return;
+        }
+
+        pipelineMetrics.delayAlert();
+        Map<String, Object> alert = describe(alerted, alerted.alertedAt());
+        alert.put("message", String.format("Order %s of rider %s is still undelivered %d minutes after pickup",
+                orderId, order.riderId(), (long) alert.get("minutesInTransit")));
+        sseService.sendDelayAlert(alert);
+        log.debug("Delay alert for order {} of rider {}", orderId, order.riderId());
+    }
+
+    private Map<String, Object> describe(TrackedOrder order, LocalDateTime now) {
+        Map<String, Object> described = new LinkedHashMap<>();
+        described.put("orderId", order.orderId());
+        described.put("riderId", order.riderId());
+        described.put("pickedUpAt", order.pickedUpAt());
+        described.put("deadline", order.deadline());
+        described.put("alertedAt", order.alertedAt());
+        described.put("minutesInTransit", Duration.between(order.pickedUpAt(), now).toMinutes());
+        described.put("thresholdMinutes", threshold.toMinutes());
+        return described;
+    }
+
+    private boolean arm(String orderId, String riderId, LocalDateTime pickedUpAt) {
+        LocalDateTime deadline = pickedUpAt.plus(threshold);
+        if (tracked.putIfAbsent(orderId, new TrackedOrder(orderId, riderId, pickedUpAt, deadline, null)) != null) {
+            return false;
+        }
+        wheel.arm(orderId, toMillis(deadline));
+        return true;
+    }
+
+    private static long toMillis(LocalDateTime timestamp) {
+        return timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,144 @@
+package com.ordertracking.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Mergeable histogram of delivery durations in seconds, in the style of HdrHistogram.
+ *
+ * Values below 64 get a bucket each; above that every power of two is split into 32 equal
+ * buckets, so a quantile is off by at most ~3% of its value. Bucket layout is fixed, which
+ * makes merging a plain element-wise sum: the summaries of any riders and days can be combined
+ * without going back to the raw events. Serialized form only lists non-empty buckets as
+ * varints, typically a few dozen bytes per rider and day.
+ */
+public final class DeliveryTimeSketch {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // About 48 days; longer durations are clamped
+    private static final long MAX_VALUE = (1L << 22) - 1;
+    private static final int BUCKETS = bucketIndex(MAX_VALUE) + 1;
+    private static final byte FORMAT_VERSION = 1;
+
+    private final long[] counts = new long[BUCKETS];
+    private long totalCount;
+
+    public void record(long seconds) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException("duration must not be negative: " + seconds);
+        }
+        counts[bucketIndex(Math.min(seconds, MAX_VALUE))]++;
+        totalCount++;
+    }
+
+    public void merge(DeliveryTimeSketch other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+    }
+
+    public long getCount() {
+        return totalCount;
+    }
+
+    /**
+     * @param quantile between 0 and 1, e.g. 0.99
+     * @return the duration in seconds at that quantile (middle of its bucket), or 0 when empty
+     */
+    public long valueAtQuantile(double quantile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(1.0, Math.max(0.0, quantile)) * totalCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return bucketMidpoint(i);
+            }
+        }
+        return bucketMidpoint(BUCKETS - 1);
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        out.write(FORMAT_VERSION);
+        int nonEmpty = 0;
+        for (long count : counts) {
+            if (count > 0) {
+                nonEmpty++;
+            }
+        }
+        writeVarint(out, nonEmpty);
+        int previous = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] > 0) {
+                writeVarint(out, i - previous);
+                writeVarint(out, counts[i]);
+                previous = i;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static DeliveryTimeSketch fromBytes(byte[] bytes) {
+        DeliveryTimeSketch sketch = new DeliveryTimeSketch();
+        if (bytes == null || bytes.length == 0) {
+            return sketch;
+        }
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        byte version = in.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unknown delivery time sketch format: " + version);
+        }
+        long nonEmpty = readVarint(in);
+        int index = 0;
+        for (long i = 0; i < nonEmpty; i++) {
+            index += (int) readVarint(in);
+            long count = readVarint(in);
+            sketch.counts[index] += count;
+            sketch.totalCount += count;
+        }
+        return sketch;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        int shift = highestBit - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    static long bucketMidpoint(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + ((1L << shift) - 1) / 2;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in delivery time sketch");
+    }
+}
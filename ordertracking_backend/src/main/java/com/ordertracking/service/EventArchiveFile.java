@@ -0,0 +1,372 @@
+package com.ordertracking.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Immutable columnar file holding one day of order events, read through a memory mapping.
+ *
+ * <pre>
+ * "OTEA" version:u8 epochDay:varint rows:varint
+ * rider, order and status dictionaries: count:varint, then length:varint + UTF-8 per entry (sorted)
+ * blocks:varint, then per block: rows, minMicros, maxMicros, minRider, maxRider, offset, length (varints)
+ * block data, each block being four length-prefixed columns:
+ *   rider codes   run-length (code, run) pairs
+ *   timestamps    zigzag delta from the previous row in microseconds, the first from minMicros
+ *   status codes  one byte per row
+ *   order codes   varint per row
+ * </pre>
+ *
+ * Rows are sorted by rider and timestamp, so the rider column collapses to a few runs, timestamp
+ * deltas stay small, and a rider filter only decodes the blocks whose rider range contains it.
+ * Timestamps are microseconds of the local date-time as if it were UTC, the precision Postgres keeps.
+ */
+public final class EventArchiveFile {
+
+    private static final byte[] MAGIC = {'O', 'T', 'E', 'A'};
+    private static final byte FORMAT_VERSION = 1;
+
+    public record Row(String orderId, String riderId, String status, LocalDateTime eventTimestamp) {
+    }
+
+    @FunctionalInterface
+    public interface RowVisitor {
+        /**
+         * @param orderId null unless the scan asked for order ids
+         * @return false to stop the scan
+         */
+        boolean visit(String riderId, String orderId, String status, long timestampMicros);
+    }
+
+    private final Path path;
+    private final LocalDate date;
+    private final int rowCount;
+    private final String[] riders;
+    private final String[] orders;
+    private final String[] statuses;
+    private final long[] blockMinMicros;
+    private final long[] blockMaxMicros;
+    private final int[] blockMinRider;
+    private final int[] blockMaxRider;
+    private final int[] blockRows;
+    private final int[] blockOffset;
+    private final MappedByteBuffer data;
+    private final int dataStart;
+
+    private EventArchiveFile(Path path, MappedByteBuffer data) {
+        this.path = path;
+        this.data = data;
+        ByteBuffer in = data.duplicate();
+        byte[] magic = new byte[MAGIC.length];
+        in.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IllegalArgumentException(path + " is not an order event archive");
+        }
+        byte version = in.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unknown archive format " + version + " in " + path);
+        }
+        this.date = LocalDate.ofEpochDay(readVarint(in));
+        this.rowCount = (int) readVarint(in);
+        this.riders = readDictionary(in);
+        this.orders = readDictionary(in);
+        this.statuses = readDictionary(in);
+
+        int blocks = (int) readVarint(in);
+        blockRows = new int[blocks];
+        blockMinMicros = new long[blocks];
+        blockMaxMicros = new long[blocks];
+        blockMinRider = new int[blocks];
+        blockMaxRider = new int[blocks];
+        blockOffset = new int[blocks];
+        for (int b = 0; b < blocks; b++) {
+            blockRows[b] = (int) readVarint(in);
+            blockMinMicros[b] = readVarint(in);
+            blockMaxMicros[b] = readVarint(in);
+            blockMinRider[b] = (int) readVarint(in);
+            blockMaxRider[b] = (int) readVarint(in);
+            blockOffset[b] = (int) readVarint(in);
+            readVarint(in); // block length, only needed by readers that skip the index
+        }
+        this.dataStart = in.position();
+    }
+
+    public static EventArchiveFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new EventArchiveFile(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the rows (in any order) to {@code path}, replacing it atomically.
+     */
+    public static void write(Path path, LocalDate date, List<Row> rows, int rowsPerBlock) throws IOException {
+        List<Row> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparing(Row::riderId).thenComparing(Row::eventTimestamp));
+
+        Map<String, Integer> riderCodes = dictionary(sorted.stream().map(Row::riderId).toList());
+        Map<String, Integer> orderCodes = dictionary(sorted.stream().map(Row::orderId).toList());
+        Map<String, Integer> statusCodes = dictionary(sorted.stream().map(Row::status).toList());
+        if (statusCodes.size() > 256) {
+            throw new IllegalArgumentException("Too many distinct statuses for a one byte column: " + statusCodes.size());
+        }
+
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+        int blockCount = (sorted.size() + rowsPerBlock - 1) / rowsPerBlock;
+        writeVarint(index, blockCount);
+        for (int from = 0; from < sorted.size(); from += rowsPerBlock) {
+            List<Row> block = sorted.subList(from, Math.min(from + rowsPerBlock, sorted.size()));
+            long minMicros = Long.MAX_VALUE;
+            long maxMicros = Long.MIN_VALUE;
+            for (Row row : block) {
+                long micros = toMicros(row.eventTimestamp());
+                minMicros = Math.min(minMicros, micros);
+                maxMicros = Math.max(maxMicros, micros);
+            }
+            byte[] encoded = encodeBlock(block, minMicros, riderCodes, orderCodes, statusCodes);
+
+            writeVarint(index, block.size());
+            writeVarint(index, minMicros);
+            writeVarint(index, maxMicros);
+            writeVarint(index, riderCodes.get(block.get(0).riderId()));
+            writeVarint(index, riderCodes.get(block.get(block.size() - 1).riderId()));
+            writeVarint(index, blocks.size());
+            writeVarint(index, encoded.length);
+            blocks.write(encoded);
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            header.write(MAGIC);
+            header.write(FORMAT_VERSION);
+            writeVarint(header, date.toEpochDay());
+            writeVarint(header, sorted.size());
+            writeDictionary(header, riderCodes);
+            writeDictionary(header, orderCodes);
+            writeDictionary(header, statusCodes);
+            header.writeTo(out);
+            index.writeTo(out);
+            blocks.writeTo(out);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Visits the rows with a timestamp in [fromMicros, toMicros) that match the optional rider and
+     * status, in rider and timestamp order. Blocks whose min/max index rules them out are not decoded.
+     *
+     * @return how many blocks were decoded
+     */
+    public int scan(long fromMicros, long toMicros, String riderId, String status, boolean withOrderIds,
+                    RowVisitor visitor) {
+        int riderCode = riderId == null ? -1 : Arrays.binarySearch(riders, riderId);
+        int statusCode = status == null ? -1 : Arrays.binarySearch(statuses, status);
+        if ((riderId != null && riderCode < 0) || (status != null && statusCode < 0)) {
+            return 0;
+        }
+
+        int decoded = 0;
+        for (int b = 0; b < blockRows.length; b++) {
+            if (blockMaxMicros[b] < fromMicros || blockMinMicros[b] >= toMicros) {
+                continue;
+            }
+            if (riderCode >= 0 && (riderCode < blockMinRider[b] || riderCode > blockMaxRider[b])) {
+                continue;
+            }
+            decoded++;
+            if (!scanBlock(b, fromMicros, toMicros, riderCode, statusCode, withOrderIds, visitor)) {
+                break;
+            }
+        }
+        return decoded;
+    }
+
+    private boolean scanBlock(int block, long fromMicros, long toMicros, int riderCode, int statusCode,
+                              boolean withOrderIds, RowVisitor visitor) {
+        int rows = blockRows[block];
+        ByteBuffer in = data.duplicate();
+        in.position(dataStart + blockOffset[block]);
+
+        int riderLength = (int) readVarint(in);
+        ByteBuffer riderColumn = slice(in, riderLength);
+        int timestampLength = (int) readVarint(in);
+        ByteBuffer timestampColumn = slice(in, timestampLength);
+        int statusLength = (int) readVarint(in);
+        ByteBuffer statusColumn = slice(in, statusLength);
+        int orderLength = (int) readVarint(in);
+        ByteBuffer orderColumn = withOrderIds ? slice(in, orderLength) : null;
+
+        long micros = blockMinMicros[block];
+        int rider = 0;
+        int run = 0;
+        for (int row = 0; row < rows; row++) {
+            if (run == 0) {
+                rider = (int) readVarint(riderColumn);
+                run = (int) readVarint(riderColumn);
+            }
+            run--;
+            long delta = readVarint(timestampColumn);
+            micros = row == 0 ? micros + delta : micros + ((delta >>> 1) ^ -(delta & 1));
+            int statusOfRow = statusColumn.get() & 0xFF;
+            String orderId = orderColumn != null ? orders[(int) readVarint(orderColumn)] : null;
+
+            if (riderCode >= 0 && rider != riderCode) {
+                continue;
+            }
+            if ((statusCode >= 0 && statusOfRow != statusCode) || micros < fromMicros || micros >= toMicros) {
+                continue;
+            }
+            if (!visitor.visit(riders[rider], orderId, statuses[statusOfRow], micros)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getBlockCount() {
+        return blockRows.length;
+    }
+
+    public long getSizeBytes() {
+        return data.capacity();
+    }
+
+    public static long toMicros(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + timestamp.getNano() / 1_000;
+    }
+
+    public static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    private static byte[] encodeBlock(List<Row> block, long minMicros, Map<String, Integer> riderCodes,
+                                      Map<String, Integer> orderCodes, Map<String, Integer> statusCodes) {
+        ByteArrayOutputStream riderColumn = new ByteArrayOutputStream();
+        ByteArrayOutputStream timestampColumn = new ByteArrayOutputStream();
+        ByteArrayOutputStream statusColumn = new ByteArrayOutputStream(block.size());
+        ByteArrayOutputStream orderColumn = new ByteArrayOutputStream();
+
+        long previousMicros = minMicros;
+        int runRider = -1;
+        int run = 0;
+        for (int i = 0; i < block.size(); i++) {
+            Row row = block.get(i);
+            int rider = riderCodes.get(row.riderId());
+            if (rider != runRider && run > 0) {
+                writeVarint(riderColumn, runRider);
+                writeVarint(riderColumn, run);
+                run = 0;
+            }
+            runRider = rider;
+            run++;
+
+            long micros = toMicros(row.eventTimestamp());
+            long delta = micros - previousMicros;
+            // The first delta is never negative; the others turn negative where a new rider starts
+            writeVarint(timestampColumn, i == 0 ? delta : (delta << 1) ^ (delta >> 63));
+            previousMicros = micros;
+
+            statusColumn.write(statusCodes.get(row.status()));
+            writeVarint(orderColumn, orderCodes.get(row.orderId()));
+        }
+        writeVarint(riderColumn, runRider);
+        writeVarint(riderColumn, run);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (ByteArrayOutputStream column : List.of(riderColumn, timestampColumn, statusColumn, orderColumn)) {
+            writeVarint(out, column.size());
+            out.writeBytes(column.toByteArray());
+        }
+        return out.toByteArray();
+    }
+
+    private static Map<String, Integer> dictionary(List<String> values) {
+        Map<String, Integer> codes = new HashMap<>();
+        for (String value : new TreeSet<>(values)) {
+            codes.put(value, codes.size());
+        }
+        return codes;
+    }
+
+    private static void writeDictionary(ByteArrayOutputStream out, Map<String, Integer> codes) {
+        String[] values = new String[codes.size()];
+        codes.forEach((value, code) -> values[code] = value);
+        writeVarint(out, values.length);
+        for (String value : values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, bytes.length);
+            out.writeBytes(bytes);
+        }
+    }
+
+    private static String[] readDictionary(ByteBuffer in) {
+        String[] values = new String[(int) readVarint(in)];
+        for (int i = 0; i < values.length; i++) {
+            byte[] bytes = new byte[(int) readVarint(in)];
+            in.get(bytes);
+            values[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+
+    private static ByteBuffer slice(ByteBuffer in, int length) {
+        ByteBuffer column = in.slice(in.position(), length);
+        in.position(in.position() + length);
+        return column;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in event archive");
+    }
+}
@@ -0,0 +1,408 @@
+package com.ordertracking.service;
+
+import com.ordertracking.model.OrderEvent;
+import com.ordertracking.repository.OrderEventRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Cold tier for order events of closed days, one {@link EventArchiveFile} per day.
+ *
+ * A nightly job exports the days closed since its last run and, once a day is older than the
+ * retention, prunes it from order_events. The last archived day and the highest event id seen by
+ * that run are kept in the archive directory, so late events that reach an already archived or
+ * pruned day are found by id and merged into its file by the next run. Range scans and rider
+ * aggregations over the archive only read the memory-mapped files, never the primary database.
+ */
+@Service
+public class EventArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(EventArchiveService.class);
+    private static final String FILE_SUFFIX = ".oca";
+    private static final String PRUNED_SUFFIX = ".pruned";
+    private static final String WATERMARK_FILE = "archived-through";
+
+    private final OrderEventRepository orderEventRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final Path directory;
+    private final boolean enabled;
+    private final int minAgeDays;
+    private final boolean prune;
+    private final int pruneAfterDays;
+    private final int rowsPerBlock;
+
+    private final NavigableMap<LocalDate, EventArchiveFile> files = new ConcurrentSkipListMap<>();
+    private final Set<LocalDate> prunedDays = ConcurrentHashMap.newKeySet();
+    private volatile Watermark watermark;
+
+    public EventArchiveService(OrderEventRepository orderEventRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${archive.directory:./data/archive}") String directory,
+                               @Value("${archive.enabled:false}") boolean enabled,
+                               @Value("${archive.min-age-days:2}") int minAgeDays,
+                               @Value("${archive.prune:false}") boolean prune,
+                               @Value("${archive.prune-after-days:30}") int pruneAfterDays,
+                               @Value("${archive.block-rows:4096}") int rowsPerBlock) {
+        this.orderEventRepository = orderEventRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Read-only, so the hot-table reads of an export go to the read replica when one is configured
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.directory = Paths.get(directory);
+        this.enabled = enabled;
+        this.minAgeDays = Math.max(1, minAgeDays);
+        this.prune = prune;
+        this.pruneAfterDays = Math.max(this.minAgeDays, pruneAfterDays);
+        this.rowsPerBlock = rowsPerBlock;
+    }
+
+    @PostConstruct
+    public void openArchive() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (Path path : paths.toList()) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(FILE_SUFFIX)) {
+                    EventArchiveFile file = EventArchiveFile.open(path);
+                    files.put(file.getDate(), file);
+                } else if (name.endsWith(PRUNED_SUFFIX)) {
+                    prunedDays.add(LocalDate.parse(name.substring("events-".length(), name.length() - PRUNED_SUFFIX.length())));
+                } else if (name.equals(WATERMARK_FILE)) {
+                    watermark = Watermark.parse(Files.readString(path));
+                }
+            }
+            log.info("Opened event archive in {}: {} days, {} pruned from order_events, archived through {}",
+                    directory, files.size(), prunedDays.size(), watermark != null ? watermark.day() : "-");
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not open event archive in {}: {}", directory, e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${archive.cron:0 30 2 * * *}")
+    public void archiveClosedDays() {
+        if (!enabled) {
+            return;
+        }
+        // Read first: rows inserted while this run exports are left to the next one
+        Long maxId = readOnlyTransactionTemplate.execute(status -> orderEventRepository.findMaxId());
+        if (maxId == null) {
+            return;
+        }
+
+        LocalDate today = LocalDate.now();
+        LocalDate lastClosedDay = today.minusDays(minAgeDays);
+        LocalDate pruneBefore = today.minusDays(pruneAfterDays);
+        Watermark previous = watermark;
+        NavigableSet<LocalDate> days = new TreeSet<>();
+        LocalDate firstNewDay;
+        if (previous == null) {
+            LocalDateTime earliest = readOnlyTransactionTemplate.execute(status -> orderEventRepository.findEarliestEventTimestamp());
+            firstNewDay = earliest != null ? earliest.toLocalDate() : lastClosedDay.plusDays(1);
+        } else {
+            firstNewDay = previous.day().plusDays(1);
+            // Late arrivals for days an earlier run has already archived
+            List<LocalDate> lateDays = readOnlyTransactionTemplate.execute(status ->
+                    orderEventRepository.findDaysWithEventsAfter(previous.maxId(), firstNewDay.atStartOfDay()));
+            if (lateDays != null) {
+                days.addAll(lateDays);
+            }
+        }
+        for (LocalDate date = firstNewDay; !date.isAfter(lastClosedDay); date = date.plusDays(1)) {
+            days.add(date);
+        }
+        if (prune) {
+            // Archived days that have only now aged past the retention
+            for (LocalDate date : files.headMap(pruneBefore).keySet()) {
+                if (!prunedDays.contains(date)) {
+                    days.add(date);
+                }
+            }
+        }
+
+        boolean failed = false;
+        for (LocalDate date : days) {
+            try {
+                archiveDay(date, prune && date.isBefore(pruneBefore));
+            } catch (Exception e) {
+                failed = true;
+                log.error("Failed to archive order events of {}: {}", date, e.getMessage(), e);
+            }
+        }
+        // After a failure the next run starts from the same watermark and retries the failed days
+        if (!failed) {
+            LocalDate archivedThrough = previous != null && previous.day().isAfter(lastClosedDay)
+                    ? previous.day() : lastClosedDay;
+            try {
+                saveWatermark(new Watermark(archivedThrough, maxId));
+            } catch (IOException e) {
+                log.error("Could not save the archive watermark in {}: {}", directory, e.getMessage());
+            }
+        }
+    }
+
+    private void saveWatermark(Watermark next) throws IOException {
+        Files.createDirectories(directory);
+        Path temp = directory.resolve(WATERMARK_FILE + ".tmp");
+        Files.writeString(temp, next.day() + " " + next.maxId());
+        Files.move(temp, directory.resolve(WATERMARK_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        watermark = next;
+    }
+
+    /**
+     * Exports one day to its archive file unless the file already holds every hot row of that day,
+     * then optionally deletes the exported rows from order_events.
+     *
+     * <p>An export only is read in a read-only transaction, from the replica if there is one. An
+     * export that prunes reads the primary: rows with ids below the exported maximum that a lagging
+     * replica has not replayed yet would otherwise be deleted without being archived.
+     */
+    public synchronized Map<String, Object> archiveDay(LocalDate date, boolean pruneAfterwards) throws IOException {
+        LocalDateTime from = date.atStartOfDay();
+        LocalDateTime to = date.plusDays(1).atStartOfDay();
+        EventArchiveFile existing = files.get(date);
+        boolean alreadyPruned = prunedDays.contains(date);
+        // Rows that reach a pruned day are merged into its file and must leave the hot table with it
+        pruneAfterwards |= alreadyPruned;
+        TransactionTemplate reads = pruneAfterwards ? transactionTemplate : readOnlyTransactionTemplate;
+        Long counted = reads.execute(status ->
+                orderEventRepository.countByEventTimestampGreaterThanEqualAndEventTimestampLessThan(from, to));
+        long hotRows = counted != null ? counted : 0;
+
+        // A pruned day only has late arrivals left in the hot table; otherwise the file mirrors it
+        boolean upToDate = existing != null && (alreadyPruned ? hotRows == 0 : existing.getRowCount() == hotRows);
+        long prunedRows = 0;
+        if (hotRows > 0 && (!upToDate || pruneAfterwards)) {
+            long start = System.nanoTime();
+            List<OrderEvent> events = reads.execute(status ->
+                    orderEventRepository.findByEventTimestampGreaterThanEqualAndEventTimestampLessThan(from, to));
+            List<EventArchiveFile.Row> rows = new ArrayList<>(events.size());
+            if (existing != null && alreadyPruned) {
+                existing.scan(Long.MIN_VALUE, Long.MAX_VALUE, null, null, true, (riderId, orderId, status, micros) ->
+                        rows.add(new EventArchiveFile.Row(orderId, riderId, status, EventArchiveFile.fromMicros(micros))));
+            }
+            long maxId = 0;
+            for (OrderEvent event : events) {
+                rows.add(new EventArchiveFile.Row(event.getOrderId(), event.getRiderId(), event.getStatus(),
+                        event.getEventTimestamp()));
+                maxId = Math.max(maxId, event.getId());
+            }
+
+            Files.createDirectories(directory);
+            Path path = directory.resolve("events-" + date + FILE_SUFFIX);
+            EventArchiveFile.write(path, date, rows, rowsPerBlock);
+            EventArchiveFile written = EventArchiveFile.open(path);
+            if (written.getRowCount() != rows.size()) {
+                throw new IllegalStateException("Archive of " + date + " holds " + written.getRowCount()
+                        + " rows, expected " + rows.size());
+            }
+            files.put(date, written);
+            existing = written;
+            log.info("Archived {} order events of {} into {} ({} bytes, {} blocks) in {} ms", rows.size(), date,
+                    path, written.getSizeBytes(), written.getBlockCount(), (System.nanoTime() - start) / 1_000_000);
+
+            if (pruneAfterwards) {
+                long exportedUpTo = maxId;
+                Integer deleted = transactionTemplate.execute(status -> orderEventRepository.deleteArchived(from, to, exportedUpTo));
+                prunedRows = deleted != null ? deleted : 0;
+                Files.write(directory.resolve("events-" + date + PRUNED_SUFFIX), new byte[0]);
+                prunedDays.add(date);
+                log.info("Pruned {} archived order events of {} from order_events", prunedRows, date);
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("date", date);
+        result.put("archivedRows", existing != null ? existing.getRowCount() : 0);
+        result.put("sizeBytes", existing != null ? existing.getSizeBytes() : 0);
+        result.put("hotRows", hotRows - prunedRows);
+        result.put("prunedRows", prunedRows);
+        result.put("pruned", prunedDays.contains(date));
+        return result;
+    }
+
+    /**
+     * @return true if the day's events were deleted from order_events and only the archive holds them
+     */
+    public boolean isPruned(LocalDate date) {
+        return prunedDays.contains(date);
+    }
+
+    public List<Map<String, Object>> listDays() {
+        List<Map<String, Object>> days = new ArrayList<>();
+        for (EventArchiveFile file : files.values()) {
+            Map<String, Object> day = new LinkedHashMap<>();
+            day.put("date", file.getDate());
+            day.put("rows", file.getRowCount());
+            day.put("blocks", file.getBlockCount());
+            day.put("sizeBytes", file.getSizeBytes());
+            day.put("pruned", prunedDays.contains(file.getDate()));
+            days.add(day);
+        }
+        return days;
+    }
+
+    /**
+     * Archived events in [from, to), optionally for one rider and status, in day, rider and time order.
+     */
+    public Map<String, Object> findEvents(LocalDateTime from, LocalDateTime to, String riderId, String status, int limit) {
+        long start = System.nanoTime();
+        long fromMicros = EventArchiveFile.toMicros(from);
+        long toMicros = EventArchiveFile.toMicros(to);
+        List<Map<String, Object>> events = new ArrayList<>();
+        ScanStats stats = new ScanStats();
+
+        for (EventArchiveFile file : filesBetween(from.toLocalDate(), to.toLocalDate())) {
+            stats.add(file, file.scan(fromMicros, toMicros, riderId, status, true, (rider, orderId, eventStatus, micros) -> {
+                if (events.size() == limit) {
+                    stats.truncated = true;
+                    return false;
+                }
+                Map<String, Object> event = new LinkedHashMap<>();
+                event.put("orderId", orderId);
+                event.put("riderId", rider);
+                event.put("status", eventStatus);
+                event.put("eventTimestamp", EventArchiveFile.fromMicros(micros));
+                events.add(event);
+                return true;
+            }));
+            if (stats.truncated) {
+                break;
+            }
+        }
+
+        Map<String, Object> result = stats.toMap(start);
+        result.put("truncated", stats.truncated);
+        result.put("events", events);
+        return result;
+    }
+
+    /**
+     * Per-rider event counts, deliveries and average pickup-to-delivery time over archived days.
+     * A delivery counts on its delivery day, with its pickup taken from an earlier archived day if needed.
+     */
+    public Map<String, Object> summarize(LocalDate from, LocalDate to, String riderId) {
+        long start = System.nanoTime();
+        Map<String, long[]> riders = new HashMap<>(); // events, delivered, delivery micros
+        Map<String, long[]> statusCounts = new HashMap<>();
+        Map<String, Long> openPickups = new HashMap<>();
+        // Rows arrive in runs per rider, so the previous row's totals are usually the right ones
+        Object[] lastRider = {null, null};
+        long fromMicros = EventArchiveFile.toMicros(from.atStartOfDay());
+        long toMicros = EventArchiveFile.toMicros(to.plusDays(1).atStartOfDay());
+        ScanStats stats = new ScanStats();
+
+        for (EventArchiveFile file : filesBetween(from, to)) {
+            stats.add(file, file.scan(fromMicros, toMicros, riderId, null, true, (rider, orderId, status, micros) -> {
+                long[] totals;
+                if (rider == lastRider[0]) {
+                    totals = (long[]) lastRider[1];
+                } else {
+                    totals = riders.computeIfAbsent(rider, id -> new long[3]);
+                    lastRider[0] = rider;
+                    lastRider[1] = totals;
+                }
+                totals[0]++;
+                statusCounts.computeIfAbsent(status, key -> new long[1])[0]++;
+                if ("PICKED_UP".equals(status)) {
+                    openPickups.put(orderId, micros);
+                } else if ("DELIVERED".equals(status)) {
+                    Long pickedUpAt = openPickups.remove(orderId);
+                    if (pickedUpAt != null && micros > pickedUpAt) {
+                        totals[1]++;
+                        totals[2] += micros - pickedUpAt;
+                    }
+                }
+                return true;
+            }));
+        }
+
+        List<Map<String, Object>> riderSummaries = new ArrayList<>();
+        new TreeMap<>(riders).forEach((id, totals) -> {
+            Map<String, Object> rider = new LinkedHashMap<>();
+            rider.put("riderId", id);
+            rider.put("events", totals[0]);
+            rider.put("deliveredOrders", totals[1]);
+            rider.put("avgDeliveryTimeMinutes", totals[1] > 0
+                    ? Math.round(totals[2] / (double) totals[1] / 6_000_000.0) / 10.0 : null);
+            riderSummaries.add(rider);
+        });
+
+        Map<String, Object> result = stats.toMap(start);
+        Map<String, Long> statusTotals = new TreeMap<>();
+        statusCounts.forEach((status, count) -> statusTotals.put(status, count[0]));
+        result.put("statusCounts", statusTotals);
+        result.put("riders", riderSummaries);
+        return result;
+    }
+
+    private Iterable<EventArchiveFile> filesBetween(LocalDate from, LocalDate to) {
+        return files.subMap(from, true, to, true).values();
+    }
+
+    /**
+     * Every day up to {@code day} is archived with all rows up to {@code maxId}.
+     */
+    private record Watermark(LocalDate day, long maxId) {
+
+        private static Watermark parse(String text) {
+            String[] parts = text.trim().split(" ");
+            return new Watermark(LocalDate.parse(parts[0]), Long.parseLong(parts[1]));
+        }
+    }
+
+    private static final class ScanStats {
+        private int days;
+        private long rows;
+        private int blocks;
+        private int decodedBlocks;
+        private boolean truncated;
+
+        private void add(EventArchiveFile file, int decoded) {
+            days++;
+            rows += file.getRowCount();
+            blocks += file.getBlockCount();
+            decodedBlocks += decoded;
+        }
+
+        private Map<String, Object> toMap(long startNanos) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("archivedDays", days);
+            result.put("archivedRows", rows);
+            result.put("blocks", blocks);
+            result.put("decodedBlocks", decodedBlocks);
+            result.put("elapsedMs", (System.nanoTime() - startNanos) / 1_000_000.0);
+            return result;
+        }
+    }
+}
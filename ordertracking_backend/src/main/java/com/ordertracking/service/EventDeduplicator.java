@@ -0,0 +1,63 @@
+package com.ordertracking.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe "seen recently" check shared by all consumer threads.
+ *
+ * A key is accepted at most once per window: the first caller wins through putIfAbsent,
+ * and an expired entry can only be renewed by one caller thanks to the conditional replace.
+ * Old entries are swept at most once per retention period instead of on every event.
+ */
+public class EventDeduplicator {
+
+    private final ConcurrentHashMap<String, Long> seen = new ConcurrentHashMap<>();
+    private final long windowMillis;
+    private final long retentionMillis;
+    private final AtomicLong nextSweep = new AtomicLong();
+
+    public EventDeduplicator(long windowMillis, long retentionMillis) {
+        if (retentionMillis < windowMillis) {
+            throw new IllegalArgumentException("retention must cover the dedup window");
+        }
+        this.windowMillis = windowMillis;
+        this.retentionMillis = retentionMillis;
+    }
+
+    /**
+     * @return true if the key was not seen within the window and the caller should process it
+     */
+    public boolean firstSeen(String key, long nowMillis) {
+        sweepIfDue(nowMillis);
+
+        Long previous = seen.putIfAbsent(key, nowMillis);
+        if (previous == null) {
+            return true;
+        }
+        if (nowMillis - previous < windowMillis) {
+            return false;
+        }
+        return seen.replace(key, previous, nowMillis);
+    }
+
+    /**
+     * Releases a key accepted at {@code acceptedAtMillis} whose processing failed, so a retry of
+     * the same event is not dropped as a duplicate.
+     */
+    public void forget(String key, long acceptedAtMillis) {
+        seen.remove(key, acceptedAtMillis);
+    }
+
+    public int size() {
+        return seen.size();
+    }
+
+    private void sweepIfDue(long nowMillis) {
+        long due = nextSweep.get();
+        if (nowMillis < due || !nextSweep.compareAndSet(due, nowMillis + retentionMillis)) {
+            return;
+        }
+        seen.values().removeIf(timestamp -> nowMillis - timestamp > retentionMillis);
+    }
+}
@@ -0,0 +1,238 @@
+package com.ordertracking.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Streams order events out of a CSV or NDJSON import file one line at a time, validating each row
+ * as it is read so that a file of any size never has to fit in memory.
+ *
+ * CSV files start with a header naming at least order_id, rider_id, status and event_timestamp
+ * (camelCase works too; other columns are ignored); fields may be double-quoted but not span
+ * lines. NDJSON files hold one object per line with the same fields. Timestamps are ISO local
+ * date-times, with a space instead of the T allowed. Invalid rows are skipped and counted, and
+ * the first few are described with their line number.
+ */
+class EventImportReader implements Closeable {
+
+    enum Format {
+        CSV, NDJSON;
+
+        static Format parse(String value) {
+            return switch (value.toLowerCase(Locale.ROOT)) {
+                case "csv" -> CSV;
+                case "ndjson", "jsonl", "json" -> NDJSON;
+                default -> throw new IllegalArgumentException("Unsupported import format: " + value);
+            };
+        }
+    }
+
+    record Row(String orderId, String riderId, String status, LocalDateTime eventTimestamp) {
+    }
+
+    static final Set<String> STATUSES = Set.of("PICKED_UP", "IN_TRANSIT", "DELIVERED");
+    // Column lengths of order_events
+    static final int MAX_ID_LENGTH = 50;
+    private static final int MAX_ERRORS = 20;
+
+    private final BufferedReader reader;
+    private final Format format;
+    private final ObjectMapper objectMapper;
+    private final List<String> errors = new ArrayList<>();
+
+    // CSV column positions, from the header
+    private int orderIdColumn = -1;
+    private int riderIdColumn = -1;
+    private int statusColumn = -1;
+    private int timestampColumn = -1;
+
+    private long lineNumber;
+    private long rowsRead;
+    private long rejected;
+
+    EventImportReader(InputStream in, Format format, ObjectMapper objectMapper) throws IOException {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+        this.format = format;
+        this.objectMapper = objectMapper;
+        if (format == Format.CSV) {
+            readHeader();
+        }
+    }
+
+    /**
+     * @return the next valid row, or null at the end of the input
+     */
+    Row next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            rowsRead++;
+            try {
+                return format == Format.CSV ? parseCsv(line) : parseJson(line);
+            } catch (IllegalArgumentException e) {
+                reject(e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    long getRowsRead() {
+        return rowsRead;
+    }
+
+    long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return descriptions of the first rejected rows
+     */
+    List<String> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void readHeader() throws IOException {
+        String header;
+        do {
+            header = reader.readLine();
+            lineNumber++;
+        } while (header != null && header.isBlank());
+        if (header == null) {
+            return;
+        }
+
+        List<String> columns = splitCsv(header.startsWith("\uFEFF") ? header.substring(1) : header);
+        for (int i = 0; i < columns.size(); i++) {
+            switch (columns.get(i).trim().replace("_", "").toLowerCase(Locale.ROOT)) {
+                case "orderid" -> orderIdColumn = i;
+                case "riderid" -> riderIdColumn = i;
+                case "status" -> statusColumn = i;
+                case "eventtimestamp", "timestamp" -> timestampColumn = i;
+                default -> { }
+            }
+        }
+        if (orderIdColumn < 0 || riderIdColumn < 0 || statusColumn < 0 || timestampColumn < 0) {
+            throw new IllegalArgumentException("CSV header must name order_id, rider_id, status and event_timestamp, got: "
+                    + header);
+        }
+    }
+
+    private Row parseCsv(String line) {
+        List<String> fields = splitCsv(line);
+        return validate(field(fields, orderIdColumn), field(fields, riderIdColumn), field(fields, statusColumn),
+                field(fields, timestampColumn));
+    }
+
+    private Row parseJson(String line) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("not a JSON object");
+        }
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("not a JSON object");
+        }
+        return validate(text(node, "orderId", "order_id"), text(node, "riderId", "rider_id"), text(node, "status"),
+                text(node, "eventTimestamp", "event_timestamp"));
+    }
+
+    private static Row validate(String orderId, String riderId, String status, String timestamp) {
+        requireId("order_id", orderId);
+        requireId("rider_id", riderId);
+        if (status == null || !STATUSES.contains(status)) {
+            throw new IllegalArgumentException("invalid status '" + status + "'");
+        }
+        if (timestamp == null || timestamp.isEmpty()) {
+            throw new IllegalArgumentException("missing event_timestamp");
+        }
+        try {
+            String iso = timestamp.length() > 10 && timestamp.charAt(10) == ' '
+                    ? timestamp.substring(0, 10) + 'T' + timestamp.substring(11) : timestamp;
+            return new Row(orderId, riderId, status, LocalDateTime.parse(iso));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("invalid event_timestamp '" + timestamp + "'");
+        }
+    }
+
+    private static void requireId(String name, String value) {
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("missing " + name);
+        }
+        if (value.length() > MAX_ID_LENGTH) {
+            throw new IllegalArgumentException(name + " longer than " + MAX_ID_LENGTH + " characters");
+        }
+    }
+
+    private void reject(String reason) {
+        rejected++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add("line " + lineNumber + ": " + reason);
+        }
+    }
+
+    private static String field(List<String> fields, int column) {
+        return column < fields.size() ? fields.get(column).trim() : null;
+    }
+
+    private static String text(JsonNode node, String... names) {
+        for (String name : names) {
+            if (node.hasNonNull(name)) {
+                return node.get(name).asText().trim();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Splits one CSV line, honouring double quotes and doubled quotes inside them.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
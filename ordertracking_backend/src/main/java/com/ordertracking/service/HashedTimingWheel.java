@@ -0,0 +1,148 @@
+package com.ordertracking.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel of one pending deadline per key, in the style of Netty's HashedWheelTimer.
+ *
+ * Time is cut into ticks and the wheel has one slot per tick, each an intrusive doubly-linked
+ * list. A deadline lands in the slot of its tick with the number of full turns left before it is
+ * due, so arming and cancelling are O(1) whatever the number of pending deadlines, and every tick
+ * only walks one slot. Deadlines are rounded up to the next tick. The wheel is driven by
+ * {@link #advance}; there is no thread of its own. Thread-safe, with a short lock per operation;
+ * expired keys are handed out after the lock is released.
+ */
+public class HashedTimingWheel<K> {
+
+    private static final class Timeout<K> {
+        final K key;
+        final long deadlineMillis;
+        long remainingRounds;
+        int slot;
+        Timeout<K> previous;
+        Timeout<K> next;
+
+        Timeout(K key, long deadlineMillis) {
+            this.key = key;
+            this.deadlineMillis = deadlineMillis;
+        }
+    }
+
+    private final long tickMillis;
+    private final long startMillis;
+    private final int mask;
+    private final Timeout<K>[] slots;
+    private final Map<K, Timeout<K>> timeouts = new HashMap<>();
+    // Next tick to expire; tick t holds the deadlines in (start + (t - 1) * tick, start + t * tick]
+    private long nextTick = 1;
+
+    /**
+     * @param slotCount rounded up to a power of two; slotCount * tickMillis should cover the usual deadline
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public HashedTimingWheel(long tickMillis, int slotCount, long startMillis) {
+        if (tickMillis <= 0 || slotCount <= 0) {
+            throw new IllegalArgumentException("tick and slot count must be positive");
+        }
+        int size = Integer.highestOneBit(Math.min(slotCount, 1 << 30));
+        size = size < slotCount ? size << 1 : size;
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        this.mask = size - 1;
+        this.slots = (Timeout<K>[]) new Timeout[size];
+    }
+
+    /**
+     * Schedules {@code key} to expire at {@code deadlineMillis}, replacing its pending deadline. A
+     * deadline in the past expires on the next {@link #advance}.
+     */
+    public synchronized void arm(K key, long deadlineMillis) {
+        Timeout<K> previous = timeouts.remove(key);
+        if (previous != null) {
+            unlink(previous);
+        }
+
+        // Ceiling division: a deadline inside a tick is due when that tick ends
+        long deadlineTick = Math.max(nextTick, -Math.floorDiv(startMillis - deadlineMillis, tickMillis));
+        Timeout<K> timeout = new Timeout<>(key, deadlineMillis);
+        timeout.remainingRounds = (deadlineTick - nextTick) / slots.length;
+        timeout.slot = (int) (deadlineTick & mask);
+        Timeout<K> head = slots[timeout.slot];
+        timeout.next = head;
+        if (head != null) {
+            head.previous = timeout;
+        }
+        slots[timeout.slot] = timeout;
+        timeouts.put(key, timeout);
+    }
+
+    /**
+     * @return true if {@code key} had a pending deadline
+     */
+    public synchronized boolean cancel(K key) {
+        Timeout<K> timeout = timeouts.remove(key);
+        if (timeout == null) {
+            return false;
+        }
+        unlink(timeout);
+        return true;
+    }
+
+    /**
+     * @return the pending deadline of {@code key}, or null
+     */
+    public synchronized Long deadlineOf(K key) {
+        Timeout<K> timeout = timeouts.get(key);
+        return timeout != null ? timeout.deadlineMillis : null;
+    }
+
+    public synchronized int size() {
+        return timeouts.size();
+    }
+
+    /**
+     * Expires every tick that ended at or before {@code nowMillis}.
+     *
+     * @param expired called once per expired key, outside the lock, in deadline tick order
+     * @return the number of expired keys
+     */
+    public int advance(long nowMillis, Consumer<? super K> expired) {
+        List<K> due = new ArrayList<>();
+        synchronized (this) {
+            long lastTick = Math.floorDiv(nowMillis - startMillis, tickMillis);
+            for (; nextTick <= lastTick; nextTick++) {
+                Timeout<K> timeout = slots[(int) (nextTick & mask)];
+                while (timeout != null) {
+                    Timeout<K> following = timeout.next;
+                    if (timeout.remainingRounds <= 0) {
+                        unlink(timeout);
+                        timeouts.remove(timeout.key);
+                        due.add(timeout.key);
+                    } else {
+                        timeout.remainingRounds--;
+                    }
+                    timeout = following;
+                }
+            }
+        }
+        due.forEach(expired);
+        return due.size();
+    }
+
+    private void unlink(Timeout<K> timeout) {
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            slots[timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+        timeout.previous = null;
+        timeout.next = null;
+    }
+}
@@ -0,0 +1,133 @@
+package com.ordertracking.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides which per-event log lines of the order pipeline get written.
+ *
+ * In {@code full} mode (the default) every event is logged. In {@code sampled} mode each stage
+ * logs at most {@code logging.hot-path.per-second} events a second, and every
+ * {@code logging.hot-path.summary-interval-ms} one line reports how many events each stage saw
+ * and how many lines were left out. Callers guard the log statement itself, so a skipped event
+ * costs two counter updates and builds no message or argument array:
+ * <pre>
+ * if (hotPathLog.shouldLog(HotPathLog.Stage.CONSUME)) {
+ *     log.info("...", ...);
+ * }
+ * </pre>
+ */
+@Component
+public class HotPathLog {
+
+    private static final Logger log = LoggerFactory.getLogger(HotPathLog.class);
+    private static final long COUNT_MASK = 0xFFFF_FFFFL;
+
+    public enum Stage {
+        REQUEST, PUBLISH, DUPLICATE, CONSUME
+    }
+
+    private final boolean sampled;
+    private final int perSecond;
+    // Per stage: the current second in the high 32 bits, lines logged in it in the low 32 bits
+    private final AtomicLong[] windows = new AtomicLong[Stage.values().length];
+    private final LongAdder[] seen = new LongAdder[Stage.values().length];
+    private final LongAdder suppressed = new LongAdder();
+    private volatile long summaryStartMillis = System.currentTimeMillis();
+
+    public HotPathLog(@Value("${logging.hot-path.mode:full}") String mode,
+                      @Value("${logging.hot-path.per-second:5}") int perSecond) {
+        switch (mode.trim().toLowerCase(Locale.ROOT)) {
+            case "full" -> this.sampled = false;
+            case "sampled" -> this.sampled = true;
+            default -> throw new IllegalArgumentException("logging.hot-path.mode must be full or sampled, was " + mode);
+        }
+        this.perSecond = Math.max(0, perSecond);
+        for (int i = 0; i < windows.length; i++) {
+            windows[i] = new AtomicLong();
+            seen[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Counts an event of the stage.
+     *
+     * @return whether its log line should be written
+     */
+    public boolean shouldLog(Stage stage) {
+        return shouldLog(stage, System.currentTimeMillis());
+    }
+
+    boolean shouldLog(Stage stage, long nowMillis) {
+        seen[stage.ordinal()].increment();
+        if (!sampled) {
+            return true;
+        }
+        long second = nowMillis / 1000;
+        AtomicLong window = windows[stage.ordinal()];
+        while (true) {
+            long current = window.get();
+            long logged = current >>> 32 == second ? current & COUNT_MASK : 0;
+            if (logged >= perSecond) {
+                suppressed.increment();
+                return false;
+            }
+            if (window.compareAndSet(current, (second << 32) | (logged + 1))) {
+                return true;
+            }
+        }
+    }
+
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    @Scheduled(fixedDelayString = "${logging.hot-path.summary-interval-ms:60000}")
+    public void logSummary() {
+        if (!sampled) {
+            return;
+        }
+        Summary summary = takeSummary(System.currentTimeMillis());
+        if (summary.events() == 0) {
+            return;
+        }
+        log.info("Hot path last {} s: requests={} published={} duplicates={} consumed={}, {} event log lines suppressed",
+                summary.millis() / 1000, summary.count(Stage.REQUEST), summary.count(Stage.PUBLISH),
+                summary.count(Stage.DUPLICATE), summary.count(Stage.CONSUME), summary.suppressed());
+    }
+
+    /**
+     * Returns and resets the counts since the previous summary.
+     */
+    Summary takeSummary(long nowMillis) {
+        long[] counts = new long[seen.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = seen[i].sumThenReset();
+        }
+        long start = summaryStartMillis;
+        summaryStartMillis = nowMillis;
+        return new Summary(nowMillis - start, counts, suppressed.sumThenReset());
+    }
+
+    record Summary(long millis, long[] counts, long suppressed) {
+
+        long count(Stage stage) {
+            return counts[stage.ordinal()];
+        }
+
+        long events() {
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.ordertracking.service;
+
+import com.ordertracking.model.OrderEvent;
+import com.ordertracking.model.OrderHourlyStats;
+import com.ordertracking.repository.OrderEventRepository;
+import com.ordertracking.repository.OrderHourlyStatsRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.ordertracking.service.HourlyDemandCounters.DELIVERIES;
+import static com.ordertracking.service.HourlyDemandCounters.DELIVERY_SECONDS;
+import static com.ordertracking.service.HourlyDemandCounters.FIELDS;
+import static com.ordertracking.service.HourlyDemandCounters.HOURS;
+import static com.ordertracking.service.HourlyDemandCounters.PICKUPS;
+import static com.ordertracking.service.HourlyDemandCounters.TIMED_DELIVERIES;
+
+/**
+ * Hour-of-day demand per day, for shift planning, maintained from the consumed events alone.
+ *
+ * The consumer records every persisted event in {@link HourlyDemandCounters}; every flush interval
+ * the changed hours are added to order_hourly_stats in one batched transaction, so several
+ * consumer instances can each add their own share. A failed flush keeps its deltas for the next
+ * one. Reads combine the stored hours with the unflushed deltas and never touch order_events; only
+ * {@link #rebuildDay}, used after bulk imports, recounts a day from the events.
+ */
+@Service
+public class HourlyDemandAggregator {
+
+    private static final Logger log = LoggerFactory.getLogger(HourlyDemandAggregator.class);
+    private static final String ADD_DELTA = "UPDATE order_hourly_stats SET pickups = pickups + ?, "
+            + "deliveries = deliveries + ?, delivery_seconds = delivery_seconds + ?, "
+            + "timed_deliveries = timed_deliveries + ? WHERE stats_date = ? AND hour_of_day = ?";
+    private static final String INSERT_HOUR = "INSERT INTO order_hourly_stats (pickups, deliveries, delivery_seconds, "
+            + "timed_deliveries, stats_date, hour_of_day) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final OrderHourlyStatsRepository hourlyStatsRepository;
+    private final OrderEventRepository orderEventRepository;
+    private final AggregationService aggregationService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration pickupLookback;
+    private final HourlyDemandCounters counters = new HourlyDemandCounters();
+
+    public HourlyDemandAggregator(OrderHourlyStatsRepository hourlyStatsRepository,
+                                  OrderEventRepository orderEventRepository,
+                                  AggregationService aggregationService,
+                                  JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  PipelineMetrics pipelineMetrics,
+                                  @Value("${aggregation.hourly.enabled:true}") boolean enabled,
+                                  @Value("${aggregation.pickup-lookback-hours:24}") long pickupLookbackHours) {
+        this.hourlyStatsRepository = hourlyStatsRepository;
+        this.orderEventRepository = orderEventRepository;
+        this.aggregationService = aggregationService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.pickupLookback = Duration.ofHours(pickupLookbackHours);
+
+        pipelineMetrics.gauge("order.hourly.pending-pickups", "Pickups waiting for their delivery to time it",
+                counters::getPendingPickups);
+    }
+
+    /**
+     * Called for every event persisted by the consumer.
+     */
+    public void onEvent(String orderId, String status, LocalDateTime eventTimestamp) {
+        if (enabled) {
+            counters.record(orderId, status, eventTimestamp);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${aggregation.hourly.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        if (!enabled) {
+            return;
+        }
+        counters.evictPickupsBefore(LocalDateTime.now().minus(pickupLookback));
+        List<HourlyDemandCounters.HourDelta> deltas = counters.drain();
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> addDeltas(deltas));
+            log.debug("Flushed {} hourly demand buckets in {} ms", deltas.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            // Another instance may have inserted the same new hour concurrently; the retry updates it
+            counters.restore(deltas);
+            log.warn("Failed to flush {} hourly demand buckets, retrying next interval: {}", deltas.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * @return the 24 hours of {@code date} with pickups, deliveries and average delivery time, plus day totals
+     */
+    @Transactional(readOnly = true)
+    public synchronized Map<String, Object> getHourly(LocalDate date) {
+        long[] values = counters.peek(date);
+        for (OrderHourlyStats stats : hourlyStatsRepository.findByStatsDate(date)) {
+            int base = stats.getHourOfDay() * FIELDS;
+            values[base + PICKUPS] += stats.getPickups();
+            values[base + DELIVERIES] += stats.getDeliveries();
+            values[base + DELIVERY_SECONDS] += stats.getDeliverySeconds();
+            values[base + TIMED_DELIVERIES] += stats.getTimedDeliveries();
+        }
+
+        List<Map<String, Object>> hours = new ArrayList<>(HOURS);
+        long[] totals = new long[FIELDS];
+        for (int hour = 0; hour < HOURS; hour++) {
+            int base = hour * FIELDS;
+            Map<String, Object> bucket = new LinkedHashMap<>();
+            bucket.put("hour", hour);
+            bucket.put("pickups", values[base + PICKUPS]);
+            bucket.put("deliveries", values[base + DELIVERIES]);
+            bucket.put("avgDeliveryTimeMinutes", avgMinutes(values[base + DELIVERY_SECONDS], values[base + TIMED_DELIVERIES]));
+            hours.add(bucket);
+            for (int field = 0; field < FIELDS; field++) {
+                totals[field] += values[base + field];
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("date", date);
+        result.put("hours", hours);
+        result.put("totalPickups", totals[PICKUPS]);
+        result.put("totalDeliveries", totals[DELIVERIES]);
+        result.put("avgDeliveryTimeMinutes", avgMinutes(totals[DELIVERY_SECONDS], totals[TIMED_DELIVERIES]));
+        result.put("peakPickupHour", totals[PICKUPS] == 0 ? null : hours.stream()
+                .max(Comparator.comparingLong(bucket -> (long) bucket.get("pickups")))
+                .map(bucket -> bucket.get("hour"))
+                .orElse(null));
+        return result;
+    }
+
+    /**
+     * Recounts the hours of {@code date} from order_events, replacing the stored hours and the
+     * unflushed deltas. For days whose events did not come through the consumer, e.g. bulk imports.
+     *
+     * <p>The deltas are taken before the events are read: the consumer records an event after its
+     * row is committed, so everything taken is in the read, and whatever is recorded from then on
+     * stays for the next flush instead of being dropped. They are put back if the rebuild fails.
+     */
+    public synchronized void rebuildDay(LocalDate date) {
+        List<HourlyDemandCounters.HourDelta> replaced = counters.take(date);
+        try {
+            transactionTemplate.executeWithoutResult(status -> recount(date));
+        } catch (RuntimeException e) {
+            counters.restore(replaced);
+            throw e;
+        }
+    }
+
+    private void recount(LocalDate date) {
+        HourlyDemandCounters recount = new HourlyDemandCounters();
+        List<OrderEvent> events = new ArrayList<>(orderEventRepository.findByDate(date));
+        aggregationService.addMissingPickups(date, events);
+        events.sort(Comparator.comparing(OrderEvent::getEventTimestamp));
+        for (OrderEvent event : events) {
+            if (event.getEventTimestamp().toLocalDate().equals(date) || "PICKED_UP".equals(event.getStatus())) {
+                recount.record(event.getOrderId(), event.getStatus(), event.getEventTimestamp());
+            }
+        }
+
+        // Pickups of the previous day only time deliveries; their own counts belong to that day
+        List<HourlyDemandCounters.HourDelta> hours = recount.drain().stream()
+                .filter(delta -> delta.date().equals(date))
+                .toList();
+        jdbcTemplate.update("DELETE FROM order_hourly_stats WHERE stats_date = ?", Date.valueOf(date));
+        if (!hours.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_HOUR, hours, hours.size(), HourlyDemandAggregator::setDelta);
+        }
+        log.info("Rebuilt hourly demand of {} from {} events", date, events.size());
+    }
+
+    private void addDeltas(List<HourlyDemandCounters.HourDelta> deltas) {
+        int[][] updated = jdbcTemplate.batchUpdate(ADD_DELTA, deltas, deltas.size(), HourlyDemandAggregator::setDelta);
+        List<HourlyDemandCounters.HourDelta> missing = new ArrayList<>();
+        for (int i = 0; i < deltas.size(); i++) {
+            if (updated[0][i] == 0) {
+                missing.add(deltas.get(i));
+            }
+        }
+        if (!missing.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_HOUR, missing, missing.size(), HourlyDemandAggregator::setDelta);
+        }
+    }
+
+    private static void setDelta(PreparedStatement statement, HourlyDemandCounters.HourDelta delta) throws SQLException {
+        statement.setLong(1, delta.pickups());
+        statement.setLong(2, delta.deliveries());
+        statement.setLong(3, delta.deliverySeconds());
+        statement.setLong(4, delta.timedDeliveries());
+        statement.setDate(5, Date.valueOf(delta.date()));
+        statement.setInt(6, delta.hour());
+    }
+
+    private static Double avgMinutes(long deliverySeconds, long timedDeliveries) {
+        return timedDeliveries == 0 ? null : Math.round(deliverySeconds / 60.0 / timedDeliveries * 10) / 10.0;
+    }
+}
@@ -0,0 +1,134 @@
+package com.ordertracking.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Unflushed hour-of-day counters of consumed events: pickups, deliveries and the pickup-to-delivery
+ * seconds of the deliveries whose pickup was seen.
+ *
+ * Every day gets one preallocated array of 24 hours x 4 counters on its first event, so recording
+ * an event is a map lookup and an atomic add, with no allocation or lock. The arrays hold deltas
+ * since the last {@link #drain}; a day's array stays allocated once created, like the per-date
+ * refresh counters of {@link AggregationService}. Pickup times are kept per order until the
+ * delivery arrives or {@link #evictPickupsBefore} drops them.
+ */
+public class HourlyDemandCounters {
+
+    public static final int HOURS = 24;
+    static final int PICKUPS = 0;
+    static final int DELIVERIES = 1;
+    static final int DELIVERY_SECONDS = 2;
+    static final int TIMED_DELIVERIES = 3;
+    static final int FIELDS = 4;
+
+    public record HourDelta(LocalDate date, int hour, long pickups, long deliveries, long deliverySeconds,
+                            long timedDeliveries) {
+    }
+
+    private final Map<LocalDate, AtomicLongArray> days = new ConcurrentHashMap<>();
+    private final Map<String, LocalDateTime> pickupTimes = new ConcurrentHashMap<>();
+
+    public void record(String orderId, String status, LocalDateTime timestamp) {
+        if ("PICKED_UP".equals(status)) {
+            counters(timestamp.toLocalDate()).incrementAndGet(timestamp.getHour() * FIELDS + PICKUPS);
+            pickupTimes.putIfAbsent(orderId, timestamp);
+        } else if ("DELIVERED".equals(status)) {
+            AtomicLongArray counters = counters(timestamp.toLocalDate());
+            int base = timestamp.getHour() * FIELDS;
+            counters.incrementAndGet(base + DELIVERIES);
+            LocalDateTime pickedUpAt = pickupTimes.remove(orderId);
+            if (pickedUpAt != null && !pickedUpAt.isAfter(timestamp)) {
+                counters.addAndGet(base + DELIVERY_SECONDS, Duration.between(pickedUpAt, timestamp).getSeconds());
+                counters.incrementAndGet(base + TIMED_DELIVERIES);
+            }
+        }
+    }
+
+    /**
+     * Takes the deltas of every hour that changed since the last drain and resets them.
+     */
+    public List<HourDelta> drain() {
+        List<HourDelta> deltas = new ArrayList<>();
+        days.forEach((date, counters) -> drain(date, counters, deltas));
+        return deltas;
+    }
+
+    /**
+     * Takes the deltas of {@code date} only, e.g. before its stored hours are rebuilt from the events.
+     */
+    public List<HourDelta> take(LocalDate date) {
+        List<HourDelta> deltas = new ArrayList<>();
+        AtomicLongArray counters = days.get(date);
+        if (counters != null) {
+            drain(date, counters, deltas);
+        }
+        return deltas;
+    }
+
+    /**
+     * Puts drained deltas back, after they could not be written.
+     */
+    public void restore(List<HourDelta> deltas) {
+        for (HourDelta delta : deltas) {
+            AtomicLongArray counters = counters(delta.date());
+            int base = delta.hour() * FIELDS;
+            counters.addAndGet(base + PICKUPS, delta.pickups());
+            counters.addAndGet(base + DELIVERIES, delta.deliveries());
+            counters.addAndGet(base + DELIVERY_SECONDS, delta.deliverySeconds());
+            counters.addAndGet(base + TIMED_DELIVERIES, delta.timedDeliveries());
+        }
+    }
+
+    /**
+     * @return the undrained deltas of {@code date}, indexed by hour * FIELDS + field
+     */
+    public long[] peek(LocalDate date) {
+        long[] values = new long[HOURS * FIELDS];
+        AtomicLongArray counters = days.get(date);
+        if (counters != null) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = counters.get(i);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Forgets pickups older than {@code cutoff}; their deliveries will count without a delivery time.
+     */
+    public int evictPickupsBefore(LocalDateTime cutoff) {
+        int before = pickupTimes.size();
+        pickupTimes.values().removeIf(pickedUpAt -> pickedUpAt.isBefore(cutoff));
+        return before - pickupTimes.size();
+    }
+
+    public int getPendingPickups() {
+        return pickupTimes.size();
+    }
+
+    private static void drain(LocalDate date, AtomicLongArray counters, List<HourDelta> deltas) {
+        for (int hour = 0; hour < HOURS; hour++) {
+            int base = hour * FIELDS;
+            if (counters.get(base + PICKUPS) == 0 && counters.get(base + DELIVERIES) == 0
+                    && counters.get(base + TIMED_DELIVERIES) == 0) {
+                continue;
+            }
+            deltas.add(new HourDelta(date, hour,
+                    counters.getAndSet(base + PICKUPS, 0),
+                    counters.getAndSet(base + DELIVERIES, 0),
+                    counters.getAndSet(base + DELIVERY_SECONDS, 0),
+                    counters.getAndSet(base + TIMED_DELIVERIES, 0)));
+        }
+    }
+
+    private AtomicLongArray counters(LocalDate date) {
+        return days.computeIfAbsent(date, d -> new AtomicLongArray(HOURS * FIELDS));
+    }
+}
@@ -5,17 +5,33 @@ import com.ordertracking.dto.OrderEventDTO;
 import com.ordertracking.dto.SSEEventDTO;
 import com.ordertracking.model.OrderEvent;
 import com.ordertracking.repository.OrderEventRepository;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Service
-public class KafkaConsumerService {
+public class KafkaConsumerService implements ConsumerSeekAware {
 
     private static final Logger log = LoggerFactory.getLogger(KafkaConsumerService.class);
 
@@ -23,23 +39,105 @@ public class KafkaConsumerService {
     private final SSEService sseService;
     private final ObjectMapper objectMapper;
     private final AggregationService aggregationService;
+    private final PipelineMetrics pipelineMetrics;
+    private final LateEventCorrector lateEventCorrector;
+    private final OrderStateStore stateStore;
+    private final DelayMonitor delayMonitor;
+    private final HourlyDemandAggregator hourlyDemand;
+    private final ConsumerFlowControl flowControl;
+    private final ZoneRouting zoneRouting;
+    private final HotPathLog hotPathLog;
+    // In broadcast mode SSE delivery is done by SSEBroadcastListener on every node
+    private final boolean localFanout;
 
-    // Deduplication cache (last 5 seconds)
-    private final ConcurrentHashMap<String, Long> processedEvents = new ConcurrentHashMap<>();
+    // Deduplication cache shared by all listener threads (2 second window, 10 second retention)
+    private final EventDeduplicator processedEvents = new EventDeduplicator(2000, 10000);
+
+    // Per order topic partition: offsets below this were already persisted before a restart from a
+    // state snapshot, so they are replayed into memory only
+    private final Map<TopicPartition, Long> replayUntil = new ConcurrentHashMap<>();
+
+    // Order topic partitions currently assigned to one of the listener threads, for the readiness details
+    private final Set<TopicPartition> assignedPartitions = ConcurrentHashMap.newKeySet();
 
     public KafkaConsumerService(OrderEventRepository orderEventRepository,
                                 SSEService sseService,
                                 ObjectMapper objectMapper,
-                                AggregationService aggregationService) {
+                                AggregationService aggregationService,
+                                PipelineMetrics pipelineMetrics,
+                                LateEventCorrector lateEventCorrector,
+                                OrderStateStore stateStore,
+                                DelayMonitor delayMonitor,
+                                HourlyDemandAggregator hourlyDemand,
+                                ConsumerFlowControl flowControl,
+                                ZoneRouting zoneRouting,
+                                HotPathLog hotPathLog,
+                                @Value("${sse.fanout.mode:local}") String fanoutMode) {
         this.orderEventRepository = orderEventRepository;
         this.sseService = sseService;
         this.objectMapper = objectMapper;
         this.aggregationService = aggregationService;
+        this.pipelineMetrics = pipelineMetrics;
+        this.lateEventCorrector = lateEventCorrector;
+        this.stateStore = stateStore;
+        this.delayMonitor = delayMonitor;
+        this.hourlyDemand = hourlyDemand;
+        this.flowControl = flowControl;
+        this.zoneRouting = zoneRouting;
+        this.hotPathLog = hotPathLog;
+        this.localFanout = !"broadcast".equalsIgnoreCase(fanoutMode);
     }
 
-    @KafkaListener(topics = "${order.kafka.topic.order-updates}", groupId = "${spring.kafka.consumer.group-id}")
-    @Transactional
-    public void consumeOrderEvent(OrderEventDTO orderEventDTO) {
+    /**
+     * Runs on one listener thread per assigned partition. Events are keyed by orderId, so all
+     * events of an order arrive in order on the same thread; everything shared across threads
+     * (dedup cache, summary refresh) is thread-safe. The insert is not wrapped in a listener-wide
+     * transaction so it is committed before the summary refresh, which may run on another thread.
+     *
+     * <p>The listener reads the order topics {@link ZoneRouting} assigns to this instance: the
+     * shared topic and/or dedicated zone topics. Each event refreshes only its own zone's summaries.
+     *
+     * <p>A failing event is rethrown and moved to the next retry topic of its order topic
+     * (order-status-updates-retry-0, -1, ...) with a growing delay, so it never blocks the partition
+     * it came from; after the last attempt it lands on that topic's dead-letter topic, e.g.
+     * order-status-updates-dlt. Constraint violations and undeserializable
+     * records skip the retries. Each attempt runs the whole method again, so retried and replayed
+     * (see {@link DeadLetterService#replay}) events first look for the row an earlier attempt may
+     * have inserted before failing; first deliveries skip that lookup.
+     *
+     * <p>Insert latencies feed {@link ConsumerFlowControl}, which limits how much each thread
+     * processes between polls and pauses the thread's partitions when the database or the SSE
+     * queue falls behind.
+     *
+     * <p>After a restart from a state snapshot the partition is rewound to the snapshot's offset
+     * (see {@link #onPartitionsAssigned}); records up to the committed offset are then applied to
+     * the in-memory state only, since their rows are already in the database.
+     */
+    @RetryableTopic(
+            attempts = "${order.kafka.retry.attempts:4}",
+            backoff = @Backoff(delayExpression = "${order.kafka.retry.delay-ms:1000}",
+                    multiplierExpression = "${order.kafka.retry.multiplier:5}",
+                    maxDelayExpression = "${order.kafka.retry.max-delay-ms:60000}"),
+            topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE,
+            exclude = DataIntegrityViolationException.class,
+            numPartitions = "${order.kafka.topic.partitions:6}",
+            replicationFactor = "${order.kafka.topic.replicas:1}",
+            kafkaTemplate = "retryTopicKafkaTemplate",
+            concurrency = "${order.kafka.retry.concurrency:${order.kafka.listener.concurrency}}")
+    @KafkaListener(topics = "#{@zoneRouting.consumedTopics}", groupId = "${spring.kafka.consumer.group-id}",
+            concurrency = "${order.kafka.listener.concurrency}")
+    public void consumeOrderEvent(OrderEventDTO orderEventDTO,
+                                  @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+                                  @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
+                                  @Header(KafkaHeaders.OFFSET) long offset,
+                                  @Header(name = DeadLetterService.REPLAYED_HEADER, required = false) byte[] replayedHeader) {
+        boolean mainTopic = zoneRouting.isOrderTopic(topic);
+        boolean redelivered = !mainTopic || replayedHeader != null;
+        TopicPartition topicPartition = new TopicPartition(topic, partition);
+        boolean replay = mainTopic && isReplay(topicPartition, offset);
+        long start = System.nanoTime();
+        String eventKey = null;
+        long acceptedAt = System.currentTimeMillis();
         try {
             // Ensure timestamp is set to current local time
             if (orderEventDTO.getEventTimestamp() == null) {
@@ -47,29 +145,20 @@ public class KafkaConsumerService {
             }
 
             // Create a unique key for deduplication
-            String eventKey = orderEventDTO.getOrderId() + "-" +
+            eventKey = orderEventDTO.getOrderId() + "-" +
                     orderEventDTO.getStatus() + "-" +
                     orderEventDTO.getEventTimestamp().toString();
 
-            long currentTime = System.currentTimeMillis();
-
             // Check if we've processed this event recently (within 2 seconds)
-            Long lastProcessedTime = processedEvents.get(eventKey);
-            if (lastProcessedTime != null &&
-                    (currentTime - lastProcessedTime) < 2000) {
+            if (!processedEvents.firstSeen(eventKey, acceptedAt)) {
                 log.debug("Duplicate Kafka event skipped: {}", eventKey);
+                pipelineMetrics.consumerDuplicate();
+                if (mainTopic) {
+                    stateStore.markApplied(topicPartition, offset);
+                }
                 return;
             }
 
-            // Store in deduplication cache
-            processedEvents.put(eventKey, currentTime);
-
-            // Clean old entries from cache (older than 10 seconds)
-            processedEvents.entrySet().removeIf(entry ->
-                    (currentTime - entry.getValue()) > 10000);
-
-            log.info("Processing Kafka order event: {}", orderEventDTO);
-
             // Save to database
             OrderEvent orderEvent = new OrderEvent(
                     orderEventDTO.getOrderId(),
@@ -77,36 +166,148 @@ public class KafkaConsumerService {
                     orderEventDTO.getStatus(),
                     orderEventDTO.getEventTimestamp()
             );
+            orderEvent.setZone(ZoneRouting.normalize(orderEventDTO.getZone()));
+
+            OrderEvent savedEvent = orderEvent;
+            Optional<OrderEvent> persisted = redelivered && !replay
+                    ? orderEventRepository.findFirstByOrderIdAndStatusAndEventTimestamp(orderEvent.getOrderId(),
+                            orderEvent.getStatus(), orderEvent.getEventTimestamp())
+                    : Optional.empty();
+            if (replay) {
+                log.debug("Replaying already persisted event at {}-{}@{}", topic, partition, offset);
+            } else if (persisted.isPresent()) {
+                // Saved by an attempt that failed further on; only the steps after the insert are redone
+                savedEvent = persisted.get();
+                log.debug("Event at {}-{}@{} already persisted as id {}", topic, partition, offset, savedEvent.getId());
+            } else {
+                long saveStart = System.nanoTime();
+                savedEvent = orderEventRepository.save(orderEvent);
+                pipelineMetrics.recordDbSave(saveStart);
+                flowControl.recordDbWrite(System.nanoTime() - saveStart);
+                hourlyDemand.onEvent(savedEvent.getOrderId(), savedEvent.getStatus(), savedEvent.getEventTimestamp());
+                pipelineMetrics.zoneEvent(savedEvent.getZone());
+            }
 
-            OrderEvent savedEvent = orderEventRepository.save(orderEvent);
-            log.info("Saved order event with ID: {}", savedEvent.getId());
+            if (localFanout) {
+                // Create SSE event using the SAME timestamp from the saved event
+                SSEEventDTO sseEvent = new SSEEventDTO(
+                        savedEvent.getOrderId(),
+                        savedEvent.getRiderId(),
+                        savedEvent.getStatus(),
+                        savedEvent.getEventTimestamp()  // Use the same timestamp from DB
+                );
 
-            // Create SSE event using the SAME timestamp from the saved event
-            SSEEventDTO sseEvent = new SSEEventDTO(
-                    savedEvent.getOrderId(),
-                    savedEvent.getRiderId(),
-                    savedEvent.getStatus(),
-                    savedEvent.getEventTimestamp()  // Use the same timestamp from DB
-            );
+                // Send SSE update
+                sseService.sendEvent(sseEvent);
+                delayMonitor.onEvent(savedEvent.getOrderId(), savedEvent.getRiderId(), savedEvent.getStatus(),
+                        savedEvent.getEventTimestamp());
+            }
 
-            // Send SSE update
-            sseService.sendEvent(sseEvent);
+            // Events behind the watermark only mark their rider's summaries for a background recompute
+            boolean late = lateEventCorrector.markIfLate(savedEvent.getRiderId(), savedEvent.getStatus(),
+                    savedEvent.getEventTimestamp());
 
-            // Auto-update today's summary for DELIVERED orders
-            if ("DELIVERED".equalsIgnoreCase(orderEventDTO.getStatus())) {
+            // Auto-update the delivery day's summary of the event's zone for DELIVERED orders
+            if (!late && "DELIVERED".equalsIgnoreCase(orderEventDTO.getStatus())) {
+                // Moves the rider on the leaderboard now; the refreshed summary replaces the estimate
+                stateStore.recordDelivery(savedEvent.getOrderId(), savedEvent.getRiderId(), savedEvent.getZone(),
+                        savedEvent.getEventTimestamp());
                 try {
-                    log.info("Auto-updating today's summary due to DELIVERED order: {}", orderEventDTO.getOrderId());
-                    aggregationService.generateDailySummaryForDate(java.time.LocalDate.now());
+                    log.debug("Refreshing the daily summary for delivered order {}", orderEventDTO.getOrderId());
+                    aggregationService.refreshDailySummary(savedEvent.getEventTimestamp().toLocalDate(), savedEvent.getZone());
                 } catch (Exception summaryException) {
-                    log.warn("Failed to auto-update today's summary: {}", summaryException.getMessage());
+                    log.warn("Failed to auto-update the daily summary: {}", summaryException.getMessage());
                     // Don't fail the main event processing if summary update fails
                 }
             }
 
-            log.info("Processed and broadcasted order event for order: {}", orderEventDTO.getOrderId());
+            if (mainTopic) {
+                stateStore.markApplied(topicPartition, offset);
+            }
+            if (hotPathLog.shouldLog(HotPathLog.Stage.CONSUME)) {
+                log.info("Processed order event orderId={} riderId={} status={} zone={} id={} at={}-{}@{} replay={} late={}",
+                        savedEvent.getOrderId(), savedEvent.getRiderId(), savedEvent.getStatus(), savedEvent.getZone(),
+                        savedEvent.getId(), topic, partition, offset, replay, late);
+            }
 
-        } catch (Exception e) {
-            log.error("Error processing Kafka order event: {}", orderEventDTO, e);
+        } catch (RuntimeException e) {
+            log.error("Failed to process order event orderId={} riderId={} status={} at={}-{}@{}, handing it to the retry topics: {}",
+                    orderEventDTO.getOrderId(), orderEventDTO.getRiderId(), orderEventDTO.getStatus(),
+                    topic, partition, offset, e.getMessage());
+            pipelineMetrics.consumeFailure();
+            if (eventKey != null) {
+                processedEvents.forget(eventKey, acceptedAt);
+            }
+            throw e;
+        } finally {
+            pipelineMetrics.recordConsume(start);
         }
     }
+
+    /**
+     * Rewinds order topic partitions to the offsets of a restored state snapshot. Only the first
+     * assignment of a partition after the restore is rewound; later rebalances keep the committed
+     * position. Also tracks the assigned partitions for the readiness details.
+     */
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        assignments.forEach((topicPartition, committed) -> {
+            if (!zoneRouting.isOrderTopic(topicPartition.topic())) {
+                return;
+            }
+            assignedPartitions.add(topicPartition);
+            Long snapshotOffset = stateStore.takeRestoredOffset(topicPartition);
+            if (snapshotOffset != null && snapshotOffset < committed) {
+                replayUntil.put(topicPartition, committed);
+                callback.seek(topicPartition.topic(), topicPartition.partition(), snapshotOffset);
+                log.info("Replaying {} into memory from snapshot offset {} up to committed offset {}",
+                        topicPartition, snapshotOffset, committed);
+            }
+        });
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        partitions.forEach(assignedPartitions::remove);
+    }
+
+    /**
+     * @return the order topic partitions this instance currently consumes, as topic-partition
+     */
+    public Set<String> getAssignedPartitions() {
+        Set<String> partitions = new TreeSet<>();
+        assignedPartitions.forEach(topicPartition -> partitions.add(topicPartition.toString()));
+        return partitions;
+    }
+
+    private boolean isReplay(TopicPartition partition, long offset) {
+        Long until = replayUntil.get(partition);
+        if (until == null) {
+            return false;
+        }
+        if (offset < until) {
+            return true;
+        }
+        replayUntil.remove(partition, until);
+        return false;
+    }
+
+    /**
+     * Last stop of an event that failed every attempt. The record stays on the dead-letter topic
+     * for inspection and replay through /admin/dlt.
+     */
+    @DltHandler
+    public void handleDeadLetter(ConsumerRecord<String, Object> record) {
+        pipelineMetrics.deadLetter();
+        log.error("Order event dead-lettered: key={} partition={} offset={} cause={}: {}",
+                record.key(), record.partition(), record.offset(),
+                headerValue(record, KafkaHeaders.EXCEPTION_FQCN),
+                headerValue(record, KafkaHeaders.EXCEPTION_MESSAGE));
+    }
+
+    private static String headerValue(ConsumerRecord<?, ?> record, String name) {
+        return Optional.ofNullable(record.headers().lastHeader(name))
+                .map(header -> new String(header.value(), StandardCharsets.UTF_8))
+                .orElse(null);
+    }
 }
\ No newline at end of file
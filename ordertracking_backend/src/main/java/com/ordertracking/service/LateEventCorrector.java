@@ -0,0 +1,161 @@
+package com.ordertracking.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps past-day summaries right when events arrive late, e.g. from a rider's offline sync.
+ *
+ * The consumer tracks an event-time watermark: the newest event timestamp seen minus the allowed
+ * lateness. Events at or after the watermark take the live path and refresh their day right away.
+ * Older events only mark the (rider, date) summary cells they can affect as dirty, and a background
+ * job recomputes just those cells from the rider's own events. A burst of late events for the same
+ * rider and day therefore costs one recompute, and other riders of that day are not touched.
+ * Days already pruned to the event archive are left alone: their summaries cannot be rebuilt from
+ * the hot table, and the late rows are merged into the archive by its next run.
+ */
+@Service
+public class LateEventCorrector {
+
+    private static final Logger log = LoggerFactory.getLogger(LateEventCorrector.class);
+
+    private final AggregationService aggregationService;
+    private final PipelineMetrics pipelineMetrics;
+    private final EventArchiveService eventArchive;
+    private final Duration allowedLateness;
+    private final Duration pickupLookback;
+
+    private final AtomicReference<LocalDateTime> newestEventTime = new AtomicReference<>();
+    private final Set<SummaryCell> dirtyCells = ConcurrentHashMap.newKeySet();
+
+    public LateEventCorrector(AggregationService aggregationService,
+                              PipelineMetrics pipelineMetrics,
+                              EventArchiveService eventArchive,
+                              @Value("${aggregation.late-events.allowed-lateness-minutes:10}") long allowedLatenessMinutes,
+                              @Value("${aggregation.pickup-lookback-hours:24}") long pickupLookbackHours) {
+        this.aggregationService = aggregationService;
+        this.pipelineMetrics = pipelineMetrics;
+        this.eventArchive = eventArchive;
+        this.allowedLateness = Duration.ofMinutes(allowedLatenessMinutes);
+        this.pickupLookback = Duration.ofHours(pickupLookbackHours);
+
+        pipelineMetrics.gauge("order.summary.cells.dirty", "Rider and date summaries waiting for a recompute",
+                dirtyCells::size);
+    }
+
+    /**
+     * Advances the watermark with a consumed event and, when the event is behind it, marks the
+     * summary cells it affects as dirty.
+     *
+     * @return true if the event is late and will be corrected in the background, false if the
+     * caller should refresh the event's day on the live path
+     */
+    public boolean markIfLate(String riderId, String status, LocalDateTime eventTimestamp) {
+        // Timestamps from the future must not drag the watermark ahead of real time
+        LocalDateTime observed = eventTimestamp.isAfter(LocalDateTime.now()) ? LocalDateTime.now() : eventTimestamp;
+        LocalDateTime newest = newestEventTime.accumulateAndGet(observed,
+                (current, candidate) -> current == null || candidate.isAfter(current) ? candidate : current);
+        if (!eventTimestamp.isBefore(newest.minus(allowedLateness))) {
+            return false;
+        }
+
+        pipelineMetrics.lateEvent();
+        LocalDate eventDate = eventTimestamp.toLocalDate();
+        markDirty(riderId, eventDate);
+        if (!"DELIVERED".equals(status)) {
+            // A late pickup belongs to the day its order was delivered, which may be after midnight
+            LocalDate latestDeliveryDate = eventTimestamp.plus(pickupLookback).toLocalDate();
+            for (LocalDate date = eventDate.plusDays(1); !date.isAfter(latestDeliveryDate)
+                    && !date.isAfter(newest.toLocalDate()); date = date.plusDays(1)) {
+                markDirty(riderId, date);
+            }
+        }
+        log.debug("Late {} event for rider {} at {} (watermark {}), {} summary cells dirty",
+                status, riderId, eventTimestamp, newest.minus(allowedLateness), dirtyCells.size());
+        return true;
+    }
+
+    private void markDirty(String riderId, LocalDate date) {
+        if (eventArchive.isPruned(date)) {
+            log.warn("Late event for rider {} on {}, which is already pruned to the archive; summary left as is",
+                    riderId, date);
+            return;
+        }
+        dirtyCells.add(new SummaryCell(riderId, date));
+    }
+
+    LocalDateTime getNewestEventTime() {
+        return newestEventTime.get();
+    }
+
+    Set<SummaryCell> getDirtyCells() {
+        return Set.copyOf(dirtyCells);
+    }
+
+    /**
+     * Puts back the watermark and dirty cells of a state snapshot taken before a restart.
+     */
+    void restore(LocalDateTime newestEvent, Collection<SummaryCell> cells) {
+        if (newestEvent != null) {
+            newestEventTime.accumulateAndGet(newestEvent,
+                    (current, candidate) -> current == null || candidate.isAfter(current) ? candidate : current);
+        }
+        dirtyCells.addAll(cells);
+    }
+
+    public LocalDateTime getWatermark() {
+        LocalDateTime newest = newestEventTime.get();
+        return newest != null ? newest.minus(allowedLateness) : null;
+    }
+
+    public int getDirtyCellCount() {
+        return dirtyCells.size();
+    }
+
+    /**
+     * Recomputes every dirty cell once. A cell dirtied again while it is recomputed is picked up by
+     * the next run; a failed cell is put back.
+     */
+    @Scheduled(fixedDelayString = "${aggregation.late-events.recompute-interval-ms:5000}")
+    public void recomputeDirtyCells() {
+        if (dirtyCells.isEmpty()) {
+            return;
+        }
+
+        List<SummaryCell> cells = new ArrayList<>(dirtyCells.size());
+        Iterator<SummaryCell> iterator = dirtyCells.iterator();
+        while (iterator.hasNext()) {
+            cells.add(iterator.next());
+            iterator.remove();
+        }
+
+        int failed = 0;
+        for (SummaryCell cell : cells) {
+            try {
+                aggregationService.recomputeSummaryCell(cell.riderId(), cell.date());
+            } catch (Exception e) {
+                log.warn("Failed to recompute summary of rider {} for {}: {}", cell.riderId(), cell.date(), e.getMessage());
+                dirtyCells.add(cell);
+                failed++;
+            }
+        }
+        log.info("Recomputed {} summary cells after late events ({} failed)", cells.size() - failed, failed);
+    }
+
+    record SummaryCell(String riderId, LocalDate date) {
+    }
+}
@@ -0,0 +1,190 @@
+package com.ordertracking.service;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A run of one rider's location pings, encoded as they arrive.
+ *
+ * <pre>
+ * version:u8, then per point:
+ *   first point   zigzag latitude, zigzag longitude, millis since firstMillis
+ *   later points  zigzag delta-of-delta of the millis, zigzag latitude delta, zigzag longitude delta
+ * </pre>
+ *
+ * Coordinates are fixed point in units of 1e-5 degrees (about a metre). Pings every few seconds
+ * from a moving rider give one-byte timestamp and two-byte coordinate deltas, about 5 bytes a point.
+ * Not thread-safe while it is being appended to; {@link LocationHistoryStore} seals a chunk before
+ * sharing it.
+ */
+public final class LocationChunk {
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final double UNITS_PER_DEGREE = 100_000;
+
+    public record Point(long timestamp, double latitude, double longitude) {
+    }
+
+    private final String riderId;
+    private final long firstMillis;
+    private byte[] data;
+    private int length;
+    private int pointCount;
+    private long lastMillis;
+    private long lastDelta;
+    private long lastLatitude;
+    private long lastLongitude;
+
+    public LocationChunk(String riderId, long firstMillis) {
+        this.riderId = riderId;
+        this.firstMillis = firstMillis;
+        this.lastMillis = firstMillis;
+        this.data = new byte[64];
+        this.data[length++] = FORMAT_VERSION;
+    }
+
+    private LocationChunk(String riderId, long firstMillis, long lastMillis, int pointCount, byte[] data) {
+        this.riderId = riderId;
+        this.firstMillis = firstMillis;
+        this.lastMillis = lastMillis;
+        this.pointCount = pointCount;
+        this.data = data;
+        this.length = data.length;
+    }
+
+    /**
+     * A stored chunk, for reading only.
+     */
+    public static LocationChunk of(String riderId, long firstMillis, long lastMillis, int pointCount, byte[] data) {
+        if (data.length == 0 || data[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unknown location chunk format for rider " + riderId);
+        }
+        return new LocationChunk(riderId, firstMillis, lastMillis, pointCount, data);
+    }
+
+    /**
+     * Appends a ping, which must not be older than the previous one, nor than the chunk's start.
+     */
+    public void append(long timestamp, double latitude, double longitude) {
+        if (timestamp < lastMillis) {
+            throw new IllegalArgumentException("Ping at " + timestamp + " is older than the last one of the chunk, "
+                    + lastMillis);
+        }
+        long lat = Math.round(latitude * UNITS_PER_DEGREE);
+        long lon = Math.round(longitude * UNITS_PER_DEGREE);
+        ensureCapacity(30);
+        if (pointCount == 0) {
+            writeVarint(zigzag(lat));
+            writeVarint(zigzag(lon));
+            writeVarint(timestamp - firstMillis);
+            lastDelta = 0;
+        } else {
+            long delta = timestamp - lastMillis;
+            writeVarint(zigzag(delta - lastDelta));
+            writeVarint(zigzag(lat - lastLatitude));
+            writeVarint(zigzag(lon - lastLongitude));
+            lastDelta = delta;
+        }
+        lastMillis = timestamp;
+        lastLatitude = lat;
+        lastLongitude = lon;
+        pointCount++;
+    }
+
+    /**
+     * @return the points with a timestamp in [from, to], in time order
+     */
+    public List<Point> decode(long from, long to) {
+        List<Point> points = new ArrayList<>();
+        if (pointCount == 0 || lastMillis < from || firstMillis > to) {
+            return points;
+        }
+        ByteBuffer in = ByteBuffer.wrap(data, 1, length - 1);
+        long millis = firstMillis;
+        long delta = 0;
+        long lat = 0;
+        long lon = 0;
+        for (int i = 0; i < pointCount; i++) {
+            if (i == 0) {
+                lat = unzigzag(readVarint(in));
+                lon = unzigzag(readVarint(in));
+                millis += readVarint(in);
+            } else {
+                delta += unzigzag(readVarint(in));
+                millis += delta;
+                lat += unzigzag(readVarint(in));
+                lon += unzigzag(readVarint(in));
+            }
+            if (millis > to) {
+                break;
+            }
+            if (millis >= from) {
+                points.add(new Point(millis, lat / UNITS_PER_DEGREE, lon / UNITS_PER_DEGREE));
+            }
+        }
+        return points;
+    }
+
+    public String getRiderId() {
+        return riderId;
+    }
+
+    public long getFirstMillis() {
+        return firstMillis;
+    }
+
+    public long getLastMillis() {
+        return lastMillis;
+    }
+
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    /**
+     * @return a copy of the encoded points
+     */
+    public byte[] toBytes() {
+        return Arrays.copyOf(data, length);
+    }
+
+    public int getSizeBytes() {
+        return length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + extra));
+        }
+    }
+
+    private void writeVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in location chunk");
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
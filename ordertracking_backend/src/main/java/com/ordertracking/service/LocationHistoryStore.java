@@ -0,0 +1,287 @@
+package com.ordertracking.service;
+
+import com.ordertracking.model.OrderEvent;
+import com.ordertracking.repository.OrderEventRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Rider location history, stored as one {@link LocationChunk} per rider and time bucket in
+ * rider_location_chunks instead of one row per ping.
+ *
+ * Pings are appended to the rider's open chunk in memory. A chunk is sealed when the rider pings
+ * in a later bucket, reaches {@code location.history.max-points-per-chunk}, or its bucket has
+ * ended by the next flush; sealed chunks are inserted in one JDBC batch every flush interval and
+ * kept for the next one if the insert fails. A ping older than the rider's previous one also
+ * starts a new chunk, so no timestamp is changed to keep a chunk in order.
+ *
+ * Reads combine the sealed and open chunks still in memory with the stored ones. They run on the
+ * primary, since a replica may not have the chunks flushed a moment ago. The chunks in memory are
+ * copied first and the database is queried without a lock: a chunk leaves memory only once its
+ * insert has committed, so a flush in between makes it read twice, never missed.
+ *
+ * A rider's pings may reach several instances, whose chunks then overlap in time, so reads sort
+ * the points and drop those seen by more than one instance. Chunks still in memory on another
+ * instance are not visible: a read may miss up to {@code location.history.chunk-minutes} plus a
+ * flush interval of pings that another instance received.
+ */
+@Service
+public class LocationHistoryStore {
+
+    private static final Logger log = LoggerFactory.getLogger(LocationHistoryStore.class);
+    private static final String INSERT_CHUNK = "INSERT INTO rider_location_chunks "
+            + "(rider_id, first_ms, last_ms, point_count, points) VALUES (?, ?, ?, ?, ?)";
+    private static final String SELECT_CHUNKS = "SELECT rider_id, first_ms, last_ms, point_count, points "
+            + "FROM rider_location_chunks WHERE rider_id = ? AND first_ms <= ? AND last_ms >= ? ORDER BY first_ms";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final OrderEventRepository orderEventRepository;
+    private final boolean enabled;
+    private final long bucketMillis;
+    private final int maxPointsPerChunk;
+
+    // Guarded by "openChunks", which pings and reads take; the flush takes "this" first
+    private final Map<String, LocationChunk> openChunks = new HashMap<>();
+    private final List<LocationChunk> sealedChunks = new ArrayList<>();
+
+    public LocationHistoryStore(JdbcTemplate jdbcTemplate,
+                                OrderEventRepository orderEventRepository,
+                                PipelineMetrics pipelineMetrics,
+                                @Value("${location.history.enabled:true}") boolean enabled,
+                                @Value("${location.history.chunk-minutes:10}") long chunkMinutes,
+                                @Value("${location.history.max-points-per-chunk:1000}") int maxPointsPerChunk) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.orderEventRepository = orderEventRepository;
+        this.enabled = enabled;
+        this.bucketMillis = Math.max(1, chunkMinutes) * 60_000;
+        this.maxPointsPerChunk = Math.max(2, maxPointsPerChunk);
+
+        pipelineMetrics.gauge("order.location.history.unflushed-points", "Location pings not yet written to rider_location_chunks",
+                this::getUnflushedPoints);
+    }
+
+    /**
+     * Called for every location ping.
+     */
+    public void append(String riderId, long timestamp, double latitude, double longitude) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (openChunks) {
+            LocationChunk chunk = openChunks.get(riderId);
+            if (chunk != null && (bucketOf(timestamp) > bucketOf(chunk.getFirstMillis())
+                    || timestamp < chunk.getLastMillis() || chunk.getPointCount() >= maxPointsPerChunk)) {
+                sealedChunks.add(chunk);
+                chunk = null;
+            }
+            if (chunk == null) {
+                chunk = new LocationChunk(riderId, timestamp);
+                openChunks.put(riderId, chunk);
+            }
+            chunk.append(timestamp, latitude, longitude);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${location.history.flush-interval-ms:5000}")
+    public void flush() {
+        flush(System.currentTimeMillis());
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush(Long.MAX_VALUE);
+    }
+
+    /**
+     * Seals the chunks whose bucket ended before {@code now} and writes every sealed chunk.
+     */
+    synchronized void flush(long now) {
+        if (!enabled) {
+            return;
+        }
+        List<LocationChunk> chunks;
+        synchronized (openChunks) {
+            for (Iterator<LocationChunk> it = openChunks.values().iterator(); it.hasNext(); ) {
+                LocationChunk chunk = it.next();
+                if (now == Long.MAX_VALUE || now >= (bucketOf(chunk.getFirstMillis()) + 1) * bucketMillis) {
+                    sealedChunks.add(chunk);
+                    it.remove();
+                }
+            }
+            chunks = new ArrayList<>(sealedChunks);
+        }
+        if (chunks.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            jdbcTemplate.batchUpdate(INSERT_CHUNK, chunks, chunks.size(), (statement, chunk) -> {
+                statement.setString(1, chunk.getRiderId());
+                statement.setLong(2, chunk.getFirstMillis());
+                statement.setLong(3, chunk.getLastMillis());
+                statement.setInt(4, chunk.getPointCount());
+                statement.setBytes(5, chunk.toBytes());
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to write {} location chunks, retrying next interval: {}", chunks.size(), e.getMessage());
+            return;
+        }
+        synchronized (openChunks) {
+            sealedChunks.subList(0, chunks.size()).clear();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Wrote {} location chunks ({} points, {} bytes) in {} ms", chunks.size(),
+                    chunks.stream().mapToInt(LocationChunk::getPointCount).sum(),
+                    chunks.stream().mapToInt(LocationChunk::getSizeBytes).sum(), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * @return the rider's points in [from, to] (epoch milliseconds), in time order without
+     *         duplicates, thinned to at most maxPoints
+     */
+    public List<LocationChunk.Point> findPoints(String riderId, long from, long to, int maxPoints) {
+        List<LocationChunk.Point> points = new ArrayList<>();
+        synchronized (openChunks) {
+            for (LocationChunk chunk : sealedChunks) {
+                if (chunk.getRiderId().equals(riderId)) {
+                    points.addAll(chunk.decode(from, to));
+                }
+            }
+            LocationChunk open = openChunks.get(riderId);
+            if (open != null) {
+                points.addAll(open.decode(from, to));
+            }
+        }
+        List<LocationChunk> stored = jdbcTemplate.query(SELECT_CHUNKS, (rs, rowNum) -> LocationChunk.of(
+                rs.getString("rider_id"), rs.getLong("first_ms"), rs.getLong("last_ms"),
+                rs.getInt("point_count"), rs.getBytes("points")), riderId, to, from);
+        for (LocationChunk chunk : stored) {
+            points.addAll(chunk.decode(from, to));
+        }
+        return downsample(merge(points), maxPoints);
+    }
+
+    /**
+     * The route the order's rider took from PICKED_UP to DELIVERED, or up to now while the order
+     * is on its way.
+     *
+     * @return empty if the order was never picked up
+     */
+    public Optional<Map<String, Object>> findRoute(String orderId, int maxPoints) {
+        Optional<OrderEvent> pickup = orderEventRepository.findLatestStatus(orderId, "PICKED_UP");
+        if (pickup.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<OrderEvent> delivery = orderEventRepository.findLatestStatus(orderId, "DELIVERED")
+                .filter(event -> !event.getEventTimestamp().isBefore(pickup.get().getEventTimestamp()));
+        String riderId = pickup.get().getRiderId();
+        long from = toMillis(pickup.get().getEventTimestamp());
+        long to = delivery.map(event -> toMillis(event.getEventTimestamp())).orElseGet(System::currentTimeMillis);
+        List<LocationChunk.Point> points = findPoints(riderId, from, to, maxPoints);
+
+        Map<String, Object> route = new LinkedHashMap<>();
+        route.put("orderId", orderId);
+        route.put("riderId", riderId);
+        route.put("pickedUpAt", pickup.get().getEventTimestamp());
+        route.put("deliveredAt", delivery.map(OrderEvent::getEventTimestamp).orElse(null));
+        route.put("distanceKm", Math.round(distanceKm(points) * 1000) / 1000.0);
+        route.put("count", points.size());
+        route.put("points", points);
+        return Optional.of(route);
+    }
+
+    public int getUnflushedPoints() {
+        synchronized (openChunks) {
+            int points = 0;
+            for (LocationChunk chunk : openChunks.values()) {
+                points += chunk.getPointCount();
+            }
+            for (LocationChunk chunk : sealedChunks) {
+                points += chunk.getPointCount();
+            }
+            return points;
+        }
+    }
+
+    /**
+     * Puts points from chunks that may overlap in time order, keeping one of each set of points
+     * with the same timestamp and coordinates.
+     */
+    static List<LocationChunk.Point> merge(List<LocationChunk.Point> points) {
+        points.sort(Comparator.comparingLong(LocationChunk.Point::timestamp));
+        List<LocationChunk.Point> merged = new ArrayList<>(points.size());
+        int sameTimeFrom = 0;
+        for (LocationChunk.Point point : points) {
+            if (!merged.isEmpty() && merged.get(merged.size() - 1).timestamp() != point.timestamp()) {
+                sameTimeFrom = merged.size();
+            }
+            if (!merged.subList(sameTimeFrom, merged.size()).contains(point)) {
+                merged.add(point);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Thins time-ordered points for map playback: the range is split into maxPoints - 1 equal time
+     * slots and the first point of each is kept, plus the last point, so pauses cost no points and
+     * the end of the route is exact. maxPoints below 2 is taken as 2.
+     */
+    static List<LocationChunk.Point> downsample(List<LocationChunk.Point> points, int maxPoints) {
+        if (points.size() <= Math.max(2, maxPoints)) {
+            return points;
+        }
+        maxPoints = Math.max(2, maxPoints);
+        long first = points.get(0).timestamp();
+        long last = points.get(points.size() - 1).timestamp();
+        double slotMillis = (double) (last - first) / (maxPoints - 1);
+        List<LocationChunk.Point> kept = new ArrayList<>(maxPoints);
+        long lastSlot = -1;
+        for (int i = 0; i < points.size() - 1; i++) {
+            LocationChunk.Point point = points.get(i);
+            long slot = slotMillis == 0 ? 0 : (long) ((point.timestamp() - first) / slotMillis);
+            if (slot > lastSlot && slot < maxPoints - 1) {
+                kept.add(point);
+                lastSlot = slot;
+            }
+        }
+        kept.add(points.get(points.size() - 1));
+        return kept;
+    }
+
+    private long bucketOf(long millis) {
+        return Math.floorDiv(millis, bucketMillis);
+    }
+
+    private static long toMillis(LocalDateTime timestamp) {
+        return timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static double distanceKm(List<LocationChunk.Point> points) {
+        double total = 0;
+        for (int i = 1; i < points.size(); i++) {
+            LocationChunk.Point a = points.get(i - 1);
+            LocationChunk.Point b = points.get(i);
+            total += RiderLocationIndex.distanceKm(a.latitude(), a.longitude(), b.latitude(), b.longitude());
+        }
+        return total;
+    }
+}
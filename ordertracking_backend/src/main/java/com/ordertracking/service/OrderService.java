@@ -1,82 +1,170 @@
 package com.ordertracking.service;
 
 import com.ordertracking.dto.OrderEventDTO;
-import com.ordertracking.model.OrderEvent;
-import com.ordertracking.repository.OrderEventRepository;
+import com.ordertracking.model.OutboxEvent;
+import com.ordertracking.repository.OutboxEventRepository;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
-import java.util.*;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class OrderService {
 
     private static final Logger log = LoggerFactory.getLogger(OrderService.class);
 
-    private final OrderEventRepository orderEventRepository;
+    private final OutboxEventRepository outboxRepository;
     private final KafkaTemplate<String, Object> kafkaTemplate;
-    private final String orderUpdatesTopic = "order-status-updates";
+    private final PipelineMetrics pipelineMetrics;
+    private final ZoneRouting zoneRouting;
+    private final HotPathLog hotPathLog;
+    private final boolean outboxMode;
 
-    // Track recent events to prevent duplicates
-    private final Map<String, LocalDateTime> lastEventTimestamps = new HashMap<>();
+    // Same order and status within a second is a double tap or client retry; shared by request threads
+    private final EventDeduplicator recentEvents = new EventDeduplicator(1000, 10000);
 
-    public OrderService(OrderEventRepository orderEventRepository,
-                        KafkaTemplate<String, Object> kafkaTemplate) {
-        this.orderEventRepository = orderEventRepository;
+    // Orders with events in the outbox after a failed direct send; their later events follow them there
+    private final Set<String> outboxedOrders = ConcurrentHashMap.newKeySet();
+    // Runs those outbox appends one at a time, so an order's rows get ids in the order of its events
+    private final ExecutorService outboxFallback = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "outbox-fallback");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public OrderService(OutboxEventRepository outboxRepository,
+                        KafkaTemplate<String, Object> kafkaTemplate,
+                        PipelineMetrics pipelineMetrics,
+                        ZoneRouting zoneRouting,
+                        HotPathLog hotPathLog,
+                        @Value("${order.ingest.mode:direct}") String ingestMode) {
+        this.outboxRepository = outboxRepository;
+        this.zoneRouting = zoneRouting;
+        this.hotPathLog = hotPathLog;
         this.kafkaTemplate = kafkaTemplate;
+        this.pipelineMetrics = pipelineMetrics;
+        this.outboxMode = "outbox".equalsIgnoreCase(ingestMode);
     }
 
-    @Transactional
+    /**
+     * Accepts a rider event. In outbox mode it is appended to the outbox table and published by
+     * {@link OutboxRelay}; in direct mode it is sent to Kafka straight away and only lands in the
+     * outbox if that send fails. Not transactional, so a direct send holds no pooled connection.
+     * The event goes to the topic of the zone its order was picked up in (see {@link ZoneRouting}).
+     *
+     * <p>Once an order's send has failed, its later events are appended behind it in the outbox
+     * instead of overtaking it on Kafka, until the relay has published all of the order's rows.
+     */
     public void simulateOrderEvent(OrderEventDTO orderEventDTO) {
-        log.info("Processing order event: {} - {} - {}",
-                orderEventDTO.getOrderId(),
-                orderEventDTO.getRiderId(),
-                orderEventDTO.getStatus());
+        long start = System.nanoTime();
+        orderEventDTO.setZone(ZoneRouting.normalize(orderEventDTO.getZone()));
+        if (hotPathLog.shouldLog(HotPathLog.Stage.PUBLISH)) {
+            log.info("Publishing order event orderId={} riderId={} status={} zone={} mode={}",
+                    orderEventDTO.getOrderId(), orderEventDTO.getRiderId(), orderEventDTO.getStatus(),
+                    orderEventDTO.getZone(), outboxMode ? "outbox" : "direct");
+        }
 
         // Check for duplicate events (same order, same status within 1 second)
         String eventKey = orderEventDTO.getOrderId() + "-" + orderEventDTO.getStatus();
-        LocalDateTime lastTimestamp = lastEventTimestamps.get(eventKey);
-        LocalDateTime currentTime = LocalDateTime.now();
+        if (!recentEvents.firstSeen(eventKey, System.currentTimeMillis())) {
+            if (hotPathLog.shouldLog(HotPathLog.Stage.DUPLICATE)) {
+                log.warn("Duplicate order event skipped orderId={} status={}",
+                        orderEventDTO.getOrderId(), orderEventDTO.getStatus());
+            }
+            pipelineMetrics.producerDuplicate();
+            return;
+        }
 
-        if (lastTimestamp != null &&
-                lastTimestamp.plusSeconds(1).isAfter(currentTime)) {
-            log.warn("Duplicate event detected and skipped: {} - {}",
-                    orderEventDTO.getOrderId(), orderEventDTO.getStatus());
+        // Picked when the event is accepted, so it follows the order's earlier events wherever it is sent from
+        String topic = zoneRouting.topicFor(orderEventDTO.getOrderId(), orderEventDTO.getStatus(), orderEventDTO.getZone());
+        if (outboxMode) {
+            try {
+                appendToOutbox(orderEventDTO, topic);
+            } finally {
+                pipelineMetrics.recordIngest(start);
+            }
             return;
         }
 
-        // Update timestamp
-        lastEventTimestamps.put(eventKey, currentTime);
+        try {
+            if (outboxedOrders.contains(orderEventDTO.getOrderId())) {
+                outboxFallback.execute(() -> sendBehindOutbox(orderEventDTO, topic));
+            } else {
+                send(orderEventDTO, topic);
+            }
+        } finally {
+            pipelineMetrics.recordIngest(start);
+        }
+    }
 
-        // Send to Kafka - let Kafka consumer handle database persistence and SSE
+    /**
+     * Sends to Kafka keyed by orderId so every event of an order lands on the same partition and
+     * is consumed in order - the Kafka consumer handles database persistence and SSE.
+     */
+    private void send(OrderEventDTO orderEventDTO, String topic) {
         try {
-            kafkaTemplate.send(orderUpdatesTopic, orderEventDTO.getOrderId(), orderEventDTO);
+            long sendStart = System.nanoTime();
+            kafkaTemplate.send(topic, orderEventDTO.getOrderId(), orderEventDTO)
+                    .whenComplete((result, ex) -> {
+                        pipelineMetrics.recordKafkaSend(sendStart, ex == null);
+                        if (ex != null) {
+                            log.error("Kafka send failed for order {}, queueing in outbox: {}",
+                                    orderEventDTO.getOrderId(), ex.getMessage());
+                            queueInOutbox(orderEventDTO, topic);
+                        }
+                    });
             log.debug("Event sent to Kafka: {}", orderEventDTO.getOrderId());
         } catch (Exception e) {
-            log.error("Failed to send event to Kafka: {}", e.getMessage());
-            // Optionally save directly if Kafka fails
-            saveEventDirectly(orderEventDTO);
+            log.error("Failed to send event to Kafka, queueing in outbox: {}", e.getMessage());
+            queueInOutbox(orderEventDTO, topic);
         }
     }
 
-    private void saveEventDirectly(OrderEventDTO orderEventDTO) {
-        LocalDateTime timestamp = orderEventDTO.getEventTimestamp();
-        if (timestamp == null) {
-            timestamp = LocalDateTime.now();
+    private void queueInOutbox(OrderEventDTO orderEventDTO, String topic) {
+        // Marked before the append is queued, so a later event of the order is queued behind it.
+        // Off the producer I/O thread, which must not block on JDBC.
+        outboxedOrders.add(orderEventDTO.getOrderId());
+        outboxFallback.execute(() -> appendToOutbox(orderEventDTO, topic));
+    }
+
+    /**
+     * Runs on the fallback thread, after every append queued before it: appends to the outbox while
+     * the order still has rows there, and goes back to sending directly once the relay drained them.
+     */
+    void sendBehindOutbox(OrderEventDTO orderEventDTO, String topic) {
+        if (outboxRepository.existsByOrderId(orderEventDTO.getOrderId())) {
+            appendToOutbox(orderEventDTO, topic);
+            return;
         }
+        outboxedOrders.remove(orderEventDTO.getOrderId());
+        send(orderEventDTO, topic);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Lets queued fallback appends reach the outbox before the connection pool closes
+        outboxFallback.shutdown();
+        outboxFallback.awaitTermination(10, TimeUnit.SECONDS);
+    }
 
-        OrderEvent orderEvent = new OrderEvent(
+    private void appendToOutbox(OrderEventDTO orderEventDTO, String topic) {
+        OutboxEvent outboxEvent = new OutboxEvent(
                 orderEventDTO.getOrderId(),
                 orderEventDTO.getRiderId(),
                 orderEventDTO.getStatus(),
-                timestamp
+                orderEventDTO.getEventTimestamp()
         );
-
-        orderEventRepository.save(orderEvent);
-        log.info("Event saved directly to DB (Kafka failed): {}", orderEventDTO.getOrderId());
+        outboxEvent.setZone(orderEventDTO.getZone());
+        outboxEvent.setTopic(topic);
+        outboxRepository.save(outboxEvent);
+        log.debug("Event appended to outbox: {}", orderEventDTO.getOrderId());
     }
 }
\ No newline at end of file
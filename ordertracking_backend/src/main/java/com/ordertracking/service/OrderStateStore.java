@@ -0,0 +1,437 @@
+package com.ordertracking.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ordertracking.dto.SSEEventDTO;
+import com.ordertracking.model.OrderDailySummary;
+import com.ordertracking.model.OrderEvent;
+import com.ordertracking.repository.OrderDailySummaryRepository;
+import com.ordertracking.repository.OrderEventRepository;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-process view of the live dashboard state: orders that are still moving, the most recently
+ * delivered ones, and today's rider summaries per zone. Every applied order update gets the next
+ * sequence number, which lets a new SSE client receive a snapshot followed by exactly the
+ * deltas after it, without a database query per connection. Each rider's summaries, merged over
+ * the zones, feed the snapshot and the rider leaderboard, which is re-ranked per changed rider
+ * instead of sorting every rider per request. A delivery moves its rider at once through
+ * {@link #recordDelivery}; the recomputed summary replaces that estimate when it is committed.
+ */
+@Service
+public class OrderStateStore {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderStateStore.class);
+
+    private final OrderEventRepository orderEventRepository;
+    private final OrderDailySummaryRepository dailySummaryRepository;
+    private final ObjectMapper objectMapper;
+    private final int maxActiveOrders;
+    private final int recentDeliveredOrders;
+    private final int leaderboardSize;
+    private final long delayThresholdMinutes;
+
+    // All fields below are guarded by "this"
+    private final LinkedHashMap<String, SSEEventDTO> activeOrders = new LinkedHashMap<>();
+    private final LinkedHashMap<String, SSEEventDTO> deliveredOrders = new LinkedHashMap<>();
+    // Latest pickup time per order seen picked up, to time its delivery; bounded like activeOrders
+    private final LinkedHashMap<String, LocalDateTime> pickupTimes = new LinkedHashMap<>();
+    // Per rider, today's summaries per zone
+    private final Map<String, Map<String, OrderDailySummary>> todaySummaries = new HashMap<>();
+    private final RiderLeaderboard leaderboard;
+    private LocalDate summaryDate = LocalDate.now();
+    private long sequence;
+    // Bumped whenever the first leaderboardSize riders of any ranking change
+    private long leaderboardVersion;
+    // Next offset per order topic partition (shared and zone topics) whose event is not reflected here yet
+    private final Map<TopicPartition, Long> appliedOffsets = new HashMap<>();
+    // Offsets of a restored snapshot, until the partition's consumer picked them up
+    private final Map<TopicPartition, Long> restoredOffsets = new HashMap<>();
+
+    // Snapshot JSON is reused by every client connecting while nothing changes
+    private long cachedSnapshotSequence = -1;
+    private LocalDate cachedSnapshotDate;
+    private String cachedSnapshot;
+
+    public OrderStateStore(OrderEventRepository orderEventRepository,
+                           OrderDailySummaryRepository dailySummaryRepository,
+                           ObjectMapper objectMapper,
+                           @Value("${sse.snapshot.max-active-orders:100000}") int maxActiveOrders,
+                           @Value("${sse.snapshot.recent-delivered-orders:50}") int recentDeliveredOrders,
+                           @Value("${sse.leaderboard.size:10}") int leaderboardSize,
+                           @Value("${aggregation.delay-threshold-minutes:30}") long delayThresholdMinutes) {
+        this.orderEventRepository = orderEventRepository;
+        this.dailySummaryRepository = dailySummaryRepository;
+        this.objectMapper = objectMapper;
+        this.maxActiveOrders = maxActiveOrders;
+        this.recentDeliveredOrders = recentDeliveredOrders;
+        this.leaderboardSize = leaderboardSize;
+        this.delayThresholdMinutes = delayThresholdMinutes;
+        this.leaderboard = new RiderLeaderboard(leaderboardSize);
+    }
+
+    /**
+     * Seeds the store at startup from today's events and summaries, when no state snapshot could
+     * be restored (see {@link StateSnapshotService}).
+     */
+    public void rebuildFromDatabase() {
+        LocalDate today = LocalDate.now();
+        try {
+            List<OrderEvent> events = orderEventRepository.findRecentEvents(today.atStartOfDay());
+            List<OrderDailySummary> summaries = dailySummaryRepository.findBySummaryDate(today);
+
+            // findRecentEvents is newest first, so the first event seen per order is its latest state
+            LinkedHashMap<String, SSEEventDTO> latest = new LinkedHashMap<>();
+            for (OrderEvent event : events) {
+                latest.putIfAbsent(event.getOrderId(), new SSEEventDTO(event.getOrderId(), event.getRiderId(),
+                        event.getStatus(), event.getEventTimestamp()));
+            }
+            List<SSEEventDTO> oldestFirst = new ArrayList<>(latest.values());
+            Collections.reverse(oldestFirst);
+
+            synchronized (this) {
+                // The listener may already have applied newer updates; those win
+                for (SSEEventDTO event : oldestFirst) {
+                    if (!activeOrders.containsKey(event.getOrderId()) && !deliveredOrders.containsKey(event.getOrderId())) {
+                        track(event);
+                    }
+                }
+                if (today.equals(summaryDate)) {
+                    for (OrderDailySummary summary : summaries) {
+                        Map<String, OrderDailySummary> zones = todaySummaries.computeIfAbsent(
+                                summary.getRiderId(), id -> new TreeMap<>());
+                        if (zones.putIfAbsent(summary.getZone(), summary) == null) {
+                            leaderboard.update(riderTotals(zones.values()));
+                        }
+                    }
+                    leaderboardVersion++;
+                }
+                sequence++;
+            }
+            log.info("Order state store rebuilt from database: {} events, {} rider summaries",
+                    events.size(), summaries.size());
+        } catch (Exception e) {
+            log.warn("Could not rebuild order state store from database: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Applies an order update and stamps it with its sequence number.
+     */
+    public synchronized long apply(SSEEventDTO event) {
+        track(event);
+        event.setSequence(++sequence);
+        return sequence;
+    }
+
+    /**
+     * Records a freshly computed summary; only today's summaries are kept.
+     */
+    public synchronized void updateSummary(OrderDailySummary summary) {
+        if (summary.getSummaryDate().isBefore(summaryDate)) {
+            return;
+        }
+        if (summary.getSummaryDate().isAfter(summaryDate)) {
+            startDay(summary.getSummaryDate());
+        }
+        if (putSummary(summary)) {
+            leaderboardVersion++;
+        }
+        sequence++;
+    }
+
+    /**
+     * Counts a delivery into its rider's summary of the zone and re-ranks the rider right away, in
+     * O(log riders), instead of after the day's summaries are recomputed. Like the recomputation,
+     * only deliveries whose pickup was seen count; the delivery time joins the average weighted by
+     * the deliveries so far. Deliveries of other days, or whose pickup this store did not see, are
+     * left to the recomputation.
+     */
+    public synchronized void recordDelivery(String orderId, String riderId, String zone, LocalDateTime deliveredAt) {
+        LocalDateTime pickedUpAt = pickupTimes.remove(orderId);
+        LocalDate day = deliveredAt.toLocalDate();
+        if (pickedUpAt == null || day.isBefore(summaryDate)) {
+            return;
+        }
+        if (day.isAfter(summaryDate)) {
+            startDay(day);
+        }
+
+        OrderDailySummary current = todaySummaries.getOrDefault(riderId, Map.of()).get(zone);
+        int delivered = current == null || current.getDeliveredOrders() == null ? 0 : current.getDeliveredOrders();
+        Integer avgMinutes = current == null ? null : current.getAvgDeliveryTimeMinutes();
+        int delayed = current == null || current.getDelayedOrders() == null ? 0 : current.getDelayedOrders();
+        long minutes = Duration.between(pickedUpAt, deliveredAt).toMinutes();
+        if (minutes > 0) {
+            avgMinutes = avgMinutes == null || delivered == 0 ? (int) minutes
+                    : (int) Math.round(((double) avgMinutes * delivered + minutes) / (delivered + 1));
+            if (minutes > delayThresholdMinutes) {
+                delayed++;
+            }
+        }
+        // A new object: the snapshot serializes the summaries it copied after releasing the lock
+        OrderDailySummary updated = new OrderDailySummary(riderId, day, delivered + 1, avgMinutes, delayed);
+        updated.setZone(zone);
+        if (putSummary(updated)) {
+            leaderboardVersion++;
+        }
+        sequence++;
+    }
+
+    private void startDay(LocalDate day) {
+        summaryDate = day;
+        todaySummaries.clear();
+        leaderboard.clear();
+        leaderboardVersion++;
+    }
+
+    /**
+     * Keeps a rider's summary of one zone and re-ranks the rider by their totals over all zones.
+     *
+     * @return true if the leaders of any ranking changed
+     */
+    private boolean putSummary(OrderDailySummary summary) {
+        Map<String, OrderDailySummary> zones = todaySummaries.computeIfAbsent(summary.getRiderId(), id -> new TreeMap<>());
+        zones.put(summary.getZone(), summary);
+        return leaderboard.update(riderTotals(zones.values()));
+    }
+
+    /**
+     * One rider's summaries of several zones as one, tagged with the zones joined by commas. The
+     * average delivery time is weighted by each zone's deliveries.
+     */
+    static OrderDailySummary riderTotals(Collection<OrderDailySummary> zoneSummaries) {
+        if (zoneSummaries.size() == 1) {
+            return zoneSummaries.iterator().next();
+        }
+        OrderDailySummary first = zoneSummaries.iterator().next();
+        int delivered = 0;
+        int delayed = 0;
+        long timedMinutes = 0;
+        int timedDeliveries = 0;
+        List<String> zones = new ArrayList<>();
+        for (OrderDailySummary summary : zoneSummaries) {
+            delivered += summary.getDeliveredOrders();
+            delayed += summary.getDelayedOrders();
+            if (summary.getAvgDeliveryTimeMinutes() != null) {
+                timedMinutes += (long) summary.getAvgDeliveryTimeMinutes() * summary.getDeliveredOrders();
+                timedDeliveries += summary.getDeliveredOrders();
+            }
+            zones.add(summary.getZone());
+        }
+        OrderDailySummary totals = new OrderDailySummary(first.getRiderId(), first.getSummaryDate(), delivered,
+                timedDeliveries > 0 ? (int) (timedMinutes / timedDeliveries) : null, delayed);
+        totals.setZone(String.join(",", zones));
+        return totals;
+    }
+
+    /**
+     * Records that the event at this order topic offset is applied.
+     */
+    public synchronized void markApplied(TopicPartition partition, long offset) {
+        appliedOffsets.merge(partition, offset + 1, Math::max);
+    }
+
+    /**
+     * @return the offset a restored snapshot reflects for this partition, only on the first call
+     */
+    public synchronized Long takeRestoredOffset(TopicPartition partition) {
+        return restoredOffsets.remove(partition);
+    }
+
+    /**
+     * Copies everything a state snapshot holds, atomically with the offsets it reflects.
+     */
+    public synchronized StoreState exportState() {
+        List<OrderDailySummary> summaries = new ArrayList<>();
+        todaySummaries.values().forEach(zones -> summaries.addAll(zones.values()));
+        return new StoreState(sequence, summaryDate, new ArrayList<>(activeOrders.values()),
+                new ArrayList<>(deliveredOrders.values()), summaries, new HashMap<>(appliedOffsets));
+    }
+
+    /**
+     * Replaces the store content with a snapshot; orders are expected oldest first.
+     */
+    public synchronized void restoreState(StoreState state) {
+        activeOrders.clear();
+        deliveredOrders.clear();
+        pickupTimes.clear();
+        todaySummaries.clear();
+        leaderboard.clear();
+        state.activeOrders().forEach(this::track);
+        state.deliveredOrders().forEach(this::track);
+        summaryDate = state.summaryDate();
+        for (OrderDailySummary summary : state.summaries()) {
+            putSummary(summary);
+        }
+        appliedOffsets.clear();
+        appliedOffsets.putAll(state.offsets());
+        restoredOffsets.clear();
+        restoredOffsets.putAll(state.offsets());
+        sequence = state.sequence();
+        leaderboardVersion++;
+    }
+
+    public synchronized long getLeaderboardVersion() {
+        return leaderboardVersion;
+    }
+
+    /**
+     * Today's first {@code k} riders of one ranking.
+     */
+    public synchronized List<Map<String, Object>> leaderboard(RiderLeaderboard.Ranking ranking, int k) {
+        if (!LocalDate.now().equals(summaryDate)) {
+            return new ArrayList<>();
+        }
+        List<Map<String, Object>> riders = new ArrayList<>();
+        for (RiderLeaderboard.Standing standing : leaderboard.top(ranking, k)) {
+            Map<String, Object> rider = new LinkedHashMap<>();
+            rider.put("rank", riders.size() + 1);
+            rider.put("riderId", standing.riderId());
+            rider.put("deliveredOrders", standing.deliveredOrders());
+            rider.put("avgDeliveryTimeMinutes", standing.avgDeliveryTimeMinutes());
+            rider.put("delayedOrders", standing.delayedOrders());
+            riders.add(rider);
+        }
+        return riders;
+    }
+
+    /**
+     * Every ranking's leaders as sent in LEADERBOARD frames, tagged with the leaderboard version.
+     */
+    public synchronized Map<String, Object> leaderboards() {
+        Map<String, Object> leaderboards = new LinkedHashMap<>();
+        leaderboards.put("version", leaderboardVersion);
+        leaderboards.put("date", LocalDate.now());
+        for (RiderLeaderboard.Ranking ranking : RiderLeaderboard.Ranking.values()) {
+            leaderboards.put(ranking.getKey(), leaderboard(ranking, leaderboardSize));
+        }
+        return leaderboards;
+    }
+
+    /**
+     * Copies the snapshot state and runs {@code registration} with its sequence while holding the
+     * store lock, so no update can be applied between the snapshot and the client joining the
+     * fan-out. The copy is serialized after the lock is released, or the JSON of an unchanged
+     * store reused, so a large snapshot never holds up {@link #apply} and the listeners.
+     *
+     * @return the snapshot JSON
+     */
+    public String snapshot(SnapshotRegistration registration) throws JsonProcessingException {
+        LocalDate today = LocalDate.now();
+        long snapshotSequence;
+        Map<String, Object> snapshot;
+        synchronized (this) {
+            snapshotSequence = sequence;
+            registration.register(snapshotSequence);
+            if (cachedSnapshotSequence == snapshotSequence && today.equals(cachedSnapshotDate)) {
+                return cachedSnapshot;
+            }
+            snapshot = buildSnapshot(today);
+        }
+        String snapshotJson = objectMapper.writeValueAsString(snapshot);
+        synchronized (this) {
+            if (snapshotSequence >= cachedSnapshotSequence) {
+                cachedSnapshot = snapshotJson;
+                cachedSnapshotSequence = snapshotSequence;
+                cachedSnapshotDate = today;
+            }
+        }
+        return snapshotJson;
+    }
+
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    public synchronized int getActiveOrderCount() {
+        return activeOrders.size();
+    }
+
+    private void track(SSEEventDTO event) {
+        String orderId = event.getOrderId();
+        if ("DELIVERED".equals(event.getStatus())) {
+            activeOrders.remove(orderId);
+            deliveredOrders.remove(orderId);
+            deliveredOrders.put(orderId, event);
+            if (deliveredOrders.size() > recentDeliveredOrders) {
+                deliveredOrders.remove(deliveredOrders.keySet().iterator().next());
+            }
+        } else {
+            // Re-insert so iteration order follows the latest update
+            activeOrders.remove(orderId);
+            activeOrders.put(orderId, event);
+            if (activeOrders.size() > maxActiveOrders) {
+                activeOrders.remove(activeOrders.keySet().iterator().next());
+            }
+            if ("PICKED_UP".equals(event.getStatus()) && event.getEventTimestamp() != null) {
+                pickupTimes.remove(orderId);
+                pickupTimes.put(orderId, event.getEventTimestamp());
+                if (pickupTimes.size() > maxActiveOrders) {
+                    pickupTimes.remove(pickupTimes.keySet().iterator().next());
+                }
+            }
+        }
+    }
+
+    // Only new collections and maps, so the result can be serialized after the lock is released
+    private Map<String, Object> buildSnapshot(LocalDate today) {
+        List<OrderDailySummary> riders = new ArrayList<>();
+        if (today.equals(summaryDate)) {
+            todaySummaries.values().forEach(zones -> riders.add(riderTotals(zones.values())));
+        }
+        riders.sort(Comparator.comparing(OrderDailySummary::getRiderId));
+
+        List<SSEEventDTO> orders = new ArrayList<>(deliveredOrders.size() + activeOrders.size());
+        orders.addAll(deliveredOrders.values());
+        orders.addAll(activeOrders.values());
+
+        int totalDeliveries = riders.stream().mapToInt(OrderDailySummary::getDeliveredOrders).sum();
+        int totalDelays = riders.stream().mapToInt(OrderDailySummary::getDelayedOrders).sum();
+        double successRate = totalDeliveries > 0
+                ? ((totalDeliveries - totalDelays) * 100.0) / totalDeliveries
+                : 100.0;
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("date", today);
+        metrics.put("totalDeliveries", totalDeliveries);
+        metrics.put("totalDelays", totalDelays);
+        metrics.put("successRate", Math.round(successRate * 100.0) / 100.0);
+        metrics.put("riderCount", riders.size());
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("sequence", sequence);
+        snapshot.put("orders", orders);
+        snapshot.put("riders", riders);
+        snapshot.put("metrics", metrics);
+        snapshot.put("leaderboard", leaderboards());
+        return snapshot;
+    }
+
+    public record StoreState(long sequence, LocalDate summaryDate, List<SSEEventDTO> activeOrders,
+                             List<SSEEventDTO> deliveredOrders, List<OrderDailySummary> summaries,
+                             Map<TopicPartition, Long> offsets) {
+    }
+
+    @FunctionalInterface
+    public interface SnapshotRegistration {
+        void register(long sequence);
+    }
+}
@@ -0,0 +1,131 @@
+package com.ordertracking.service;
+
+import com.ordertracking.dto.OrderEventDTO;
+import com.ordertracking.model.OutboxEvent;
+import com.ordertracking.repository.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publishes the order outbox to Kafka. Each batch is locked with SKIP LOCKED, so several backend
+ * instances can relay side by side, sent keyed by orderId, and deleted in one statement once the
+ * sends are acknowledged. A failed send leaves its row for the next run, so delivery is at least
+ * once; the consumer drops repeats that arrive within its dedup window. A batch holds at most the
+ * oldest row of each order (see {@link OutboxEventRepository#lockNextBatch}), so an order's next
+ * row is only published after the previous one was acknowledged and deleted.
+ */
+@Service
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxEventRepository outboxRepository;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final PipelineMetrics pipelineMetrics;
+    private final TransactionTemplate transactionTemplate;
+    private final ZoneRouting zoneRouting;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long sendTimeoutMillis;
+
+    public OutboxRelay(OutboxEventRepository outboxRepository,
+                       KafkaTemplate<String, Object> kafkaTemplate,
+                       PipelineMetrics pipelineMetrics,
+                       PlatformTransactionManager transactionManager,
+                       ZoneRouting zoneRouting,
+                       @Value("${order.outbox.relay.batch-size:500}") int batchSize,
+                       @Value("${order.outbox.relay.max-batches-per-run:20}") int maxBatchesPerRun,
+                       @Value("${order.outbox.relay.send-timeout-ms:10000}") long sendTimeoutMillis) {
+        this.outboxRepository = outboxRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.pipelineMetrics = pipelineMetrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.zoneRouting = zoneRouting;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.sendTimeoutMillis = sendTimeoutMillis;
+    }
+
+    /**
+     * Drains full batches back to back and stops at the first partial batch or failure.
+     */
+    @Scheduled(fixedDelayString = "${order.outbox.relay.interval-ms:50}")
+    public void relay() {
+        try {
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                Integer relayed = transactionTemplate.execute(status -> relayBatch());
+                if (relayed == null || relayed < batchSize) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Outbox relay run failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return rows published and deleted, or 0 if any send in the batch failed or rows were held back
+     */
+    int relayBatch() {
+        List<OutboxEvent> batch = outboxRepository.lockNextBatch(batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        // One row per order, so the sends can go out together without reordering any order. Should
+        // the batch hold a later row of an order anyway, it is left for a later batch unsent.
+        List<OutboxEvent> sent = new ArrayList<>(batch.size());
+        List<CompletableFuture<SendResult<String, Object>>> sends = new ArrayList<>(batch.size());
+        Set<String> orders = new HashSet<>();
+        for (OutboxEvent event : batch) {
+            if (!orders.add(event.getOrderId())) {
+                continue;
+            }
+            OrderEventDTO dto = new OrderEventDTO(event.getOrderId(), event.getRiderId(),
+                    event.getStatus(), event.getEventTimestamp());
+            dto.setZone(event.getZone());
+            sent.add(event);
+            String topic = event.getTopic() != null ? event.getTopic() : zoneRouting.topicFor(event.getZone());
+            sends.add(kafkaTemplate.send(topic, event.getOrderId(), dto));
+        }
+
+        List<Long> published = new ArrayList<>(sent.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        for (int i = 0; i < sends.size(); i++) {
+            try {
+                sends.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                published.add(sent.get(i).getId());
+            } catch (ExecutionException | TimeoutException e) {
+                log.warn("Outbox row {} not published, will retry: {}", sent.get(i).getId(), e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        if (!published.isEmpty()) {
+            outboxRepository.deleteByIdIn(published);
+        }
+        int failed = sent.size() - published.size();
+        pipelineMetrics.recordOutboxRelay(start, published.size(), failed);
+        log.debug("Relayed {} outbox rows to Kafka, {} failed", published.size(), failed);
+        return failed == 0 && sent.size() == batch.size() ? published.size() : 0;
+    }
+}
@@ -0,0 +1,242 @@
+package com.ordertracking.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Meters for every stage of the order pipeline, exposed on /actuator/prometheus.
+ *
+ * Stages record raw {@code System.nanoTime()} deltas into pre-registered timers with
+ * fixed-bucket histograms, so the hot path does not allocate a sample per event.
+ */
+@Component
+public class PipelineMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Timer ingestTimer;
+    private final Timer kafkaSendTimer;
+    private final Counter kafkaSendFailures;
+    private final Timer consumerProcessTimer;
+    private final Timer dbSaveTimer;
+    private final Timer sseFanoutTimer;
+    private final Timer aggregationTimer;
+    private final Timer summaryCellTimer;
+    private final Counter lateEvents;
+    private final Counter producerDuplicates;
+    private final Counter consumerDuplicates;
+    private final Counter consumeFailures;
+    private final Counter deadLetters;
+    private final Timer outboxRelayTimer;
+    private final Counter outboxRelayed;
+    private final Counter outboxRelayFailures;
+    private final Counter delayAlerts;
+    private final Counter sseClientsDropped;
+    private final Counter consumerPausesBatch;
+    private final Counter consumerPausesDb;
+    private final Counter consumerPausesSse;
+    private final Counter locationPings;
+    // Persisted events per zone; zones are configured or sent by riders, so counters are made on first use
+    private final Map<String, Counter> zoneEvents = new ConcurrentHashMap<>();
+    // Rider API requests refused by the per-rider rate limit, per rider class
+    private final Map<String, Counter> riderThrottles = new ConcurrentHashMap<>();
+    private final Counter riderRateLimitUntracked;
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.ingestTimer = stageTimer("ingest", "Rider event accepted and handed to Kafka");
+        this.kafkaSendTimer = stageTimer("kafka.send", "Kafka send until broker acknowledgement");
+        this.consumerProcessTimer = stageTimer("consume", "Kafka consumer processing per event");
+        this.dbSaveTimer = stageTimer("db.save", "order_events insert");
+        this.sseFanoutTimer = stageTimer("sse.fanout", "SSE fan-out to all connected clients");
+        this.aggregationTimer = Timer.builder("order.pipeline.aggregation")
+                .description("Daily summary aggregation run")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(5))
+                .register(registry);
+        this.summaryCellTimer = stageTimer("aggregation.cell", "One rider and date summary recomputed after late events");
+        this.lateEvents = Counter.builder("order.pipeline.late.events")
+                .description("Events behind the event-time watermark, corrected by summary cell recomputes")
+                .register(registry);
+        this.kafkaSendFailures = Counter.builder("order.pipeline.kafka.send.failures")
+                .description("Kafka sends that failed")
+                .register(registry);
+        this.producerDuplicates = duplicateCounter("producer");
+        this.consumerDuplicates = duplicateCounter("consumer");
+        this.consumeFailures = Counter.builder("order.pipeline.consume.failures")
+                .description("Consumed events that failed and were handed to a retry topic")
+                .register(registry);
+        this.deadLetters = Counter.builder("order.pipeline.dead.letters")
+                .description("Events that exhausted their retries and reached the dead-letter topic")
+                .register(registry);
+        this.outboxRelayTimer = stageTimer("outbox.relay", "Outbox batch published to Kafka and deleted");
+        this.outboxRelayed = Counter.builder("order.outbox.relayed")
+                .description("Outbox rows published to Kafka")
+                .register(registry);
+        this.outboxRelayFailures = Counter.builder("order.outbox.relay.failures")
+                .description("Outbox rows whose send failed and will be retried")
+                .register(registry);
+        this.delayAlerts = Counter.builder("order.delay.alerts")
+                .description("In-transit orders that passed their delivery deadline")
+                .register(registry);
+        this.sseClientsDropped = Counter.builder("order.sse.clients.dropped")
+                .description("SSE connections closed because they fell too far behind")
+                .register(registry);
+        this.consumerPausesBatch = pauseCounter("batch");
+        this.consumerPausesDb = pauseCounter("db");
+        this.consumerPausesSse = pauseCounter("sse");
+        this.locationPings = Counter.builder("order.location.pings")
+                .description("Rider location pings applied to the spatial index")
+                .register(registry);
+        this.riderRateLimitUntracked = Counter.builder("order.rider.ratelimit.untracked")
+                .description("Rider API requests let through unlimited because rider.rate-limit.max-riders was reached")
+                .register(registry);
+    }
+
+    private Timer stageTimer(String stage, String description) {
+        return Timer.builder("order.pipeline.stage")
+                .description(description)
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(10_000))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+    }
+
+    private Counter duplicateCounter(String stage) {
+        return Counter.builder("order.pipeline.dedup.hits")
+                .description("Events dropped as duplicates")
+                .tag("stage", stage)
+                .register(registry);
+    }
+
+    private Counter pauseCounter(String reason) {
+        return Counter.builder("order.kafka.flow.pauses")
+                .description("Listener containers paused by consumer flow control")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    /**
+     * Registers a gauge backed by the given supplier, e.g. connection counts or queue depths.
+     */
+    public void gauge(String name, String description, Supplier<Number> supplier) {
+        Gauge.builder(name, supplier)
+                .description(description)
+                .register(registry);
+    }
+
+    public void recordIngest(long startNanos) {
+        ingestTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordKafkaSend(long startNanos, boolean success) {
+        kafkaSendTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (!success) {
+            kafkaSendFailures.increment();
+        }
+    }
+
+    public void recordConsume(long startNanos) {
+        consumerProcessTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordDbSave(long startNanos) {
+        dbSaveTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordSseFanout(long startNanos) {
+        sseFanoutTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordAggregation(long startNanos) {
+        aggregationTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordSummaryCellRecompute(long startNanos) {
+        summaryCellTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void lateEvent() {
+        lateEvents.increment();
+    }
+
+    public void consumeFailure() {
+        consumeFailures.increment();
+    }
+
+    public void deadLetter() {
+        deadLetters.increment();
+    }
+
+    public void recordOutboxRelay(long startNanos, int relayed, int failed) {
+        outboxRelayTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        outboxRelayed.increment(relayed);
+        if (failed > 0) {
+            outboxRelayFailures.increment(failed);
+        }
+    }
+
+    public void delayAlert() {
+        delayAlerts.increment();
+    }
+
+    public void sseClientDropped() {
+        sseClientsDropped.increment();
+    }
+
+    /**
+     * @param reason batch (end of a poll's budget), db (write latency over target) or sse (queue depth)
+     */
+    public void consumerPaused(String reason) {
+        switch (reason) {
+            case "db" -> consumerPausesDb.increment();
+            case "sse" -> consumerPausesSse.increment();
+            default -> consumerPausesBatch.increment();
+        }
+    }
+
+    public void locationPing() {
+        locationPings.increment();
+    }
+
+    public void zoneEvent(String zone) {
+        zoneEvents.computeIfAbsent(zone, z -> Counter.builder("order.zone.events")
+                .description("Order events persisted per delivery zone")
+                .tag("zone", z)
+                .register(registry)).increment();
+    }
+
+    public void riderThrottled(String riderClass) {
+        riderThrottles.computeIfAbsent(riderClass, c -> Counter.builder("order.rider.throttled")
+                .description("Rider API requests refused with 429 by the per-rider rate limit")
+                .tag("class", c)
+                .register(registry)).increment();
+    }
+
+    public void riderRateLimitUntracked() {
+        riderRateLimitUntracked.increment();
+    }
+
+    public void producerDuplicate() {
+        producerDuplicates.increment();
+    }
+
+    public void consumerDuplicate() {
+        consumerDuplicates.increment();
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+}
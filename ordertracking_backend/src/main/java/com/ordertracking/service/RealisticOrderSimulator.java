@@ -0,0 +1,159 @@
+package com.ordertracking.service;
+
+import com.ordertracking.controller.RiderController;
+import com.ordertracking.dto.RiderEventDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives {@link RiderController} with realistic rider/order lifecycles at a fixed rate.
+ * Enabled with {@code simulator.enabled=true}; the lifecycle model itself ({@link Fleet})
+ * is also used by the load harness in the test sources.
+ */
+@Service
+@ConditionalOnProperty(name = "simulator.enabled", havingValue = "true")
+public class RealisticOrderSimulator {
+
+    private static final Logger log = LoggerFactory.getLogger(RealisticOrderSimulator.class);
+
+    private final RiderController riderController;
+    private final Fleet fleet;
+    private final double eventsPerSecond;
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private ScheduledExecutorService executor;
+
+    public RealisticOrderSimulator(RiderController riderController,
+                                   @Value("${simulator.riders:50}") int riders,
+                                   @Value("${simulator.events-per-second:20}") double eventsPerSecond,
+                                   @Value("${simulator.seed:42}") long seed) {
+        this.riderController = riderController;
+        this.fleet = new Fleet(riders, seed);
+        this.eventsPerSecond = eventsPerSecond;
+    }
+
+    @PostConstruct
+    public void start() {
+        long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / eventsPerSecond);
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "order-simulator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::tick, 1, periodNanos, TimeUnit.NANOSECONDS);
+        log.info("Order simulator started: {} riders at {} events/s", fleet.size(), eventsPerSecond);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        log.info("Order simulator stopped: {} events submitted, {} failed", submitted.get(), failed.get());
+    }
+
+    private void tick() {
+        try {
+            SimulatedEvent event = fleet.next();
+            RiderEventDTO riderEvent = new RiderEventDTO(event.orderId(), event.status(), null, LocalDateTime.now());
+            if (riderController.updateOrderStatus(event.riderId(), riderEvent).getStatusCode().is2xxSuccessful()) {
+                submitted.incrementAndGet();
+            } else {
+                failed.incrementAndGet();
+            }
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            log.warn("Simulated event failed: {}", e.getMessage());
+        }
+    }
+
+    public long getSubmittedEvents() {
+        return submitted.get();
+    }
+
+    /**
+     * A single status change produced by the fleet model.
+     */
+    public record SimulatedEvent(String riderId, String orderId, String status) {
+    }
+
+    /**
+     * Rider/order lifecycle model. Every rider carries at most one order at a time and walks it
+     * through PICKED_UP, IN_TRANSIT and DELIVERED; orders are advanced in roughly FIFO order with
+     * some jitter so that lifecycles interleave the way they do in a real shift.
+     * Not thread-safe - callers serialize access.
+     */
+    public static final class Fleet {
+
+        private final String[] riderIds;
+        private final ArrayDeque<Integer> idleRiders = new ArrayDeque<>();
+        private final ArrayDeque<Trip> trips = new ArrayDeque<>();
+        private final Random random;
+        private long orderSequence;
+
+        public Fleet(int riders, long seed) {
+            if (riders <= 0) {
+                throw new IllegalArgumentException("riders must be positive");
+            }
+            this.riderIds = new String[riders];
+            this.random = new Random(seed);
+            for (int i = 0; i < riders; i++) {
+                riderIds[i] = String.format("RID-%03d", i + 1);
+                idleRiders.add(i);
+            }
+        }
+
+        public int size() {
+            return riderIds.length;
+        }
+
+        public SimulatedEvent next() {
+            // Keep most riders busy, but let some trips finish before new ones start
+            boolean startNew = !idleRiders.isEmpty()
+                    && (trips.isEmpty() || random.nextInt(riderIds.length) < idleRiders.size());
+
+            if (startNew) {
+                int rider = idleRiders.poll();
+                Trip trip = new Trip(rider, String.format("ORD-%08d", ++orderSequence));
+                trips.addLast(trip);
+                return new SimulatedEvent(riderIds[rider], trip.orderId, "PICKED_UP");
+            }
+
+            // Occasionally let a later trip overtake the oldest one
+            Trip trip = trips.size() > 1 && random.nextInt(4) == 0 ? trips.pollLast() : trips.pollFirst();
+            trip.stage++;
+            if (trip.stage == 1) {
+                trips.addLast(trip);
+                return new SimulatedEvent(riderIds[trip.rider], trip.orderId, "IN_TRANSIT");
+            }
+
+            idleRiders.addLast(trip.rider);
+            return new SimulatedEvent(riderIds[trip.rider], trip.orderId, "DELIVERED");
+        }
+
+        private static final class Trip {
+            private final int rider;
+            private final String orderId;
+            private int stage;
+
+            private Trip(int rider, String orderId) {
+                this.rider = rider;
+                this.orderId = orderId;
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.ordertracking.service;
+
+import com.ordertracking.model.OrderDailySummary;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * Riders of one day kept sorted by every leaderboard ranking at once.
+ *
+ * Each ranking is a red-black tree of rider standings, so a changed summary costs one removal and
+ * one insertion per ranking (O(log riders)) and the top k are the first k tree entries. Riders are
+ * kept even when they are outside any top k, because a rider that falls out of the top (more
+ * delays, slower average) has to be replaced by the next one without rescanning. Not thread-safe;
+ * {@link OrderStateStore} guards it with its own lock.
+ */
+public class RiderLeaderboard {
+
+    public enum Ranking {
+        DELIVERIES("deliveries",
+                Comparator.comparingInt(Standing::deliveredOrders).reversed(),
+                standing -> true),
+        FASTEST("fastest",
+                Comparator.comparingInt(Standing::avgDeliveryTimeMinutes),
+                standing -> standing.avgDeliveryTimeMinutes() != null),
+        FEWEST_DELAYS("fewestDelays",
+                Comparator.comparingInt(Standing::delayedOrders)
+                        .thenComparing(Comparator.comparingInt(Standing::deliveredOrders).reversed()),
+                standing -> standing.deliveredOrders() > 0);
+
+        private final String key;
+        private final Comparator<Standing> order;
+        private final Predicate<Standing> eligible;
+
+        Ranking(String key, Comparator<Standing> order, Predicate<Standing> eligible) {
+            this.key = key;
+            // Rider id last, so two riders never compare as equal
+            this.order = order.thenComparing(Standing::riderId);
+            this.eligible = eligible;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return the ranking with this key (case-insensitive), or null
+         */
+        public static Ranking fromKey(String key) {
+            for (Ranking ranking : values()) {
+                if (ranking.key.equalsIgnoreCase(key)) {
+                    return ranking;
+                }
+            }
+            return null;
+        }
+    }
+
+    public record Standing(String riderId, int deliveredOrders, Integer avgDeliveryTimeMinutes, int delayedOrders) {
+
+        static Standing of(OrderDailySummary summary) {
+            return new Standing(summary.getRiderId(), summary.getDeliveredOrders(),
+                    summary.getAvgDeliveryTimeMinutes(), summary.getDelayedOrders());
+        }
+    }
+
+    private final Map<String, Standing> standings = new HashMap<>();
+    private final EnumMap<Ranking, TreeSet<Standing>> rankings = new EnumMap<>(Ranking.class);
+    private final int watchedSize;
+
+    /**
+     * @param watchedSize how many leaders per ranking {@link #update} reports changes for
+     */
+    public RiderLeaderboard(int watchedSize) {
+        this.watchedSize = watchedSize;
+        for (Ranking ranking : Ranking.values()) {
+            rankings.put(ranking, new TreeSet<>(ranking.order));
+        }
+    }
+
+    /**
+     * Places the rider according to its latest summary.
+     *
+     * @return true if the first {@code watchedSize} riders of any ranking changed
+     */
+    public boolean update(OrderDailySummary summary) {
+        Standing standing = Standing.of(summary);
+        Standing previous = standings.put(standing.riderId(), standing);
+        if (standing.equals(previous)) {
+            return false;
+        }
+
+        boolean leadersChanged = false;
+        for (Ranking ranking : Ranking.values()) {
+            TreeSet<Standing> ordered = rankings.get(ranking);
+            if (previous != null && ranking.eligible.test(previous)) {
+                leadersChanged |= isWatched(ordered, previous);
+                ordered.remove(previous);
+            }
+            if (ranking.eligible.test(standing)) {
+                ordered.add(standing);
+                leadersChanged |= isWatched(ordered, standing);
+            }
+        }
+        return leadersChanged;
+    }
+
+    public void clear() {
+        standings.clear();
+        rankings.values().forEach(TreeSet::clear);
+    }
+
+    public List<Standing> top(Ranking ranking, int k) {
+        List<Standing> leaders = new ArrayList<>(Math.min(k, standings.size()));
+        Iterator<Standing> iterator = rankings.get(ranking).iterator();
+        while (leaders.size() < k && iterator.hasNext()) {
+            leaders.add(iterator.next());
+        }
+        return leaders;
+    }
+
+    public int size() {
+        return standings.size();
+    }
+
+    // Within the first watchedSize entries: fewer than watchedSize riders rank ahead of it
+    private boolean isWatched(TreeSet<Standing> ordered, Standing standing) {
+        Iterator<Standing> ahead = ordered.headSet(standing, false).iterator();
+        for (int i = 0; i < watchedSize; i++) {
+            if (!ahead.hasNext()) {
+                return true;
+            }
+            ahead.next();
+        }
+        return false;
+    }
+}
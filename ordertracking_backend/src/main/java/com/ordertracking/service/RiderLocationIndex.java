@@ -0,0 +1,491 @@
+package com.ordertracking.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Latest position of every rider in a uniform grid of cells of {@code cellDegrees} latitude by
+ * {@code cellDegrees} longitude.
+ *
+ * Riders live in parallel arrays indexed by a slot, and each cell is a doubly linked list threaded
+ * through the same arrays, so a ping is a map lookup plus, when the rider crossed into another
+ * cell, one unlink and one link; nothing is allocated once a rider has its slot. Cells are found in
+ * an open-addressing table keyed by their grid coordinates. Nearest queries visit rings of cells
+ * around the query point and stop once no further ring can hold a closer rider. Longitudes are not
+ * wrapped at ±180°, which no delivery area crosses. Not thread-safe; {@link RiderLocationService}
+ * guards it with its own lock.
+ */
+public class RiderLocationIndex {
+
+    public record Position(String riderId, double latitude, double longitude, boolean available, long updatedAt) {
+    }
+
+    public record Neighbor(Position position, double distanceKm) {
+    }
+
+    public record Bounds(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+
+        public static final Bounds WORLD = new Bounds(-90, -180, 90, 180);
+
+        public boolean contains(double latitude, double longitude) {
+            return latitude >= minLatitude && latitude <= maxLatitude
+                    && longitude >= minLongitude && longitude <= maxLongitude;
+        }
+    }
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = Math.toRadians(1) * EARTH_RADIUS_KM;
+    private static final int NONE = -1;
+    // No cell has this key: its row would be Integer.MIN_VALUE cells south of the equator
+    private static final long FREE = Long.MIN_VALUE;
+
+    private final double cellDegrees;
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private String[] riderIds;
+    private double[] latitudes;
+    private double[] longitudes;
+    private long[] updatedAt;
+    private boolean[] available;
+    private long[] cellOf;
+    private int[] next;
+    private int[] prev;
+    // Slots below this were handed out at least once; released ones wait in freeSlots
+    private int slotLimit;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    // Riders updated since the last drainChanged, each listed once
+    private boolean[] changed;
+    private int[] changedSlots;
+    private int changedCount;
+
+    // Cells ever used, with the first rider of each (NONE once emptied)
+    private long[] cellKeys;
+    private int[] cellHeads;
+    private int cellCount;
+
+    public RiderLocationIndex(double cellDegrees) {
+        if (!(cellDegrees > 0)) {
+            throw new IllegalArgumentException("cellDegrees must be positive");
+        }
+        this.cellDegrees = cellDegrees;
+        growSlots(1024);
+        this.cellKeys = new long[1024];
+        this.cellHeads = new int[1024];
+        Arrays.fill(cellKeys, FREE);
+    }
+
+    /**
+     * Moves the rider to the position, adding riders not seen before.
+     *
+     * @param available null keeps the rider's availability (new riders are available)
+     */
+    public void update(String riderId, double latitude, double longitude, Boolean available, long now) {
+        long cell = cellKey(latitude, longitude);
+        Integer existing = slots.get(riderId);
+        int slot;
+        if (existing == null) {
+            slot = allocate(riderId);
+            this.available[slot] = available == null || available;
+            link(slot, cell);
+        } else {
+            slot = existing;
+            if (available != null) {
+                this.available[slot] = available;
+            }
+            if (cellOf[slot] != cell) {
+                unlink(slot);
+                link(slot, cell);
+            }
+        }
+        latitudes[slot] = latitude;
+        longitudes[slot] = longitude;
+        updatedAt[slot] = now;
+        if (!changed[slot]) {
+            changed[slot] = true;
+            changedSlots[changedCount++] = slot;
+        }
+    }
+
+    public boolean remove(String riderId) {
+        Integer slot = slots.remove(riderId);
+        if (slot == null) {
+            return false;
+        }
+        release(slot);
+        return true;
+    }
+
+    /**
+     * Removes riders whose last ping is older than the cutoff.
+     *
+     * @return the removed rider ids
+     */
+    public List<String> removeOlderThan(long cutoff) {
+        List<String> removed = new ArrayList<>();
+        for (int slot = 0; slot < slotLimit; slot++) {
+            if (riderIds[slot] != null && updatedAt[slot] < cutoff) {
+                removed.add(riderIds[slot]);
+                slots.remove(riderIds[slot]);
+                release(slot);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * @return riders updated since the previous call, once each with their latest position
+     */
+    public List<Position> drainChanged() {
+        List<Position> positions = new ArrayList<>(changedCount);
+        for (int i = 0; i < changedCount; i++) {
+            int slot = changedSlots[i];
+            changed[slot] = false;
+            // Removed since the update; its removal is reported separately
+            if (riderIds[slot] != null) {
+                positions.add(position(slot));
+            }
+        }
+        changedCount = 0;
+        return positions;
+    }
+
+    public Position get(String riderId) {
+        Integer slot = slots.get(riderId);
+        return slot != null ? position(slot) : null;
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * @param updatedSince riders whose last ping is older are skipped
+     * @return up to limit riders inside the bounds, in no particular order
+     */
+    public List<Position> within(Bounds bounds, boolean onlyAvailable, long updatedSince, int limit) {
+        List<Position> found = new ArrayList<>();
+        long minX = column(bounds.minLongitude());
+        long maxX = column(bounds.maxLongitude());
+        long minY = row(bounds.minLatitude());
+        long maxY = row(bounds.maxLatitude());
+
+        if ((maxX - minX + 1) * (maxY - minY + 1) > cellCount) {
+            // Fewer cells in use than covered by the bounds: walk the used ones instead
+            for (int i = 0; i < cellKeys.length && found.size() < limit; i++) {
+                long key = cellKeys[i];
+                if (key != FREE && between(rowOf(key), minY, maxY) && between(columnOf(key), minX, maxX)) {
+                    collect(cellHeads[i], bounds, onlyAvailable, updatedSince, limit, found);
+                }
+            }
+            return found;
+        }
+
+        for (long y = minY; y <= maxY && found.size() < limit; y++) {
+            for (long x = minX; x <= maxX && found.size() < limit; x++) {
+                int cell = findCell(key(y, x));
+                if (cell != NONE) {
+                    collect(cellHeads[cell], bounds, onlyAvailable, updatedSince, limit, found);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param updatedSince riders whose last ping is older are skipped
+     * @return the n riders closest to the point within maxDistanceKm, closest first
+     */
+    public List<Neighbor> nearest(double latitude, double longitude, int n, double maxDistanceKm,
+                                  boolean onlyAvailable, long updatedSince) {
+        Nearest nearest = new Nearest(Math.max(1, n), latitude, longitude, maxDistanceKm, onlyAvailable, updatedSince);
+        long centerY = row(latitude);
+        long centerX = column(longitude);
+
+        // A cell side is shortest in longitude, and shorter the closer to a pole
+        double farthestLatitude = Math.min(89.9, Math.abs(latitude) + maxDistanceKm / KM_PER_DEGREE + cellDegrees);
+        double minCellKm = cellDegrees * KM_PER_DEGREE * Math.cos(Math.toRadians(farthestLatitude));
+        long maxRing = (long) Math.ceil(maxDistanceKm / minCellKm) + 1;
+
+        long visited = 0;
+        for (long ring = 0; ring <= maxRing; ring++) {
+            // Riders in this ring are at least ring - 1 cell sides away from the point
+            if (nearest.isFull() && nearest.worstDistance() <= (ring - 1) * minCellKm) {
+                break;
+            }
+            long ringCells = ring == 0 ? 1 : 8 * ring;
+            if (visited + ringCells > cellCount) {
+                // Cheaper to walk every used cell than to keep probing mostly unused ones
+                for (int i = 0; i < cellKeys.length; i++) {
+                    long key = cellKeys[i];
+                    if (key != FREE && Math.max(Math.abs(rowOf(key) - centerY), Math.abs(columnOf(key) - centerX)) >= ring) {
+                        nearest.visit(cellHeads[i]);
+                    }
+                }
+                break;
+            }
+            visitRing(nearest, centerY, centerX, ring);
+            visited += ringCells;
+        }
+        return nearest.result();
+    }
+
+    private void visitRing(Nearest nearest, long centerY, long centerX, long ring) {
+        if (ring == 0) {
+            visitCell(nearest, centerY, centerX);
+            return;
+        }
+        for (long x = centerX - ring; x <= centerX + ring; x++) {
+            visitCell(nearest, centerY - ring, x);
+            visitCell(nearest, centerY + ring, x);
+        }
+        for (long y = centerY - ring + 1; y <= centerY + ring - 1; y++) {
+            visitCell(nearest, y, centerX - ring);
+            visitCell(nearest, y, centerX + ring);
+        }
+    }
+
+    private void visitCell(Nearest nearest, long y, long x) {
+        int cell = findCell(key(y, x));
+        if (cell != NONE) {
+            nearest.visit(cellHeads[cell]);
+        }
+    }
+
+    private void collect(int head, Bounds bounds, boolean onlyAvailable, long updatedSince, int limit,
+                         List<Position> found) {
+        for (int slot = head; slot != NONE && found.size() < limit; slot = next[slot]) {
+            if (matches(slot, onlyAvailable, updatedSince) && bounds.contains(latitudes[slot], longitudes[slot])) {
+                found.add(position(slot));
+            }
+        }
+    }
+
+    private boolean matches(int slot, boolean onlyAvailable, long updatedSince) {
+        return (!onlyAvailable || available[slot]) && updatedAt[slot] >= updatedSince;
+    }
+
+    private Position position(int slot) {
+        return new Position(riderIds[slot], latitudes[slot], longitudes[slot], available[slot], updatedAt[slot]);
+    }
+
+    /**
+     * Great-circle distance in kilometres.
+     */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * The n closest riders seen so far, kept sorted by distance.
+     */
+    private final class Nearest {
+        private final int[] best;
+        private final double[] bestDistance;
+        private final double latitude;
+        private final double longitude;
+        private final double maxDistanceKm;
+        private final boolean onlyAvailable;
+        private final long updatedSince;
+        private int size;
+
+        private Nearest(int n, double latitude, double longitude, double maxDistanceKm, boolean onlyAvailable,
+                        long updatedSince) {
+            this.best = new int[n];
+            this.bestDistance = new double[n];
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.maxDistanceKm = maxDistanceKm;
+            this.onlyAvailable = onlyAvailable;
+            this.updatedSince = updatedSince;
+        }
+
+        void visit(int head) {
+            for (int slot = head; slot != NONE; slot = next[slot]) {
+                if (!matches(slot, onlyAvailable, updatedSince)) {
+                    continue;
+                }
+                double distance = distanceKm(latitude, longitude, latitudes[slot], longitudes[slot]);
+                if (distance > maxDistanceKm || (isFull() && distance >= worstDistance())) {
+                    continue;
+                }
+                int i = isFull() ? size - 1 : size++;
+                for (; i > 0 && bestDistance[i - 1] > distance; i--) {
+                    best[i] = best[i - 1];
+                    bestDistance[i] = bestDistance[i - 1];
+                }
+                best[i] = slot;
+                bestDistance[i] = distance;
+            }
+        }
+
+        boolean isFull() {
+            return size == best.length;
+        }
+
+        double worstDistance() {
+            return bestDistance[size - 1];
+        }
+
+        List<Neighbor> result() {
+            List<Neighbor> result = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                result.add(new Neighbor(position(best[i]), bestDistance[i]));
+            }
+            return result;
+        }
+    }
+
+    // Slots
+
+    private int allocate(String riderId) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (slotLimit == riderIds.length) {
+                growSlots(riderIds.length * 2);
+            }
+            slot = slotLimit++;
+        }
+        riderIds[slot] = riderId;
+        slots.put(riderId, slot);
+        return slot;
+    }
+
+    private void release(int slot) {
+        unlink(slot);
+        riderIds[slot] = null;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private void growSlots(int capacity) {
+        riderIds = riderIds == null ? new String[capacity] : Arrays.copyOf(riderIds, capacity);
+        latitudes = latitudes == null ? new double[capacity] : Arrays.copyOf(latitudes, capacity);
+        longitudes = longitudes == null ? new double[capacity] : Arrays.copyOf(longitudes, capacity);
+        updatedAt = updatedAt == null ? new long[capacity] : Arrays.copyOf(updatedAt, capacity);
+        available = available == null ? new boolean[capacity] : Arrays.copyOf(available, capacity);
+        cellOf = cellOf == null ? new long[capacity] : Arrays.copyOf(cellOf, capacity);
+        next = next == null ? new int[capacity] : Arrays.copyOf(next, capacity);
+        prev = prev == null ? new int[capacity] : Arrays.copyOf(prev, capacity);
+        changed = changed == null ? new boolean[capacity] : Arrays.copyOf(changed, capacity);
+        changedSlots = changedSlots == null ? new int[capacity] : Arrays.copyOf(changedSlots, capacity);
+    }
+
+    private void link(int slot, long key) {
+        int cell = findOrAddCell(key);
+        int head = cellHeads[cell];
+        next[slot] = head;
+        prev[slot] = NONE;
+        if (head != NONE) {
+            prev[head] = slot;
+        }
+        cellHeads[cell] = slot;
+        cellOf[slot] = key;
+    }
+
+    private void unlink(int slot) {
+        if (prev[slot] != NONE) {
+            next[prev[slot]] = next[slot];
+        } else {
+            cellHeads[findCell(cellOf[slot])] = next[slot];
+        }
+        if (next[slot] != NONE) {
+            prev[next[slot]] = prev[slot];
+        }
+    }
+
+    // Cells
+
+    private long row(double latitude) {
+        return (long) Math.floor(latitude / cellDegrees);
+    }
+
+    private long column(double longitude) {
+        return (long) Math.floor(longitude / cellDegrees);
+    }
+
+    private long cellKey(double latitude, double longitude) {
+        return key(row(latitude), column(longitude));
+    }
+
+    private static long key(long row, long column) {
+        return (row << 32) | (column & 0xffffffffL);
+    }
+
+    private static long rowOf(long key) {
+        return key >> 32;
+    }
+
+    private static long columnOf(long key) {
+        return (int) key;
+    }
+
+    private static boolean between(long value, long min, long max) {
+        return value >= min && value <= max;
+    }
+
+    private int findCell(long key) {
+        int mask = cellKeys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            if (cellKeys[i] == key) {
+                return i;
+            }
+            if (cellKeys[i] == FREE) {
+                return NONE;
+            }
+        }
+    }
+
+    private int findOrAddCell(long key) {
+        int mask = cellKeys.length - 1;
+        int i = hash(key) & mask;
+        for (; cellKeys[i] != FREE; i = (i + 1) & mask) {
+            if (cellKeys[i] == key) {
+                return i;
+            }
+        }
+        if (2 * (cellCount + 1) > cellKeys.length) {
+            growCells();
+            return findOrAddCell(key);
+        }
+        cellKeys[i] = key;
+        cellHeads[i] = NONE;
+        cellCount++;
+        return i;
+    }
+
+    private void growCells() {
+        long[] oldKeys = cellKeys;
+        int[] oldHeads = cellHeads;
+        cellKeys = new long[oldKeys.length * 2];
+        cellHeads = new int[oldKeys.length * 2];
+        Arrays.fill(cellKeys, FREE);
+        int mask = cellKeys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != FREE) {
+                int i = hash(oldKeys[j]) & mask;
+                while (cellKeys[i] != FREE) {
+                    i = (i + 1) & mask;
+                }
+                cellKeys[i] = oldKeys[j];
+                cellHeads[i] = oldHeads[j];
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,120 @@
+package com.ordertracking.service;
+
+import com.ordertracking.service.RiderLocationIndex.Bounds;
+import com.ordertracking.service.RiderLocationIndex.Neighbor;
+import com.ordertracking.service.RiderLocationIndex.Position;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+/**
+ * Live rider positions from the location pings, for dispatch queries and SSE map views.
+ *
+ * Pings update the in-memory {@link RiderLocationIndex} and are appended to the rider's history in
+ * {@link LocationHistoryStore}; they do not go through Kafka, so every backend instance knows the
+ * live positions of the riders whose pings it received. Riders without
+ * a ping for {@code location.stale-after-ms} are dropped. Changed positions are collected and
+ * pushed to map views once per {@code location.stream.interval-ms}, so a rider pinging faster
+ * than that costs one frame entry per interval.
+ */
+@Service
+public class RiderLocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(RiderLocationService.class);
+
+    private final SSEService sseService;
+    private final LocationHistoryStore historyStore;
+    private final PipelineMetrics pipelineMetrics;
+    private final long staleAfterMillis;
+    private final double maxDistanceKm;
+
+    // Guarded by "this"
+    private final RiderLocationIndex index;
+
+    public RiderLocationService(SSEService sseService,
+                                LocationHistoryStore historyStore,
+                                PipelineMetrics pipelineMetrics,
+                                @Value("${location.grid.cell-degrees:0.01}") double cellDegrees,
+                                @Value("${location.stale-after-ms:60000}") long staleAfterMillis,
+                                @Value("${location.nearest.max-distance-km:20}") double maxDistanceKm) {
+        this.sseService = sseService;
+        this.historyStore = historyStore;
+        this.pipelineMetrics = pipelineMetrics;
+        this.staleAfterMillis = staleAfterMillis;
+        this.maxDistanceKm = maxDistanceKm;
+        this.index = new RiderLocationIndex(cellDegrees);
+
+        pipelineMetrics.gauge("order.location.riders", "Riders with a recent location ping", this::getRiderCount);
+    }
+
+    /**
+     * @param available null keeps the rider's last reported availability
+     */
+    public void recordPing(String riderId, double latitude, double longitude, Boolean available) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            index.update(riderId, latitude, longitude, available, now);
+        }
+        historyStore.append(riderId, now, latitude, longitude);
+        pipelineMetrics.locationPing();
+    }
+
+    /**
+     * @return the n riders closest to the point, closest first, no farther than
+     *         {@code location.nearest.max-distance-km}
+     */
+    public synchronized List<Neighbor> nearest(double latitude, double longitude, int n, boolean onlyAvailable) {
+        return index.nearest(latitude, longitude, n, maxDistanceKm, onlyAvailable, freshSince());
+    }
+
+    public synchronized List<Position> within(Bounds bounds, boolean onlyAvailable, int limit) {
+        return index.within(bounds, onlyAvailable, freshSince(), limit);
+    }
+
+    public synchronized Position get(String riderId) {
+        Position position = index.get(riderId);
+        return position != null && position.updatedAt() >= freshSince() ? position : null;
+    }
+
+    /**
+     * Opens a map view stream: a LOCATION_SNAPSHOT frame with the riders inside the bounds, then
+     * RIDER_LOCATIONS frames with the changes. The snapshot is taken and the client registered
+     * under the index lock, so no change drained in between is lost.
+     */
+    public synchronized SseEmitter subscribe(Bounds bounds) {
+        List<Position> snapshot = index.within(bounds, false, freshSince(), Integer.MAX_VALUE);
+        return sseService.createLocationEmitter(bounds, snapshot);
+    }
+
+    /**
+     * Drops stale riders and pushes the positions changed since the last run to the map views.
+     */
+    @Scheduled(fixedDelayString = "${location.stream.interval-ms:1000}")
+    public void publishChanges() {
+        List<String> removed;
+        List<Position> changed;
+        synchronized (this) {
+            removed = index.removeOlderThan(System.currentTimeMillis() - staleAfterMillis);
+            changed = index.drainChanged();
+        }
+        if (!removed.isEmpty()) {
+            log.debug("Dropped {} riders without a location ping for {} ms", removed.size(), staleAfterMillis);
+        }
+        if (!changed.isEmpty() || !removed.isEmpty()) {
+            sseService.sendRiderLocations(changed, removed);
+        }
+    }
+
+    public synchronized int getRiderCount() {
+        return index.size();
+    }
+
+    private long freshSince() {
+        return System.currentTimeMillis() - staleAfterMillis;
+    }
+}
@@ -0,0 +1,173 @@
+package com.ordertracking.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-rider token buckets for the rider order API.
+ *
+ * Every rider belongs to a class with a sustained rate and a burst size, configured as
+ * {@code rider.rate-limit.classes=<class>:<requests per second>:<burst>,...}. Riders whose id starts
+ * with a prefix in {@code rider.rate-limit.class-prefixes=<prefix>:<class>,...} (longest prefix wins)
+ * are in that class, all others in {@code rider.rate-limit.default-class}.
+ *
+ * A bucket is a single AtomicLong holding the time at which it will be full again; taking a token
+ * pushes that time one interval further, in one compare-and-set, and is refused when it would lie
+ * more than a burst ahead of now. A bucket that is full again is indistinguishable from a new one,
+ * so full buckets are dropped every {@code rider.rate-limit.sweep-interval-ms}. At most
+ * {@code rider.rate-limit.max-riders} riders are tracked; past that, riders without a bucket are let
+ * through untracked until a sweep frees room, rather than growing without bound.
+ */
+@Service
+public class RiderRateLimiter {
+
+    private final Map<String, RiderClass> classes = new LinkedHashMap<>();
+    private final List<Map.Entry<String, RiderClass>> prefixes = new ArrayList<>();
+    private final RiderClass defaultClass;
+    private final int maxRiders;
+    private final long sweepIntervalNanos;
+    private final PipelineMetrics pipelineMetrics;
+
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweep = new AtomicLong(System.nanoTime());
+
+    public RiderRateLimiter(PipelineMetrics pipelineMetrics,
+                            @Value("${rider.rate-limit.classes:standard:2:10}") List<String> classes,
+                            @Value("${rider.rate-limit.class-prefixes:}") List<String> prefixes,
+                            @Value("${rider.rate-limit.default-class:standard}") String defaultClass,
+                            @Value("${rider.rate-limit.max-riders:100000}") int maxRiders,
+                            @Value("${rider.rate-limit.sweep-interval-ms:10000}") long sweepIntervalMillis) {
+        this.pipelineMetrics = pipelineMetrics;
+        for (String entry : classes) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("rider.rate-limit.classes entry '" + entry
+                        + "' must be <class>:<requests per second>:<burst>");
+            }
+            RiderClass riderClass = new RiderClass(parts[0], Double.parseDouble(parts[1]), Integer.parseInt(parts[2]));
+            this.classes.put(riderClass.name(), riderClass);
+        }
+        for (String entry : prefixes) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2 || parts[0].isEmpty()) {
+                throw new IllegalArgumentException("rider.rate-limit.class-prefixes entry '" + entry
+                        + "' must be <rider id prefix>:<class>");
+            }
+            this.prefixes.add(Map.entry(parts[0], classNamed(parts[1])));
+        }
+        // Longest prefix first, so the first match is the most specific one
+        this.prefixes.sort((a, b) -> b.getKey().length() - a.getKey().length());
+        this.defaultClass = classNamed(defaultClass);
+        this.maxRiders = Math.max(1, maxRiders);
+        this.sweepIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, sweepIntervalMillis));
+
+        pipelineMetrics.gauge("order.rider.ratelimit.tracked", "Riders with a partly used rate limit bucket", buckets::size);
+    }
+
+    /**
+     * Takes a token from the rider's bucket.
+     *
+     * @return 0 if the request may proceed, otherwise the nanoseconds until the next token
+     */
+    public long tryAcquire(String riderId) {
+        return tryAcquire(riderId, System.nanoTime());
+    }
+
+    long tryAcquire(String riderId, long nowNanos) {
+        sweepIfDue(nowNanos);
+
+        Bucket bucket = buckets.get(riderId);
+        if (bucket == null) {
+            if (buckets.size() >= maxRiders) {
+                pipelineMetrics.riderRateLimitUntracked();
+                return 0;
+            }
+            bucket = buckets.computeIfAbsent(riderId, id -> new Bucket(classOf(id), nowNanos));
+        }
+        RiderClass riderClass = bucket.riderClass;
+        while (true) {
+            long fullAt = bucket.fullAt.get();
+            long next = Math.max(fullAt, nowNanos) + riderClass.intervalNanos();
+            long ahead = next - nowNanos - riderClass.burstNanos();
+            if (ahead > 0) {
+                pipelineMetrics.riderThrottled(riderClass.name());
+                return ahead;
+            }
+            if (bucket.fullAt.compareAndSet(fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @return the class the rider's requests are limited by
+     */
+    public RiderClass classOf(String riderId) {
+        for (Map.Entry<String, RiderClass> prefix : prefixes) {
+            if (riderId.startsWith(prefix.getKey())) {
+                return prefix.getValue();
+            }
+        }
+        return defaultClass;
+    }
+
+    public int getTrackedRiders() {
+        return buckets.size();
+    }
+
+    private void sweepIfDue(long nowNanos) {
+        long due = nextSweep.get();
+        if (nowNanos - due < 0 || !nextSweep.compareAndSet(due, nowNanos + sweepIntervalNanos)) {
+            return;
+        }
+        buckets.values().removeIf(bucket -> bucket.fullAt.get() - nowNanos <= 0);
+    }
+
+    private RiderClass classNamed(String name) {
+        RiderClass riderClass = classes.get(name.trim());
+        if (riderClass == null) {
+            throw new IllegalArgumentException("Unknown rider class '" + name + "', configured classes are "
+                    + classes.keySet());
+        }
+        return riderClass;
+    }
+
+    public record RiderClass(String name, double perSecond, int burst) {
+
+        public RiderClass {
+            if (perSecond <= 0 || burst < 1) {
+                throw new IllegalArgumentException("Rider class " + name + " needs a positive rate and a burst of at least 1");
+            }
+        }
+
+        long intervalNanos() {
+            return (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+        }
+
+        long burstNanos() {
+            return intervalNanos() * burst;
+        }
+    }
+
+    private static final class Bucket {
+
+        private final RiderClass riderClass;
+        private final AtomicLong fullAt;
+
+        private Bucket(RiderClass riderClass, long nowNanos) {
+            this.riderClass = riderClass;
+            this.fullAt = new AtomicLong(nowNanos);
+        }
+    }
+}
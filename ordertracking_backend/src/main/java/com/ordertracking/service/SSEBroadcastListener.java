@@ -0,0 +1,75 @@
+package com.ordertracking.service;
+
+import com.ordertracking.dto.OrderEventDTO;
+import com.ordertracking.dto.SSEEventDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Feeds this node's SSE clients in broadcast fan-out mode ({@code sse.fanout.mode=broadcast}).
+ *
+ * Each backend instance joins the order topics, shared and per zone, with its own consumer group,
+ * so every node sees every event no matter which node's persistence consumer owns the partition
+ * or which zones it persists. Persistence stays
+ * in the shared {@code order-tracking-group}, so each event is still saved exactly once.
+ */
+@Service
+@ConditionalOnProperty(name = "sse.fanout.mode", havingValue = "broadcast")
+public class SSEBroadcastListener {
+
+    private static final Logger log = LoggerFactory.getLogger(SSEBroadcastListener.class);
+
+    private final SSEService sseService;
+    private final DelayMonitor delayMonitor;
+    private final String groupId;
+    private final EventDeduplicator recentEvents = new EventDeduplicator(2000, 10000);
+
+    public SSEBroadcastListener(SSEService sseService,
+                                DelayMonitor delayMonitor,
+                                @Value("${sse.fanout.broadcast.group-prefix:order-tracking-broadcast}") String groupPrefix,
+                                @Value("${sse.fanout.broadcast.instance-id:${HOSTNAME:}}") String instanceId) {
+        this.sseService = sseService;
+        this.delayMonitor = delayMonitor;
+        this.groupId = groupPrefix + "-" + (instanceId.isBlank() ? UUID.randomUUID() : instanceId);
+        log.info("SSE broadcast fan-out enabled, consumer group {}", groupId);
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    // Dashboards only need live events, so a new instance starts at the end of the topic
+    @KafkaListener(id = "sseBroadcast", topics = "#{@zoneRouting.orderTopics}",
+            groupId = "#{__listener.groupId}",
+            concurrency = "${sse.fanout.broadcast.concurrency:1}",
+            properties = "auto.offset.reset=latest")
+    public void broadcast(OrderEventDTO orderEventDTO) {
+        if (orderEventDTO.getEventTimestamp() == null) {
+            orderEventDTO.setEventTimestamp(LocalDateTime.now());
+        }
+
+        String eventKey = orderEventDTO.getOrderId() + "-" +
+                orderEventDTO.getStatus() + "-" +
+                orderEventDTO.getEventTimestamp().toString();
+        if (!recentEvents.firstSeen(eventKey, System.currentTimeMillis())) {
+            return;
+        }
+
+        sseService.sendEvent(new SSEEventDTO(
+                orderEventDTO.getOrderId(),
+                orderEventDTO.getRiderId(),
+                orderEventDTO.getStatus(),
+                orderEventDTO.getEventTimestamp()
+        ));
+        // Every node tracks every order, so delay alerts reach the clients of all nodes
+        delayMonitor.onEvent(orderEventDTO.getOrderId(), orderEventDTO.getRiderId(), orderEventDTO.getStatus(),
+                orderEventDTO.getEventTimestamp());
+    }
+}
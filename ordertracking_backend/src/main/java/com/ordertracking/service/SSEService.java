@@ -3,8 +3,12 @@ package com.ordertracking.service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ordertracking.dto.SSEEventDTO;
+import com.ordertracking.service.RiderLocationIndex.Bounds;
+import com.ordertracking.service.RiderLocationIndex.Position;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -12,51 +16,195 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class SSEService {
 
     private static final Logger log = LoggerFactory.getLogger(SSEService.class);
+    // Frames a sender thread writes to one client before letting the other clients have a turn
+    private static final int FRAMES_PER_TURN = 64;
 
-    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    // Map views, which get rider positions instead of order updates
+    private final List<Client> mapClients = new CopyOnWriteArrayList<>();
     private final ObjectMapper objectMapper;
     private final AtomicInteger connectionCounter = new AtomicInteger(0);
+    // Frames queued for clients and not yet written
+    private final AtomicInteger queuedFrames = new AtomicInteger(0);
+    // Order updates held back by coalescing clients until their window closes
+    private final AtomicInteger bufferedUpdates = new AtomicInteger(0);
+    private final PipelineMetrics pipelineMetrics;
+    private final OrderStateStore stateStore;
+    private final long maxCoalesceMillis;
+    private final int maxQueuedFrames;
+    private final ScheduledExecutorService flushScheduler;
+    private final ExecutorService sender;
+    // Only touched by the scheduled leaderboard push
+    private long pushedLeaderboardVersion = -1;
 
-    public SSEService(ObjectMapper objectMapper) {
+    public SSEService(ObjectMapper objectMapper, PipelineMetrics pipelineMetrics, OrderStateStore stateStore,
+                      @Value("${sse.coalesce.max-window-ms:5000}") long maxCoalesceMillis,
+                      @Value("${sse.sender.threads:4}") int senderThreads,
+                      @Value("${sse.client.max-queued-frames:1000}") int maxQueuedFrames) {
         this.objectMapper = objectMapper;
+        this.pipelineMetrics = pipelineMetrics;
+        this.stateStore = stateStore;
+        this.maxCoalesceMillis = maxCoalesceMillis;
+        this.maxQueuedFrames = maxQueuedFrames;
+        this.flushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sse-coalesce");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger senderCount = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread thread = new Thread(r, "sse-sender-" + senderCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
         // Configure ObjectMapper to use ISO format
         objectMapper.findAndRegisterModules();
+
+        pipelineMetrics.gauge("order.sse.connections", "Active SSE connections", this::getActiveConnections);
+        pipelineMetrics.gauge("order.sse.queue.depth", "SSE frames waiting to be written", this::getQueueDepth);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushScheduler.shutdownNow();
+        sender.shutdownNow();
     }
 
     public SseEmitter createEmitter() {
-        SseEmitter emitter = new SseEmitter(3600000L); // 1 hour timeout
+        return createEmitter(0);
+    }
+
+    /**
+     * @param coalesceMillis 0 to push every ORDER_UPDATE as it happens; otherwise updates are
+     *                       collected per orderId for this long and sent as one ORDER_UPDATES frame
+     *                       holding the latest state of each order
+     */
+    public SseEmitter createEmitter(long coalesceMillis) {
+        return register(new SseEmitter(3600000L), coalesceMillis); // 1 hour timeout
+    }
+
+    SseEmitter register(SseEmitter emitter, long coalesceMillis) {
+        int connectionId = connectionCounter.incrementAndGet();
+        Client client = new Client(emitter, connectionId, Math.max(0, Math.min(coalesceMillis, maxCoalesceMillis)), null);
+        registerCallbacks(client);
+
+        registerWithSnapshot(client);
+        log.info("New SSE connection created. ID: {}, coalesce window: {} ms, Total connections: {}",
+                connectionId, client.coalesceMillis, clients.size());
+
+        return emitter;
+    }
 
+    /**
+     * Opens a map view: a LOCATION_SNAPSHOT frame with the given riders, then RIDER_LOCATIONS
+     * frames with the riders that moved inside the bounds and the ids of those that left them or
+     * went stale, see {@link RiderLocationService#subscribe}.
+     */
+    public SseEmitter createLocationEmitter(Bounds bounds, List<Position> snapshot) {
+        SseEmitter emitter = new SseEmitter(3600000L);
         int connectionId = connectionCounter.incrementAndGet();
+        Client client = new Client(emitter, connectionId, 0, bounds);
+        registerCallbacks(client);
 
+        for (Position position : snapshot) {
+            client.visibleRiders.add(position.riderId());
+        }
+        try {
+            offer(client, SseEmitter.event()
+                    .id("locations-" + System.currentTimeMillis())
+                    .name("LOCATION_SNAPSHOT")
+                    .data(objectMapper.writeValueAsString(Map.of("riders", snapshot)), MediaType.APPLICATION_JSON));
+        } catch (JsonProcessingException e) {
+            log.error("Error serializing location snapshot, map view {} starts without one", connectionId, e);
+        }
+        mapClients.add(client);
+        log.info("New SSE map view created. ID: {}, bounds: {}, riders: {}", connectionId, bounds, snapshot.size());
+
+        return emitter;
+    }
+
+    private void registerCallbacks(Client client) {
+        SseEmitter emitter = client.emitter;
+        int connectionId = client.connectionId;
         emitter.onCompletion(() -> {
             log.info("SSE connection {} completed", connectionId);
-            removeEmitter(emitter);
+            removeClient(client);
         });
 
         emitter.onTimeout(() -> {
             log.info("SSE connection {} timed out", connectionId);
             sendReconnectEvent(emitter, connectionId);
-            removeEmitter(emitter);
+            removeClient(client);
         });
 
         emitter.onError((ex) -> {
             log.error("SSE connection {} error: {}", connectionId, ex.getMessage());
-            removeEmitter(emitter);
+            removeClient(client);
         });
+    }
 
-        emitters.add(emitter);
-        log.info("New SSE connection created. ID: {}, Total connections: {}", connectionId, emitters.size());
+    /**
+     * Joins the client to the fan-out atomically with respect to {@link OrderStateStore#apply}:
+     * updates up to the snapshot sequence are in the snapshot, later ones reach the client as
+     * deltas. The client's outbox is held while the snapshot is serialized outside the store lock,
+     * then the SNAPSHOT frame is put in front of the deltas queued meanwhile and a sender thread
+     * writes it like every other frame, so a slow client never holds the store lock.
+     */
+    private void registerWithSnapshot(Client client) {
+        client.awaitingSnapshot = true;
+        SseEmitter.SseEventBuilder snapshot = null;
+        try {
+            String snapshotJson = stateStore.snapshot(sequence -> {
+                client.snapshotSequence = sequence;
+                clients.add(client);
+            });
+            snapshot = SseEmitter.event()
+                    .id("snapshot-" + client.snapshotSequence)
+                    .name("SNAPSHOT")
+                    .data(snapshotJson, MediaType.APPLICATION_JSON);
+        } catch (JsonProcessingException e) {
+            log.error("Error serializing snapshot, client {} starts without one", client.connectionId, e);
+        }
+        releaseOutbox(client, snapshot);
+    }
 
-        return emitter;
+    private void releaseOutbox(Client client, SseEmitter.SseEventBuilder first) {
+        boolean startDrain;
+        synchronized (client) {
+            client.awaitingSnapshot = false;
+            if (client.closed) {
+                return;
+            }
+            if (first != null) {
+                client.outbox.addFirst(first);
+                queuedFrames.incrementAndGet();
+            }
+            startDrain = !client.draining && !client.outbox.isEmpty();
+            client.draining |= startDrain;
+        }
+        if (startDrain) {
+            scheduleDrain(client);
+        }
     }
 
     private void sendReconnectEvent(SseEmitter emitter, int connectionId) {
@@ -75,74 +223,289 @@ public class SSEService {
         }
     }
 
+    /**
+     * Queues the update for every client. The frames are written by the sender threads, so a slow
+     * client never blocks the caller, i.e. the Kafka listener; the resulting queue depth is what
+     * {@link ConsumerFlowControl} watches instead.
+     */
     public void sendEvent(SSEEventDTO event) {
-        if (emitters.isEmpty()) {
+        long sequence = stateStore.apply(event);
+        if (clients.isEmpty()) {
             return;
         }
 
-        List<SseEmitter> deadEmitters = new ArrayList<>();
+        long start = System.nanoTime();
+        String eventJson;
+        try {
+            // Serialize once for all clients
+            eventJson = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            log.error("Error serializing event: {}", event, e);
+            return;
+        }
 
-        for (SseEmitter emitter : emitters) {
-            try {
-                String eventJson = objectMapper.writeValueAsString(event);
+        for (Client client : clients) {
+            if (client.snapshotSequence >= sequence) {
+                // Already part of the snapshot this client started from
+                continue;
+            }
+            if (client.coalesceMillis > 0) {
+                enqueue(client, event);
+                continue;
+            }
+            offer(client, SseEmitter.event()
+                    .id(event.getOrderId() + "-" + System.currentTimeMillis())
+                    .name("ORDER_UPDATE")
+                    .data(eventJson, MediaType.APPLICATION_JSON));
+        }
+        pipelineMetrics.recordSseFanout(start);
+    }
+
+    /**
+     * Appends a frame to the client's queue and makes sure a sender thread drains it. A client
+     * that falls more than {@code sse.client.max-queued-frames} behind is disconnected; its
+     * EventSource reconnects and starts over from a fresh SNAPSHOT.
+     */
+    private void offer(Client client, SseEmitter.SseEventBuilder frame) {
+        boolean overflow = false;
+        boolean startDrain = false;
+        synchronized (client) {
+            if (client.closed) {
+                return;
+            }
+            if (client.outbox.size() >= maxQueuedFrames) {
+                overflow = true;
+            } else {
+                client.outbox.add(frame);
+                queuedFrames.incrementAndGet();
+                // Held until the SNAPSHOT frame is in front of it
+                startDrain = !client.draining && !client.awaitingSnapshot;
+                client.draining |= startDrain;
+            }
+        }
 
-                emitter.send(SseEmitter.event()
-                        .id(event.getOrderId() + "-" + System.currentTimeMillis())
-                        .name("ORDER_UPDATE")
-                        .data(eventJson, MediaType.APPLICATION_JSON));
+        if (overflow) {
+            log.warn("SSE connection {} fell {} frames behind, disconnecting it", client.connectionId, maxQueuedFrames);
+            pipelineMetrics.sseClientDropped();
+            removeClient(client);
+        } else if (startDrain) {
+            scheduleDrain(client);
+        }
+    }
 
-                log.debug("Sent SSE event to client: {}", event.getOrderId());
+    private void scheduleDrain(Client client) {
+        try {
+            sender.execute(() -> drain(client));
+        } catch (RejectedExecutionException e) {
+            log.debug("SSE sender is shut down, dropping frames of connection {}", client.connectionId);
+        }
+    }
 
-            } catch (JsonProcessingException e) {
-                log.error("Error serializing event: {}", event, e);
-            } catch (IOException e) {
-                log.debug("Client disconnected, marking emitter for removal");
-                deadEmitters.add(emitter);
-            } catch (IllegalStateException e) {
-                log.debug("Emitter is in an illegal state, marking for removal");
-                deadEmitters.add(emitter);
+    private void drain(Client client) {
+        for (int sent = 0; sent < FRAMES_PER_TURN; sent++) {
+            SseEmitter.SseEventBuilder frame;
+            synchronized (client) {
+                frame = client.outbox.poll();
+                if (frame == null) {
+                    client.draining = false;
+                    return;
+                }
+            }
+            queuedFrames.decrementAndGet();
+            try {
+                client.emitter.send(frame);
+            } catch (IOException | IllegalStateException e) {
+                log.debug("SSE connection {} is gone, removing it", client.connectionId);
+                removeClient(client);
+                return;
+            }
+        }
+        // More frames left: go to the back of the line so one busy client cannot hold a sender
+        scheduleDrain(client);
+    }
+
+    private void enqueue(Client client, SSEEventDTO event) {
+        boolean scheduleFlush;
+        synchronized (client) {
+            // Re-inserting moves the order to the end, so the batch keeps the order of last updates
+            if (client.pending.remove(event.getOrderId()) == null) {
+                bufferedUpdates.incrementAndGet();
             }
+            client.pending.put(event.getOrderId(), event);
+            scheduleFlush = !client.flushScheduled;
+            client.flushScheduled = true;
+        }
+        if (scheduleFlush) {
+            flushScheduler.schedule(() -> flush(client), client.coalesceMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush(Client client) {
+        List<SSEEventDTO> batch;
+        synchronized (client) {
+            batch = new ArrayList<>(client.pending.values());
+            client.pending.clear();
+            client.flushScheduled = false;
+        }
+        if (batch.isEmpty()) {
+            return;
         }
+        bufferedUpdates.addAndGet(-batch.size());
 
-        // Remove dead emitters
-        if (!deadEmitters.isEmpty()) {
-            emitters.removeAll(deadEmitters);
-            log.debug("Removed {} dead emitters. Active connections: {}", deadEmitters.size(), emitters.size());
+        try {
+            offer(client, SseEmitter.event()
+                    .id("batch-" + System.currentTimeMillis())
+                    .name("ORDER_UPDATES")
+                    .data(objectMapper.writeValueAsString(batch), MediaType.APPLICATION_JSON));
+            log.debug("Queued {} coalesced order updates for client {}", batch.size(), client.connectionId);
+        } catch (JsonProcessingException e) {
+            log.error("Error serializing {} coalesced order updates", batch.size(), e);
         }
     }
 
-    @Scheduled(fixedRate = 30000) // Send heartbeat every 30 seconds
-    public void sendHeartbeat() {
-        if (emitters.isEmpty()) {
+    /**
+     * Pushes a LEADERBOARD frame when the leaders of any ranking changed since the last push. The
+     * frame holds the full top of every ranking, so at most one frame per interval goes out no
+     * matter how many deliveries reshuffled it.
+     */
+    @Scheduled(fixedDelayString = "${sse.leaderboard.interval-ms:1000}")
+    public void pushLeaderboard() {
+        long version = stateStore.getLeaderboardVersion();
+        if (version == pushedLeaderboardVersion || clients.isEmpty()) {
             return;
         }
 
-        List<SseEmitter> deadEmitters = new ArrayList<>();
+        Map<String, Object> leaderboards = stateStore.leaderboards();
+        String leaderboardJson;
+        try {
+            leaderboardJson = objectMapper.writeValueAsString(leaderboards);
+        } catch (JsonProcessingException e) {
+            log.error("Error serializing leaderboard", e);
+            return;
+        }
+        pushedLeaderboardVersion = (long) leaderboards.get("version");
 
-        for (SseEmitter emitter : emitters) {
-            try {
-                emitter.send(SseEmitter.event()
-                        .id("heartbeat-" + System.currentTimeMillis())
-                        .name("HEARTBEAT")
-                        .data("{\"type\":\"heartbeat\",\"timestamp\":\"" + LocalDateTime.now() + "\"}"));
+        for (Client client : clients) {
+            offer(client, SseEmitter.event()
+                    .id("leaderboard-" + pushedLeaderboardVersion)
+                    .name("LEADERBOARD")
+                    .data(leaderboardJson, MediaType.APPLICATION_JSON));
+        }
+    }
 
-            } catch (IOException | IllegalStateException e) {
-                deadEmitters.add(emitter);
+    /**
+     * Pushes a DELAY_ALERT frame for an in-transit order that passed its delivery deadline, see
+     * {@link DelayMonitor}.
+     */
+    public void sendDelayAlert(Map<String, Object> alert) {
+        if (clients.isEmpty()) {
+            return;
+        }
+
+        String alertJson;
+        try {
+            alertJson = objectMapper.writeValueAsString(alert);
+        } catch (JsonProcessingException e) {
+            log.error("Error serializing delay alert", e);
+            return;
+        }
+
+        for (Client client : clients) {
+            offer(client, SseEmitter.event()
+                    .id("delay-" + alert.get("orderId"))
+                    .name("DELAY_ALERT")
+                    .data(alertJson, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    /**
+     * Pushes a RIDER_LOCATIONS frame to every map view with the changed riders inside its bounds;
+     * riders that left the bounds or went stale are listed under "removed" for the views that
+     * showed them.
+     */
+    public void sendRiderLocations(List<Position> changed, List<String> removed) {
+        if (mapClients.isEmpty()) {
+            return;
+        }
+
+        String everywhereJson = null;
+        for (Client client : mapClients) {
+            // visibleRiders is only touched here, by the single scheduler thread, once registered
+            List<Position> riders = new ArrayList<>();
+            List<String> gone = new ArrayList<>();
+            for (Position position : changed) {
+                if (client.bounds.contains(position.latitude(), position.longitude())) {
+                    client.visibleRiders.add(position.riderId());
+                    riders.add(position);
+                } else if (client.visibleRiders.remove(position.riderId())) {
+                    gone.add(position.riderId());
+                }
             }
+            for (String riderId : removed) {
+                if (client.visibleRiders.remove(riderId)) {
+                    gone.add(riderId);
+                }
+            }
+            if (riders.isEmpty() && gone.isEmpty()) {
+                continue;
+            }
+
+            try {
+                String json;
+                if (client.bounds.equals(Bounds.WORLD)) {
+                    // Every world view gets the same frame
+                    if (everywhereJson == null) {
+                        everywhereJson = objectMapper.writeValueAsString(Map.of("riders", riders, "removed", gone));
+                    }
+                    json = everywhereJson;
+                } else {
+                    json = objectMapper.writeValueAsString(Map.of("riders", riders, "removed", gone));
+                }
+                offer(client, SseEmitter.event()
+                        .id("locations-" + System.currentTimeMillis())
+                        .name("RIDER_LOCATIONS")
+                        .data(json, MediaType.APPLICATION_JSON));
+            } catch (JsonProcessingException e) {
+                log.error("Error serializing {} rider locations", riders.size(), e);
+            }
+        }
+    }
+
+    @Scheduled(fixedRate = 30000) // Send heartbeat every 30 seconds
+    public void sendHeartbeat() {
+        if (clients.isEmpty() && mapClients.isEmpty()) {
+            return;
         }
 
-        // Clean up dead emitters
-        if (!deadEmitters.isEmpty()) {
-            emitters.removeAll(deadEmitters);
-            log.debug("Removed {} dead emitters after heartbeat", deadEmitters.size());
+        // Queued like any other frame: a dead connection shows up when its sender writes it
+        for (Client client : allClients()) {
+            offer(client, SseEmitter.event()
+                    .id("heartbeat-" + System.currentTimeMillis())
+                    .name("HEARTBEAT")
+                    .data("{\"type\":\"heartbeat\",\"timestamp\":\"" + LocalDateTime.now() + "\"}"));
         }
     }
 
-    private void removeEmitter(SseEmitter emitter) {
-        if (emitter != null) {
-            emitters.remove(emitter);
+    private List<Client> allClients() {
+        if (mapClients.isEmpty()) {
+            return clients;
+        }
+        List<Client> all = new ArrayList<>(clients);
+        all.addAll(mapClients);
+        return all;
+    }
+
+    private void removeClient(Client client) {
+        if (client != null && (clients.remove(client) || mapClients.remove(client))) {
+            synchronized (client) {
+                bufferedUpdates.addAndGet(-client.pending.size());
+                client.pending.clear();
+                queuedFrames.addAndGet(-client.outbox.size());
+                client.outbox.clear();
+                client.closed = true;
+            }
             try {
-                emitter.complete();
+                client.emitter.complete();
             } catch (Exception e) {
                 log.debug("Error completing emitter", e);
             }
@@ -150,6 +513,40 @@ public class SSEService {
     }
 
     public int getActiveConnections() {
-        return emitters.size();
+        return clients.size() + mapClients.size();
+    }
+
+    /**
+     * @return frames queued for clients plus updates held back by coalescing clients
+     */
+    public int getQueueDepth() {
+        return queuedFrames.get() + bufferedUpdates.get();
+    }
+
+    /**
+     * A connected dashboard or map view, its frames waiting for a sender thread and, in coalescing
+     * mode, its not yet flushed updates keyed by orderId. Map views also know their bounds and the
+     * riders they currently show.
+     */
+    private static final class Client {
+        private final SseEmitter emitter;
+        private final int connectionId;
+        private final long coalesceMillis;
+        private final Bounds bounds;
+        private final Set<String> visibleRiders = new HashSet<>();
+        private final Map<String, SSEEventDTO> pending = new LinkedHashMap<>();
+        private final Deque<SseEmitter.SseEventBuilder> outbox = new ArrayDeque<>();
+        private boolean flushScheduled;
+        private boolean draining;
+        private boolean awaitingSnapshot;
+        private boolean closed;
+        private volatile long snapshotSequence;
+
+        private Client(SseEmitter emitter, int connectionId, long coalesceMillis, Bounds bounds) {
+            this.emitter = emitter;
+            this.connectionId = connectionId;
+            this.coalesceMillis = coalesceMillis;
+            this.bounds = bounds;
+        }
     }
-}
\ No newline at end of file
+}
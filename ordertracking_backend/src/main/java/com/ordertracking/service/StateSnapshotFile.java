@@ -0,0 +1,274 @@
+package com.ordertracking.service;
+
+import com.ordertracking.dto.SSEEventDTO;
+import com.ordertracking.model.OrderDailySummary;
+import org.apache.kafka.common.TopicPartition;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Binary checkpoint of the consumer's in-memory state, tagged with the Kafka offsets it reflects.
+ *
+ * <pre>
+ * "OTSS" version:u8 createdAtMillis:i64 topic:str
+ * offsets: count:i32, then topic:str partition:i32 nextOffset:i64
+ * store:   sequence:i64 summaryEpochDay:i64, active and delivered orders (count:i32 + order each),
+ *          summaries (count:i32 + summary each, ending in zone:str)
+ * late events: newestEventMicros:i64 (Long.MIN_VALUE if none), dirty cells (count:i32 + rider:str epochDay:i64)
+ * crc32 of everything before it:i32
+ * </pre>
+ *
+ * Strings are length:i32 + UTF-8, with length -1 for null; all numbers are big-endian. A snapshot
+ * that fails any check is rejected as a whole, so a half-written or damaged file can never be
+ * restored partially.
+ */
+public final class StateSnapshotFile {
+
+    private static final byte[] MAGIC = {'O', 'T', 'S', 'S'};
+    // 2: offsets per topic partition (zone topics), summaries with their zone
+    private static final byte FORMAT_VERSION = 2;
+    private static final long NO_VALUE = Long.MIN_VALUE;
+
+    record Contents(long createdAtMillis, String topic, OrderStateStore.StoreState store,
+                    LocalDateTime newestEventTime, List<LateEventCorrector.SummaryCell> dirtyCells) {
+    }
+
+    private StateSnapshotFile() {
+    }
+
+    /**
+     * Writes the snapshot to {@code path}, replacing it atomically.
+     *
+     * @return the size of the file in bytes
+     */
+    static long write(Path path, Contents contents) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        out.writeLong(contents.createdAtMillis());
+        writeString(out, contents.topic());
+
+        OrderStateStore.StoreState store = contents.store();
+        out.writeInt(store.offsets().size());
+        for (Map.Entry<TopicPartition, Long> offset : store.offsets().entrySet()) {
+            writeString(out, offset.getKey().topic());
+            out.writeInt(offset.getKey().partition());
+            out.writeLong(offset.getValue());
+        }
+        out.writeLong(store.sequence());
+        out.writeLong(store.summaryDate() != null ? store.summaryDate().toEpochDay() : NO_VALUE);
+        writeOrders(out, store.activeOrders());
+        writeOrders(out, store.deliveredOrders());
+        out.writeInt(store.summaries().size());
+        for (OrderDailySummary summary : store.summaries()) {
+            writeSummary(out, summary);
+        }
+
+        writeTimestamp(out, contents.newestEventTime());
+        out.writeInt(contents.dirtyCells().size());
+        for (LateEventCorrector.SummaryCell cell : contents.dirtyCells()) {
+            writeString(out, cell.riderId());
+            out.writeLong(cell.date().toEpochDay());
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+        out.flush();
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            // The rename must not become visible before the data it points to
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return bytes.size();
+    }
+
+    /**
+     * Reads a snapshot through a memory mapping.
+     *
+     * @throws IOException if the file cannot be read or is not a complete, intact snapshot
+     */
+    static Contents read(Path path) throws IOException {
+        ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (in.limit() < MAGIC.length + 1 + Integer.BYTES) {
+            throw new IOException("Truncated state snapshot " + path);
+        }
+
+        int bodyLength = in.limit() - Integer.BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(in.duplicate().limit(bodyLength));
+        if ((int) crc.getValue() != in.getInt(bodyLength)) {
+            throw new IOException("Checksum mismatch in state snapshot " + path);
+        }
+        in.limit(bodyLength);
+
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            in.get(magic);
+            byte version = in.get();
+            if (!Arrays.equals(magic, MAGIC) || version != FORMAT_VERSION) {
+                throw new IOException("Not a state snapshot (version " + FORMAT_VERSION + "): " + path);
+            }
+            long createdAtMillis = in.getLong();
+            String topic = readString(in);
+
+            int offsetCount = in.getInt();
+            Map<TopicPartition, Long> offsets = new HashMap<>(offsetCount * 2);
+            for (int i = 0; i < offsetCount; i++) {
+                offsets.put(new TopicPartition(readString(in), in.getInt()), in.getLong());
+            }
+            long sequence = in.getLong();
+            long summaryEpochDay = in.getLong();
+            List<SSEEventDTO> activeOrders = readOrders(in);
+            List<SSEEventDTO> deliveredOrders = readOrders(in);
+            int summaryCount = in.getInt();
+            List<OrderDailySummary> summaries = new ArrayList<>(summaryCount);
+            for (int i = 0; i < summaryCount; i++) {
+                summaries.add(readSummary(in));
+            }
+            OrderStateStore.StoreState store = new OrderStateStore.StoreState(sequence,
+                    summaryEpochDay != NO_VALUE ? LocalDate.ofEpochDay(summaryEpochDay) : null,
+                    activeOrders, deliveredOrders, summaries, offsets);
+
+            LocalDateTime newestEventTime = readTimestamp(in);
+            int cellCount = in.getInt();
+            List<LateEventCorrector.SummaryCell> dirtyCells = new ArrayList<>(cellCount);
+            for (int i = 0; i < cellCount; i++) {
+                dirtyCells.add(new LateEventCorrector.SummaryCell(readString(in), LocalDate.ofEpochDay(in.getLong())));
+            }
+            if (in.hasRemaining()) {
+                throw new IOException("Trailing bytes in state snapshot " + path);
+            }
+            return new Contents(createdAtMillis, topic, store, newestEventTime, dirtyCells);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Malformed state snapshot " + path, e);
+        }
+    }
+
+    private static void writeOrders(DataOutputStream out, List<SSEEventDTO> orders) throws IOException {
+        out.writeInt(orders.size());
+        for (SSEEventDTO order : orders) {
+            writeString(out, order.getOrderId());
+            writeString(out, order.getRiderId());
+            writeString(out, order.getStatus());
+            writeTimestamp(out, order.getEventTimestamp());
+            writeTimestamp(out, order.getServerTimestamp());
+            writeString(out, order.getMessage());
+            out.writeLong(order.getSequence() != null ? order.getSequence() : NO_VALUE);
+        }
+    }
+
+    private static List<SSEEventDTO> readOrders(ByteBuffer in) {
+        int count = in.getInt();
+        List<SSEEventDTO> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            SSEEventDTO order = new SSEEventDTO();
+            order.setOrderId(readString(in));
+            order.setRiderId(readString(in));
+            order.setStatus(readString(in));
+            order.setEventTimestamp(readTimestamp(in));
+            order.setServerTimestamp(readTimestamp(in));
+            order.setMessage(readString(in));
+            long sequence = in.getLong();
+            order.setSequence(sequence != NO_VALUE ? sequence : null);
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    private static void writeSummary(DataOutputStream out, OrderDailySummary summary) throws IOException {
+        out.writeLong(summary.getId() != null ? summary.getId() : NO_VALUE);
+        writeString(out, summary.getRiderId());
+        out.writeLong(summary.getSummaryDate().toEpochDay());
+        out.writeInt(summary.getDeliveredOrders());
+        out.writeLong(summary.getAvgDeliveryTimeMinutes() != null ? summary.getAvgDeliveryTimeMinutes() : NO_VALUE);
+        out.writeInt(summary.getDelayedOrders());
+        byte[] sketch = summary.getDeliveryTimeSketch();
+        out.writeInt(sketch != null ? sketch.length : -1);
+        if (sketch != null) {
+            out.write(sketch);
+        }
+        writeString(out, summary.getZone());
+    }
+
+    private static OrderDailySummary readSummary(ByteBuffer in) {
+        long id = in.getLong();
+        String riderId = readString(in);
+        LocalDate date = LocalDate.ofEpochDay(in.getLong());
+        int delivered = in.getInt();
+        long avgMinutes = in.getLong();
+        int delayed = in.getInt();
+        OrderDailySummary summary = new OrderDailySummary(riderId, date, delivered,
+                avgMinutes != NO_VALUE ? (int) avgMinutes : null, delayed);
+        summary.setId(id != NO_VALUE ? id : null);
+        int sketchLength = in.getInt();
+        if (sketchLength >= 0) {
+            byte[] sketch = new byte[sketchLength];
+            in.get(sketch);
+            summary.setDeliveryTimeSketch(sketch);
+        }
+        summary.setZone(readString(in));
+        return summary;
+    }
+
+    private static void writeTimestamp(DataOutputStream out, LocalDateTime timestamp) throws IOException {
+        out.writeLong(timestamp != null ? EventArchiveFile.toMicros(timestamp) : NO_VALUE);
+    }
+
+    private static LocalDateTime readTimestamp(ByteBuffer in) {
+        long micros = in.getLong();
+        return micros != NO_VALUE ? EventArchiveFile.fromMicros(micros) : null;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,146 @@
+package com.ordertracking.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+
+/**
+ * Checkpoints the live state (orders, today's summaries, late-event watermark and dirty cells) to a
+ * local file so a restarted node does not have to rebuild it from the database.
+ *
+ * Every snapshot records the next offset per order topic partition (shared and zone topics) it reflects. On boot the file
+ * is restored before the listener containers start, the consumer rewinds each partition to the
+ * snapshot's offset and replays the records up to its committed offset into memory only. A
+ * missing, corrupt, stale or foreign snapshot falls back to {@link OrderStateStore#rebuildFromDatabase()}.
+ * Snapshots are only used with local SSE fan-out: in broadcast mode the live state is fed by every
+ * node's broadcast listener, whose offsets are not tracked. Either way, the delivery deadlines of
+ * the orders still in transit are armed again in {@link DelayMonitor}.
+ */
+@Service
+public class StateSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(StateSnapshotService.class);
+
+    private final OrderStateStore stateStore;
+    private final LateEventCorrector lateEventCorrector;
+    private final DelayMonitor delayMonitor;
+    private final Path path;
+    private final boolean enabled;
+    private final Duration maxAge;
+    private final String orderUpdatesTopic;
+
+    private volatile boolean restored;
+
+    public StateSnapshotService(OrderStateStore stateStore,
+                                LateEventCorrector lateEventCorrector,
+                                DelayMonitor delayMonitor,
+                                @Value("${state.snapshot.enabled:true}") boolean enabled,
+                                @Value("${state.snapshot.path:./data/state.snapshot}") String path,
+                                @Value("${state.snapshot.max-age-minutes:60}") long maxAgeMinutes,
+                                @Value("${order.kafka.topic.order-updates}") String orderUpdatesTopic,
+                                @Value("${sse.fanout.mode:local}") String fanoutMode) {
+        this.stateStore = stateStore;
+        this.lateEventCorrector = lateEventCorrector;
+        this.delayMonitor = delayMonitor;
+        this.path = Paths.get(path);
+        this.enabled = enabled && !"broadcast".equalsIgnoreCase(fanoutMode);
+        this.maxAge = Duration.ofMinutes(maxAgeMinutes);
+        this.orderUpdatesTopic = orderUpdatesTopic;
+        if (enabled && !this.enabled) {
+            log.info("State snapshots are disabled in broadcast fan-out mode");
+        }
+    }
+
+    /**
+     * Runs while the context is created, before any consumer is assigned a partition.
+     */
+    @PostConstruct
+    public void restoreSnapshot() {
+        if (!enabled || !Files.exists(path)) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            StateSnapshotFile.Contents contents = StateSnapshotFile.read(path);
+            Duration age = Duration.ofMillis(System.currentTimeMillis() - contents.createdAtMillis());
+            if (!orderUpdatesTopic.equals(contents.topic())) {
+                log.warn("State snapshot {} is for topic {}, not {}; rebuilding from the database",
+                        path, contents.topic(), orderUpdatesTopic);
+                return;
+            }
+            if (age.compareTo(maxAge) > 0) {
+                log.warn("State snapshot {} is {} minutes old (limit {}); rebuilding from the database",
+                        path, age.toMinutes(), maxAge.toMinutes());
+                return;
+            }
+
+            stateStore.restoreState(contents.store());
+            lateEventCorrector.restore(contents.newestEventTime(), contents.dirtyCells());
+            restored = true;
+            log.info("Restored state snapshot {} taken {} s ago in {} ms: {} active and {} delivered orders, "
+                            + "{} rider summaries, offsets {}",
+                    path, age.toSeconds(), (System.nanoTime() - start) / 1_000_000,
+                    contents.store().activeOrders().size(), contents.store().deliveredOrders().size(),
+                    contents.store().summaries().size(), contents.store().offsets());
+            // Before the consumers start, so replayed deliveries cancel what is armed here
+            delayMonitor.rearm(contents.store().activeOrders());
+        } catch (IOException e) {
+            log.warn("Ignoring unusable state snapshot {}, rebuilding from the database: {}", path, e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfNotRestored() {
+        if (!restored) {
+            stateStore.rebuildFromDatabase();
+            delayMonitor.rearm(stateStore.exportState().activeOrders());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${state.snapshot.interval-ms:30000}",
+            initialDelayString = "${state.snapshot.interval-ms:30000}")
+    public synchronized void writeSnapshot() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            Path directory = path.toAbsolutePath().getParent();
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            // Store first: its offsets are the replay start, so the watermark may only be newer
+            OrderStateStore.StoreState store = stateStore.exportState();
+            StateSnapshotFile.Contents contents = new StateSnapshotFile.Contents(System.currentTimeMillis(),
+                    orderUpdatesTopic, store, lateEventCorrector.getNewestEventTime(),
+                    new ArrayList<>(lateEventCorrector.getDirtyCells()));
+            long bytes = StateSnapshotFile.write(path, contents);
+            log.debug("Wrote state snapshot {} ({} bytes, offsets {}) in {} ms",
+                    path, bytes, store.offsets(), (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to write state snapshot {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Listener containers are stopped before beans are destroyed, so this snapshot reflects every
+     * committed record and the next start replays nothing.
+     */
+    @PreDestroy
+    public void writeFinalSnapshot() {
+        writeSnapshot();
+    }
+}
@@ -0,0 +1,154 @@
+package com.ordertracking.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps delivery zones to order topics and decides which of them this instance consumes.
+ *
+ * Every order event carries the zone of its rider ({@value #DEFAULT_ZONE} when the app sends
+ * none). Zones listed in {@code order.zones.dedicated} get their own topic,
+ * {@code <order topic>.<zone>}, with its own partitions, retry topics and dead-letter topic; all
+ * other zones share the order topic. {@code order.zones.consume} picks the topics this instance's
+ * persistence consumer reads: {@code all}, {@code shared} for the shared topic, or zone names, so
+ * a surging zone can get instances of its own without holding up the others.
+ *
+ * <p>An order stays on the topic of the zone it was picked up in, even when its rider crosses into
+ * another zone before delivering it: its events must stay on one partition to be consumed in order.
+ */
+@Service
+public class ZoneRouting {
+
+    public static final String DEFAULT_ZONE = "default";
+    public static final String ZONE_PATTERN = "[A-Za-z0-9-]{1,30}";
+    // Open orders remembered for routing; the least recently routed are forgotten beyond this
+    static final int MAX_ROUTED_ORDERS = 100_000;
+
+    private final String sharedTopic;
+    private final Set<String> dedicatedZones = new LinkedHashSet<>();
+    private final List<String> orderTopics = new ArrayList<>();
+    private final List<String> consumedTopics = new ArrayList<>();
+    // orderId -> zone of its PICKED_UP event, until it is delivered; shared by request threads
+    private final Map<String, String> orderZones = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_ROUTED_ORDERS;
+        }
+    };
+
+    public ZoneRouting(@Value("${order.kafka.topic.order-updates}") String sharedTopic,
+                       @Value("${order.zones.dedicated:}") List<String> dedicatedZones,
+                       @Value("${order.zones.consume:all}") List<String> consume) {
+        this.sharedTopic = sharedTopic;
+        for (String zone : dedicatedZones) {
+            if (!zone.isBlank()) {
+                this.dedicatedZones.add(validate(zone));
+            }
+        }
+        orderTopics.add(sharedTopic);
+        this.dedicatedZones.forEach(zone -> orderTopics.add(zoneTopic(zone)));
+
+        Set<String> selected = new LinkedHashSet<>();
+        for (String entry : consume) {
+            String selector = entry.trim().toLowerCase(Locale.ROOT);
+            if (selector.isEmpty()) {
+                continue;
+            }
+            if ("all".equals(selector)) {
+                selected.addAll(orderTopics);
+            } else if ("shared".equals(selector)) {
+                selected.add(sharedTopic);
+            } else if (this.dedicatedZones.contains(validate(selector))) {
+                selected.add(zoneTopic(selector));
+            } else {
+                throw new IllegalArgumentException("order.zones.consume names zone '" + selector
+                        + "', which has no dedicated topic; dedicated zones are " + this.dedicatedZones);
+            }
+        }
+        consumedTopics.addAll(selected.isEmpty() ? orderTopics : selected);
+    }
+
+    /**
+     * @return the zone in its stored form: lower case, {@value #DEFAULT_ZONE} for null or blank
+     */
+    public static String normalize(String zone) {
+        return zone == null || zone.isBlank() ? DEFAULT_ZONE : zone.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return the topic the zone's events are published to
+     */
+    public String topicFor(String zone) {
+        String normalized = normalize(zone);
+        return dedicatedZones.contains(normalized) ? zoneTopic(normalized) : sharedTopic;
+    }
+
+    /**
+     * @return the topic the order's event is published to: that of the zone the order was picked
+     * up in, or of the event's own zone for an order picked up before this instance started
+     */
+    public String topicFor(String orderId, String status, String zone) {
+        String normalized = normalize(zone);
+        String orderZone;
+        synchronized (orderZones) {
+            if ("PICKED_UP".equals(status)) {
+                orderZones.put(orderId, normalized);
+                orderZone = normalized;
+            } else if ("DELIVERED".equals(status)) {
+                orderZone = orderZones.remove(orderId);
+            } else {
+                orderZone = orderZones.get(orderId);
+            }
+        }
+        return topicFor(orderZone != null ? orderZone : normalized);
+    }
+
+    /**
+     * @return the shared topic followed by every dedicated zone topic
+     */
+    public String[] getOrderTopics() {
+        return orderTopics.toArray(String[]::new);
+    }
+
+    /**
+     * @return the order topics this instance's persistence consumer reads
+     */
+    public String[] getConsumedTopics() {
+        return consumedTopics.toArray(String[]::new);
+    }
+
+    /**
+     * @return true for the shared and dedicated order topics, false for their retry and dead-letter topics
+     */
+    public boolean isOrderTopic(String topic) {
+        return orderTopics.contains(topic);
+    }
+
+    public Set<String> getDedicatedZones() {
+        return dedicatedZones;
+    }
+
+    public String getSharedTopic() {
+        return sharedTopic;
+    }
+
+    private String zoneTopic(String zone) {
+        return sharedTopic + "." + zone;
+    }
+
+    private static String validate(String zone) {
+        String trimmed = zone.trim();
+        if (!trimmed.matches(ZONE_PATTERN)) {
+            throw new IllegalArgumentException("Invalid zone '" + zone + "', expected " + ZONE_PATTERN);
+        }
+        return trimmed.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,31 @@
+package com.ordertracking.config;
+
+import com.ordertracking.controller.MetricsController;
+import com.ordertracking.service.EventArchiveService;
+import com.ordertracking.service.HourlyDemandAggregator;
+import com.ordertracking.service.KafkaConsumerService;
+import com.ordertracking.service.StateSnapshotService;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FastStartupConfigTest {
+
+	private final LazyInitializationExcludeFilter filter = FastStartupConfig.activeBeansExcludeFilter();
+
+	@Test
+	void keepsListenersSchedulesAndStartupWorkEager() {
+		assertTrue(filter.isExcluded("kafkaConsumerService", null, KafkaConsumerService.class));
+		assertTrue(filter.isExcluded("hourlyDemandAggregator", null, HourlyDemandAggregator.class));
+		assertTrue(filter.isExcluded("eventArchiveService", null, EventArchiveService.class));
+		assertTrue(filter.isExcluded("stateSnapshotService", null, StateSnapshotService.class));
+	}
+
+	@Test
+	void leavesRequestOnlyBeansLazy() {
+		assertFalse(filter.isExcluded("metricsController", null, MetricsController.class));
+		assertFalse(filter.isExcluded("unknown", null, null));
+	}
+}
@@ -0,0 +1,83 @@
+package com.ordertracking.config;
+
+import com.ordertracking.service.KafkaConsumerService;
+import com.ordertracking.service.ZoneRouting;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class KafkaAssignmentHealthIndicatorTest {
+
+	private static final String TOPIC = "order-status-updates";
+	private static final String GROUP = "order-tracking-group";
+
+	private final KafkaListenerEndpointRegistry registry = mock(KafkaListenerEndpointRegistry.class);
+	private final KafkaConsumerService consumerService = mock(KafkaConsumerService.class);
+	private final MessageListenerContainer orderListener = container(GROUP, TOPIC);
+	private final Map<String, Map<MetricName, Metric>> metrics = new HashMap<>();
+	private KafkaAssignmentHealthIndicator indicator;
+
+	@BeforeEach
+	void setUp() {
+		List<MessageListenerContainer> containers = List.of(
+				orderListener,
+				container(GROUP, TOPIC + "-retry-0"),
+				container("order-tracking-sse", TOPIC));
+		when(registry.getListenerContainers()).thenReturn(containers);
+		when(orderListener.metrics()).thenAnswer(invocation -> metrics);
+		when(consumerService.getAssignedPartitions()).thenReturn(Set.of());
+		indicator = new KafkaAssignmentHealthIndicator(registry, consumerService,
+				new ZoneRouting(TOPIC, List.of(), List.of("all")), GROUP);
+	}
+
+	@Test
+	void downUntilEveryOrderConsumerHasJoined() {
+		assertEquals(Status.DOWN, indicator.health().getStatus());
+
+		metrics.put("consumer-1", rebalances(1));
+		metrics.put("consumer-2", rebalances(0));
+		assertEquals(Status.DOWN, indicator.health().getStatus());
+
+		// Joined without partitions: more consumers than partitions
+		metrics.put("consumer-2", rebalances(1));
+		assertEquals(Status.UP, indicator.health().getStatus());
+	}
+
+	@Test
+	void staysUpThroughLaterRebalances() {
+		metrics.put("consumer-1", rebalances(1));
+		assertEquals(Status.UP, indicator.health().getStatus());
+
+		// Consumers restarted by the container start counting from zero again
+		metrics.put("consumer-1", rebalances(0));
+		assertEquals(Status.UP, indicator.health().getStatus());
+	}
+
+	private static MessageListenerContainer container(String group, String topic) {
+		MessageListenerContainer container = mock(MessageListenerContainer.class);
+		when(container.getGroupId()).thenReturn(group);
+		when(container.getContainerProperties()).thenReturn(new ContainerProperties(topic));
+		return container;
+	}
+
+	private static Map<MetricName, Metric> rebalances(double total) {
+		Metric metric = mock(Metric.class);
+		when(metric.metricValue()).thenReturn(total);
+		return Map.of(new MetricName(KafkaAssignmentHealthIndicator.REBALANCE_METRIC,
+				KafkaAssignmentHealthIndicator.COORDINATOR_GROUP, "", Map.of()), metric);
+	}
+}
@@ -0,0 +1,62 @@
+package com.ordertracking.config;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LagAwareReplicaDataSourceTest {
+
+	private final DataSource replica = mock(DataSource.class);
+	private final DataSource primary = mock(DataSource.class);
+	private final Connection replicaConnection = mock(Connection.class);
+	private final Connection primaryConnection = mock(Connection.class);
+	private final ResultSet result = mock(ResultSet.class);
+	private final LagAwareReplicaDataSource dataSource =
+			new LagAwareReplicaDataSource(replica, primary, "SELECT lag", Duration.ofSeconds(5));
+
+	@Test
+	void usesTheReplicaOnlyWhileItIsStreamingAndCaughtUp() throws SQLException {
+		Statement statement = mock(Statement.class);
+		when(replica.getConnection()).thenReturn(replicaConnection);
+		when(primary.getConnection()).thenReturn(primaryConnection);
+		when(replicaConnection.createStatement()).thenReturn(statement);
+		when(statement.executeQuery(anyString())).thenReturn(result);
+		when(result.next()).thenReturn(true);
+
+		lag(0.2, false);
+		assertTrue(dataSource.isUsable());
+		assertSame(replicaConnection, dataSource.getConnection());
+
+		// Not streaming from the primary: no lag is reported, which is not the same as no lag
+		lag(0, true);
+		assertFalse(dataSource.isUsable());
+		assertEquals(-1, dataSource.getLagSeconds());
+		assertSame(primaryConnection, dataSource.getConnection());
+
+		lag(12, false);
+		assertFalse(dataSource.isUsable());
+
+		when(replicaConnection.createStatement()).thenThrow(new SQLException("connection refused"));
+		dataSource.checkLag();
+		assertFalse(dataSource.isUsable());
+	}
+
+	private void lag(double seconds, boolean isNull) throws SQLException {
+		when(result.getDouble(1)).thenReturn(seconds);
+		when(result.wasNull()).thenReturn(isNull);
+		dataSource.checkLag();
+	}
+}
@@ -0,0 +1,360 @@
+package com.ordertracking.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ordertracking.OrderTrackingApplication;
+import com.ordertracking.repository.OrderEventRepository;
+import com.ordertracking.service.RealisticOrderSimulator;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * End-to-end load generator and latency harness.
+ *
+ * <p>Boots the full application against an embedded Kafka broker and an in-memory H2 database in
+ * PostgreSQL mode, drives {@code RiderController} over HTTP with {@link RealisticOrderSimulator.Fleet}
+ * lifecycles at a fixed rate, and listens on {@code /stream/order-updates} like a dashboard would.
+ * Latency is measured from the moment a rider request is sent to the moment the matching
+ * {@code ORDER_UPDATE} frame is read off the SSE stream.
+ *
+ * <p>Settings (system properties): {@code loadtest.rate} events/s, {@code loadtest.duration} seconds,
+ * {@code loadtest.warmup} seconds, {@code loadtest.riders}, {@code loadtest.partitions},
+ * {@code loadtest.max-in-flight}, {@code loadtest.coalesce-ms} (SSE coalescing window). Extra {@code loadtest.app.*} properties are passed to the application.
+ */
+public class LoadHarness {
+
+    static final String TOPIC = "order-status-updates";
+    private static final String GROUP = "order-tracking-group";
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final double rate;
+    private final int durationSeconds;
+    private final int warmupSeconds;
+    private final int riders;
+    private final int partitions;
+    private final int maxInFlight;
+    private final long coalesceMillis;
+    private final PrintStream out;
+
+    private final Recorder endToEnd = new Recorder(HIGHEST_TRACKABLE_NANOS, 3);
+    private final Recorder httpAccept = new Recorder(HIGHEST_TRACKABLE_NANOS, 3);
+    private final Map<String, Long> pendingSends = new ConcurrentHashMap<>();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong frames = new AtomicLong();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private volatile boolean recording;
+
+    public LoadHarness(double rate, int durationSeconds, int warmupSeconds, int riders,
+                       int partitions, int maxInFlight, long coalesceMillis, PrintStream out) {
+        this.rate = rate;
+        this.durationSeconds = durationSeconds;
+        this.warmupSeconds = warmupSeconds;
+        this.riders = riders;
+        this.partitions = partitions;
+        this.maxInFlight = maxInFlight;
+        this.coalesceMillis = coalesceMillis;
+        this.out = out;
+    }
+
+    public static LoadHarness fromSystemProperties(PrintStream out) {
+        return new LoadHarness(
+                Double.parseDouble(System.getProperty("loadtest.rate", "200")),
+                Integer.getInteger("loadtest.duration", 30),
+                Integer.getInteger("loadtest.warmup", 5),
+                Integer.getInteger("loadtest.riders", 100),
+                Integer.getInteger("loadtest.partitions", 1),
+                Integer.getInteger("loadtest.max-in-flight", 256),
+                Long.getLong("loadtest.coalesce-ms", 0L),
+                out);
+    }
+
+    public static void main(String[] args) throws Exception {
+        fromSystemProperties(System.out).run();
+    }
+
+    public Result run() throws Exception {
+        EmbeddedKafkaKraftBroker kafka = new EmbeddedKafkaKraftBroker(1, partitions, TOPIC);
+        kafka.afterPropertiesSet();
+        ConfigurableApplicationContext context = null;
+        try {
+            context = startApplication(kafka.getBrokersAsString());
+            int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+            return drive(context, kafka.getBrokersAsString(), "http://localhost:" + port);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            kafka.destroy();
+        }
+    }
+
+    private ConfigurableApplicationContext startApplication(String bootstrapServers) {
+        Map<String, String> overrides = new java.util.HashMap<>();
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith("loadtest.app."))
+                .forEach(name -> overrides.put(name.substring("loadtest.app.".length()), System.getProperty(name)));
+        return startApplication(bootstrapServers, partitions, overrides);
+    }
+
+    /**
+     * Boots the application against the given broker and an in-memory H2 database; {@code overrides}
+     * win over the harness defaults.
+     */
+    static ConfigurableApplicationContext startApplication(String bootstrapServers, int partitions,
+                                                           Map<String, String> overrides) {
+        Map<String, String> properties = new java.util.HashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.kafka.bootstrap-servers", bootstrapServers);
+        properties.put("order.kafka.topic.partitions", String.valueOf(partitions));
+        properties.put("spring.datasource.url",
+                "jdbc:h2:mem:loadtest;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.jpa.database-platform", "org.hibernate.dialect.H2Dialect");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+        properties.put("spring.jpa.show-sql", "false");
+        // Every run starts from an empty database, so a snapshot of an earlier run must not be restored
+        properties.put("state.snapshot.enabled", "false");
+        // Load is measured, not limited; a loadtest.app. override can turn the rider limits back on
+        properties.put("rider.rate-limit.enabled", "false");
+        properties.put("logging.level.com.ordertracking", "WARN");
+        properties.put("logging.level.org.hibernate.SQL", "WARN");
+        properties.put("logging.level.org.apache.kafka", "WARN");
+        properties.putAll(overrides);
+
+        // Passed as command-line arguments so they win over application.properties
+        String[] args = properties.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(OrderTrackingApplication.class).run(args);
+    }
+
+    private Result drive(ConfigurableApplicationContext context, String bootstrapServers, String baseUrl)
+            throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        OrderEventRepository repository = context.getBean(OrderEventRepository.class);
+
+        Thread sseReader = new Thread(() -> readStream(client, baseUrl), "loadtest-sse");
+        sseReader.setDaemon(true);
+        sseReader.start();
+        TimeUnit.SECONDS.sleep(1);
+
+        RealisticOrderSimulator.Fleet fleet = new RealisticOrderSimulator.Fleet(riders, 7L);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        int totalSeconds = warmupSeconds + durationSeconds;
+
+        out.printf("Load harness: %.0f events/s, %d riders, %d partitions, %ds warmup + %ds measured%n",
+                rate, riders, partitions, warmupSeconds, durationSeconds);
+
+        try (AdminClient admin = AdminClient.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers))) {
+            long start = System.nanoTime();
+            long next = start;
+            long nextReport = start + TimeUnit.SECONDS.toNanos(1);
+            long lastRows = repository.count();
+            long lastReport = start;
+            long measuredStartRows = lastRows;
+            long measuredStart = start;
+
+            while (System.nanoTime() - start < TimeUnit.SECONDS.toNanos(totalSeconds)) {
+                long now = System.nanoTime();
+                if (!recording && now - start >= TimeUnit.SECONDS.toNanos(warmupSeconds)) {
+                    endToEnd.reset();
+                    httpAccept.reset();
+                    measuredStart = now;
+                    measuredStartRows = repository.count();
+                    recording = true;
+                }
+                if (now >= nextReport) {
+                    long rows = repository.count();
+                    double writeRate = (rows - lastRows) / ((now - lastReport) / 1e9);
+                    out.printf("  t=%3ds sent=%d delivered=%d rejected=%d lag=%d dbWrites/s=%.0f%n",
+                            TimeUnit.NANOSECONDS.toSeconds(now - start), sent.get(), delivered.get(),
+                            rejected.get(), consumerLag(admin), writeRate);
+                    lastRows = rows;
+                    lastReport = now;
+                    nextReport += TimeUnit.SECONDS.toNanos(1);
+                }
+                if (now < next) {
+                    LockSupport.parkNanos(Math.min(next - now, nextReport - now));
+                    continue;
+                }
+                next += periodNanos;
+
+                inFlight.acquire();
+                submit(client, baseUrl, fleet.next(), inFlight);
+            }
+
+            long end = System.nanoTime();
+            long writes = repository.count() - measuredStartRows;
+            // Let the pipeline drain so late frames still count
+            TimeUnit.SECONDS.sleep(2);
+
+            Result result = new Result(
+                    endToEnd.getIntervalHistogram(),
+                    httpAccept.getIntervalHistogram(),
+                    writes / ((end - measuredStart) / 1e9),
+                    consumerLag(admin),
+                    sent.get(),
+                    delivered.get(),
+                    frames.get(),
+                    rejected.get());
+            result.print(out);
+            return result;
+        }
+    }
+
+    private void submit(HttpClient client, String baseUrl, RealisticOrderSimulator.SimulatedEvent event,
+                        Semaphore inFlight) {
+        String key = event.orderId() + "|" + event.status();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/api/rider/" + event.riderId() + "/orders/"
+                        + event.orderId() + "/status/" + event.status()))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .timeout(Duration.ofSeconds(30))
+                .build();
+
+        long sentAt = System.nanoTime();
+        pendingSends.put(key, sentAt);
+        sent.incrementAndGet();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    inFlight.release();
+                    if (error != null || response.statusCode() != 200) {
+                        rejected.incrementAndGet();
+                        pendingSends.remove(key);
+                        return;
+                    }
+                    if (recording) {
+                        httpAccept.recordValue(Math.min(System.nanoTime() - sentAt, HIGHEST_TRACKABLE_NANOS));
+                    }
+                });
+    }
+
+    private void readStream(HttpClient client, String baseUrl) {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/stream/order-updates?coalesceMs=" + coalesceMillis))
+                .header("Accept", "text/event-stream")
+                .GET()
+                .build();
+        try {
+            String[] eventName = {null};
+            client.send(request, HttpResponse.BodyHandlers.ofLines()).body().forEach(line -> {
+                if (line.startsWith("event:")) {
+                    eventName[0] = line.substring(6).trim();
+                } else if (line.startsWith("data:") && eventName[0] != null && eventName[0].startsWith("ORDER_UPDATE")) {
+                    onOrderUpdateFrame(line.substring(5).trim());
+                } else if (line.isEmpty()) {
+                    eventName[0] = null;
+                }
+            });
+        } catch (Exception e) {
+            out.println("SSE stream closed: " + e.getMessage());
+        }
+    }
+
+    // ORDER_UPDATE carries one update, coalesced ORDER_UPDATES an array of them
+    private void onOrderUpdateFrame(String json) {
+        long receivedAt = System.nanoTime();
+        frames.incrementAndGet();
+        try {
+            JsonNode node = objectMapper.readTree(json);
+            if (node.isArray()) {
+                node.forEach(update -> onOrderUpdate(update, receivedAt));
+            } else {
+                onOrderUpdate(node, receivedAt);
+            }
+        } catch (Exception e) {
+            out.println("Unreadable order update frame: " + e.getMessage());
+        }
+    }
+
+    private void onOrderUpdate(JsonNode node, long receivedAt) {
+        Long sentAt = pendingSends.remove(node.path("orderId").asText() + "|" + node.path("status").asText());
+        if (sentAt == null) {
+            return;
+        }
+        delivered.incrementAndGet();
+        if (recording) {
+            endToEnd.recordValue(Math.min(receivedAt - sentAt, HIGHEST_TRACKABLE_NANOS));
+        }
+    }
+
+    private long consumerLag(AdminClient admin) {
+        try {
+            Map<TopicPartition, OffsetAndMetadata> committed = admin.listConsumerGroupOffsets(GROUP)
+                    .partitionsToOffsetAndMetadata().get(5, TimeUnit.SECONDS);
+            if (committed.isEmpty()) {
+                return 0;
+            }
+            Map<TopicPartition, OffsetSpec> request = committed.keySet().stream()
+                    .collect(Collectors.toMap(tp -> tp, tp -> OffsetSpec.latest()));
+            Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> latest = admin.listOffsets(request)
+                    .all().get(5, TimeUnit.SECONDS);
+            long lag = 0;
+            for (Map.Entry<TopicPartition, OffsetAndMetadata> entry : committed.entrySet()) {
+                if (entry.getValue() != null) {
+                    lag += latest.get(entry.getKey()).offset() - entry.getValue().offset();
+                }
+            }
+            return lag;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Measured numbers of a harness run.
+     */
+    public record Result(Histogram endToEnd, Histogram httpAccept, double dbWritesPerSecond,
+                         long finalConsumerLag, long sent, long delivered, long frames, long rejected) {
+
+        public void print(PrintStream out) {
+            out.println("== Results ==");
+            printHistogram(out, "HTTP accept -> SSE delivery", endToEnd);
+            printHistogram(out, "HTTP accept (response)", httpAccept);
+            out.printf("DB write rate: %.0f rows/s%n", dbWritesPerSecond);
+            out.printf("Final consumer lag: %d%n", finalConsumerLag);
+            out.printf("Sent: %d, delivered over SSE: %d in %d frames, rejected: %d%n", sent, delivered, frames, rejected);
+        }
+
+        private static void printHistogram(PrintStream out, String label, Histogram histogram) {
+            out.printf("%s (n=%d): p50=%.2fms p99=%.2fms p999=%.2fms max=%.2fms%n",
+                    label,
+                    histogram.getTotalCount(),
+                    histogram.getValueAtPercentile(50) / 1e6,
+                    histogram.getValueAtPercentile(99) / 1e6,
+                    histogram.getValueAtPercentile(99.9) / 1e6,
+                    histogram.getMaxValue() / 1e6);
+        }
+    }
+}
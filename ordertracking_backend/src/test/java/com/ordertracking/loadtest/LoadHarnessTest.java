@@ -0,0 +1,23 @@
+package com.ordertracking.loadtest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the load harness as part of the build when requested:
+ * {@code mvn test -Dtest=LoadHarnessTest -Dloadtest=true -Dloadtest.rate=500 -Dloadtest.duration=60}
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class LoadHarnessTest {
+
+	@Test
+	void endToEndLatencyUnderLoad() throws Exception {
+		LoadHarness.Result result = LoadHarness.fromSystemProperties(System.out).run();
+
+		assertTrue(result.delivered() > 0, "no ORDER_UPDATE frames reached the SSE client");
+		assertTrue(result.endToEnd().getTotalCount() > 0, "no end-to-end latency samples recorded");
+	}
+
+}
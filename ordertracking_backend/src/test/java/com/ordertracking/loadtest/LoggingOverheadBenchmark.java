@@ -0,0 +1,206 @@
+package com.ordertracking.loadtest;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.ordertracking.dto.OrderEventDTO;
+import com.ordertracking.service.HotPathLog;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures what the per-event log lines cost the threads that handle events.
+ *
+ * <p>Each mode sends {@code loadtest.events} events through the log statements of one event's trip
+ * (rider request, publish, consume) in a private logback context whose appender formats with the
+ * application's console pattern and writes to a byte-counting sink, so only formatting and
+ * appender overhead are measured, not a terminal. The modes are the previous statements (DEBUG
+ * enabled, the consumed DTO's {@code toString}, four consumer lines) on a synchronous appender,
+ * the current statements in full mode, and the {@code quietlog} profile: sampled statements on an
+ * asynchronous appender. A baseline without log statements is subtracted from each mode. The
+ * caller's CPU time and allocations come from the thread MXBean; the async worker's share is not
+ * included, which is the point of moving it there. The first round only warms up.
+ *
+ * <p>Settings (system properties): {@code loadtest.events}, {@code loadtest.rounds}.
+ */
+public class LoggingOverheadBenchmark {
+
+    private static final String PATTERN = "%d{yyyy-MM-dd HH:mm:ss} [%thread] %-5level %logger{36} - %msg%n";
+
+    private final int events;
+    private final int rounds;
+    private final PrintStream out;
+
+    public LoggingOverheadBenchmark(int events, int rounds, PrintStream out) {
+        this.events = events;
+        this.rounds = rounds;
+        this.out = out;
+    }
+
+    public static LoggingOverheadBenchmark fromSystemProperties(PrintStream out) {
+        return new LoggingOverheadBenchmark(
+                Integer.getInteger("loadtest.events", 200_000),
+                Integer.getInteger("loadtest.rounds", 3),
+                out);
+    }
+
+    public static void main(String[] args) {
+        fromSystemProperties(System.out).run();
+    }
+
+    public record Result(String mode, double cpuNanosPerEvent, double bytesAllocatedPerEvent,
+                         double logBytesPerEvent) {
+    }
+
+    private enum Mode {
+        NONE("no log statements"),
+        PREVIOUS("previous statements, sync appender"),
+        FULL("full mode, sync appender"),
+        QUIETLOG("sampled mode, async appender");
+
+        private final String label;
+
+        Mode(String label) {
+            this.label = label;
+        }
+    }
+
+    public List<Result> run() {
+        List<Result> results = new ArrayList<>();
+        for (int round = 0; round < rounds; round++) {
+            boolean warmup = round == 0 && rounds > 1;
+            Measurement baseline = measure(Mode.NONE);
+            List<Result> roundResults = new ArrayList<>();
+            for (Mode mode : List.of(Mode.PREVIOUS, Mode.FULL, Mode.QUIETLOG)) {
+                Measurement measurement = measure(mode);
+                roundResults.add(new Result(mode.label,
+                        (double) (measurement.cpuNanos - baseline.cpuNanos) / events,
+                        (double) (measurement.allocatedBytes - baseline.allocatedBytes) / events,
+                        (double) measurement.logBytes / events));
+            }
+            if (!warmup) {
+                results = roundResults;
+            }
+        }
+
+        out.printf("%n=== Hot path logging overhead, %,d events ===%n", events);
+        out.printf("%-38s %14s %16s %12s%n", "mode", "CPU ns/event", "alloc B/event", "log B/event");
+        for (Result result : results) {
+            out.printf("%-38s %14.0f %16.0f %12.0f%n", result.mode(), result.cpuNanosPerEvent(),
+                    result.bytesAllocatedPerEvent(), result.logBytesPerEvent());
+        }
+        return results;
+    }
+
+    private Measurement measure(Mode mode) {
+        CountingSink sink = new CountingSink();
+        LoggerContext context = new LoggerContext();
+        context.setMDCAdapter(new LogbackMDCAdapter());
+        context.start();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern(PATTERN);
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> console = new OutputStreamAppender<>();
+        console.setContext(context);
+        console.setName("CONSOLE");
+        console.setEncoder(encoder);
+        console.setOutputStream(sink);
+        console.start();
+        Appender<ILoggingEvent> appender = console;
+        if (mode == Mode.QUIETLOG) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setQueueSize(8192);
+            async.setNeverBlock(true);
+            async.addAppender(console);
+            async.start();
+            appender = async;
+        }
+        Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        root.addAppender(appender);
+        root.setLevel(mode == Mode.PREVIOUS ? Level.DEBUG : Level.INFO);
+        HotPathLog hotPathLog = new HotPathLog(mode == Mode.QUIETLOG ? "sampled" : "full", 5);
+        Logger controllerLog = context.getLogger("com.ordertracking.controller.RiderController");
+        Logger orderLog = context.getLogger("com.ordertracking.service.OrderService");
+        Logger consumerLog = context.getLogger("com.ordertracking.service.KafkaConsumerService");
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long cpuBefore = threads.getCurrentThreadCpuTime();
+        for (int i = 0; i < events; i++) {
+            OrderEventDTO event = new OrderEventDTO("ORD-" + (i % 5000), "RID-" + (i % 200),
+                    "IN_TRANSIT", LocalDateTime.now());
+            event.setZone("default");
+            switch (mode) {
+                case NONE -> {
+                }
+                case PREVIOUS -> logPrevious(controllerLog, orderLog, consumerLog, event, i);
+                case FULL, QUIETLOG -> logCurrent(hotPathLog, controllerLog, orderLog, consumerLog, event, i);
+            }
+        }
+        long cpuNanos = threads.getCurrentThreadCpuTime() - cpuBefore;
+        long allocatedBytes = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        context.stop();
+        return new Measurement(cpuNanos, allocatedBytes, sink.bytes);
+    }
+
+    private static void logPrevious(Logger controllerLog, Logger orderLog, Logger consumerLog,
+                                    OrderEventDTO event, long offset) {
+        controllerLog.info("Quick status update: Rider {} updating order {} to {}",
+                event.getRiderId(), event.getOrderId(), event.getStatus());
+        orderLog.info("Processing order event: {} - {} - {}", event.getOrderId(), event.getRiderId(), event.getStatus());
+        orderLog.debug("Event sent to Kafka: {}", event.getOrderId());
+        consumerLog.info("Processing Kafka order event: {}", event);
+        consumerLog.info("Saved order event with ID: {}", offset);
+        consumerLog.info("Processed and broadcasted order event for order: {}", event.getOrderId());
+    }
+
+    private static void logCurrent(HotPathLog hotPathLog, Logger controllerLog, Logger orderLog, Logger consumerLog,
+                                   OrderEventDTO event, long offset) {
+        if (hotPathLog.shouldLog(HotPathLog.Stage.REQUEST)) {
+            controllerLog.info("Rider quick update riderId={} orderId={} status={}",
+                    event.getRiderId(), event.getOrderId(), event.getStatus());
+        }
+        if (hotPathLog.shouldLog(HotPathLog.Stage.PUBLISH)) {
+            orderLog.info("Publishing order event orderId={} riderId={} status={} zone={} mode={}",
+                    event.getOrderId(), event.getRiderId(), event.getStatus(), event.getZone(), "direct");
+        }
+        orderLog.debug("Event sent to Kafka: {}", event.getOrderId());
+        if (hotPathLog.shouldLog(HotPathLog.Stage.CONSUME)) {
+            consumerLog.info("Processed order event orderId={} riderId={} status={} zone={} id={} at={}-{}@{} replay={} late={}",
+                    event.getOrderId(), event.getRiderId(), event.getStatus(), event.getZone(),
+                    offset, "order-status-updates", 0, offset, false, false);
+        }
+    }
+
+    private record Measurement(long cpuNanos, long allocatedBytes, long logBytes) {
+    }
+
+    private static final class CountingSink extends OutputStream {
+
+        private volatile long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
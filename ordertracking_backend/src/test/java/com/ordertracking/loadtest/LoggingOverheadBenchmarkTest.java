@@ -0,0 +1,24 @@
+package com.ordertracking.loadtest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the logging overhead benchmark when requested:
+ * {@code mvn test -Dtest=LoggingOverheadBenchmarkTest -Dloadtest=true -Dloadtest.events=200000}
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class LoggingOverheadBenchmarkTest {
+
+	@Test
+	void hotPathLogStatements() {
+		List<LoggingOverheadBenchmark.Result> results = LoggingOverheadBenchmark.fromSystemProperties(System.out).run();
+
+		assertEquals(3, results.size());
+	}
+
+}
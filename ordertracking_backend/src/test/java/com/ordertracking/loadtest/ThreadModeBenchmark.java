@@ -0,0 +1,350 @@
+package com.ordertracking.loadtest;
+
+import com.ordertracking.service.RealisticOrderSimulator;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the platform-thread and virtual-thread execution modes under a burst of concurrent
+ * rider requests.
+ *
+ * <p>The backend runs in its own JVM against embedded Kafka and H2 (see {@link LoadHarness}), so its
+ * resident memory and OS thread count are not mixed up with the client's and the two sides do not
+ * share one file descriptor limit. Each round opens {@code loadtest.concurrency} connections at once
+ * and sends one quick status update on each; the first round only warms up. Embedded Kafka lives in
+ * the server JVM and counts towards its memory and threads in both modes alike.
+ *
+ * <p>Settings (system properties): {@code loadtest.virtual} ({@code true} for the virtual mode),
+ * {@code loadtest.concurrency}, {@code loadtest.rounds}, {@code loadtest.java} (java executable for
+ * the server, e.g. a JDK 21 when Maven runs on 17), {@code loadtest.server-jvm-args}. Extra
+ * {@code loadtest.app.*} properties are passed to the application.
+ */
+public class ThreadModeBenchmark {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final boolean virtual;
+    private final int concurrency;
+    private final int rounds;
+    private final String javaExecutable;
+    private final String serverJvmArgs;
+    private final PrintStream out;
+
+    public ThreadModeBenchmark(boolean virtual, int concurrency, int rounds, String javaExecutable,
+                               String serverJvmArgs, PrintStream out) {
+        this.virtual = virtual;
+        this.concurrency = concurrency;
+        this.rounds = rounds;
+        this.javaExecutable = javaExecutable;
+        this.serverJvmArgs = serverJvmArgs;
+        this.out = out;
+    }
+
+    public static ThreadModeBenchmark fromSystemProperties(PrintStream out) {
+        return new ThreadModeBenchmark(
+                Boolean.getBoolean("loadtest.virtual"),
+                Integer.getInteger("loadtest.concurrency", 10000),
+                Integer.getInteger("loadtest.rounds", 3),
+                System.getProperty("loadtest.java",
+                        ProcessHandle.current().info().command().orElse("java")),
+                System.getProperty("loadtest.server-jvm-args", "-Xms512m -Xmx2g"),
+                out);
+    }
+
+    public static void main(String[] args) throws Exception {
+        fromSystemProperties(System.out).run();
+    }
+
+    public Result run() throws Exception {
+        Process server = startServer();
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(4, r -> {
+            Thread thread = new Thread(r, "benchmark-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            String ready = awaitReady(server);
+            out.printf("Thread mode benchmark: %s, %d concurrent requests x %d rounds (first is warmup)%n",
+                    ready, concurrency, rounds);
+            String baseUrl = "http://localhost:" + ready.replaceAll(".*port=(\\d+).*", "$1");
+
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(60))
+                    .executor(clientExecutor)
+                    .build();
+            RealisticOrderSimulator.Fleet fleet = new RealisticOrderSimulator.Fleet(1000, 7L);
+
+            List<Round> measured = new ArrayList<>();
+            for (int round = 1; round <= rounds; round++) {
+                Round result = burst(client, baseUrl, fleet, server.pid());
+                result.print(out, round == 1 ? "warmup" : "round " + round);
+                if (round > 1) {
+                    measured.add(result);
+                }
+            }
+            Result result = new Result(ready, measured);
+            result.print(out);
+            return result;
+        } finally {
+            clientExecutor.shutdownNow();
+            server.getOutputStream().close();
+            if (!server.waitFor(30, TimeUnit.SECONDS)) {
+                server.destroyForcibly();
+            }
+        }
+    }
+
+    private Process startServer() throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(javaExecutable);
+        for (String arg : serverJvmArgs.trim().split("\\s+")) {
+            if (!arg.isEmpty()) {
+                command.add(arg);
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Server.class.getName());
+        command.add("spring.threads.virtual.enabled=" + virtual);
+        // Same connection limits in both modes, so only the threading model differs
+        command.add("server.tomcat.max-connections=" + Math.max(concurrency * 2, 8192));
+        command.add("server.tomcat.accept-count=1000");
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith("loadtest.app."))
+                .forEach(name -> command.add(name.substring("loadtest.app.".length()) + "=" + System.getProperty(name)));
+
+        return new ProcessBuilder(command).redirectErrorStream(true).start();
+    }
+
+    /**
+     * Copies the server output to target/thread-mode-benchmark-server.log and returns its READY line.
+     */
+    private String awaitReady(Process server) throws Exception {
+        CompletableFuture<String> ready = new CompletableFuture<>();
+        Path logFile = Path.of("target", "thread-mode-benchmark-server.log");
+        Files.createDirectories(logFile.getParent());
+        Thread drain = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(server.getInputStream()));
+                 PrintWriter log = new PrintWriter(Files.newBufferedWriter(logFile), true)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    log.println(line);
+                    if (line.startsWith("READY ")) {
+                        ready.complete(line.substring(6));
+                    }
+                }
+            } catch (IOException e) {
+                ready.completeExceptionally(e);
+            }
+            ready.completeExceptionally(new IllegalStateException("Server exited before it was ready, see " + logFile));
+        }, "benchmark-server-output");
+        drain.setDaemon(true);
+        drain.start();
+        return ready.get(3, TimeUnit.MINUTES);
+    }
+
+    private Round burst(HttpClient client, String baseUrl, RealisticOrderSimulator.Fleet fleet, long serverPid)
+            throws InterruptedException {
+        Histogram latency = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+        AtomicLong failed = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(concurrency);
+        ProcessSampler sampler = new ProcessSampler(serverPid);
+        sampler.start();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < concurrency; i++) {
+            RealisticOrderSimulator.SimulatedEvent event = fleet.next();
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(baseUrl + "/api/rider/" + event.riderId() + "/orders/"
+                            + event.orderId() + "/status/" + event.status()))
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .timeout(Duration.ofMinutes(2))
+                    .build();
+            long sentAt = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (error != null || response.statusCode() != 200) {
+                            failed.incrementAndGet();
+                        } else {
+                            synchronized (latency) {
+                                latency.recordValue(Math.min(System.nanoTime() - sentAt, HIGHEST_TRACKABLE_NANOS));
+                            }
+                        }
+                        done.countDown();
+                    });
+        }
+        boolean finished = done.await(5, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+        sampler.stop();
+
+        if (!finished) {
+            out.printf("  burst did not finish within 5 minutes, %d requests outstanding%n", done.getCount());
+        }
+        synchronized (latency) {
+            return new Round(latency.copy(), failed.get(), elapsed,
+                    sampler.baselineRssKb, sampler.peakRssKb, sampler.baselineThreads, sampler.peakThreads);
+        }
+    }
+
+    /**
+     * Polls resident memory and OS thread count of the server from /proc while a burst runs.
+     * Virtual threads do not show up as OS threads; their stacks live on the heap.
+     */
+    private static final class ProcessSampler {
+
+        private final Path status;
+        private final Thread thread;
+        private volatile boolean running = true;
+        private long baselineRssKb = -1;
+        private long peakRssKb = -1;
+        private long baselineThreads = -1;
+        private long peakThreads = -1;
+
+        private ProcessSampler(long pid) {
+            this.status = Path.of("/proc", String.valueOf(pid), "status");
+            this.thread = new Thread(this::sampleLoop, "benchmark-sampler");
+            this.thread.setDaemon(true);
+        }
+
+        private void start() {
+            long[] sample = sample();
+            baselineRssKb = peakRssKb = sample[0];
+            baselineThreads = peakThreads = sample[1];
+            thread.start();
+        }
+
+        private void stop() throws InterruptedException {
+            running = false;
+            thread.join();
+        }
+
+        private void sampleLoop() {
+            while (running) {
+                long[] sample = sample();
+                peakRssKb = Math.max(peakRssKb, sample[0]);
+                peakThreads = Math.max(peakThreads, sample[1]);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(20);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        private long[] sample() {
+            long rss = -1;
+            long threads = -1;
+            try {
+                for (String line : Files.readAllLines(status)) {
+                    if (line.startsWith("VmRSS:")) {
+                        rss = Long.parseLong(line.replaceAll("\\D", ""));
+                    } else if (line.startsWith("Threads:")) {
+                        threads = Long.parseLong(line.replaceAll("\\D", ""));
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                // Not on Linux or the process is gone; report -1
+            }
+            return new long[]{rss, threads};
+        }
+    }
+
+    /**
+     * One burst of concurrent requests.
+     */
+    public record Round(Histogram latency, long failed, long elapsedNanos, long baselineRssKb,
+                        long peakRssKb, long baselineThreads, long peakThreads) {
+
+        public double throughput() {
+            return latency.getTotalCount() / (elapsedNanos / 1e9);
+        }
+
+        void print(PrintStream out, String label) {
+            out.printf("  %-8s ok=%d failed=%d in %.2fs -> %.0f req/s | latency p50=%.1fms p99=%.1fms max=%.1fms"
+                            + " | server RSS %d -> %d MB | OS threads %d -> %d%n",
+                    label, latency.getTotalCount(), failed, elapsedNanos / 1e9, throughput(),
+                    latency.getValueAtPercentile(50) / 1e6, latency.getValueAtPercentile(99) / 1e6,
+                    latency.getMaxValue() / 1e6, baselineRssKb / 1024, peakRssKb / 1024,
+                    baselineThreads, peakThreads);
+        }
+    }
+
+    /**
+     * Measured rounds of a benchmark run, warmup excluded.
+     */
+    public record Result(String server, List<Round> rounds) {
+
+        public long completed() {
+            return rounds.stream().mapToLong(round -> round.latency().getTotalCount()).sum();
+        }
+
+        void print(PrintStream out) {
+            out.println("== Results (" + server + ") ==");
+            out.printf("Mean throughput: %.0f req/s%n",
+                    rounds.stream().mapToDouble(Round::throughput).average().orElse(0));
+            out.printf("Peak server RSS: %d MB, peak OS threads: %d, failed requests: %d%n",
+                    rounds.stream().mapToLong(Round::peakRssKb).max().orElse(-1) / 1024,
+                    rounds.stream().mapToLong(Round::peakThreads).max().orElse(-1),
+                    rounds.stream().mapToLong(Round::failed).sum());
+        }
+    }
+
+    /**
+     * Server side: embedded Kafka plus the application, running until stdin is closed.
+     * Arguments are {@code key=value} application properties.
+     */
+    public static final class Server {
+
+        public static void main(String[] args) throws Exception {
+            Map<String, String> overrides = new HashMap<>();
+            for (String arg : args) {
+                int separator = arg.indexOf('=');
+                overrides.put(arg.substring(0, separator), arg.substring(separator + 1));
+            }
+
+            EmbeddedKafkaKraftBroker kafka = new EmbeddedKafkaKraftBroker(1, 1, LoadHarness.TOPIC);
+            kafka.afterPropertiesSet();
+            ConfigurableApplicationContext context = LoadHarness.startApplication(kafka.getBrokersAsString(), 1, overrides);
+            try {
+                System.out.printf("READY port=%s java=%s virtual=%s%n",
+                        context.getEnvironment().getProperty("local.server.port"),
+                        Runtime.version(),
+                        Threading.VIRTUAL.isActive(context.getEnvironment()));
+                System.out.flush();
+                while (System.in.read() != -1) {
+                    // Runs until the benchmark closes stdin
+                }
+            } finally {
+                context.close();
+                kafka.destroy();
+                System.exit(0);
+            }
+        }
+    }
+}
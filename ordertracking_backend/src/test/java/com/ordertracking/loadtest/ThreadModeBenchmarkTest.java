@@ -0,0 +1,22 @@
+package com.ordertracking.loadtest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the thread mode benchmark when requested, once per mode:
+ * {@code mvn test -Dtest=ThreadModeBenchmarkTest -Dloadtest=true -Dloadtest.virtual=true -Dloadtest.java=/path/to/jdk21/bin/java}
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class ThreadModeBenchmarkTest {
+
+	@Test
+	void concurrentRiderRequests() throws Exception {
+		ThreadModeBenchmark.Result result = ThreadModeBenchmark.fromSystemProperties(System.out).run();
+
+		assertTrue(result.completed() > 0, "no rider request completed");
+	}
+
+}
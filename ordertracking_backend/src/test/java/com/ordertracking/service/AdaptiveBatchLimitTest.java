@@ -0,0 +1,76 @@
+package com.ordertracking.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveBatchLimitTest {
+
+	private static final long MILLIS = 1_000_000L;
+
+	@Test
+	void halvesWhileOverTargetDownToTheMinimum() {
+		AdaptiveBatchLimit limit = new AdaptiveBatchLimit(10, 500, 50);
+		assertFalse(limit.isLimiting());
+
+		int[] expected = {250, 125, 62, 31, 15, 10, 10};
+		for (int size : expected) {
+			limit.recordWrite(200 * MILLIS);
+			assertEquals(size, limit.adjust());
+		}
+		assertTrue(limit.isOverloaded());
+		assertTrue(limit.isLimiting());
+		assertEquals(1.0, limit.overload(), 1e-9);
+	}
+
+	@Test
+	void growsByATwentiethOfTheMaximumOnceWellUnderTarget() {
+		AdaptiveBatchLimit limit = new AdaptiveBatchLimit(10, 500, 50);
+		limit.recordWrite(200 * MILLIS);
+		assertEquals(250, limit.adjust());
+
+		// The average needs a few fast writes before it drops under half the target
+		for (int i = 0; i < 20; i++) {
+			limit.recordWrite(MILLIS);
+		}
+		assertTrue(limit.getLatencyMillis() < 25);
+		assertEquals(275, limit.adjust());
+		limit.recordWrite(MILLIS);
+		assertEquals(300, limit.adjust());
+
+		for (int i = 0; i < 20; i++) {
+			limit.recordWrite(MILLIS);
+			limit.adjust();
+		}
+		assertEquals(500, limit.getBatchSize());
+		assertFalse(limit.isLimiting());
+	}
+
+	@Test
+	void keepsTheLimitWithoutNewWritesOrBetweenHalfAndFullTarget() {
+		AdaptiveBatchLimit limit = new AdaptiveBatchLimit(10, 500, 50);
+		assertEquals(500, limit.adjust());
+		assertEquals(0.0, limit.getLatencyMillis());
+
+		limit.recordWrite(200 * MILLIS);
+		assertEquals(250, limit.adjust());
+		assertEquals(250, limit.adjust());
+
+		// 200 ms smoothed towards 40 ms: 168, 142, ... settles between 25 and 50 ms
+		for (int i = 0; i < 30; i++) {
+			limit.recordWrite(40 * MILLIS);
+		}
+		assertFalse(limit.isOverloaded());
+		assertEquals(0.0, limit.overload());
+		assertEquals(250, limit.adjust());
+	}
+
+	@Test
+	void overloadGrowsWithTheLatencyOverTarget() {
+		AdaptiveBatchLimit limit = new AdaptiveBatchLimit(10, 500, 50);
+		limit.recordWrite(60 * MILLIS);
+		assertEquals(0.2, limit.overload(), 1e-9);
+	}
+}
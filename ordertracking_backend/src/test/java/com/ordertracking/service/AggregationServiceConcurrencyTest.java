@@ -0,0 +1,105 @@
+package com.ordertracking.service;
+
+import com.ordertracking.repository.OrderDailySummaryRepository;
+import com.ordertracking.repository.OrderEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Stress test for summary refreshes requested by many partition threads at once.
+ */
+class AggregationServiceConcurrencyTest {
+
+	@Test
+	void refreshesForOneDateNeverOverlapAndNoRequestIsLost() throws Exception {
+		OrderEventRepository eventRepository = mock(OrderEventRepository.class);
+		OrderDailySummaryRepository summaryRepository = mock(OrderDailySummaryRepository.class);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		AtomicInteger runs = new AtomicInteger();
+		AtomicLong lastRunStart = new AtomicLong();
+
+		when(eventRepository.findByDate(any())).thenAnswer(invocation -> {
+			lastRunStart.set(System.nanoTime());
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			runs.incrementAndGet();
+			Thread.sleep(2);
+			running.decrementAndGet();
+			return List.of();
+		});
+
+		AggregationService service = new AggregationService(eventRepository, summaryRepository,
+				new PipelineMetrics(new SimpleMeterRegistry()), mock(OrderStateStore.class),
+				mock(PlatformTransactionManager.class), 30, 24);
+
+		int threads = 8;
+		int requestsPerThread = 200;
+		LocalDate date = LocalDate.of(2024, 1, 15);
+		AtomicLong lastRequest = new AtomicLong();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+		for (int t = 0; t < threads; t++) {
+			executor.submit(() -> {
+				start.await();
+				for (int i = 0; i < requestsPerThread; i++) {
+					lastRequest.accumulateAndGet(System.nanoTime(), Math::max);
+					service.refreshDailySummary(date);
+				}
+				return null;
+			});
+		}
+		start.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+		assertEquals(1, maxRunning.get(), "refreshes for the same date overlapped");
+		assertTrue(runs.get() < threads * requestsPerThread, "requests were not coalesced");
+		assertTrue(lastRunStart.get() >= lastRequest.get(), "last request was not followed by a refresh");
+	}
+
+	@Test
+	void requestArrivingDuringAFailedPassGetsAnotherPass() {
+		OrderEventRepository eventRepository = mock(OrderEventRepository.class);
+		AggregationService service = new AggregationService(eventRepository, mock(OrderDailySummaryRepository.class),
+				new PipelineMetrics(new SimpleMeterRegistry()), mock(OrderStateStore.class),
+				mock(PlatformTransactionManager.class), 30, 24);
+		LocalDate date = LocalDate.of(2024, 1, 15);
+		AtomicInteger runs = new AtomicInteger();
+
+		when(eventRepository.findByDate(date)).thenAnswer(invocation -> {
+			if (runs.incrementAndGet() == 1) {
+				// Another consumer thread asks while the first pass runs, then the pass fails
+				Thread other = new Thread(() -> service.refreshDailySummary(date));
+				other.start();
+				other.join();
+				throw new IllegalStateException("database unavailable");
+			}
+			return List.of();
+		});
+
+		assertThrows(RuntimeException.class, () -> service.refreshDailySummary(date));
+		assertEquals(2, runs.get(), "request made during the failed pass was dropped");
+
+		service.refreshDailySummary(date);
+		assertEquals(3, runs.get(), "date stayed busy after the failure");
+	}
+
+}
@@ -0,0 +1,174 @@
+package com.ordertracking.service;
+
+import com.ordertracking.model.OrderDailySummary;
+import com.ordertracking.model.OrderEvent;
+import com.ordertracking.repository.OrderDailySummaryRepository;
+import com.ordertracking.repository.OrderEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AggregationServiceZoneTest {
+
+	private static final LocalDate DAY = LocalDate.of(2024, 1, 15);
+
+	@Test
+	void zoneRefreshSummarizesOnlyTheDeliveriesMadeInItsZone() {
+		OrderEventRepository eventRepository = mock(OrderEventRepository.class);
+		OrderDailySummaryRepository summaryRepository = mock(OrderDailySummaryRepository.class);
+		AggregationService service = service(eventRepository, summaryRepository);
+
+		// R1 only works in khi; R2 delivered ORD-2 in lhe, ORD-3 in khi and ORD-4, picked up in lhe, in khi
+		when(eventRepository.findByDateAndZone(DAY, "khi")).thenReturn(List.of(
+				event("ORD-1", "R1", "PICKED_UP", 9, 0, "khi"),
+				event("ORD-1", "R1", "DELIVERED", 9, 20, "khi"),
+				event("ORD-3", "R2", "PICKED_UP", 14, 0, "khi"),
+				event("ORD-3", "R2", "DELIVERED", 14, 40, "khi"),
+				event("ORD-4", "R2", "DELIVERED", 16, 15, "khi")));
+		when(eventRepository.findByOrderIdInAndStatusAndEventTimestampBetween(eq(List.of("ORD-4")), eq("PICKED_UP"),
+				eq(DAY.minusDays(1).atStartOfDay()), eq(DAY.plusDays(1).atStartOfDay())))
+				.thenReturn(List.of(event("ORD-4", "R2", "PICKED_UP", 16, 0, "lhe")));
+
+		service.refreshDailySummary(DAY, "KHI");
+
+		verify(eventRepository, never()).findByDate(any());
+		verify(eventRepository, never()).findByRiderAndDate(anyString(), any());
+		List<OrderDailySummary> summaries = saved(summaryRepository, 2);
+		assertSummary(summaries.get(0), "R1", "khi", 1, 0);
+		assertSummary(summaries.get(1), "R2", "khi", 2, 1);
+	}
+
+	@Test
+	void dayRefreshKeepsOneSummaryPerRiderAndZone() {
+		OrderEventRepository eventRepository = mock(OrderEventRepository.class);
+		OrderDailySummaryRepository summaryRepository = mock(OrderDailySummaryRepository.class);
+		AggregationService service = service(eventRepository, summaryRepository);
+
+		OrderEvent otherZonePickup = event("ORD-4", "R2", "PICKED_UP", 16, 0, "lhe");
+		when(eventRepository.findByDate(DAY)).thenReturn(List.of(
+				event("ORD-1", "R1", "PICKED_UP", 9, 0, "khi"),
+				event("ORD-1", "R1", "DELIVERED", 9, 20, "khi"),
+				event("ORD-2", "R2", "PICKED_UP", 8, 0, "lhe"),
+				event("ORD-2", "R2", "DELIVERED", 8, 10, "lhe"),
+				otherZonePickup,
+				event("ORD-4", "R2", "DELIVERED", 16, 15, "khi")));
+		when(eventRepository.findByOrderIdInAndStatusAndEventTimestampBetween(eq(List.of("ORD-4")), eq("PICKED_UP"),
+				any(), any())).thenReturn(List.of(otherZonePickup));
+
+		service.refreshDailySummary(DAY);
+
+		List<OrderDailySummary> summaries = saved(summaryRepository, 3);
+		assertSummary(summaries.get(0), "R1", "khi", 1, 0);
+		assertSummary(summaries.get(1), "R2", "khi", 1, 0);
+		assertSummary(summaries.get(2), "R2", "lhe", 1, 0);
+		verify(summaryRepository).findByRiderIdAndSummaryDateAndZone("R2", DAY, "lhe");
+	}
+
+	@Test
+	void liveStateGetsTheSummaryOnlyOnceItIsCommitted() {
+		OrderEventRepository eventRepository = mock(OrderEventRepository.class);
+		OrderStateStore stateStore = mock(OrderStateStore.class);
+		AggregationService service = new AggregationService(eventRepository, mock(OrderDailySummaryRepository.class),
+				new PipelineMetrics(new SimpleMeterRegistry()), stateStore, mock(PlatformTransactionManager.class), 30, 24);
+		when(eventRepository.findByDateAndZone(DAY, "khi")).thenReturn(List.of(
+				event("ORD-1", "R1", "PICKED_UP", 9, 0, "khi"),
+				event("ORD-1", "R1", "DELIVERED", 9, 20, "khi")));
+
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			service.refreshDailySummary(DAY, "khi");
+			verify(stateStore, never()).updateSummary(any());
+
+			TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+			verify(stateStore).updateSummary(any());
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	void riderTotalsMergeTheZoneSummaries() {
+		OrderDailySummary merged = OrderStateStore.riderTotals(List.of(
+				summary("R2", "khi", 3, 1), summary("R2", "lhe", 1, 0)));
+
+		assertSummary(merged, "R2", "khi,lhe", 4, 1);
+		assertEquals(20, merged.getAvgDeliveryTimeMinutes());
+	}
+
+	@Test
+	void zoneMetricsAddUpToTheAllZoneTotals() {
+		OrderDailySummaryRepository summaryRepository = mock(OrderDailySummaryRepository.class);
+		AggregationService service = service(mock(OrderEventRepository.class), summaryRepository);
+		// R2 also delivered in lhe
+		when(summaryRepository.findBySummaryDate(DAY)).thenReturn(List.of(
+				summary("R1", "khi", 4, 1), summary("R2", "khi", 6, 0), summary("R3", "lhe", 5, 5),
+				summary("R2", "lhe", 0, 0)));
+
+		Map<String, Object> metrics = service.getZoneMetrics(DAY);
+
+		@SuppressWarnings("unchecked")
+		List<Map<String, Object>> zones = (List<Map<String, Object>>) metrics.get("zones");
+		assertEquals(List.of("khi", "lhe"), zones.stream().map(zone -> zone.get("zone")).toList());
+		assertEquals(10, zones.get(0).get("totalDeliveries"));
+		assertEquals(2, zones.get(0).get("riderCount"));
+		assertEquals(0.0, zones.get(1).get("successRate"));
+		assertEquals(2, zones.get(1).get("riderCount"));
+		@SuppressWarnings("unchecked")
+		Map<String, Object> all = (Map<String, Object>) metrics.get("all");
+		assertEquals(15, all.get("totalDeliveries"));
+		assertEquals(6, all.get("totalDelays"));
+		assertEquals(3, all.get("riderCount"));
+	}
+
+	private static AggregationService service(OrderEventRepository eventRepository,
+											  OrderDailySummaryRepository summaryRepository) {
+		return new AggregationService(eventRepository, summaryRepository,
+				new PipelineMetrics(new SimpleMeterRegistry()), mock(OrderStateStore.class),
+				mock(PlatformTransactionManager.class), 30, 24);
+	}
+
+	private static List<OrderDailySummary> saved(OrderDailySummaryRepository summaryRepository, int count) {
+		ArgumentCaptor<OrderDailySummary> saved = ArgumentCaptor.forClass(OrderDailySummary.class);
+		verify(summaryRepository, times(count)).save(saved.capture());
+		return saved.getAllValues().stream()
+				.sorted(Comparator.comparing(OrderDailySummary::getRiderId).thenComparing(OrderDailySummary::getZone))
+				.toList();
+	}
+
+	private static void assertSummary(OrderDailySummary summary, String riderId, String zone, int delivered, int delayed) {
+		assertEquals(riderId, summary.getRiderId());
+		assertEquals(zone, summary.getZone());
+		assertEquals(delivered, summary.getDeliveredOrders());
+		assertEquals(delayed, summary.getDelayedOrders());
+	}
+
+	private static OrderEvent event(String orderId, String riderId, String status, int hour, int minute, String zone) {
+		OrderEvent event = new OrderEvent(orderId, riderId, status, DAY.atTime(hour, minute));
+		event.setZone(zone);
+		return event;
+	}
+
+	private static OrderDailySummary summary(String riderId, String zone, int delivered, int delayed) {
+		OrderDailySummary summary = new OrderDailySummary(riderId, DAY, delivered, 20, delayed);
+		summary.setZone(zone);
+		return summary;
+	}
+}
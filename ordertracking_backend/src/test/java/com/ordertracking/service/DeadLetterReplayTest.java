@@ -0,0 +1,85 @@
+package com.ordertracking.service;
+
+import com.ordertracking.dto.OrderEventDTO;
+import com.ordertracking.repository.OrderEventRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:dlt-replay;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"order.kafka.topic.partitions=1",
+		"order.kafka.listener.concurrency=1",
+		"order.kafka.retry.attempts=2",
+		"order.kafka.retry.delay-ms=100",
+		"order.kafka.retry.multiplier=1",
+		"state.snapshot.enabled=false",
+		"location.history.enabled=false"})
+@EmbeddedKafka(partitions = 1, bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+class DeadLetterReplayTest {
+
+	private static final String TOPIC = "order-status-updates";
+
+	@Autowired
+	private KafkaTemplate<String, Object> kafkaTemplate;
+	@Autowired
+	private DeadLetterService deadLetterService;
+	@Autowired
+	private OrderEventRepository orderEventRepository;
+	@SpyBean
+	private LateEventCorrector lateEventCorrector;
+
+	@Test
+	void eventFailingAfterItsInsertIsDeadLetteredAndReplayedWithoutASecondRow() throws Exception {
+		// Fails every attempt after the row has been inserted
+		doThrow(new IllegalStateException("forced failure"))
+				.when(lateEventCorrector).markIfLate(eq("RID-DLT"), any(), any());
+
+		kafkaTemplate.send(TOPIC, "ORD-DLT", new OrderEventDTO("ORD-DLT", "RID-DLT", "PICKED_UP",
+				LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS))).get();
+
+		List<Map<String, Object>> letters = awaitDeadLetters(1);
+		assertEquals(TOPIC + "-dlt", letters.get(0).get("topic"));
+		assertEquals(1, orderEventRepository.findByOrderId("ORD-DLT").size());
+
+		Mockito.reset(lateEventCorrector);
+		assertEquals(1, deadLetterService.replay(10).get("replayed"));
+
+		verify(lateEventCorrector, timeout(15_000)).markIfLate(eq("RID-DLT"), eq("PICKED_UP"), any());
+		assertEquals(1, orderEventRepository.findByOrderId("ORD-DLT").size());
+		assertTrue(deadLetterService.inspect(10).isEmpty());
+	}
+
+	private List<Map<String, Object>> awaitDeadLetters(int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 30_000;
+		List<Map<String, Object>> letters = deadLetterService.inspect(10);
+		while (letters.size() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(200);
+			letters = deadLetterService.inspect(10);
+		}
+		assertEquals(count, letters.size());
+		return letters;
+	}
+}
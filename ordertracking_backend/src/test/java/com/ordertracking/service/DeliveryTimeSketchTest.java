@@ -0,0 +1,77 @@
+package com.ordertracking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeliveryTimeSketchTest {
+
+	@Test
+	void quantilesStayWithinBucketPrecision() {
+		Random random = new Random(42);
+		DeliveryTimeSketch sketch = new DeliveryTimeSketch();
+		long[] values = new long[20000];
+		for (int i = 0; i < values.length; i++) {
+			// Log-normal around 20 minutes with a long tail
+			values[i] = Math.max(1, (long) (1200 * Math.exp(random.nextGaussian() * 0.6)));
+			sketch.record(values[i]);
+		}
+		Arrays.sort(values);
+
+		for (double quantile : new double[]{0.5, 0.9, 0.99}) {
+			long exact = values[(int) Math.ceil(quantile * values.length) - 1];
+			long estimate = sketch.valueAtQuantile(quantile);
+			assertTrue(Math.abs(estimate - exact) <= exact * 0.035,
+					"q" + quantile + ": exact " + exact + ", estimate " + estimate);
+		}
+	}
+
+	@Test
+	void mergeMatchesRecordingEverythingInOneSketch() {
+		DeliveryTimeSketch monday = new DeliveryTimeSketch();
+		DeliveryTimeSketch tuesday = new DeliveryTimeSketch();
+		DeliveryTimeSketch both = new DeliveryTimeSketch();
+		for (long seconds = 30; seconds < 7200; seconds += 37) {
+			(seconds % 2 == 0 ? monday : tuesday).record(seconds);
+			both.record(seconds);
+		}
+
+		monday.merge(tuesday);
+
+		assertEquals(both.getCount(), monday.getCount());
+		assertArrayEquals(both.toBytes(), monday.toBytes());
+	}
+
+	@Test
+	void roundTripsThroughCompactBytes() {
+		DeliveryTimeSketch sketch = new DeliveryTimeSketch();
+		for (long seconds : new long[]{0, 1, 45, 600, 1800, 1800, 2400, 86_400, 10_000_000}) {
+			sketch.record(seconds);
+		}
+
+		byte[] bytes = sketch.toBytes();
+		DeliveryTimeSketch copy = DeliveryTimeSketch.fromBytes(bytes);
+
+		assertTrue(bytes.length < 32, "encoded size " + bytes.length);
+		assertEquals(sketch.getCount(), copy.getCount());
+		for (double quantile : new double[]{0, 0.25, 0.5, 0.75, 0.9, 1}) {
+			assertEquals(sketch.valueAtQuantile(quantile), copy.valueAtQuantile(quantile));
+		}
+		assertEquals(0, DeliveryTimeSketch.fromBytes(null).getCount());
+	}
+
+	@Test
+	void bucketsCoverValuesWithoutGaps() {
+		for (long value = 0; value < 1_000_000; value++) {
+			int index = DeliveryTimeSketch.bucketIndex(value);
+			long midpoint = DeliveryTimeSketch.bucketMidpoint(index);
+			assertEquals(index, DeliveryTimeSketch.bucketIndex(midpoint), "value " + value);
+		}
+	}
+
+}
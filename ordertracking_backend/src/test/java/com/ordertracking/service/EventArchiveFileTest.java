@@ -0,0 +1,93 @@
+package com.ordertracking.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventArchiveFileTest {
+
+	private static final LocalDate DAY = LocalDate.of(2024, 1, 15);
+	private static final String[] STATUSES = {"PICKED_UP", "IN_TRANSIT", "DELIVERED"};
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void roundTripsEveryRowInRiderAndTimeOrder() throws Exception {
+		List<EventArchiveFile.Row> rows = randomDay(5000);
+		Path path = directory.resolve("events.oca");
+
+		EventArchiveFile.write(path, DAY, rows, 256);
+		EventArchiveFile file = EventArchiveFile.open(path);
+
+		List<EventArchiveFile.Row> read = new ArrayList<>();
+		int decoded = file.scan(Long.MIN_VALUE, Long.MAX_VALUE, null, null, true, (riderId, orderId, status, micros) ->
+				read.add(new EventArchiveFile.Row(orderId, riderId, status, EventArchiveFile.fromMicros(micros))));
+
+		List<EventArchiveFile.Row> expected = new ArrayList<>(rows);
+		expected.sort(Comparator.comparing(EventArchiveFile.Row::riderId).thenComparing(EventArchiveFile.Row::eventTimestamp));
+		assertEquals(expected, read);
+		assertEquals(DAY, file.getDate());
+		assertEquals(5000, file.getRowCount());
+		assertEquals(file.getBlockCount(), decoded);
+		assertTrue(Files.size(path) < 5000 * 16, "archive is " + Files.size(path) + " bytes");
+	}
+
+	@Test
+	void filtersOnlyDecodeBlocksThatCanMatch() throws Exception {
+		List<EventArchiveFile.Row> rows = randomDay(5000);
+		Path path = directory.resolve("events.oca");
+		EventArchiveFile.write(path, DAY, rows, 256);
+		EventArchiveFile file = EventArchiveFile.open(path);
+
+		long from = EventArchiveFile.toMicros(DAY.atTime(10, 0));
+		long to = EventArchiveFile.toMicros(DAY.atTime(12, 0));
+		List<String> matched = new ArrayList<>();
+		int decoded = file.scan(from, to, "RID-007", "DELIVERED", false, (riderId, orderId, status, micros) ->
+				matched.add(riderId + " " + status + " " + micros));
+
+		long expected = rows.stream()
+				.filter(row -> row.riderId().equals("RID-007") && row.status().equals("DELIVERED"))
+				.map(row -> EventArchiveFile.toMicros(row.eventTimestamp()))
+				.filter(micros -> micros >= from && micros < to)
+				.count();
+		assertEquals(expected, matched.size());
+		assertTrue(decoded <= 2, decoded + " blocks decoded for one rider");
+		assertEquals(0, file.scan(Long.MIN_VALUE, Long.MAX_VALUE, "RID-999", null, false, (r, o, s, m) -> true));
+	}
+
+	@Test
+	void stopsWhenTheVisitorSaysSo() throws Exception {
+		Path path = directory.resolve("events.oca");
+		EventArchiveFile.write(path, DAY, randomDay(1000), 100);
+		EventArchiveFile file = EventArchiveFile.open(path);
+
+		int[] visited = {0};
+		file.scan(Long.MIN_VALUE, Long.MAX_VALUE, null, null, false, (riderId, orderId, status, micros) -> ++visited[0] < 10);
+
+		assertEquals(10, visited[0]);
+	}
+
+	private static List<EventArchiveFile.Row> randomDay(int count) {
+		Random random = new Random(7);
+		List<EventArchiveFile.Row> rows = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			LocalDateTime timestamp = DAY.atStartOfDay().plusNanos(random.nextLong(86_400_000_000L) * 1_000);
+			rows.add(new EventArchiveFile.Row("ORD-" + (i / 3), String.format("RID-%03d", random.nextInt(50)),
+					STATUSES[i % 3], timestamp));
+		}
+		return rows;
+	}
+
+}
@@ -0,0 +1,104 @@
+package com.ordertracking.service;
+
+import com.ordertracking.model.OrderEvent;
+import com.ordertracking.repository.OrderEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EventArchiveServiceTest {
+
+	private final LocalDate today = LocalDate.now();
+	private final OrderEventRepository repository = mock(OrderEventRepository.class);
+	private final List<OrderEvent> events = new ArrayList<>();
+
+	@TempDir
+	Path directory;
+
+	@BeforeEach
+	void setUp() {
+		when(repository.findMaxId()).thenAnswer(invocation -> events.isEmpty() ? null : (long) events.size());
+		when(repository.findEarliestEventTimestamp()).thenAnswer(invocation ->
+				events.stream().map(OrderEvent::getEventTimestamp).min(LocalDateTime::compareTo).orElse(null));
+		when(repository.countByEventTimestampGreaterThanEqualAndEventTimestampLessThan(any(), any()))
+				.thenAnswer(invocation -> (long) between(invocation.getArgument(0), invocation.getArgument(1)).size());
+		when(repository.findByEventTimestampGreaterThanEqualAndEventTimestampLessThan(any(), any()))
+				.thenAnswer(invocation -> between(invocation.getArgument(0), invocation.getArgument(1)));
+		when(repository.findDaysWithEventsAfter(anyLong(), any())).thenAnswer(invocation -> {
+			long afterId = invocation.getArgument(0);
+			LocalDateTime before = invocation.getArgument(1);
+			return events.stream()
+					.filter(event -> event.getId() > afterId && event.getEventTimestamp().isBefore(before))
+					.map(event -> event.getEventTimestamp().toLocalDate())
+					.distinct()
+					.toList();
+		});
+	}
+
+	@Test
+	void laterRunsOnlyExportNewlyClosedDaysAndLateArrivals() throws Exception {
+		add("ORD-1", today.minusDays(5));
+		add("ORD-2", today.minusDays(4));
+		add("ORD-3", today.minusDays(2));
+		add("ORD-4", today);
+
+		EventArchiveService archive = service();
+		archive.archiveClosedDays();
+		assertEquals(List.of(today.minusDays(5), today.minusDays(4), today.minusDays(2)), archivedDays(archive));
+		verify(repository, times(4)).countByEventTimestampGreaterThanEqualAndEventTimestampLessThan(any(), any());
+
+		// Nothing new: no day is looked at again
+		clearInvocations(repository);
+		archive.archiveClosedDays();
+		verify(repository, never()).countByEventTimestampGreaterThanEqualAndEventTimestampLessThan(any(), any());
+
+		// A late event for an archived day, after a restart that reads the watermark back
+		add("ORD-5", today.minusDays(4));
+		clearInvocations(repository);
+		EventArchiveService restarted = service();
+		restarted.openArchive();
+		restarted.archiveClosedDays();
+		LocalDateTime lateDay = today.minusDays(4).atStartOfDay();
+		verify(repository).countByEventTimestampGreaterThanEqualAndEventTimestampLessThan(lateDay, lateDay.plusDays(1));
+		verify(repository, times(1)).countByEventTimestampGreaterThanEqualAndEventTimestampLessThan(any(), any());
+		assertEquals(2, restarted.listDays().get(1).get("rows"));
+	}
+
+	private EventArchiveService service() {
+		return new EventArchiveService(repository, mock(PlatformTransactionManager.class), directory.toString(), true,
+				2, false, 30, 256);
+	}
+
+	private void add(String orderId, LocalDate day) {
+		OrderEvent event = new OrderEvent(orderId, "RID-1", "PICKED_UP", day.atTime(12, 0));
+		event.setId((long) events.size() + 1);
+		events.add(event);
+	}
+
+	private List<OrderEvent> between(LocalDateTime from, LocalDateTime to) {
+		return events.stream()
+				.filter(event -> !event.getEventTimestamp().isBefore(from) && event.getEventTimestamp().isBefore(to))
+				.toList();
+	}
+
+	private static List<Object> archivedDays(EventArchiveService archive) {
+		return archive.listDays().stream().map(day -> day.get("date")).toList();
+	}
+}
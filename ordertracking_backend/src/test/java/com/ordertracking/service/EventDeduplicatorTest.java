@@ -0,0 +1,83 @@
+package com.ordertracking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventDeduplicatorTest {
+
+	@Test
+	void acceptsEachKeyOnceWithinWindow() {
+		EventDeduplicator deduplicator = new EventDeduplicator(2000, 10000);
+
+		assertTrue(deduplicator.firstSeen("ORD-1-DELIVERED", 1000));
+		assertFalse(deduplicator.firstSeen("ORD-1-DELIVERED", 2999));
+		assertTrue(deduplicator.firstSeen("ORD-1-DELIVERED", 3000));
+		assertTrue(deduplicator.firstSeen("ORD-2-DELIVERED", 3000));
+	}
+
+	@Test
+	void forgottenKeyIsAcceptedAgain() {
+		EventDeduplicator deduplicator = new EventDeduplicator(2000, 10000);
+		assertTrue(deduplicator.firstSeen("ORD-1-DELIVERED", 1000));
+
+		// A stale release must not clear a newer acceptance
+		deduplicator.forget("ORD-1-DELIVERED", 999);
+		assertFalse(deduplicator.firstSeen("ORD-1-DELIVERED", 1500));
+
+		deduplicator.forget("ORD-1-DELIVERED", 1000);
+		assertTrue(deduplicator.firstSeen("ORD-1-DELIVERED", 1500));
+	}
+
+	@Test
+	void sweepsExpiredEntries() {
+		EventDeduplicator deduplicator = new EventDeduplicator(2000, 10000);
+		deduplicator.firstSeen("ORD-1-PICKED_UP", 0);
+		deduplicator.firstSeen("ORD-2-PICKED_UP", 5000);
+
+		deduplicator.firstSeen("ORD-3-PICKED_UP", 20000);
+
+		assertEquals(1, deduplicator.size());
+	}
+
+	@Test
+	void concurrentDuplicatesAreAcceptedExactlyOnce() throws Exception {
+		int threads = 8;
+		int keys = 5000;
+		EventDeduplicator deduplicator = new EventDeduplicator(60000, 120000);
+		AtomicIntegerArray accepted = new AtomicIntegerArray(keys);
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+		for (int t = 0; t < threads; t++) {
+			int offset = t;
+			executor.submit(() -> {
+				start.await();
+				// Every thread sees every key, in a different order
+				for (int i = 0; i < keys; i++) {
+					int key = (i + offset * 613) % keys;
+					if (deduplicator.firstSeen("ORD-" + key + "-DELIVERED", 1000)) {
+						accepted.incrementAndGet(key);
+					}
+				}
+				return null;
+			});
+		}
+		start.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+		for (int i = 0; i < keys; i++) {
+			assertEquals(1, accepted.get(i), "key " + i);
+		}
+	}
+
+}
@@ -0,0 +1,83 @@
+package com.ordertracking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventImportReaderTest {
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	@Test
+	void readsCsvByHeaderAndSkipsInvalidRows() throws Exception {
+		String csv = """
+				note,status,event_timestamp,rider_id,order_id
+				first,PICKED_UP,2024-01-15T10:00:00,RID-001,ORD-1
+				"quoted, with comma",DELIVERED,2024-01-15 10:42:30.5,"RID-001","ORD-1"
+
+				bad status,LOST,2024-01-15T11:00:00,RID-002,ORD-2
+				bad time,IN_TRANSIT,yesterday,RID-002,ORD-2
+				no order,IN_TRANSIT,2024-01-15T11:00:00,RID-002,
+				""";
+
+		EventImportReader reader = reader(csv, EventImportReader.Format.CSV);
+		List<EventImportReader.Row> rows = readAll(reader);
+
+		assertEquals(List.of(
+				new EventImportReader.Row("ORD-1", "RID-001", "PICKED_UP", LocalDateTime.of(2024, 1, 15, 10, 0)),
+				new EventImportReader.Row("ORD-1", "RID-001", "DELIVERED", LocalDateTime.of(2024, 1, 15, 10, 42, 30, 500_000_000))),
+				rows);
+		assertEquals(5, reader.getRowsRead());
+		assertEquals(3, reader.getRejected());
+		assertEquals(List.of("line 5: invalid status 'LOST'", "line 6: invalid event_timestamp 'yesterday'",
+				"line 7: missing order_id"), reader.getErrors());
+	}
+
+	@Test
+	void readsNdjsonInEitherFieldNaming() throws Exception {
+		String ndjson = """
+				{"orderId":"ORD-1","riderId":"RID-001","status":"IN_TRANSIT","eventTimestamp":"2024-01-15T10:05:00"}
+				{"order_id":"ORD-2","rider_id":"RID-002","status":"DELIVERED","event_timestamp":"2024-01-15 12:00:00"}
+				not json
+				{"orderId":"ORD-3","riderId":"%s","status":"DELIVERED","eventTimestamp":"2024-01-15T12:00:00"}
+				""".formatted("R".repeat(EventImportReader.MAX_ID_LENGTH + 1));
+
+		EventImportReader reader = reader(ndjson, EventImportReader.Format.NDJSON);
+		List<EventImportReader.Row> rows = readAll(reader);
+
+		assertEquals(List.of("ORD-1", "ORD-2"), rows.stream().map(EventImportReader.Row::orderId).toList());
+		assertEquals(LocalDateTime.of(2024, 1, 15, 12, 0), rows.get(1).eventTimestamp());
+		assertEquals(2, reader.getRejected());
+		assertTrue(reader.getErrors().get(1).contains("rider_id longer than"), reader.getErrors().get(1));
+	}
+
+	@Test
+	void rejectsCsvWithoutRequiredColumns() {
+		assertThrows(IllegalArgumentException.class,
+				() -> reader("order_id,rider_id,status\nORD-1,RID-001,DELIVERED\n", EventImportReader.Format.CSV));
+		assertThrows(IllegalArgumentException.class, () -> EventImportReader.Format.parse("xml"));
+	}
+
+	private static EventImportReader reader(String content, EventImportReader.Format format) throws Exception {
+		return new EventImportReader(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), format,
+				OBJECT_MAPPER);
+	}
+
+	private static List<EventImportReader.Row> readAll(EventImportReader reader) throws Exception {
+		List<EventImportReader.Row> rows = new ArrayList<>();
+		EventImportReader.Row row;
+		while ((row = reader.next()) != null) {
+			rows.add(row);
+		}
+		return rows;
+	}
+}
@@ -0,0 +1,76 @@
+package com.ordertracking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashedTimingWheelTest {
+
+	private static final long START = 1_000_000L;
+
+	@Test
+	void expiresAtTheEndOfTheDeadlineTickAcrossTurns() {
+		// 8 slots of 100 ms: one turn is 800 ms
+		HashedTimingWheel<String> wheel = new HashedTimingWheel<>(100, 8, START);
+		wheel.arm("soon", START + 250);
+		wheel.arm("two-turns", START + 2_050);
+		wheel.arm("past", START - 5_000);
+
+		assertEquals(List.of("past"), advance(wheel, START + 100));
+		assertEquals(List.of(), advance(wheel, START + 299));
+		assertEquals(List.of("soon"), advance(wheel, START + 300));
+		assertEquals(List.of(), advance(wheel, START + 2_099));
+		assertEquals(List.of("two-turns"), advance(wheel, START + 2_100));
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	void cancelAndRearmReplaceThePendingDeadline() {
+		HashedTimingWheel<String> wheel = new HashedTimingWheel<>(100, 8, START);
+		wheel.arm("a", START + 150);
+		wheel.arm("b", START + 150);
+		wheel.arm("c", START + 150);
+
+		assertTrue(wheel.cancel("b"));
+		assertFalse(wheel.cancel("b"));
+		wheel.arm("c", START + 950);
+		assertEquals(START + 950, wheel.deadlineOf("c"));
+		assertNull(wheel.deadlineOf("b"));
+
+		assertEquals(List.of("a"), advance(wheel, START + 500));
+		assertEquals(List.of("c"), advance(wheel, START + 1_000));
+	}
+
+	@Test
+	void handlesManyPendingDeadlines() {
+		HashedTimingWheel<Integer> wheel = new HashedTimingWheel<>(1_000, 4096, START);
+		int orders = 300_000;
+		for (int i = 0; i < orders; i++) {
+			wheel.arm(i, START + 1_800_000 + (i % 600) * 1_000L);
+		}
+		for (int i = 0; i < orders; i += 2) {
+			wheel.cancel(i);
+		}
+		assertEquals(orders / 2, wheel.size());
+
+		Set<Integer> expired = new HashSet<>();
+		wheel.advance(START + 1_800_000 + 599_000, expired::add);
+		assertEquals(orders / 2, expired.size());
+		assertTrue(expired.stream().allMatch(i -> i % 2 == 1));
+		assertEquals(0, wheel.size());
+	}
+
+	private static <K> List<K> advance(HashedTimingWheel<K> wheel, long nowMillis) {
+		List<K> expired = new ArrayList<>();
+		wheel.advance(nowMillis, expired::add);
+		return expired;
+	}
+}
@@ -0,0 +1,78 @@
+package com.ordertracking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HotPathLogTest {
+
+	private static final long NOW = 1_705_300_000_000L;
+
+	@Test
+	void sampledModeLogsUpToTheLimitPerStageAndSecond() {
+		HotPathLog hotPathLog = new HotPathLog("sampled", 2);
+
+		assertTrue(hotPathLog.shouldLog(HotPathLog.Stage.CONSUME, NOW));
+		assertTrue(hotPathLog.shouldLog(HotPathLog.Stage.CONSUME, NOW + 10));
+		assertFalse(hotPathLog.shouldLog(HotPathLog.Stage.CONSUME, NOW + 20));
+		// Other stages have their own allowance
+		assertTrue(hotPathLog.shouldLog(HotPathLog.Stage.REQUEST, NOW + 20));
+		// And the next second starts over
+		assertTrue(hotPathLog.shouldLog(HotPathLog.Stage.CONSUME, NOW + 1_000));
+
+		HotPathLog.Summary summary = hotPathLog.takeSummary(NOW + 60_000);
+		assertEquals(4, summary.count(HotPathLog.Stage.CONSUME));
+		assertEquals(1, summary.count(HotPathLog.Stage.REQUEST));
+		assertEquals(1, summary.suppressed());
+		assertEquals(0, hotPathLog.takeSummary(NOW + 120_000).events());
+	}
+
+	@Test
+	void fullModeLogsEverything() {
+		HotPathLog hotPathLog = new HotPathLog("full", 0);
+
+		for (int i = 0; i < 100; i++) {
+			assertTrue(hotPathLog.shouldLog(HotPathLog.Stage.PUBLISH, NOW));
+		}
+		assertEquals(100, hotPathLog.takeSummary(NOW).count(HotPathLog.Stage.PUBLISH));
+		assertThrows(IllegalArgumentException.class, () -> new HotPathLog("verbose", 5));
+	}
+
+	@Test
+	void concurrentCallersNeverExceedTheLimit() throws Exception {
+		HotPathLog hotPathLog = new HotPathLog("sampled", 50);
+		AtomicInteger logged = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Future<?>[] workers = new Future<?>[4];
+			for (int t = 0; t < workers.length; t++) {
+				workers[t] = executor.submit(() -> {
+					for (int i = 0; i < 10_000; i++) {
+						if (hotPathLog.shouldLog(HotPathLog.Stage.CONSUME, NOW)) {
+							logged.incrementAndGet();
+						}
+					}
+				});
+			}
+			for (Future<?> worker : workers) {
+				worker.get(10, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(50, logged.get());
+		HotPathLog.Summary summary = hotPathLog.takeSummary(NOW);
+		assertEquals(40_000, summary.count(HotPathLog.Stage.CONSUME));
+		assertEquals(39_950, summary.suppressed());
+	}
+}
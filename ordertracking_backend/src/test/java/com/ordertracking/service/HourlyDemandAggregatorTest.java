@@ -0,0 +1,43 @@
+package com.ordertracking.service;
+
+import com.ordertracking.model.OrderEvent;
+import com.ordertracking.repository.OrderEventRepository;
+import com.ordertracking.repository.OrderHourlyStatsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HourlyDemandAggregatorTest {
+
+	private static final LocalDate DAY = LocalDate.of(2024, 1, 15);
+
+	@Test
+	void rebuildKeepsEventsConsumedWhileTheDayIsRead() {
+		OrderEventRepository eventRepository = mock(OrderEventRepository.class);
+		HourlyDemandAggregator aggregator = new HourlyDemandAggregator(mock(OrderHourlyStatsRepository.class),
+				eventRepository, mock(AggregationService.class), mock(JdbcTemplate.class),
+				mock(PlatformTransactionManager.class), new PipelineMetrics(new SimpleMeterRegistry()), true, 24);
+		// Already in the events the rebuild reads
+		aggregator.onEvent("ORD-1", "PICKED_UP", DAY.atTime(8, 0));
+
+		when(eventRepository.findByDate(DAY)).thenAnswer(invocation -> {
+			List<OrderEvent> events = List.of(new OrderEvent("ORD-1", "R1", "PICKED_UP", DAY.atTime(8, 0)));
+			// Committed after the read started
+			aggregator.onEvent("ORD-2", "PICKED_UP", DAY.atTime(9, 0));
+			return events;
+		});
+
+		aggregator.rebuildDay(DAY);
+
+		// ORD-1 is in the rebuilt hours, ORD-2 still waits for the next flush
+		assertEquals(1L, aggregator.getHourly(DAY).get("totalPickups"));
+	}
+}
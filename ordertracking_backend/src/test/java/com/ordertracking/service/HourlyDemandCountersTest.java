@@ -0,0 +1,88 @@
+package com.ordertracking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HourlyDemandCountersTest {
+
+	private static final LocalDate DAY = LocalDate.of(2024, 1, 15);
+
+	@Test
+	void countsEventsInTheirHourAndTimesDeliveriesWithAKnownPickup() {
+		HourlyDemandCounters counters = new HourlyDemandCounters();
+		counters.record("ORD-1", "PICKED_UP", DAY.atTime(9, 50));
+		counters.record("ORD-1", "IN_TRANSIT", DAY.atTime(10, 0));
+		counters.record("ORD-1", "DELIVERED", DAY.atTime(10, 20));
+		counters.record("ORD-2", "PICKED_UP", DAY.minusDays(1).atTime(23, 40));
+		counters.record("ORD-2", "DELIVERED", DAY.atTime(0, 30));
+		// Pickup never seen, e.g. consumed before a restart
+		counters.record("ORD-3", "DELIVERED", DAY.atTime(10, 45));
+
+		List<HourlyDemandCounters.HourDelta> deltas = counters.drain();
+		assertEquals(4, deltas.size(), deltas.toString());
+		assertTrue(deltas.contains(new HourlyDemandCounters.HourDelta(DAY.minusDays(1), 23, 1, 0, 0, 0)), deltas.toString());
+		assertTrue(deltas.contains(new HourlyDemandCounters.HourDelta(DAY, 0, 0, 1, 50 * 60, 1)), deltas.toString());
+		assertTrue(deltas.contains(new HourlyDemandCounters.HourDelta(DAY, 9, 1, 0, 0, 0)), deltas.toString());
+		assertTrue(deltas.contains(new HourlyDemandCounters.HourDelta(DAY, 10, 0, 2, 30 * 60, 1)), deltas.toString());
+		assertEquals(List.of(), counters.drain());
+		assertEquals(0, counters.getPendingPickups());
+
+		// A failed flush puts its deltas back
+		counters.restore(deltas);
+		assertEquals(deltas.size(), counters.drain().size());
+	}
+
+	@Test
+	void peekTakeAndPickupEviction() {
+		HourlyDemandCounters counters = new HourlyDemandCounters();
+		counters.record("ORD-1", "PICKED_UP", DAY.atTime(8, 0));
+		counters.record("ORD-2", "PICKED_UP", DAY.atTime(12, 0));
+
+		long[] values = counters.peek(DAY);
+		assertEquals(1, values[8 * HourlyDemandCounters.FIELDS + HourlyDemandCounters.PICKUPS]);
+		assertEquals(HourlyDemandCounters.HOURS * HourlyDemandCounters.FIELDS, values.length);
+
+		assertEquals(1, counters.evictPickupsBefore(DAY.atTime(10, 0)));
+		counters.record("ORD-1", "DELIVERED", DAY.atTime(13, 0));
+		// Pickups at 8 and 12, the untimed delivery at 13
+		assertEquals(3, counters.take(DAY).size());
+		assertEquals(List.of(), counters.take(DAY));
+		assertEquals(List.of(), counters.drain());
+		assertEquals(1, counters.getPendingPickups());
+	}
+
+	@Test
+	void noIncrementIsLostWhileDraining() throws Exception {
+		HourlyDemandCounters counters = new HourlyDemandCounters();
+		int threads = 4;
+		int eventsPerThread = 50_000;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		for (int t = 0; t < threads; t++) {
+			int thread = t;
+			executor.submit(() -> {
+				for (int i = 0; i < eventsPerThread; i++) {
+					LocalDateTime timestamp = DAY.atTime(i % 24, 0);
+					counters.record("ORD-" + thread + "-" + i, "PICKED_UP", timestamp);
+				}
+			});
+		}
+		executor.shutdown();
+
+		long pickups = 0;
+		while (!executor.isTerminated()) {
+			pickups += counters.drain().stream().mapToLong(HourlyDemandCounters.HourDelta::pickups).sum();
+		}
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		pickups += counters.drain().stream().mapToLong(HourlyDemandCounters.HourDelta::pickups).sum();
+		assertEquals((long) threads * eventsPerThread, pickups);
+	}
+}
@@ -0,0 +1,115 @@
+package com.ordertracking.service;
+
+import com.ordertracking.model.OrderDailySummary;
+import com.ordertracking.model.OrderEvent;
+import com.ordertracking.repository.OrderDailySummaryRepository;
+import com.ordertracking.repository.OrderEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class LateEventCorrectorTest {
+
+	private final AggregationService aggregationService = mock(AggregationService.class);
+	private final LateEventCorrector corrector = new LateEventCorrector(aggregationService,
+			new PipelineMetrics(new SimpleMeterRegistry()), mock(EventArchiveService.class), 10, 24);
+
+	@Test
+	void eventsWithinTheAllowedLatenessTakeTheLivePath() {
+		LocalDateTime now = LocalDateTime.now();
+
+		assertFalse(corrector.markIfLate("RID-001", "PICKED_UP", now));
+		assertFalse(corrector.markIfLate("RID-002", "DELIVERED", now.minusMinutes(9)));
+
+		assertEquals(0, corrector.getDirtyCellCount());
+		assertEquals(now.minusMinutes(10), corrector.getWatermark());
+	}
+
+	@Test
+	void lateEventsOfOneRiderAndDayCostOneRecompute() {
+		LocalDateTime now = LocalDateTime.now();
+		LocalDate threeDaysAgo = now.toLocalDate().minusDays(3);
+		corrector.markIfLate("RID-001", "PICKED_UP", now);
+
+		for (int i = 0; i < 20; i++) {
+			assertTrue(corrector.markIfLate("RID-007", "DELIVERED", threeDaysAgo.atTime(12, i)));
+		}
+		corrector.recomputeDirtyCells();
+
+		verify(aggregationService, times(1)).recomputeSummaryCell("RID-007", threeDaysAgo);
+		verify(aggregationService, times(1)).recomputeSummaryCell(anyString(), any());
+	}
+
+	@Test
+	void latePickupAlsoDirtiesTheFollowingDeliveryDay() {
+		LocalDateTime now = LocalDateTime.now();
+		LocalDate threeDaysAgo = now.toLocalDate().minusDays(3);
+		corrector.markIfLate("RID-001", "PICKED_UP", now);
+
+		corrector.markIfLate("RID-007", "PICKED_UP", threeDaysAgo.atTime(23, 40));
+		corrector.recomputeDirtyCells();
+
+		verify(aggregationService).recomputeSummaryCell("RID-007", threeDaysAgo);
+		verify(aggregationService).recomputeSummaryCell("RID-007", threeDaysAgo.plusDays(1));
+	}
+
+	@Test
+	void failedCellsAreRetried() {
+		LocalDate yesterday = LocalDate.now().minusDays(1);
+		corrector.markIfLate("RID-001", "PICKED_UP", LocalDateTime.now());
+		corrector.markIfLate("RID-007", "DELIVERED", yesterday.atTime(8, 0));
+		doThrow(new IllegalStateException("database down")).when(aggregationService)
+				.recomputeSummaryCell("RID-007", yesterday);
+
+		corrector.recomputeDirtyCells();
+
+		assertEquals(1, corrector.getDirtyCellCount());
+	}
+
+	@Test
+	void deliveryAfterMidnightCountsWithItsPickupFromTheDayBefore() {
+		OrderEventRepository eventRepository = mock(OrderEventRepository.class);
+		OrderDailySummaryRepository summaryRepository = mock(OrderDailySummaryRepository.class);
+		AggregationService service = new AggregationService(eventRepository, summaryRepository,
+				new PipelineMetrics(new SimpleMeterRegistry()), mock(OrderStateStore.class),
+				mock(PlatformTransactionManager.class), 30, 24);
+		LocalDate date = LocalDate.of(2024, 1, 15);
+		OrderEvent pickup = new OrderEvent("ORD-1", "RID-007", "PICKED_UP", date.minusDays(1).atTime(23, 45));
+		OrderEvent delivered = new OrderEvent("ORD-1", "RID-007", "DELIVERED", date.atTime(0, 25));
+
+		when(eventRepository.findByRiderAndDate("RID-007", date)).thenReturn(List.of(delivered));
+		when(eventRepository.findByOrderIdInAndStatusAndEventTimestampBetween(
+				eq(List.of("ORD-1")), eq("PICKED_UP"), eq(date.minusDays(1).atStartOfDay()), eq(date.plusDays(1).atStartOfDay())))
+				.thenReturn(List.of(pickup));
+		when(summaryRepository.findByRiderIdAndSummaryDateAndZone("RID-007", date, "default")).thenReturn(Optional.empty());
+
+		service.recomputeSummaryCell("RID-007", date);
+
+		ArgumentCaptor<OrderDailySummary> saved = ArgumentCaptor.forClass(OrderDailySummary.class);
+		verify(summaryRepository).save(saved.capture());
+		assertEquals(1, saved.getValue().getDeliveredOrders());
+		assertEquals(40, saved.getValue().getAvgDeliveryTimeMinutes());
+		assertEquals(1, saved.getValue().getDelayedOrders());
+		verifyNoInteractions(aggregationService);
+	}
+
+}
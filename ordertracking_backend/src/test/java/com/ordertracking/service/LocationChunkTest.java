@@ -0,0 +1,119 @@
+package com.ordertracking.service;
+
+import com.ordertracking.repository.OrderEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class LocationChunkTest {
+
+	private static final long START = 1_705_300_000_000L;
+
+	@Test
+	void decodesWhatWasAppendedToTheMetreAndTheMillisecond() {
+		Random random = new Random(47);
+		LocationChunk chunk = new LocationChunk("RID-1", START);
+		List<LocationChunk.Point> expected = new ArrayList<>();
+		long millis = START;
+		double lat = 24.8607;
+		double lon = 67.0011;
+		for (int i = 0; i < 600; i++) {
+			millis += 4_000 + random.nextInt(1_000);
+			lat += (random.nextDouble() - 0.5) * 0.0004;
+			lon += (random.nextDouble() - 0.5) * 0.0004;
+			chunk.append(millis, lat, lon);
+			expected.add(new LocationChunk.Point(millis, lat, lon));
+		}
+
+		LocationChunk stored = LocationChunk.of("RID-1", chunk.getFirstMillis(), chunk.getLastMillis(),
+				chunk.getPointCount(), chunk.toBytes());
+		List<LocationChunk.Point> decoded = stored.decode(Long.MIN_VALUE, Long.MAX_VALUE);
+		assertEquals(expected.size(), decoded.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).timestamp(), decoded.get(i).timestamp());
+			assertEquals(expected.get(i).latitude(), decoded.get(i).latitude(), 0.000005);
+			assertEquals(expected.get(i).longitude(), decoded.get(i).longitude(), 0.000005);
+		}
+		// Versus 24 bytes for a timestamp and two doubles
+		assertTrue(chunk.getSizeBytes() < expected.size() * 7, "size " + chunk.getSizeBytes());
+
+		long from = expected.get(100).timestamp();
+		long to = expected.get(199).timestamp();
+		List<LocationChunk.Point> range = stored.decode(from, to);
+		assertEquals(100, range.size());
+		assertEquals(from, range.get(0).timestamp());
+		assertEquals(to, range.get(99).timestamp());
+		assertEquals(List.of(), stored.decode(chunk.getLastMillis() + 1, Long.MAX_VALUE));
+	}
+
+	@Test
+	void rejectsAPingOlderThanTheLastOne() {
+		LocationChunk chunk = new LocationChunk("RID-1", START);
+		chunk.append(START + 5_000, 24.86, 67.00);
+
+		assertThrows(IllegalArgumentException.class, () -> chunk.append(START + 3_000, 24.87, 67.01));
+		chunk.append(START + 5_000, 24.87, 67.01);
+		assertEquals(2, chunk.getPointCount());
+	}
+
+	@Test
+	void storeKeepsOutOfOrderPingsWithTheirOwnTimestamps() {
+		LocationHistoryStore store = new LocationHistoryStore(mock(JdbcTemplate.class), mock(OrderEventRepository.class),
+				new PipelineMetrics(new SimpleMeterRegistry()), true, 10, 1000);
+		store.append("RID-1", START + 5_000, 24.86, 67.00);
+		store.append("RID-1", START + 3_000, 24.87, 67.01);
+		store.append("RID-1", START + 9_000, 24.88, 67.02);
+
+		assertEquals(List.of(START + 3_000, START + 5_000, START + 9_000),
+				store.findPoints("RID-1", Long.MIN_VALUE, Long.MAX_VALUE, 100).stream()
+						.map(LocationChunk.Point::timestamp).toList());
+		assertEquals(3, store.getUnflushedPoints());
+	}
+
+	@Test
+	void rejectsAnUnknownFormat() {
+		assertThrows(IllegalArgumentException.class, () -> LocationChunk.of("RID-1", START, START, 1, new byte[]{9, 0, 0, 0}));
+	}
+
+	@Test
+	void downsamplesToEvenTimeSlotsAndKeepsTheLastPoint() {
+		List<LocationChunk.Point> points = new ArrayList<>();
+		for (int i = 0; i <= 1_000; i++) {
+			points.add(new LocationChunk.Point(START + i * 1_000L, 24.86 + i * 0.00001, 67.00));
+		}
+
+		List<LocationChunk.Point> thinned = LocationHistoryStore.downsample(points, 11);
+		assertEquals(11, thinned.size());
+		for (int i = 0; i < 11; i++) {
+			assertEquals(START + i * 100_000L, thinned.get(i).timestamp());
+		}
+		assertEquals(points, LocationHistoryStore.downsample(points, 5_000));
+
+		// A rider standing still for most of the range costs no extra points
+		List<LocationChunk.Point> paused = new ArrayList<>(points.subList(0, 10));
+		paused.add(new LocationChunk.Point(START + 1_000_000, 24.87, 67.00));
+		List<LocationChunk.Point> thinnedPaused = LocationHistoryStore.downsample(paused, 5);
+		assertEquals(List.of(paused.get(0), paused.get(10)), thinnedPaused);
+	}
+
+	@Test
+	void mergesOverlappingChunksFromSeveralInstances() {
+		LocationChunk.Point a = new LocationChunk.Point(START, 24.86, 67.00);
+		LocationChunk.Point b = new LocationChunk.Point(START + 1_000, 24.87, 67.00);
+		LocationChunk.Point c = new LocationChunk.Point(START + 2_000, 24.88, 67.00);
+		LocationChunk.Point sameTime = new LocationChunk.Point(START + 2_000, 24.89, 67.00);
+
+		// A stored chunk of another instance, then this instance's overlapping chunk
+		List<LocationChunk.Point> points = new ArrayList<>(List.of(a, c, b, sameTime, c));
+		assertEquals(List.of(a, b, c, sameTime), LocationHistoryStore.merge(points));
+	}
+}
@@ -0,0 +1,60 @@
+package com.ordertracking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ordertracking.dto.SSEEventDTO;
+import com.ordertracking.model.OrderDailySummary;
+import com.ordertracking.repository.OrderDailySummaryRepository;
+import com.ordertracking.repository.OrderEventRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+class OrderStateStoreTest {
+
+	private final LocalDate today = LocalDate.now();
+	private final OrderStateStore stateStore = new OrderStateStore(mock(OrderEventRepository.class),
+			mock(OrderDailySummaryRepository.class), new ObjectMapper(), 100, 10, 10, 30);
+
+	@Test
+	void deliveryMovesItsRiderBeforeTheSummaryIsRecomputed() {
+		stateStore.apply(new SSEEventDTO("ORD-1", "R1", "PICKED_UP", today.atTime(10, 0)));
+		stateStore.apply(new SSEEventDTO("ORD-2", "R1", "PICKED_UP", today.atTime(10, 5)));
+		stateStore.apply(new SSEEventDTO("ORD-3", "R2", "PICKED_UP", today.atTime(10, 10)));
+
+		long version = stateStore.getLeaderboardVersion();
+		stateStore.recordDelivery("ORD-1", "R1", "khi", today.atTime(10, 40));
+		assertEquals(version + 1, stateStore.getLeaderboardVersion());
+		assertLeader("R1", 1, 40, 1);
+
+		stateStore.recordDelivery("ORD-2", "R1", "khi", today.atTime(10, 25));
+		stateStore.recordDelivery("ORD-3", "R2", "khi", today.atTime(10, 30));
+		assertLeader("R1", 2, 30, 1);
+
+		// The recomputed summary wins
+		OrderDailySummary recomputed = new OrderDailySummary("R1", today, 2, 30, 1);
+		recomputed.setZone("khi");
+		stateStore.updateSummary(recomputed);
+		assertLeader("R1", 2, 30, 1);
+		assertEquals(2, stateStore.leaderboard(RiderLeaderboard.Ranking.DELIVERIES, 10).size());
+	}
+
+	@Test
+	void deliveryWithoutASeenPickupIsLeftToTheRecomputation() {
+		stateStore.recordDelivery("ORD-9", "R9", "khi", today.atTime(11, 0));
+
+		assertEquals(List.of(), stateStore.leaderboard(RiderLeaderboard.Ranking.DELIVERIES, 10));
+	}
+
+	private void assertLeader(String riderId, int delivered, int avgMinutes, int delayed) {
+		Map<String, Object> leader = stateStore.leaderboard(RiderLeaderboard.Ranking.DELIVERIES, 1).get(0);
+		assertEquals(riderId, leader.get("riderId"));
+		assertEquals(delivered, leader.get("deliveredOrders"));
+		assertEquals(avgMinutes, leader.get("avgDeliveryTimeMinutes"));
+		assertEquals(delayed, leader.get("delayedOrders"));
+	}
+}
@@ -0,0 +1,99 @@
+package com.ordertracking.service;
+
+import com.ordertracking.dto.OrderEventDTO;
+import com.ordertracking.model.OutboxEvent;
+import com.ordertracking.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboxOrderingTest {
+
+	private static final String TOPIC = "order-status-updates";
+
+	private final OutboxEventRepository outboxRepository = mock(OutboxEventRepository.class);
+	@SuppressWarnings("unchecked")
+	private final KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+	private final PipelineMetrics pipelineMetrics = new PipelineMetrics(new SimpleMeterRegistry());
+	private final ZoneRouting zoneRouting = new ZoneRouting(TOPIC, List.of(), List.of("all"));
+
+	@Test
+	void relayKeepsAnOrdersLaterRowsBehindItsFailedRow() {
+		OutboxEvent pickedUp = row(1, "ORD-1", "PICKED_UP");
+		OutboxEvent other = row(2, "ORD-2", "PICKED_UP");
+		OutboxEvent delivered = row(3, "ORD-1", "DELIVERED");
+		when(outboxRepository.lockNextBatch(10)).thenReturn(List.of(pickedUp, other, delivered));
+		when(kafkaTemplate.send(eq(TOPIC), eq("ORD-1"), any()))
+				.thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+		when(kafkaTemplate.send(eq(TOPIC), eq("ORD-2"), any())).thenReturn(acknowledged());
+		OutboxRelay relay = new OutboxRelay(outboxRepository, kafkaTemplate, pipelineMetrics,
+				mock(PlatformTransactionManager.class), zoneRouting, 10, 1, 1000);
+
+		assertEquals(0, relay.relayBatch());
+
+		// DELIVERED is neither sent ahead of the failed PICKED_UP nor deleted
+		verify(kafkaTemplate, times(1)).send(eq(TOPIC), eq("ORD-1"), any());
+		verify(outboxRepository).deleteByIdIn(List.of(2L));
+	}
+
+	@Test
+	void directSendsFollowAFailedSendIntoTheOutboxUntilItIsDrained() throws Exception {
+		when(kafkaTemplate.send(anyString(), eq("ORD-1"), any()))
+				.thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")))
+				.thenReturn(acknowledged());
+		OrderService orderService = new OrderService(outboxRepository, kafkaTemplate, pipelineMetrics, zoneRouting,
+				new HotPathLog("full", 5), "direct");
+
+		orderService.simulateOrderEvent(event("PICKED_UP"));
+		verify(outboxRepository, timeout(1000)).save(any(OutboxEvent.class));
+
+		// The relay has not published PICKED_UP yet, so IN_TRANSIT is appended behind it
+		when(outboxRepository.existsByOrderId("ORD-1")).thenReturn(true);
+		orderService.simulateOrderEvent(event("IN_TRANSIT"));
+		ArgumentCaptor<OutboxEvent> appended = ArgumentCaptor.forClass(OutboxEvent.class);
+		verify(outboxRepository, timeout(1000).times(2)).save(appended.capture());
+		assertEquals(List.of("PICKED_UP", "IN_TRANSIT"), appended.getAllValues().stream().map(OutboxEvent::getStatus).toList());
+		verify(kafkaTemplate, times(1)).send(anyString(), eq("ORD-1"), any());
+
+		// Once the outbox holds none of its rows, the order is sent directly again
+		when(outboxRepository.existsByOrderId("ORD-1")).thenReturn(false);
+		orderService.simulateOrderEvent(event("DELIVERED"));
+		verify(kafkaTemplate, timeout(1000).times(2)).send(anyString(), eq("ORD-1"), any());
+		orderService.shutdown();
+		verify(outboxRepository, times(2)).save(any(OutboxEvent.class));
+		verify(outboxRepository, never()).deleteByIdIn(any());
+	}
+
+	private static OutboxEvent row(long id, String orderId, String status) {
+		OutboxEvent event = new OutboxEvent(orderId, "RID-001", status, LocalDateTime.of(2024, 1, 15, 9, 0));
+		event.setId(id);
+		return event;
+	}
+
+	private static OrderEventDTO event(String status) {
+		return new OrderEventDTO("ORD-1", "RID-001", status, LocalDateTime.now());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static CompletableFuture<SendResult<String, Object>> acknowledged() {
+		return CompletableFuture.completedFuture(mock(SendResult.class));
+	}
+}
@@ -0,0 +1,67 @@
+package com.ordertracking.service;
+
+import com.ordertracking.model.OrderDailySummary;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RiderLeaderboardTest {
+
+	private static final LocalDate TODAY = LocalDate.of(2024, 1, 15);
+
+	@Test
+	void ranksRidersByEveryRanking() {
+		RiderLeaderboard leaderboard = new RiderLeaderboard(2);
+		leaderboard.update(summary("RID-001", 5, 25, 1));
+		leaderboard.update(summary("RID-002", 8, 35, 4));
+		leaderboard.update(summary("RID-003", 3, 18, 0));
+		leaderboard.update(summary("RID-004", 0, null, 0));
+
+		assertEquals(List.of("RID-002", "RID-001", "RID-003", "RID-004"),
+				riderIds(leaderboard, RiderLeaderboard.Ranking.DELIVERIES, 10));
+		assertEquals(List.of("RID-003", "RID-001", "RID-002"),
+				riderIds(leaderboard, RiderLeaderboard.Ranking.FASTEST, 10));
+		assertEquals(List.of("RID-003", "RID-001"),
+				riderIds(leaderboard, RiderLeaderboard.Ranking.FEWEST_DELAYS, 2));
+	}
+
+	@Test
+	void riderFallingOutOfTheTopIsReplaced() {
+		RiderLeaderboard leaderboard = new RiderLeaderboard(2);
+		leaderboard.update(summary("RID-001", 5, 20, 0));
+		leaderboard.update(summary("RID-002", 5, 22, 0));
+		leaderboard.update(summary("RID-003", 5, 24, 0));
+
+		assertTrue(leaderboard.update(summary("RID-001", 6, 40, 3)));
+
+		assertEquals(List.of("RID-002", "RID-003"),
+				riderIds(leaderboard, RiderLeaderboard.Ranking.FASTEST, 2));
+		assertEquals(3, leaderboard.size());
+	}
+
+	@Test
+	void changesBelowTheWatchedLeadersAreNotReported() {
+		RiderLeaderboard leaderboard = new RiderLeaderboard(1);
+		leaderboard.update(summary("RID-001", 10, 20, 0));
+		leaderboard.update(summary("RID-002", 2, 30, 1));
+		leaderboard.update(summary("RID-003", 1, 40, 2));
+
+		assertFalse(leaderboard.update(summary("RID-003", 1, 40, 2)));
+		assertFalse(leaderboard.update(summary("RID-003", 2, 41, 3)));
+		assertTrue(leaderboard.update(summary("RID-003", 11, 41, 3)));
+	}
+
+	private static OrderDailySummary summary(String riderId, int delivered, Integer avgMinutes, int delayed) {
+		return new OrderDailySummary(riderId, TODAY, delivered, avgMinutes, delayed);
+	}
+
+	private static List<String> riderIds(RiderLeaderboard leaderboard, RiderLeaderboard.Ranking ranking, int k) {
+		return leaderboard.top(ranking, k).stream().map(RiderLeaderboard.Standing::riderId).toList();
+	}
+
+}
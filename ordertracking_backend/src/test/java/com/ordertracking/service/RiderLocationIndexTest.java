@@ -0,0 +1,126 @@
+package com.ordertracking.service;
+
+import com.ordertracking.service.RiderLocationIndex.Bounds;
+import com.ordertracking.service.RiderLocationIndex.Neighbor;
+import com.ordertracking.service.RiderLocationIndex.Position;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RiderLocationIndexTest {
+
+	@Test
+	void movesRidersBetweenCellsAndFindsThemInTheirNewCell() {
+		RiderLocationIndex index = new RiderLocationIndex(0.01);
+		index.update("RID-1", 24.8600, 67.0000, null, 1_000);
+		index.update("RID-2", 24.8605, 67.0005, false, 1_000);
+		index.update("RID-3", 24.8610, 67.0010, null, 1_000);
+		Bounds firstCell = new Bounds(24.86, 67.00, 24.8699, 67.0099);
+		assertEquals(Set.of("RID-1", "RID-2", "RID-3"), ids(index.within(firstCell, false, 0, 100)));
+
+		// The middle rider of the cell's list moves two cells north and keeps its availability
+		index.update("RID-2", 24.8805, 67.0005, null, 2_000);
+		assertEquals(Set.of("RID-1", "RID-3"), ids(index.within(firstCell, false, 0, 100)));
+		Position moved = index.get("RID-2");
+		assertEquals(24.8805, moved.latitude());
+		assertFalse(moved.available());
+		assertEquals(2_000, moved.updatedAt());
+
+		assertEquals(Set.of("RID-1", "RID-3"), ids(index.within(new Bounds(24, 66, 26, 68), true, 0, 100)));
+		assertEquals(Set.of("RID-2"), ids(index.within(new Bounds(24, 66, 26, 68), false, 1_500, 100)));
+		assertEquals(3, index.within(Bounds.WORLD, false, 0, 100).size());
+		assertEquals(1, index.within(Bounds.WORLD, false, 0, 1).size());
+	}
+
+	@Test
+	void nearestMatchesABruteForceSearch() {
+		Random random = new Random(46);
+		RiderLocationIndex index = new RiderLocationIndex(0.01);
+		Map<String, double[]> riders = new HashMap<>();
+		for (int ping = 0; ping < 20_000; ping++) {
+			String riderId = "RID-" + random.nextInt(2_000);
+			double[] position = {24.80 + random.nextDouble() * 0.2, 66.95 + random.nextDouble() * 0.2,
+					random.nextInt(4) == 0 ? 0 : 1};
+			riders.put(riderId, position);
+			index.update(riderId, position[0], position[1], position[2] == 1, ping);
+		}
+		assertEquals(riders.size(), index.size());
+
+		for (int query = 0; query < 200; query++) {
+			// Some query points lie outside the area, so whole rings are empty
+			double lat = 24.75 + random.nextDouble() * 0.3;
+			double lon = 66.90 + random.nextDouble() * 0.3;
+			List<String> expected = riders.entrySet().stream()
+					.filter(rider -> rider.getValue()[2] == 1)
+					.filter(rider -> distance(rider.getValue(), lat, lon) <= 5)
+					.sorted(Comparator.comparingDouble(rider -> distance(rider.getValue(), lat, lon)))
+					.limit(10)
+					.map(Map.Entry::getKey)
+					.toList();
+			List<Neighbor> nearest = index.nearest(lat, lon, 10, 5, true, 0);
+			assertEquals(expected, nearest.stream().map(neighbor -> neighbor.position().riderId()).toList());
+		}
+	}
+
+	@Test
+	void reportsChangedRidersOnceAndRemovesStaleOnes() {
+		RiderLocationIndex index = new RiderLocationIndex(0.01);
+		index.update("RID-1", 24.86, 67.00, null, 1_000);
+		index.update("RID-2", 24.87, 67.01, null, 1_000);
+		index.update("RID-1", 24.88, 67.02, null, 5_000);
+		index.update("RID-3", 24.89, 67.03, null, 5_000);
+
+		List<Position> changed = index.drainChanged();
+		assertEquals(List.of("RID-1", "RID-2", "RID-3"), changed.stream().map(Position::riderId).toList());
+		assertEquals(24.88, changed.get(0).latitude());
+		assertTrue(index.drainChanged().isEmpty());
+
+		index.update("RID-2", 24.87, 67.01, null, 1_500);
+		assertEquals(List.of("RID-2"), index.removeOlderThan(2_000));
+		assertTrue(index.drainChanged().isEmpty());
+		assertNull(index.get("RID-2"));
+
+		// The released slot is reused, and the new rider is found in its own cell only
+		index.update("RID-4", 24.86, 67.00, null, 6_000);
+		assertEquals(List.of("RID-4"), index.drainChanged().stream().map(Position::riderId).toList());
+		assertEquals(Set.of("RID-4"), ids(index.within(new Bounds(24.86, 67.00, 24.8699, 67.0099), false, 0, 10)));
+		assertEquals(Set.of(), ids(index.within(new Bounds(24.87, 67.01, 24.8799, 67.0199), false, 0, 10)));
+		assertTrue(index.remove("RID-1"));
+		assertFalse(index.remove("RID-1"));
+		assertEquals(2, index.size());
+	}
+
+	@Test
+	void growsPastItsInitialCapacity() {
+		RiderLocationIndex index = new RiderLocationIndex(0.001);
+		List<String> ids = new ArrayList<>();
+		for (int i = 0; i < 5_000; i++) {
+			ids.add("RID-" + i);
+			index.update("RID-" + i, (i % 100) * 0.001, (i / 100) * 0.001, null, i);
+		}
+		assertEquals(5_000, index.size());
+		assertEquals(new HashSet<>(ids), ids(index.within(Bounds.WORLD, false, 0, 10_000)));
+		assertEquals("RID-0", index.nearest(0, 0, 1, 1, false, 0).get(0).position().riderId());
+	}
+
+	private static double distance(double[] position, double lat, double lon) {
+		return RiderLocationIndex.distanceKm(lat, lon, position[0], position[1]);
+	}
+
+	private static Set<String> ids(List<Position> positions) {
+		return positions.stream().map(Position::riderId).collect(Collectors.toSet());
+	}
+}
@@ -0,0 +1,110 @@
+package com.ordertracking.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RiderRateLimiterTest {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+	// The sweep schedule starts at the real clock
+	private final long now = System.nanoTime();
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@Test
+	void allowsTheBurstThenRefillsAtTheClassRate() {
+		RiderRateLimiter limiter = limiter(List.of(), 100);
+
+		for (int i = 0; i < 10; i++) {
+			assertEquals(0, limiter.tryAcquire("RID-001", now));
+		}
+		// Standard riders get 2 tokens a second, so the next one is half a second away
+		assertEquals(SECOND / 2, limiter.tryAcquire("RID-001", now));
+		assertEquals(SECOND / 4, limiter.tryAcquire("RID-001", now + SECOND / 4));
+		assertEquals(0, limiter.tryAcquire("RID-001", now + SECOND / 2));
+		// Other riders have their own bucket
+		assertEquals(0, limiter.tryAcquire("RID-002", now));
+
+		assertEquals(2.0, registry.get("order.rider.throttled").tag("class", "standard").counter().count());
+	}
+
+	@Test
+	void ridersAreClassedByTheLongestMatchingPrefix() {
+		RiderRateLimiter limiter = limiter(List.of("FLEET-:fleet", "FLEET-TEST-:standard"), 100);
+
+		assertEquals("fleet", limiter.classOf("FLEET-7").name());
+		assertEquals("standard", limiter.classOf("FLEET-TEST-7").name());
+		assertEquals("standard", limiter.classOf("RID-7").name());
+
+		for (int i = 0; i < 50; i++) {
+			assertEquals(0, limiter.tryAcquire("FLEET-7", now));
+		}
+		assertEquals(SECOND / 10, limiter.tryAcquire("FLEET-7", now));
+
+		assertThrows(IllegalArgumentException.class, () -> limiter(List.of("VIP-:vip"), 100));
+	}
+
+	@Test
+	void dropsFullBucketsAndLetsUntrackedRidersThroughAtCapacity() {
+		RiderRateLimiter limiter = limiter(List.of(), 2);
+
+		limiter.tryAcquire("RID-001", now);
+		limiter.tryAcquire("RID-002", now);
+		assertEquals(2, limiter.getTrackedRiders());
+		for (int i = 0; i < 20; i++) {
+			assertEquals(0, limiter.tryAcquire("RID-003", now));
+		}
+		assertEquals(20.0, registry.get("order.rider.ratelimit.untracked").counter().count());
+
+		// RID-002 spends its burst and is full again 5 s later; RID-001 is full again by the next sweep
+		for (int i = 0; i < 9; i++) {
+			limiter.tryAcquire("RID-002", now);
+		}
+		assertEquals(0, limiter.tryAcquire("RID-004", now + 3 * SECOND));
+		assertEquals(2, limiter.getTrackedRiders());
+		assertEquals(2.0, registry.get("order.rider.ratelimit.tracked").gauge().value());
+	}
+
+	@Test
+	void concurrentRequestsNeverExceedTheBurst() throws Exception {
+		RiderRateLimiter limiter = limiter(List.of(), 100);
+		AtomicInteger allowed = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Future<?>[] workers = new Future<?>[4];
+			for (int t = 0; t < workers.length; t++) {
+				workers[t] = executor.submit(() -> {
+					for (int i = 0; i < 1_000; i++) {
+						if (limiter.tryAcquire("RID-001", now) == 0) {
+							allowed.incrementAndGet();
+						}
+					}
+				});
+			}
+			for (Future<?> worker : workers) {
+				worker.get(10, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(10, allowed.get());
+		assertTrue(limiter.tryAcquire("RID-001", now) > 0);
+	}
+
+	private RiderRateLimiter limiter(List<String> prefixes, int maxRiders) {
+		return new RiderRateLimiter(new PipelineMetrics(registry), List.of("standard:2:10", "fleet:10:50"),
+				prefixes, "standard", maxRiders, 1_000);
+	}
+}
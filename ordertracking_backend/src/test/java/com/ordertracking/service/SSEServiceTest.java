@@ -0,0 +1,153 @@
+package com.ordertracking.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ordertracking.dto.SSEEventDTO;
+import com.ordertracking.repository.OrderDailySummaryRepository;
+import com.ordertracking.repository.OrderEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class SSEServiceTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private OrderStateStore stateStore;
+	private SSEService sseService;
+
+	@BeforeEach
+	void setUp() {
+		stateStore = new OrderStateStore(mock(OrderEventRepository.class), mock(OrderDailySummaryRepository.class),
+				objectMapper, 100_000, 50, 10, 30);
+		sseService = new SSEService(objectMapper, new PipelineMetrics(new SimpleMeterRegistry()), stateStore,
+				5000, 2, 100_000);
+	}
+
+	@AfterEach
+	void tearDown() {
+		sseService.shutdown();
+	}
+
+	@Test
+	void clientConnectingDuringUpdatesGetsTheSnapshotThenEveryLaterUpdateOnce() throws Exception {
+		int events = 20_000;
+		Thread listener = new Thread(() -> {
+			for (int i = 1; i <= events; i++) {
+				sseService.sendEvent(new SSEEventDTO("ORD-" + i, "RID-1", "PICKED_UP", LocalDateTime.now()));
+			}
+		});
+		listener.start();
+		while (stateStore.getSequence() < events / 4) {
+			Thread.onSpinWait();
+		}
+		RecordingEmitter emitter = new RecordingEmitter();
+		sseService.register(emitter, 0);
+		listener.join();
+
+		Frame snapshot = emitter.awaitFrames(1).get(0);
+		assertEquals("SNAPSHOT", snapshot.event());
+		long snapshotSequence = snapshot.data().get("sequence").asLong();
+		assertTrue(snapshotSequence >= events / 4);
+		assertEquals(snapshotSequence, snapshot.data().get("orders").size());
+
+		int expected = (int) (events - snapshotSequence) + 1;
+		emitter.awaitFrames(expected);
+		while (sseService.getQueueDepth() > 0) {
+			Thread.sleep(10);
+		}
+		List<Frame> frames = emitter.awaitFrames(expected);
+		assertEquals(expected, frames.size());
+		for (int i = 1; i < frames.size(); i++) {
+			assertEquals("ORDER_UPDATE", frames.get(i).event());
+			assertEquals(snapshotSequence + i, frames.get(i).data().get("sequence").asLong());
+		}
+	}
+
+	@Test
+	void coalescingClientGetsOneFrameWithTheLatestUpdatePerOrder() throws Exception {
+		RecordingEmitter emitter = new RecordingEmitter();
+		sseService.register(emitter, 300);
+		assertEquals("SNAPSHOT", emitter.awaitFrames(1).get(0).event());
+
+		sseService.sendEvent(new SSEEventDTO("ORD-A", "RID-1", "PICKED_UP", LocalDateTime.now()));
+		sseService.sendEvent(new SSEEventDTO("ORD-B", "RID-2", "PICKED_UP", LocalDateTime.now()));
+		sseService.sendEvent(new SSEEventDTO("ORD-A", "RID-1", "IN_TRANSIT", LocalDateTime.now()));
+		sseService.sendEvent(new SSEEventDTO("ORD-C", "RID-3", "PICKED_UP", LocalDateTime.now()));
+		sseService.sendEvent(new SSEEventDTO("ORD-B", "RID-2", "DELIVERED", LocalDateTime.now()));
+
+		emitter.awaitFrames(2);
+		// A second frame would only show up after another window
+		Thread.sleep(600);
+		List<Frame> frames = emitter.awaitFrames(2);
+		assertEquals(2, frames.size());
+		Frame batch = frames.get(1);
+		assertEquals("ORDER_UPDATES", batch.event());
+		assertEquals(3, batch.data().size());
+		assertUpdate(batch.data().get(0), "ORD-A", "IN_TRANSIT", 3);
+		assertUpdate(batch.data().get(1), "ORD-C", "PICKED_UP", 4);
+		assertUpdate(batch.data().get(2), "ORD-B", "DELIVERED", 5);
+		assertEquals(0, sseService.getQueueDepth());
+	}
+
+	private static void assertUpdate(JsonNode update, String orderId, String status, long sequence) {
+		assertEquals(orderId, update.get("orderId").asText());
+		assertEquals(status, update.get("status").asText());
+		assertEquals(sequence, update.get("sequence").asLong());
+	}
+
+	private record Frame(String event, JsonNode data) {
+	}
+
+	/**
+	 * Records the frames the sender threads write instead of writing them to a response.
+	 */
+	private final class RecordingEmitter extends SseEmitter {
+
+		private static final Pattern FRAME = Pattern.compile("event:(\\w+)\\ndata:(.*)\\n\\n", Pattern.DOTALL);
+
+		private final List<Frame> frames = new ArrayList<>();
+
+		@Override
+		public void send(SseEventBuilder builder) {
+			StringBuilder text = new StringBuilder();
+			for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+				text.append(part.getData());
+			}
+			Matcher matcher = FRAME.matcher(text);
+			assertTrue(matcher.find(), text::toString);
+			try {
+				Frame frame = new Frame(matcher.group(1), objectMapper.readTree(matcher.group(2)));
+				synchronized (frames) {
+					frames.add(frame);
+					frames.notifyAll();
+				}
+			} catch (Exception e) {
+				throw new AssertionError(e);
+			}
+		}
+
+		List<Frame> awaitFrames(int count) throws InterruptedException {
+			long deadline = System.currentTimeMillis() + 10_000;
+			synchronized (frames) {
+				while (frames.size() < count && System.currentTimeMillis() < deadline) {
+					frames.wait(100);
+				}
+				assertTrue(frames.size() >= count, () -> "only " + frames.size() + " of " + count + " frames");
+				return new ArrayList<>(frames);
+			}
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package com.ordertracking.service;
+
+import com.ordertracking.dto.SSEEventDTO;
+import com.ordertracking.model.OrderDailySummary;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StateSnapshotFileTest {
+
+	private static final LocalDate DAY = LocalDate.of(2024, 1, 15);
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void roundTripsStateAndOffsets() throws Exception {
+		Path path = directory.resolve("state.snapshot");
+		StateSnapshotFile.write(path, sampleContents());
+
+		StateSnapshotFile.Contents read = StateSnapshotFile.read(path);
+
+		assertEquals(1_700_000_000_000L, read.createdAtMillis());
+		assertEquals("order-status-updates", read.topic());
+		OrderStateStore.StoreState store = read.store();
+		assertEquals(Map.of(new TopicPartition("order-status-updates", 0), 120L,
+				new TopicPartition("order-status-updates.khi", 3), 7L), store.offsets());
+		assertEquals(42, store.sequence());
+		assertEquals(DAY, store.summaryDate());
+
+		SSEEventDTO active = store.activeOrders().get(0);
+		assertEquals("ORD-1", active.getOrderId());
+		assertEquals("R1", active.getRiderId());
+		assertEquals("PICKED_UP", active.getStatus());
+		assertEquals(DAY.atTime(9, 30, 15), active.getEventTimestamp());
+		assertEquals(41L, active.getSequence());
+		assertEquals("Rider R1 picked up Order ORD-1", active.getMessage());
+		assertNull(store.deliveredOrders().get(0).getSequence());
+
+		OrderDailySummary summary = store.summaries().get(0);
+		assertEquals(7L, summary.getId());
+		assertEquals("R1", summary.getRiderId());
+		assertEquals(3, summary.getDeliveredOrders());
+		assertEquals(25, summary.getAvgDeliveryTimeMinutes());
+		assertEquals(1, summary.getDelayedOrders());
+		assertEquals("khi", summary.getZone());
+		assertArrayEquals(new byte[] {1, 2, 3}, summary.getDeliveryTimeSketch());
+		assertNull(store.summaries().get(1).getAvgDeliveryTimeMinutes());
+		assertNull(store.summaries().get(1).getDeliveryTimeSketch());
+		assertEquals("default", store.summaries().get(1).getZone());
+
+		assertEquals(DAY.atTime(10, 0), read.newestEventTime());
+		assertEquals(List.of(new LateEventCorrector.SummaryCell("R2", DAY.minusDays(1))), read.dirtyCells());
+	}
+
+	@Test
+	void rejectsTruncatedAndDamagedFiles() throws Exception {
+		Path path = directory.resolve("state.snapshot");
+		StateSnapshotFile.write(path, sampleContents());
+		byte[] bytes = Files.readAllBytes(path);
+
+		Path truncated = directory.resolve("truncated.snapshot");
+		Files.write(truncated, Arrays.copyOf(bytes, bytes.length / 2));
+		assertThrows(IOException.class, () -> StateSnapshotFile.read(truncated));
+
+		Path damaged = directory.resolve("damaged.snapshot");
+		byte[] flipped = bytes.clone();
+		flipped[bytes.length / 2] ^= 0x10;
+		Files.write(damaged, flipped);
+		assertThrows(IOException.class, () -> StateSnapshotFile.read(damaged));
+	}
+
+	private static StateSnapshotFile.Contents sampleContents() {
+		SSEEventDTO active = new SSEEventDTO("ORD-1", "R1", "PICKED_UP", DAY.atTime(9, 30, 15));
+		active.setSequence(41L);
+		SSEEventDTO delivered = new SSEEventDTO("ORD-2", "R2", "DELIVERED", DAY.atTime(9, 45));
+
+		OrderDailySummary withSketch = new OrderDailySummary("R1", DAY, 3, 25, 1);
+		withSketch.setId(7L);
+		withSketch.setDeliveryTimeSketch(new byte[] {1, 2, 3});
+		withSketch.setZone("khi");
+		OrderDailySummary withoutDeliveries = new OrderDailySummary("R2", DAY, 0, null, 0);
+
+		OrderStateStore.StoreState store = new OrderStateStore.StoreState(42, DAY, List.of(active),
+				List.of(delivered), List.of(withSketch, withoutDeliveries),
+				Map.of(new TopicPartition("order-status-updates", 0), 120L, new TopicPartition("order-status-updates.khi", 3), 7L));
+		LocalDateTime newest = DAY.atTime(10, 0);
+		return new StateSnapshotFile.Contents(1_700_000_000_000L, "order-status-updates", store, newest,
+				List.of(new LateEventCorrector.SummaryCell("R2", DAY.minusDays(1))));
+	}
+}
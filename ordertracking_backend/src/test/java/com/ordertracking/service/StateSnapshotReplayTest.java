@@ -0,0 +1,113 @@
+package com.ordertracking.service;
+
+import com.ordertracking.OrderTrackingApplication;
+import com.ordertracking.dto.OrderEventDTO;
+import com.ordertracking.dto.SSEEventDTO;
+import com.ordertracking.repository.OrderEventRepository;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@EmbeddedKafka(partitions = 1)
+class StateSnapshotReplayTest {
+
+	private static final String TOPIC = "order-status-updates";
+	private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+
+	@TempDir
+	Path directory;
+
+	private final LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusMinutes(10);
+
+	@Test
+	void restartFromAnOlderSnapshotReplaysTheRestIntoMemoryOnly(EmbeddedKafkaBroker broker) throws Exception {
+		Path snapshot = directory.resolve("state.snapshot");
+		Path checkpoint = directory.resolve("checkpoint.snapshot");
+
+		try (ConfigurableApplicationContext first = start(broker, snapshot)) {
+			// Still in transit at the restart, and already past its deadline
+			send(first, "ORD-4", "PICKED_UP", -40);
+			send(first, "ORD-1", "PICKED_UP", 0);
+			send(first, "ORD-2", "PICKED_UP", 1);
+			send(first, "ORD-1", "IN_TRANSIT", 2);
+			awaitApplied(first, 4);
+			first.getBean(StateSnapshotService.class).writeSnapshot();
+			Files.copy(snapshot, checkpoint);
+
+			send(first, "ORD-2", "DELIVERED", 3);
+			send(first, "ORD-3", "PICKED_UP", 4);
+			send(first, "ORD-1", "DELIVERED", 5);
+			awaitApplied(first, 7);
+		}
+		// As if the node had died after the checkpoint, before writing its final snapshot
+		Files.copy(checkpoint, snapshot, StandardCopyOption.REPLACE_EXISTING);
+
+		try (ConfigurableApplicationContext second = start(broker, snapshot)) {
+			awaitApplied(second, 7);
+
+			OrderStateStore.StoreState state = second.getBean(OrderStateStore.class).exportState();
+			assertEquals(List.of("ORD-4", "ORD-3"), state.activeOrders().stream().map(SSEEventDTO::getOrderId).toList());
+			assertEquals(List.of("ORD-2", "ORD-1"),
+					state.deliveredOrders().stream().map(SSEEventDTO::getOrderId).toList());
+			assertEquals(7, second.getBean(OrderEventRepository.class).count());
+
+			// Its deadline was armed again from the restored state; the delivered orders' were cancelled
+			DelayMonitor delayMonitor = second.getBean(DelayMonitor.class);
+			await(() -> delayMonitor.getAtRiskCount() > 0);
+			assertEquals(List.of("ORD-4"),
+					delayMonitor.getAtRisk(10).stream().map(order -> order.get("orderId")).toList());
+		}
+	}
+
+	private static ConfigurableApplicationContext start(EmbeddedKafkaBroker broker, Path snapshot) {
+		// Arguments, so they take precedence over application.properties
+		return new SpringApplicationBuilder(OrderTrackingApplication.class).run(
+				"--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+				"--spring.datasource.url=jdbc:h2:mem:snapshot-replay;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+				"--spring.datasource.driver-class-name=org.h2.Driver",
+				"--spring.datasource.username=sa",
+				"--spring.datasource.password=",
+				"--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+				"--server.port=0",
+				"--order.kafka.topic.partitions=1",
+				"--order.kafka.listener.concurrency=1",
+				"--state.snapshot.path=" + snapshot);
+	}
+
+	private void send(ConfigurableApplicationContext context, String orderId, String status, int minute)
+			throws Exception {
+		@SuppressWarnings("unchecked")
+		KafkaTemplate<String, Object> kafkaTemplate = context.getBean("kafkaTemplate", KafkaTemplate.class);
+		kafkaTemplate.send(TOPIC, orderId, new OrderEventDTO(orderId, "RID-1", status, start.plusMinutes(minute)))
+				.get();
+	}
+
+	private static void awaitApplied(ConfigurableApplicationContext context, long offset) throws InterruptedException {
+		OrderStateStore stateStore = context.getBean(OrderStateStore.class);
+		await(() -> Long.valueOf(offset).equals(stateStore.exportState().offsets().get(PARTITION)));
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 30_000;
+		while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(100);
+		}
+		assertTrue(condition.getAsBoolean());
+	}
+}
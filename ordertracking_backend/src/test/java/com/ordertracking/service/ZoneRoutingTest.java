@@ -0,0 +1,60 @@
+package com.ordertracking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ZoneRoutingTest {
+
+	private static final String TOPIC = "order-status-updates";
+
+	@Test
+	void dedicatedZonesGetTheirOwnTopicAndTheRestShareOne() {
+		ZoneRouting routing = new ZoneRouting(TOPIC, List.of("KHI", " lhe "), List.of("all"));
+
+		assertEquals("order-status-updates.khi", routing.topicFor("khi"));
+		assertEquals("order-status-updates.lhe", routing.topicFor("LHE"));
+		assertEquals(TOPIC, routing.topicFor("isb"));
+		assertEquals(TOPIC, routing.topicFor(null));
+		assertEquals(ZoneRouting.DEFAULT_ZONE, ZoneRouting.normalize(" "));
+
+		String[] all = {TOPIC, "order-status-updates.khi", "order-status-updates.lhe"};
+		assertArrayEquals(all, routing.getOrderTopics());
+		assertArrayEquals(all, routing.getConsumedTopics());
+		assertTrue(routing.isOrderTopic("order-status-updates.lhe"));
+		assertFalse(routing.isOrderTopic("order-status-updates.lhe-retry-0"));
+		assertFalse(routing.isOrderTopic("order-status-updates-dlt"));
+	}
+
+	@Test
+	void ordersStayOnTheTopicOfTheZoneTheyWerePickedUpIn() {
+		ZoneRouting routing = new ZoneRouting(TOPIC, List.of("khi"), List.of("all"));
+
+		assertEquals("order-status-updates.khi", routing.topicFor("ORD-1", "PICKED_UP", "KHI"));
+		// The rider crossed into a shared zone on the way
+		assertEquals("order-status-updates.khi", routing.topicFor("ORD-1", "IN_TRANSIT", "lhe"));
+		assertEquals("order-status-updates.khi", routing.topicFor("ORD-1", "DELIVERED", "lhe"));
+		// Delivered orders are forgotten; unknown ones go by the event's zone
+		assertEquals(TOPIC, routing.topicFor("ORD-1", "DELIVERED", "lhe"));
+		assertEquals("order-status-updates.khi", routing.topicFor("ORD-2", "IN_TRANSIT", "khi"));
+	}
+
+	@Test
+	void consumesOnlyTheSelectedTopics() {
+		assertArrayEquals(new String[] {"order-status-updates.khi"},
+				new ZoneRouting(TOPIC, List.of("khi", "lhe"), List.of("khi")).getConsumedTopics());
+		assertArrayEquals(new String[] {TOPIC, "order-status-updates.lhe"},
+				new ZoneRouting(TOPIC, List.of("khi", "lhe"), List.of("shared", "LHE")).getConsumedTopics());
+		// Nothing selected means everything, the same as before zones existed
+		assertArrayEquals(new String[] {TOPIC}, new ZoneRouting(TOPIC, List.of(), List.of()).getConsumedTopics());
+
+		assertThrows(IllegalArgumentException.class, () -> new ZoneRouting(TOPIC, List.of("khi"), List.of("isb")));
+		assertThrows(IllegalArgumentException.class, () -> new ZoneRouting(TOPIC, List.of("k.h.i"), List.of("all")));
+	}
+}
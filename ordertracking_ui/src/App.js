@@ -8,20 +8,23 @@ function App() {
   const [orders, setOrders] = useState(new Map());
   const [recentEvents, setRecentEvents] = useState([]);
   const [activityMessage, setActivityMessage] = useState('Waiting for rider events...');
-  const [riderStats, setRiderStats] = useState([]);
+  // Today's top riders per ranking, kept current by LEADERBOARD frames
+  const [leaderboard, setLeaderboard] = useState(null);
   const [dateInfo, setDateInfo] = useState("Today's Progress (Live)");
   
   const eventSourceRef = useRef(null);
   const maxEvents = 50;
   const maxRecentEvents = 20;
+  // Server batches updates per order within this window (0 = one frame per update)
+  const coalesceMs = 250;
 
   // SSE Connection Management
   const connectSSE = () => {
     console.log('Attempting to connect to SSE...');
     // In development, connect directly to Spring Boot backend
-    const sseUrl = process.env.NODE_ENV === 'development' 
+    const sseUrl = (process.env.NODE_ENV === 'development' 
       ? 'http://localhost:8080/stream/order-updates'
-      : '/stream/order-updates';
+      : '/stream/order-updates') + `?coalesceMs=${coalesceMs}`;
     
     console.log('SSE URL:', sseUrl);
     console.log('Attempting SSE connection...');
@@ -39,6 +42,15 @@ function App() {
       setActivityMessage('Waiting for rider events...');
     };
     
+    // First frame on every (re)connect: current orders and today's metrics, deltas follow
+    eventSourceRef.current.addEventListener('SNAPSHOT', (event) => {
+      try {
+        handleSnapshot(JSON.parse(event.data));
+      } catch (e) {
+        console.error('Error parsing SNAPSHOT:', e);
+      }
+    });
+
     // Only use addEventListener for specific event types, not onmessage
     eventSourceRef.current.addEventListener('ORDER_UPDATE', (event) => {
       console.log('ORDER_UPDATE received:', event.data);
@@ -49,6 +61,34 @@ function App() {
         console.error('Error parsing ORDER_UPDATE:', e);
       }
     });
+
+    // Sent when the top riders of any ranking change, at most once per second
+    eventSourceRef.current.addEventListener('LEADERBOARD', (event) => {
+      try {
+        setLeaderboard(JSON.parse(event.data));
+        setDateInfo("Today's Progress (Live)");
+      } catch (e) {
+        console.error('Error parsing LEADERBOARD:', e);
+      }
+    });
+
+    // An in-transit order passed its delivery deadline; cleared by its DELIVERED update
+    eventSourceRef.current.addEventListener('DELAY_ALERT', (event) => {
+      try {
+        handleDelayAlert(JSON.parse(event.data));
+      } catch (e) {
+        console.error('Error parsing DELAY_ALERT:', e);
+      }
+    });
+
+    // Coalesced mode: latest state of every order that changed during the window
+    eventSourceRef.current.addEventListener('ORDER_UPDATES', (event) => {
+      try {
+        handleOrderUpdates(JSON.parse(event.data));
+      } catch (e) {
+        console.error('Error parsing ORDER_UPDATES:', e);
+      }
+    });
     
     eventSourceRef.current.onerror = (error) => {
       console.error('SSE error occurred:', error);
@@ -66,36 +106,88 @@ function App() {
     };
   };
 
+  const handleSnapshot = (snapshot) => {
+    const snapshotOrders = new Map();
+    (snapshot.orders || []).forEach(data => {
+      snapshotOrders.set(data.orderId, {
+        orderId: data.orderId,
+        riderId: data.riderId,
+        status: data.status,
+        timestamp: data.eventTimestamp || new Date().toISOString(),
+        message: data.message
+      });
+    });
+    setOrders(snapshotOrders);
+
+    if (snapshot.leaderboard) {
+      setLeaderboard(snapshot.leaderboard);
+      setDateInfo("Today's Progress (Live)");
+    }
+  };
+
   const handleOrderUpdate = (data) => {
-    if (data.orderId && data.riderId && data.status) {
-      // Update orders map
-      setOrders(prevOrders => {
-        const newOrders = new Map(prevOrders);
+    handleOrderUpdates([data]);
+  };
+
+  // Applies one or more updates with a single state change each, so a batch renders once
+  const handleOrderUpdates = (updates) => {
+    const valid = updates.filter(data => data.orderId && data.riderId && data.status);
+    if (valid.length === 0) {
+      return;
+    }
+
+    // Update orders map
+    setOrders(prevOrders => {
+      const newOrders = new Map(prevOrders);
+      valid.forEach(data => {
         newOrders.set(data.orderId, {
           orderId: data.orderId,
           riderId: data.riderId,
           status: data.status,
           timestamp: data.eventTimestamp || new Date().toISOString(),
-          message: data.message
+          message: data.message,
+          atRisk: data.status !== 'DELIVERED' && Boolean(prevOrders.get(data.orderId)?.atRisk)
         });
-        return newOrders;
-      });
-      
-      // Create a proper activity message
-      const activityMessage = data.message || createActivityMessage(data.riderId, data.orderId, data.status);
-      
-      // Add to recent events
-      setRecentEvents(prevEvents => {
-        const newEvents = [{
-          message: activityMessage,
-          timestamp: new Date().toLocaleTimeString()
-        }, ...prevEvents];
-        
-        return newEvents.slice(0, maxRecentEvents);
       });
-      
-      setActivityMessage(activityMessage);
-    }
+      return newOrders;
+    });
+
+    // Create proper activity messages, newest first
+    const receivedAt = new Date().toLocaleTimeString();
+    const messages = valid
+      .map(data => data.message || createActivityMessage(data.riderId, data.orderId, data.status))
+      .reverse();
+
+    // Add to recent events
+    setRecentEvents(prevEvents => {
+      const newEvents = [
+        ...messages.map(message => ({ message, timestamp: receivedAt })),
+        ...prevEvents
+      ];
+
+      return newEvents.slice(0, maxRecentEvents);
+    });
+
+    setActivityMessage(messages[0]);
+  };
+
+  const handleDelayAlert = (alert) => {
+    setOrders(prevOrders => {
+      const order = prevOrders.get(alert.orderId);
+      if (!order || order.status === 'DELIVERED') {
+        return prevOrders;
+      }
+      const newOrders = new Map(prevOrders);
+      newOrders.set(alert.orderId, { ...order, atRisk: true });
+      return newOrders;
+    });
+
+    const message = `⚠️ ${alert.message}`;
+    setRecentEvents(prevEvents => [
+      { message, timestamp: new Date().toLocaleTimeString() },
+      ...prevEvents
+    ].slice(0, maxRecentEvents));
+    setActivityMessage(message);
   };
 
   // Helper function to create consistent activity messages
@@ -114,39 +206,14 @@ function App() {
     }
   };
 
-  // Load rider statistics (defaults to today)
-  const loadRiderStats = async () => {
-    console.log('Loading rider statistics (today)...');
-    try {
-      const response = await fetch('/metrics/daily-summary');
-      console.log('Rider stats response status:', response.status);
-      
-      if (!response.ok) {
-        throw new Error(`HTTP ${response.status}: ${response.statusText}`);
-      }
-      
-      const data = await response.json();
-      console.log('Rider stats data:', data);
-      setRiderStats(data);
-      setDateInfo("Today's Progress (Live)");
-    } catch (error) {
-      console.error('Error loading rider stats:', error);
-      setRiderStats([]);
-    }
-  };
-
   // Initialize everything
   useEffect(() => {
     console.log('Component mounted, initializing...');
+    // The SNAPSHOT frame carries today's leaderboard and LEADERBOARD frames keep it current
     connectSSE();
-    loadRiderStats();
-    
-    // Refresh rider stats every 10 seconds for real-time updates
-    const interval = setInterval(loadRiderStats, 10000);
     
     // Cleanup on unmount
     return () => {
-      clearInterval(interval);
       if (eventSourceRef.current) {
         eventSourceRef.current.close();
       }
@@ -167,7 +234,7 @@ function App() {
           <OrderTable orders={orders} maxEvents={maxEvents} />
           
           <RiderStats 
-            riderStats={riderStats}
+            leaderboard={leaderboard}
             dateInfo={dateInfo}
           />
         </div>
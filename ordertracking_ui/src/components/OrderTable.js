@@ -27,13 +27,14 @@ const OrderTable = ({ orders, maxEvents }) => {
               </tr>
             ) : (
               sortedOrders.map(order => (
-                <tr key={order.orderId}>
+                <tr key={order.orderId} className={order.atRisk ? 'order-at-risk' : undefined}>
                   <td><strong>{order.orderId}</strong></td>
                   <td>{order.riderId}</td>
                   <td>
                     <span className={`status-${order.status.toLowerCase().replace('_', '-')}`}>
                       {order.status}
                     </span>
+                    {order.atRisk && <span className="at-risk-badge">DELAYED</span>}
                   </td>
                   <td>{new Date(order.timestamp).toLocaleTimeString()}</td>
                 </tr>
@@ -1,9 +1,19 @@
-import React from 'react';
+import React, { useState } from 'react';
+
+const RANKINGS = [
+  { key: 'deliveries', label: 'Most deliveries' },
+  { key: 'fastest', label: 'Fastest' },
+  { key: 'fewestDelays', label: 'Fewest delays' }
+];
 
 const RiderStats = ({ 
-  riderStats, 
+  leaderboard, 
   dateInfo
 }) => {
+  const [ranking, setRanking] = useState('deliveries');
+  // Already ranked by the server; only the top riders are sent
+  const riderStats = leaderboard ? leaderboard[ranking] || [] : [];
+
   return (
     <div className="panel">
       <h3>🟠 Rider Performance</h3>
@@ -11,16 +21,31 @@ const RiderStats = ({
         <div className="date-info" style={{ marginBottom: '10px', fontWeight: 'bold', color: '#666' }}>
           {dateInfo}
         </div>
+        <div style={{ display: 'flex', gap: '8px' }}>
+          {RANKINGS.map(option => (
+            <button
+              key={option.key}
+              onClick={() => setRanking(option.key)}
+              style={{ fontWeight: option.key === ranking ? 'bold' : 'normal' }}
+            >
+              {option.label}
+            </button>
+          ))}
+        </div>
       </div>
       <div className="rider-stats">
-        {riderStats.length === 0 ? (
+        {leaderboard === null ? (
           <div style={{ textAlign: 'center', color: '#666' }}>
             Loading rider statistics...
           </div>
+        ) : riderStats.length === 0 ? (
+          <div style={{ textAlign: 'center', color: '#666' }}>
+            No deliveries yet today
+          </div>
         ) : (
           riderStats.map(summary => (
             <div key={summary.riderId} className="rider-card">
-              <h4>{summary.riderId}</h4>
+              <h4>#{summary.rank} {summary.riderId}</h4>
               <div className="stat">
                 <span>Delivered Today:</span>
                 <strong>{summary.deliveredOrders || 0}</strong>
@@ -41,4 +66,4 @@ const RiderStats = ({
   );
 };
 
-export default RiderStats;
\ No newline at end of file
+export default RiderStats;